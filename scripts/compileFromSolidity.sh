@@ -1,4 +1,6 @@
+#Regenerates the CertificateDB wrapper after the contract's functions or events change
+#The bytecode is not kept in the wrapper: mvn -P contracts generate-resources compiles src/main/sol/CertificateDB.sol into src/main/resources/contracts and the wrapper loads it with ContractBinary
 solc -o . --bin --abi CertificateDB.sol --overwrite
 bin/web3j solidity generate CertificateDB.bin CertificateDB.abi -o . -p .
 echo "$(tail -n +3 CertificateDB.java)" > CertificateDB.java
-javac -cp .:lib/* CertificateDB.java
+sed -i 's/private static final String BINARY = ".*";/private static final String BINARY = ContractBinary.load("CertificateDB");/' CertificateDB.java
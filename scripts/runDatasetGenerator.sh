@@ -0,0 +1,18 @@
+#!/bin/bash
+#Shell script to run the dataset generator
+#Run from the scripts directory, like runTester.sh
+#Usage: ./runDatasetGenerator.sh [settings file], which defaults to dataset.properties
+
+CONFIG_PATH="${1:-dataset.properties}"
+TARGET_PATH="../target/classes/"
+LIB_PATH="../src/main/java/lib/*"
+CLASSPATH_FILE="../target/classpath.txt"
+
+#The contract code needs the Maven dependencies (such as Micrometer) as well as the vendored libraries
+#The Maven dependencies go first so that SLF4J logs through Logback rather than the vendored slf4j-nop
+if [ ! -f "$CLASSPATH_FILE" ]; then
+    (cd ../ && mvn -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt)
+fi
+
+echo -e "\e[31mRunning DatasetGenerator...\e[39m"
+java -Xms2048m -Xmx8192m -cp "$TARGET_PATH:$(cat $CLASSPATH_FILE):$LIB_PATH" edu.ucsd.dbmi.certificates.experiment.DatasetGenerator "$CONFIG_PATH"
@@ -0,0 +1,16 @@
+#!/bin/bash
+#Shell script to run the load generator
+#Run from the scripts directory, like runTester.sh
+#Usage: ./runLoadGenerator.sh [settings file], which defaults to loadgen.properties
+
+CONFIG_PATH="${1:-loadgen.properties}"
+TARGET_PATH="../target/classes/"
+CLASSPATH_FILE="../target/classpath.txt"
+
+#The load generator needs the Maven dependencies (such as HdrHistogram) as well as the vendored libraries
+if [ ! -f "$CLASSPATH_FILE" ]; then
+    (cd ../ && mvn -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt)
+fi
+
+echo -e "\e[31mRunning LoadGenerator...\e[39m"
+java -Xms2048m -Xmx8192m -cp "$TARGET_PATH:$(cat $CLASSPATH_FILE)" edu.ucsd.dbmi.certificates.experiment.LoadGenerator "$CONFIG_PATH"
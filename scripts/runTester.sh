@@ -8,7 +8,14 @@
 
 TARGET_PATH="../target/classes/"
 LIB_PATH="../src/main/java/lib/*"
+CLASSPATH_FILE="../target/classpath.txt"
+
+#The contract code needs the Maven dependencies (such as Micrometer) as well as the vendored libraries
+#The Maven dependencies go first so that SLF4J logs through Logback rather than the vendored slf4j-nop
+if [ ! -f "$CLASSPATH_FILE" ]; then
+    (cd ../ && mvn -q dependency:build-classpath -Dmdep.outputFile=target/classpath.txt)
+fi
 
 echo -e "\e[31mRunning WebCertificateDBTester...\e[39m"
 pwd
-java -Xms2048m -Xmx8192m -cp "$TARGET_PATH:$LIB_PATH" edu.ucsd.dbmi.certificates.experiment.WebCertificateDBTester
+java -Xms2048m -Xmx8192m -cp "$TARGET_PATH:$(cat $CLASSPATH_FILE):$LIB_PATH" edu.ucsd.dbmi.certificates.experiment.WebCertificateDBTester
@@ -0,0 +1,30 @@
+package edu.ucsd.dbmi.certificates;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH microbenchmarks in src/jmh/java with the GC profiler attached, so every result comes with the bytes allocated per operation
+ * (gc.alloc.rate.norm) as well as its time. Takes the usual JMH command line options, such as a regular expression to pick benchmarks
+ * or -f, -wi and -i to change the forks and iterations. With no regular expression, every benchmark in the app is run.
+ */
+
+public class CertificateBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class);
+
+        if(commandLine.getIncludes().isEmpty()) {
+            options.include(CertificateBenchmarks.class.getPackage().getName() + "\\..*Benchmark");
+        }
+
+        new Runner(options.build()).run();
+    }
+}
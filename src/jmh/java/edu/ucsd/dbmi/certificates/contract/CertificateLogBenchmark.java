@@ -0,0 +1,60 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import org.openjdk.jmh.annotations.*;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint64;
+import org.web3j.abi.datatypes.generated.Uint8;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding a CertificateAdded event log into a Certificate, which is how every certificate reaches the local index.
+ * This replaced parsing the JSON strings that queryAll() used to return, so it is the same step on today's read path.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateLogBenchmark {
+
+    private Log log;
+
+    @Setup
+    public void setUp() {
+        log = new Log();
+
+        log.setTopics(Arrays.asList(
+            EventEncoder.encode(CertificateDB.CERTIFICATEADDED_EVENT),
+            "0x" + TypeEncoder.encode(new Uint256(BigInteger.valueOf(123456))),
+            "0x" + TypeEncoder.encode(new Uint64(BigInteger.valueOf(10042)))
+        ));
+
+        log.setData("0x" + FunctionEncoder.encodeConstructor(Arrays.<Type>asList(
+            new Utf8String("jane.researcher@ucsd.edu"),
+            new Utf8String("Jane"),
+            new Utf8String("Researcher"),
+            new Uint256(BigInteger.valueOf(10043)),
+            new Uint256(BigInteger.valueOf(10044)),
+            new Uint8(BigInteger.ZERO),
+            new Utf8String("Biomedical Research - Basic/Refresher"),
+            new Uint256(BigInteger.valueOf(1735689600L))
+        )));
+    }
+
+    @Benchmark
+    public Certificate decode() {
+        return CertificateDBSC.toCertificate(log);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up and assigning the numeric keys of emails and names, which WebCertificateDB.initID() does three times for every
+ * certificate it submits, with the registry already holding different numbers of keys.
+ * Assigning new keys grows the registry, so it is refilled before every iteration to keep the fill level close to the one being measured.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyRegistryBenchmark {
+
+    //The number of keys already in the registry
+    @Param({"1000", "100000", "1000000"})
+    int fill;
+
+    private String[] emails;
+    private IDRegistry sequential;
+    private HashedKeyRegistry hashed;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpEmails() {
+        emails = new String[fill];
+
+        for(int i = 0; i < fill; i++) {
+            emails[i] = "researcher" + i + "@ucsd.edu";
+        }
+
+        hashed = new HashedKeyRegistry();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpRegistry() throws IOException {
+        sequential = new IDRegistry();
+
+        for(String email : emails) {
+            sequential.getOrAssign(email);
+        }
+
+        next = 0;
+    }
+
+    @Benchmark
+    public long sequentialExisting() throws IOException {
+        return sequential.getOrAssign(emails[next++ % fill]);
+    }
+
+    @Benchmark
+    public long sequentialNew() throws IOException {
+        return sequential.getOrAssign("new" + (next++) + "@ucsd.edu");
+    }
+
+    @Benchmark
+    public long hashed() {
+        return hashed.getOrAssign(emails[next++ % fill]);
+    }
+}
@@ -0,0 +1,63 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cutting an encoded PDF into the slices it is uploaded in, and putting the slices back together the way getPDFBytes() does,
+ * without any of the chain calls around them.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFSliceBenchmark {
+
+    //The size of the encoded PDF in kilobytes, from a typical certificate up to a large scanned one
+    @Param({"100", "1024"})
+    int pdfKB;
+
+    private byte[] encoded;
+    private byte[][] slices;
+
+    @Setup
+    public void setUp() {
+        encoded = new byte[pdfKB * 1024];
+        new Random(42).nextBytes(encoded);
+
+        slices = new byte[CertificateDBSC.countSlices(encoded.length)][];
+        for(int i = 0; i < slices.length; i++) {
+            slices[i] = CertificateDBSC.cutSlice(encoded, i);
+        }
+    }
+
+    @Benchmark
+    public void split(Blackhole blackhole) {
+        int numSlices = CertificateDBSC.countSlices(encoded.length);
+
+        for(int i = 0; i < numSlices; i++) {
+            blackhole.consume(CertificateDBSC.cutSlice(encoded, i));
+        }
+    }
+
+    @Benchmark
+    public byte[] reassemble() {
+        byte[] lastSlice = slices[slices.length - 1];
+        int lastSliceStart = encoded.length - lastSlice.length;
+
+        byte[] result = new byte[encoded.length];
+        System.arraycopy(lastSlice, 0, result, lastSliceStart, lastSlice.length);
+
+        for(int i = 0; i < slices.length - 1; i++) {
+            CertificateDBSC.placeSlice(0, i, slices[i], result);
+        }
+
+        return result;
+    }
+}
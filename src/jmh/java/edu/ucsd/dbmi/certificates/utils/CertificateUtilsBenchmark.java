@@ -0,0 +1,55 @@
+package edu.ucsd.dbmi.certificates.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the helpers in CertificateUtils that sit on the query and PDF paths.
+ * removeDuplicates() empties and refills the list it is given, so each call works on a fresh copy, and the copy is part of the measurement.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateUtilsBenchmark {
+
+    //The number of record IDs in the list, half of which are duplicates, like the results of a query that matches on several fields
+    @Param({"100", "10000"})
+    int listSize;
+
+    //The number of bytes to convert, from a hash up to a full PDF slice
+    @Param({"32", "30720"})
+    int byteCount;
+
+    private ArrayList<Integer> recordIDs;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+
+        recordIDs = new ArrayList<>(listSize);
+        for(int i = 0; i < listSize; i++) {
+            recordIDs.add(random.nextInt(listSize / 2));
+        }
+
+        bytes = new byte[byteCount];
+        random.nextBytes(bytes);
+    }
+
+    @Benchmark
+    public ArrayList<Integer> removeDuplicates() {
+        return CertificateUtils.removeDuplicates(new ArrayList<>(recordIDs));
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return CertificateUtils.bytesToHex(bytes);
+    }
+}
@@ -6,16 +6,16 @@ import java.util.Objects;
 
 public class Certificate {
 
-    enum CertificateType {CITI, HIPAA}
+    public enum CertificateType {CITI, HIPAA}
 
     private String email;
-    private Integer researcherID;
+    private Long researcherID;
 
     private String firstName;
     private String lastName;
 
-    private Integer firstNameKey;
-    private Integer lastNameKey;
+    private Long firstNameKey;
+    private Long lastNameKey;
 
     private CertificateType certificateType;
     private Integer recordID;
@@ -30,7 +30,7 @@ public class Certificate {
         //Do nothing
     }
 
-    public Certificate(Integer researcherID, String firstName, String lastName, Integer firstNameKey, Integer lastNameKey, Integer certificateType, Integer recordID, String courseName, long endDate, byte[] pdf) {
+    public Certificate(Long researcherID, String firstName, String lastName, Long firstNameKey, Long lastNameKey, Integer certificateType, Integer recordID, String courseName, long endDate, byte[] pdf) {
         this.researcherID = researcherID;
         this.firstName = firstName;
         this.lastName = lastName;
@@ -60,7 +60,7 @@ public class Certificate {
         this.email = email;
     }
 
-    public Integer getResearcherID() {
+    public Long getResearcherID() {
         return researcherID;
     }
 
@@ -72,11 +72,11 @@ public class Certificate {
         return lastName;
     }
 
-    public Integer getFirstNameKey() {
+    public Long getFirstNameKey() {
         return firstNameKey;
     }
 
-    public Integer getLastNameKey() {
+    public Long getLastNameKey() {
         return lastNameKey;
     }
 
@@ -0,0 +1,70 @@
+package edu.ucsd.dbmi.certificates.beans;
+
+import java.util.ArrayList;
+
+public class CertificatePage {
+
+    private ArrayList<Certificate> certificates;
+
+    private int offset;
+    private int limit;
+
+    //-1 if this is the last page
+    private int nextOffset;
+
+    public CertificatePage() {
+        this.certificates = new ArrayList<>();
+        this.nextOffset = -1;
+    }
+
+    public CertificatePage(ArrayList<Certificate> certificates, int offset, int limit, int nextOffset) {
+        this.certificates = certificates;
+        this.offset = offset;
+        this.limit = limit;
+        this.nextOffset = nextOffset;
+    }
+
+    public ArrayList<Certificate> getCertificates() {
+        return certificates;
+    }
+
+    public void setCertificates(ArrayList<Certificate> certificates) {
+        this.certificates = certificates;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(int nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public boolean hasNextPage() {
+        return nextOffset >= 0;
+    }
+
+    public boolean hasPreviousPage() {
+        return offset > 0;
+    }
+
+    public int getPreviousOffset() {
+        return Math.max(0, offset - limit);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.ucsd.dbmi.certificates.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CertificateSubmissionResult {
+
+    public enum Status { SUBMITTED, CONFIRMED, FAILED }
+
+    private int recordID;
+    private String email;
+
+    private List<String> transactionHashes;
+    private Status status;
+    private String error;
+
+    public CertificateSubmissionResult() {
+        this.transactionHashes = new ArrayList<>();
+    }
+
+    public CertificateSubmissionResult(int recordID, String email) {
+        this.recordID = recordID;
+        this.email = email;
+        this.transactionHashes = new ArrayList<>();
+    }
+
+    public int getRecordID() {
+        return recordID;
+    }
+
+    public void setRecordID(int recordID) {
+        this.recordID = recordID;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public List<String> getTransactionHashes() {
+        return transactionHashes;
+    }
+
+    public void setTransactionHashes(List<String> transactionHashes) {
+        this.transactionHashes = transactionHashes;
+    }
+
+    public String getCertificateTransactionHash() {
+        return transactionHashes.isEmpty() ? null : transactionHashes.get(0);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
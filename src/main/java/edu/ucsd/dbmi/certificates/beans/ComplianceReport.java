@@ -0,0 +1,73 @@
+package edu.ucsd.dbmi.certificates.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ComplianceReport {
+
+    //Where the expiries were read from: the local certificate index, or the contract when the index was not current
+    public enum Source { INDEX, CHAIN }
+
+    private List<ComplianceResult> results;
+    private Source source;
+
+    private long elapsedNanos;
+
+    public ComplianceReport() {
+        this.results = new ArrayList<>();
+    }
+
+    public ComplianceReport(List<ComplianceResult> results, Source source, long elapsedNanos) {
+        this.results = results;
+        this.source = source;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<ComplianceResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<ComplianceResult> results) {
+        this.results = results;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    public void setSource(Source source) {
+        this.source = source;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1e6;
+    }
+
+    public int getResearcherCount() {
+        return results.size();
+    }
+
+    public int getValidCount() {
+        int count = 0;
+
+        for(ComplianceResult result : results) {
+            if(result.isValid()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public double getResearchersPerSecond() {
+        return elapsedNanos == 0 ? 0 : results.size() * 1e9 / elapsedNanos;
+    }
+}
@@ -0,0 +1,58 @@
+package edu.ucsd.dbmi.certificates.beans;
+
+import java.util.Date;
+
+public class ComplianceResult {
+
+    private String email;
+
+    //False if no certificate has ever been added for the email. With sequentially assigned keys this means the email was never given a key.
+    private boolean registered;
+    private boolean valid;
+
+    //The earliest of the researcher's latest expiries across the required certificate types, which is when they stop being compliant
+    //Null if the researcher is missing one of the required types entirely
+    private Date earliestExpiry;
+
+    public ComplianceResult() {
+    }
+
+    public ComplianceResult(String email, boolean registered, boolean valid, Date earliestExpiry) {
+        this.email = email;
+        this.registered = registered;
+        this.valid = valid;
+        this.earliestExpiry = earliestExpiry;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+
+    public void setRegistered(boolean registered) {
+        this.registered = registered;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    public Date getEarliestExpiry() {
+        return earliestExpiry;
+    }
+
+    public void setEarliestExpiry(Date earliestExpiry) {
+        this.earliestExpiry = earliestExpiry;
+    }
+}
@@ -1,36 +1,114 @@
 package edu.ucsd.dbmi.certificates.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
-public class SecurityConfig extends WebSecurityConfigurerAdapter {
-
-    @Override
-    protected void configure(HttpSecurity http) throws Exception {
-        http
-            .authorizeRequests()
-                .antMatchers("/css/**", "/res/**").permitAll()
-                .anyRequest().authenticated()
-                .and()
-            .formLogin()
-                .loginPage("/login")
-                .permitAll()
-                .defaultSuccessUrl("/home", true)
-                .and()
-            .logout()
-                .permitAll()
-                .logoutRequestMatcher(new AntPathRequestMatcher("/logout"))
-                .logoutSuccessUrl("/login?logout");
+public class SecurityConfig {
+
+    //Endpoints meant for programs rather than browsers, which log in with HTTP Basic on every request instead of through the login form
+    private final static String[] API_PATHS = {"/submit-batch", "/compliance"};
+
+    //==============================================================================
+
+    /**
+     * Programmatic endpoints. Clients have no session and so no CSRF token, so CSRF is not checked here, and nothing is kept in a session
+     * either, so a browser's login cookie cannot be used to forge requests to them.
+     */
+
+    @Configuration
+    @Order(1)
+    public static class ApiSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http
+                .requestMatchers()
+                    .antMatchers(API_PATHS)
+                    .and()
+                .authorizeRequests()
+                    .anyRequest().authenticated()
+                    .and()
+                .sessionManagement()
+                    .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                .csrf()
+                    .ignoringAntMatchers(API_PATHS)
+                    .and()
+                .httpBasic();
+        }
     }
 
-    @Override
-    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+    //==============================================================================
+
+    /**
+     * Actuator endpoints, which Prometheus scrapes /actuator/prometheus from. Scrapers cannot get through the login form, so they log in
+     * with HTTP Basic, and only here.
+     */
+
+    @Configuration
+    @Order(2)
+    public static class ActuatorSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http
+                .requestMatcher(EndpointRequest.toAnyEndpoint())
+                .authorizeRequests()
+                    .anyRequest().authenticated()
+                    .and()
+                .sessionManagement()
+                    .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                    .and()
+                .httpBasic();
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Everything else, which is used from a browser through the login form
+     */
+
+    @Configuration
+    public static class FormLoginSecurityConfig extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http
+                .authorizeRequests()
+                    .antMatchers("/css/**", "/res/**").permitAll()
+                    .anyRequest().authenticated()
+                    .and()
+                .formLogin()
+                    .loginPage("/login")
+                    .permitAll()
+                    .defaultSuccessUrl("/home", true)
+                    .and()
+                .logout()
+                    .permitAll()
+                    .logoutRequestMatcher(new AntPathRequestMatcher("/logout"))
+                    .logoutSuccessUrl("/login?logout");
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * The accounts that can log in, shared by every filter chain above
+     */
+
+    @Autowired
+    public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
         auth.inMemoryAuthentication()
             .withUser("user")
                 .password("{noop}password")
@@ -46,4 +124,4 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     }
 
-}
\ No newline at end of file
+}
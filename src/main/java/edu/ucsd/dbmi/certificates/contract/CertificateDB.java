@@ -1,18 +1,30 @@
 package edu.ucsd.dbmi.certificates.contract;
 
+import org.web3j.abi.EventEncoder;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.*;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.RemoteCall;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.Contract;
 import org.web3j.tx.TransactionManager;
+import org.web3j.tuples.generated.Tuple2;
+import org.web3j.tuples.generated.Tuple3;
+import org.web3j.tuples.generated.Tuple9;
+import rx.Observable;
+import rx.functions.Func1;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * <p>Auto generated code.
@@ -24,27 +36,60 @@ import java.util.Collections;
  * <p>Generated with web3j version 3.4.0.
  */
 public class CertificateDB extends Contract {
-    private static final String BINARY = "6080604052600060065534801561001557600080fd5b50613d98806100256000396000f3fe608060405234801561001057600080fd5b506004361061009e5760003560e01c8063c435167011610066578063c435167014610330578063c4a7bb22146105f4578063c77044dc1461069f578063d530c1bc14610750578063db9ff544146107925761009e565b8063050cc6a8146100a357806313fcfe801461017657806334779fb0146101f9578063702859da146102c85780638809f72714610312575b600080fd5b6100fb600480360360a08110156100b957600080fd5b810190808035906020019092919080359060200190929190803561ffff1690602001909291908035906020019092919080359060200190929190505050610865565b6040518080602001828103825283818151815260200191508051906020019080838360005b8381101561013b578082015181840152602081019050610120565b50505050905090810190601f1680156101685780820380516001836020036101000a031916815260200191505b509250505060405180910390f35b61017e610d24565b6040518080602001828103825283818151815260200191508051906020019080838360005b838110156101be5780820151818401526020810190506101a3565b50505050905090810190601f1680156101eb5780820380516001836020036101000a031916815260200191505b509250505060405180910390f35b6102c66004803603606081101561020f57600080fd5b8101908080359060200190929190803590602001909291908035906020019064010000000081111561024057600080fd5b82018360208201111561025257600080fd5b8035906020019184600183028401116401000000008311171561027457600080fd5b91908080601f016020809104026020016040519081016040528093929190818152602001838380828437600081840152601f19601f820116905080830192505050505050509192919290505050610ea8565b005b6102f8600480360360208110156102de57600080fd5b81019080803561ffff169060200190929190505050610f0f565b604051808215151515815260200191505060405180910390f35b61031a6112b9565b6040518082815260200191505060405180910390f35b6105f2600480360361014081101561034757600080fd5b810190808035906020019064010000000081111561036457600080fd5b82018360208201111561037657600080fd5b8035906020019184600183028401116401000000008311171561039857600080fd5b91908080601f016020809104026020016040519081016040528093929190818152602001838380828437600081840152601f19601f820116905080830192505050505050509192919290803561ffff1690602001909291908035906020019064010000000081111561040957600080fd5b82018360208201111561041b57600080fd5b8035906020019184600183028401116401000000008311171561043d57600080fd5b91908080601f016020809104026020016040519081016040528093929190818152602001838380828437600081840152601f19601f820116905080830192505050505050509192919290803590602001906401000000008111156104a057600080fd5b8201836020820111156104b257600080fd5b803590602001918460018302840111640100000000831117156104d457600080fd5b91908080601f016020809104026020016040519081016040528093929190818152602001838380828437600081840152601f19601f8201169050808301925050505050505091929192908035906020019092919080359060200190929190803560ff169060200190929190803590602001909291908035906020019064010000000081111561056257600080fd5b82018360208201111561057457600080fd5b8035906020019184600183028401116401000000008311171561059657600080fd5b91908080601f016020809104026020016040519081016040528093929190818152602001838380828437600081840152601f19601f820116905080830192505050505050509192919290803590602001909291905050506112c3565b005b6106246004803603602081101561060a57600080fd5b81019080803561ffff1690602001909291905050506113b4565b6040518080602001828103825283818151815260200191508051906020019080838360005b83811015610664578082015181840152602081019050610649565b50505050905090810190601f1680156106915780820380516001836020036101000a031916815260200191505b509250505060405180910390f35b6106d5600480360360408110156106b557600080fd5b81019080803590602001909291908035906020019092919050505061147e565b6040518080602001828103825283818151815260200191508051906020019080838360005b838110156107155780820151818401526020810190506106fa565b50505050905090810190601f1680156107425780820380516001836020036101000a031916815260200191505b509250505060405180910390f35b61077c6004803603602081101561076657600080fd5b8101908080359060200190929190505050611548565b6040518082815260200191505060405180910390f35b6107ea600480360360a08110156107a857600080fd5b810190808035906020019092919080359060200190929190803561ffff1690602001909291908035906020019092919080359060200190929190505050611568565b6040518080602001828103825283818151815260200191508051906020019080838360005b8381101561082a57808201518184015260208101905061080f565b50505050905090810190601f1680156108575780820380516001836020036101000a031916815260200191505b509250505060405180910390f35b606060008060009050610876613b46565b61087e613b46565b610886613b46565b61088e613b46565b60008c146109945761089f8c6117a1565b9350836020015195506060866040519080825280602002602001820160405280156108e457816020015b6108d1613b60565b8152602001906001900390816108c95790505b50905060008090505b85602001518110156109685761091e8e8e8e8e8e8b60000151878151811061091157fe5b6020026020010151611b35565b1561095b578560000151818151811061093357fe5b602002602001015182888151811061094757fe5b602002602001018190525086806001019750505b80806001019150506108ed565b50610986604051806040016040528083815260200189815250611c00565b975050505050505050610d1b565b60008b14610a9a576109a58b611dc1565b9250826020015195506060866040519080825280602002602001820160405280156109ea57816020015b6109d7613b60565b8152602001906001900390816109cf5790505b50905060008090505b8460200151811015610a6e57610a248e8e8e8e8e8a600001518781518110610a1757fe5b6020026020010151611b35565b15610a615784600001518181518110610a3957fe5b6020026020010151828881518110610a4d57fe5b602002602001018190525086806001019750505b80806001019150506109f3565b50610a8c604051806040016040528083815260200189815250611c00565b975050505050505050610d1b565b60008a61ffff1614610ba457610aaf8a612155565b915081602001519550606086604051908082528060200260200182016040528015610af457816020015b610ae1613b60565b815260200190600190039081610ad95790505b50905060008090505b8360200151811015610b7857610b2e8e8e8e8e8e89600001518781518110610b2157fe5b6020026020010151611b35565b15610b6b5783600001518181518110610b4357fe5b6020026020010151828881518110610b5757fe5b602002602001018190525086806001019750505b8080600101915050610afd565b50610b96604051806040016040528083815260200189815250611c00565b975050505050505050610d1b565b600089141580610bb5575060008814155b15610cb957610bc489896124fe565b905080602001519550606086604051908082528060200260200182016040528015610c0957816020015b610bf6613b60565b815260200190600190039081610bee5790505b50905060008090505b8260200151811015610c8d57610c438e8e8e8e8e88600001518781518110610c3657fe5b6020026020010151611b35565b15610c805782600001518181518110610c5857fe5b6020026020010151828881518110610c6c57fe5b602002602001018190525086806001019750505b8080600101915050610c12565b50610cab604051806040016040528083815260200189815250611c00565b975050505050505050610d1b565b610d1260405180604001604052806000604051908082528060200260200182016040528015610d0257816020015b610cef613b60565b815260200190600190039081610ce75790505b5081526020016000815250611c00565b96505050505050505b95945050505050565b60606000610d306112b9565b1415610d73576040518060400160405280600281526020017f5b5d0000000000000000000000000000000000000000000000000000000000008152509050610ea5565b6060610d7d6112b9565b604051908082528060200260200182016040528015610db657816020015b610da3613b60565b815260200190600190039081610d9b5790505b509050600080905060008090505b6005805490508161ffff161015610e8257610ddd613b46565b610e1a60058361ffff1681548110610df157fe5b90600052602060002090601091828204019190066002029054906101000a900461ffff16612155565b905060008090505b816000015151811015610e735781600001518181518110610e3f57fe5b6020026020010151858581518110610e5357fe5b602002602001018190525083806001019450508080600101915050610e22565b50508080600101915050610dc4565b50610ea0604051806040016040528084815260200183815250611c00565b925050505b90565b806004600085815260200190815260200160002060000160008481526020019081526020016000209080519060200190610ee3929190613bc2565b506004600084815260200190815260200160002060010160008154809291906001019190505550505050565b6000610f1a826126ad565b610f2357600080fd5b600080905060008060008561ffff168152602001908152602001600020600001905060008090505b6000808661ffff168152602001908152602001600020600101548110156112ae57611297828281548110610f7b57fe5b90600052602060002090600a020160405180610140016040529081600082018054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561102e5780601f106110035761010080835404028352916020019161102e565b820191906000526020600020905b81548152906001019060200180831161101157829003601f168201915b505050505081526020016001820160009054906101000a900461ffff1661ffff1661ffff168152602001600282018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156110f05780601f106110c5576101008083540402835291602001916110f0565b820191906000526020600020905b8154815290600101906020018083116110d357829003601f168201915b50505050508152602001600382018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156111925780601f1061116757610100808354040283529160200191611192565b820191906000526020600020905b81548152906001019060200180831161117557829003601f168201915b5050505050815260200160048201548152602001600582015481526020016006820160009054906101000a900460ff1660018111156111cd57fe5b60018111156111d857fe5b815260200160078201548152602001600882018054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561127f5780601f106112545761010080835404028352916020019161127f565b820191906000526020600020905b81548152906001019060200180831161126257829003601f168201915b505050505081526020016009820154815250506126c2565b156112a157600192505b8080600101915050610f4b565b508192505050919050565b6000600654905090565b60008090505b600460ff168160ff161015611346576113398160ff166040518061014001604052808e81526020018d61ffff1681526020018c81526020018b81526020018a815260200189815260200188600181111561131f57fe5b8152602001878152602001868152602001858152506126ea565b80806001019150506112c9565b5061134f613c42565b806004600086815260200190815260200160002060008201518160010155602082015181600201559050508360046000868152602001908152602001600020600201819055506006600081548092919060010191905055505050505050505050505050565b60606113be613b46565b6113c783612155565b90506000816000015151111561143f576113df613c5c565b81600001516000815181106113f057fe5b60200260200101519050611436816000015182602001518360400151846060015185608001518660a001518760c001518860e001518961010001518a6101200151612d71565b92505050611479565b6040518060400160405280601d81526020017f446964206e6f742066696e6420616e79206365727469666963617465730000008152509150505b919050565b60606004600084815260200190815260200160002060000160008381526020019081526020016000208054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561153b5780601f106115105761010080835404028352916020019161153b565b820191906000526020600020905b81548152906001019060200180831161151e57829003601f168201915b5050505050905092915050565b600060046000838152602001908152602001600020600101549050919050565b6060611572613b46565b61157b876117a1565b9050611585613b46565b61158e87611dc1565b9050611598613b46565b6115a187612155565b90506115ab613b46565b6115b587876124fe565b905060008160200151836020015185602001518760200151010101905060608160405190808252806020026020018201604052801561160e57816020015b6115fb613b60565b8152602001906001900390816115f35790505b509050600080905060008090505b876020015181101561166c578760000151818151811061163857fe5b602002602001015183838151811061164c57fe5b60200260200101819052508180600101925050808060010191505061161c565b5060008090505b86602001518110156116c3578660000151818151811061168f57fe5b60200260200101518383815181106116a357fe5b602002602001018190525081806001019250508080600101915050611673565b5060008090505b856020015181101561171a57856000015181815181106116e657fe5b60200260200101518383815181106116fa57fe5b6020026020010181905250818060010192505080806001019150506116ca565b5060008090505b8460200151811015611771578460000151818151811061173d57fe5b602002602001015183838151811061175157fe5b602002602001018190525081806001019250508080600101915050611721565b5061178f604051806040016040528084815260200185815250611c00565b97505050505050505095945050505050565b6117a9613b46565b6002600083815260200190815260200160002060405180604001604052908160008201805480602002602001604051908101604052809291908181526020016000905b82821015611b1c57838290600052602060002090600a020160405180610140016040529081600082018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156118a95780601f1061187e576101008083540402835291602001916118a9565b820191906000526020600020905b81548152906001019060200180831161188c57829003601f168201915b505050505081526020016001820160009054906101000a900461ffff1661ffff1661ffff168152602001600282018054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561196b5780601f106119405761010080835404028352916020019161196b565b820191906000526020600020905b81548152906001019060200180831161194e57829003601f168201915b50505050508152602001600382018054600181600116156101000203166002900480601f016020809104026020016040519081016040528092919081815260200182805460018160011615610100020316600290048015611a0d5780601f106119e257610100808354040283529160200191611a0d565b820191906000526020600020905b8154815290600101906020018083116119f057829003601f168201915b5050505050815260200160048201548152602001600582015481526020016006820160009054906101000a900460ff166001811115611a4857fe5b6001811115611a5357fe5b815260200160078201548152602001600882018054600181600116156101000203166002900480601f016020809104026020016040519081016040528092919081815260200182805460018160011615610100020316600290048015611afa5780601f10611acf57610100808354040283529160200191611afa565b820191906000526020600020905b815481529060010190602001808311611add57829003601f168201915b50505050508152602001600982015481525050815260200190600101906117ec565b5050505081526020016001820154815250509050919050565b6000808714158015611b4b575081608001518714155b15611b595760009050611bf6565b60008614158015611b6e57508160a001518614155b15611b7c5760009050611bf6565b60008561ffff1614158015611b9d5750816020015161ffff168561ffff1614155b15611bab5760009050611bf6565b60008414158015611bc0575081610120015184115b15611bce5760009050611bf6565b60008314158015611be3575081610120015183105b15611bf15760009050611bf6565b600190505b9695505050505050565b6060806040518060400160405280600181526020017f5b000000000000000000000000000000000000000000000000000000000000008152509050600083602001511115611d7757611c50613c5c565b8360000151600081518110611c6157fe5b60200260200101519050611cb082611cab836000015184602001518560400151866060015187608001518860a001518960c001518a60e001518b61010001518c6101200151612d71565b613431565b91506000600190505b8460200151811015611d7457611d04836040518060400160405280600281526020017f2c20000000000000000000000000000000000000000000000000000000000000815250613431565b925084600001518181518110611d1657fe5b60200260200101519150611d6583611d60846000015185602001518660400151876060015188608001518960a001518a60c001518b60e001518c61010001518d6101200151612d71565b613431565b92508080600101915050611cb9565b50505b611db6816040518060400160405280600181526020017f5d00000000000000000000000000000000000000000000000000000000000000815250613431565b905080915050919050565b611dc9613b46565b6003600083815260200190815260200160002060405180604001604052908160008201805480602002602001604051908101604052809291908181526020016000905b8282101561213c57838290600052602060002090600a020160405180610140016040529081600082018054600181600116156101000203166002900480601f016020809104026020016040519081016040528092919081815260200182805460018160011615610100020316600290048015611ec95780601f10611e9e57610100808354040283529160200191611ec9565b820191906000526020600020905b815481529060010190602001808311611eac57829003601f168201915b505050505081526020016001820160009054906101000a900461ffff1661ffff1661ffff168152602001600282018054600181600116156101000203166002900480601f016020809104026020016040519081016040528092919081815260200182805460018160011615610100020316600290048015611f8b5780601f10611f6057610100808354040283529160200191611f8b565b820191906000526020600020905b815481529060010190602001808311611f6e57829003601f168201915b50505050508152602001600382018054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561202d5780601f106120025761010080835404028352916020019161202d565b820191906000526020600020905b81548152906001019060200180831161201057829003601f168201915b5050505050815260200160048201548152602001600582015481526020016006820160009054906101000a900460ff16600181111561206857fe5b600181111561207357fe5b815260200160078201548152602001600882018054600181600116156101000203166002900480601f01602080910402602001604051908101604052809291908181526020018280546001816001161561010002031660029004801561211a5780601f106120ef5761010080835404028352916020019161211a565b820191906000526020600020905b8154815290600101906020018083116120fd57829003601f168201915b5050505050815260200160098201548152505081526020019060010190611e0c565b5050505081526020016001820154815250509050919050565b61215d613b46565b612166826126ad565b61216f57600080fd5b6000808361ffff16815260200190815260200160002060405180604001604052908160008201805480602002602001604051908101604052809291908181526020016000905b828210156124e557838290600052602060002090600a020160405180610140016040529081600082018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156122725780601f1061224757610100808354040283529160200191612272565b820191906000526020600020905b81548152906001019060200180831161225557829003601f168201915b505050505081526020016001820160009054906101000a900461ffff1661ffff1661ffff168152602001600282018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156123345780601f1061230957610100808354040283529160200191612334565b820191906000526020600020905b81548152906001019060200180831161231757829003601f168201915b50505050508152602001600382018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156123d65780601f106123ab576101008083540402835291602001916123d6565b820191906000526020600020905b8154815290600101906020018083116123b957829003601f168201915b5050505050815260200160048201548152602001600582015481526020016006820160009054906101000a900460ff16600181111561241157fe5b600181111561241c57fe5b815260200160078201548152602001600882018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156124c35780601f10612498576101008083540402835291602001916124c3565b820191906000526020600020905b8154815290600101906020018083116124a657829003601f168201915b50505050508152602001600982015481525050815260200190600101906121b5565b5050505081526020016001820154815250509050919050565b612506613b46565b61250f836134f9565b8015612520575061251f826134f9565b5b61252957600080fd5b818310806125375750600082145b61254057600080fd5b6000620151809050600084141561256b5761256361255d42613526565b846124fe565b9150506126a7565b60008314156125945761258c846305a497a061258642613526565b016124fe565b9150506126a7565b600080905060008590505b848110156125c2576125b081613549565b6020015182019150828101905061259f565b506060816040519080825280602002602001820160405280156125ff57816020015b6125ec613b60565b8152602001906001900390816125e45790505b509050600080905060008790505b8681101561268a5761261d613b46565b61262682613549565b905060008090505b816020015181101561267e578160000151818151811061264a57fe5b602002602001015185858151811061265e57fe5b60200260200101819052508380600101945050808060010191505061262e565b5050848101905061260d565b506040518060400160405280838152602001848152509450505050505b92915050565b600061ffff80168261ffff1611159050919050565b60006126d28261012001516134f9565b6126db57600080fd5b42826101200151119050919050565b600060038111156126f757fe5b8214156128f45761270b81602001516126ad565b61271457600080fd5b6000806000836020015161ffff16815260200190815260200160002060010154141561278c5760058160200151908060018154018082558091505090600182039060005260206000209060109182820401919006600202909192909190916101000a81548161ffff021916908361ffff160217905550505b600080826020015161ffff168152602001908152602001600020600001819080600181540180825580915050906001820390600052602060002090600a02016000909192909190915060008201518160000190805190602001906127f1929190613cbe565b5060208201518160010160006101000a81548161ffff021916908361ffff1602179055506040820151816002019080519060200190612831929190613cbe565b50606082015181600301908051906020019061284e929190613cbe565b506080820151816004015560a0820151816005015560c08201518160060160006101000a81548160ff0219169083600181111561288757fe5b021790555060e082015181600701556101008201518160080190805190602001906128b3929190613cbe565b506101208201518160090155505050600080826020015161ffff16815260200190815260200160002060010160008154809291906001019190505550612d6d565b6001600381111561290157fe5b821415612a83576129168161012001516134f9565b61291f57600080fd5b600160008261012001518152602001908152602001600020600001819080600181540180825580915050906001820390600052602060002090600a0201600090919290919091506000820151816000019080519060200190612982929190613cbe565b5060208201518160010160006101000a81548161ffff021916908361ffff16021790555060408201518160020190805190602001906129c2929190613cbe565b5060608201518160030190805190602001906129df929190613cbe565b506080820151816004015560a0820151816005015560c08201518160060160006101000a81548160ff02191690836001811115612a1857fe5b021790555060e08201518160070155610100820151816008019080519060200190612a44929190613cbe565b50610120820151816009015550505060016000826101200151815260200190815260200160002060010160008154809291906001019190505550612d6c565b60026003811115612a9057fe5b821415612bf9576002600082608001518152602001908152602001600020600001819080600181540180825580915050906001820390600052602060002090600a0201600090919290919091506000820151816000019080519060200190612af9929190613cbe565b5060208201518160010160006101000a81548161ffff021916908361ffff1602179055506040820151816002019080519060200190612b39929190613cbe565b506060820151816003019080519060200190612b56929190613cbe565b506080820151816004015560a0820151816005015560c08201518160060160006101000a81548160ff02191690836001811115612b8f57fe5b021790555060e08201518160070155610100820151816008019080519060200190612bbb929190613cbe565b506101208201518160090155505050600260008260800151815260200190815260200160002060010160008154809291906001019190505550612d6b565b600380811115612c0557fe5b821415612d6a57600360008260a001518152602001908152602001600020600001819080600181540180825580915050906001820390600052602060002090600a0201600090919290919091506000820151816000019080519060200190612c6e929190613cbe565b5060208201518160010160006101000a81548161ffff021916908361ffff1602179055506040820151816002019080519060200190612cae929190613cbe565b506060820151816003019080519060200190612ccb929190613cbe565b506080820151816004015560a0820151816005015560c08201518160060160006101000a81548160ff02191690836001811115612d0457fe5b021790555060e08201518160070155610100820151816008019080519060200190612d30929190613cbe565b506101208201518160090155505050600360008260a001518152602001908152602001600020600101600081548092919060010191905055505b5b5b5b5050565b6060806040518060400160405280600381526020017f7b0a0900000000000000000000000000000000000000000000000000000000008152509050612df481612def6040518060400160405280600581526020017f656d61696c0000000000000000000000000000000000000000000000000000008152508f6138ef565b613431565b9050612e35816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b9050612e8b81612e866040518060400160405280600c81526020017f7265736561726368657249440000000000000000000000000000000000000000815250612e818f61ffff166139ce565b6138ef565b613431565b9050612ecc816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b9050612f1681612f116040518060400160405280600981526020017f66697273744e616d6500000000000000000000000000000000000000000000008152508d6138ef565b613431565b9050612f57816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b9050612fa181612f9c6040518060400160405280600881526020017f6c6173744e616d650000000000000000000000000000000000000000000000008152508c6138ef565b613431565b9050612fe2816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b90506130348161302f6040518060400160405280600c81526020017f66697273744e616d654b6579000000000000000000000000000000000000000081525061302a8c6139ce565b6138ef565b613431565b9050613075816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b90506130c7816130c26040518060400160405280600b81526020017f6c6173744e616d654b65790000000000000000000000000000000000000000008152506130bd8b6139ce565b6138ef565b613431565b9050613108816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b90506000600181111561311757fe5b86600181111561312357fe5b14156131ad576131a6816131a16040518060400160405280600f81526020017f63657274696669636174655479706500000000000000000000000000000000008152506040518060400160405280600181526020017f30000000000000000000000000000000000000000000000000000000000000008152506138ef565b613431565b905061322d565b61322a816132256040518060400160405280600f81526020017f63657274696669636174655479706500000000000000000000000000000000008152506040518060400160405280600181526020017f31000000000000000000000000000000000000000000000000000000000000008152506138ef565b613431565b90505b61326c816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b90506132be816132b96040518060400160405280600881526020017f7265636f726449440000000000000000000000000000000000000000000000008152506132b4896139ce565b6138ef565b613431565b90506132ff816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b9050613349816133446040518060400160405280600a81526020017f636f757273654e616d6500000000000000000000000000000000000000000000815250876138ef565b613431565b905061338a816040518060400160405280600381526020017f2c0a090000000000000000000000000000000000000000000000000000000000815250613431565b90506133dc816133d76040518060400160405280600781526020017f656e6444617465000000000000000000000000000000000000000000000000008152506133d2876139ce565b6138ef565b613431565b905061341d816040518060400160405280600281526020017f0a7d000000000000000000000000000000000000000000000000000000000000815250613431565b9050809150509a9950505050505050505050565b606082826040516020018083805190602001908083835b6020831061346b5780518252602082019150602081019050602083039250613448565b6001836020036101000a03801982511681845116808217855250505050505090500182805190602001908083835b602083106134bc5780518252602082019150602081019050602083039250613499565b6001836020036101000a03801982511681845116808217855250505050505090500192505050604051602081830303815290604052905092915050565b60007fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff8211159050919050565b600080620151809050600081848161353a57fe5b04905081810292505050919050565b613551613b46565b61355a826134f9565b61356357600080fd5b6001600083815260200190815260200160002060405180604001604052908160008201805480602002602001604051908101604052809291908181526020016000905b828210156138d657838290600052602060002090600a020160405180610140016040529081600082018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156136635780601f1061363857610100808354040283529160200191613663565b820191906000526020600020905b81548152906001019060200180831161364657829003601f168201915b505050505081526020016001820160009054906101000a900461ffff1661ffff1661ffff168152602001600282018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156137255780601f106136fa57610100808354040283529160200191613725565b820191906000526020600020905b81548152906001019060200180831161370857829003601f168201915b50505050508152602001600382018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156137c75780601f1061379c576101008083540402835291602001916137c7565b820191906000526020600020905b8154815290600101906020018083116137aa57829003601f168201915b5050505050815260200160048201548152602001600582015481526020016006820160009054906101000a900460ff16600181111561380257fe5b600181111561380d57fe5b815260200160078201548152602001600882018054600181600116156101000203166002900480601f0160208091040260200160405190810160405280929190818152602001828054600181600116156101000203166002900480156138b45780601f10613889576101008083540402835291602001916138b4565b820191906000526020600020905b81548152906001019060200180831161389757829003601f168201915b50505050508152602001600982015481525050815260200190600101906135a6565b5050505081526020016001820154815250509050919050565b6060806040518060400160405280600181526020017f220000000000000000000000000000000000000000000000000000000000000081525090506139348185613431565b9050613975816040518060400160405280600581526020017f22203a2022000000000000000000000000000000000000000000000000000000815250613431565b90506139818184613431565b90506139c2816040518060400160405280600181526020017f2200000000000000000000000000000000000000000000000000000000000000815250613431565b90508091505092915050565b60608060646040519080825280601f01601f191660200182016040528015613a055781602001600182028038833980820191505090505b50905060008090505b60008414613a8a576000600a8581613a2257fe5b069050600a8581613a2f57fe5b049450600a8181613a3c57fe5b0660300160f81b838380600101945081518110613a5557fe5b60200101907effffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff1916908160001a90535050613a0e565b6060816040519080825280601f01601f191660200182016040528015613abf5781602001600182028038833980820191505090505b50905060008090505b82811015613b34578360018285030381518110613ae157fe5b602001015160f81c60f81b828281518110613af857fe5b60200101907effffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff1916908160001a9053508080600101915050613ac8565b50606081905080945050505050919050565b604051806040016040528060608152602001600081525090565b60405180610140016040528060608152602001600061ffff1681526020016060815260200160608152602001600081526020016000815260200160006001811115613ba757fe5b81526020016000815260200160608152602001600081525090565b828054600181600116156101000203166002900490600052602060002090601f016020900481019282601f10613c0357805160ff1916838001178555613c31565b82800160010185558215613c31579182015b82811115613c30578251825591602001919060010190613c15565b5b509050613c3e9190613d3e565b5090565b604051806040016040528060008152602001600081525090565b60405180610140016040528060608152602001600061ffff1681526020016060815260200160608152602001600081526020016000815260200160006001811115613ca357fe5b81526020016000815260200160608152602001600081525090565b828054600181600116156101000203166002900490600052602060002090601f016020900481019282601f10613cff57805160ff1916838001178555613d2d565b82800160010185558215613d2d579182015b82811115613d2c578251825591602001919060010190613d11565b5b509050613d3a9190613d3e565b5090565b613d6091905b80821115613d5c576000816000905550600101613d44565b5090565b9056fea265627a7a72305820658bb3b4a8d5a8e8c9f1f9157821ae6ff77e6cb6e198b29e69d2f92af52ec8c664736f6c634300050a0032";
+    private static final String BINARY = ContractBinary.load("CertificateDB");
 
-    public static final String FUNC_QUERYALL = "queryAll";
+    public static final String FUNC_QUERYALLRECORDIDS = "queryAllRecordIDs";
 
-    public static final String FUNC_GETALLCERTIFICATES = "getAllCertificates";
+    public static final String FUNC_GETALLRECORDIDS = "getAllRecordIDs";
 
-    public static final String FUNC_ADDCERTIFICATEBYTES = "addCertificateBytes";
+    public static final String FUNC_QUERYALLRECORDIDSPAGE = "queryAllRecordIDsPage";
+
+    public static final String FUNC_GETRECORDIDSPAGE = "getRecordIDsPage";
+
+    public static final String FUNC_QUERYENDDATERANGERECORDIDS = "queryEndDateRangeRecordIDs";
+
+    public static final String FUNC_GETCERTIFICATE = "getCertificate";
+
+    public static final String FUNC_ADDPDFBYTES = "addPDFBytes";
+
+    public static final String FUNC_HASPDF = "hasPDF";
+
+    public static final String FUNC_HASPDFSLICE = "hasPDFSlice";
+
+    public static final String FUNC_GETPDFINFO = "getPDFInfo";
+
+    public static final String FUNC_GETPDFHASH = "getPDFHash";
+
+    public static final String FUNC_GETPDFLENGTH = "getPDFLength";
 
     public static final String FUNC_HASVALIDCERTIFICATE = "hasValidCertificate";
 
+    public static final String FUNC_HASVALIDCERTIFICATEOFTYPE = "hasValidCertificateOfType";
+
+    public static final String FUNC_GETLATESTEXPIRY = "getLatestExpiry";
+
+    public static final String FUNC_GETLATESTEXPIRYOFTYPE = "getLatestExpiryOfType";
+
+    public static final String FUNC_GETLATESTEXPIRIES = "getLatestExpiries";
+
+    public static final String FUNC_GETLATESTEXPIRIESOFTYPE = "getLatestExpiriesOfType";
+
     public static final String FUNC_GETCERTIFICATECOUNT = "getCertificateCount";
 
-    public static final String FUNC_ADDNEWCERTIFICATE = "addNewCertificate";
+    public static final String FUNC_DEPLOYMENTBLOCK = "deploymentBlock";
 
-    public static final String FUNC_TESTBYID = "testByID";
+    public static final String FUNC_ADDNEWCERTIFICATE = "addNewCertificate";
 
     public static final String FUNC_GETCERTIFICATEBYTES = "getCertificateBytes";
 
     public static final String FUNC_GETCERTIFICATEBYTESLENGTH = "getCertificateBytesLength";
 
-    public static final String FUNC_QUERYANY = "queryAny";
+    public static final String FUNC_QUERYANYRECORDIDS = "queryAnyRecordIDs";
+
+    public static final Event CERTIFICATEADDED_EVENT = new Event("CertificateAdded", 
+            Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}, new TypeReference<org.web3j.abi.datatypes.generated.Uint64>() {}),
+            Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {}, new TypeReference<org.web3j.abi.datatypes.generated.Uint8>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Uint256>() {}));
+    ;
 
     protected CertificateDB(String contractAddress, Web3j web3j, Credentials credentials, BigInteger gasPrice, BigInteger gasLimit) {
         super(BINARY, contractAddress, web3j, credentials, gasPrice, gasLimit);
@@ -54,41 +99,259 @@ public class CertificateDB extends Contract {
         super(BINARY, contractAddress, web3j, transactionManager, gasPrice, gasLimit);
     }
 
-    public RemoteCall<String> queryAll(BigInteger firstNameKey, BigInteger lastNameKey, BigInteger researcherID, BigInteger endDateRangeLow, BigInteger endDateRangeHigh) {
-        final Function function = new Function(FUNC_QUERYALL, 
+    public RemoteCall<List> queryAllRecordIDs(BigInteger firstNameKey, BigInteger lastNameKey, BigInteger researcherID, BigInteger endDateRangeLow, BigInteger endDateRangeHigh) {
+        final Function function = new Function(FUNC_QUERYALLRECORDIDS, 
                 Arrays.<Type>asList(new Uint256(firstNameKey),
                 new Uint256(lastNameKey),
-                new org.web3j.abi.datatypes.generated.Uint16(researcherID), 
+                new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
                 new Uint256(endDateRangeLow),
                 new Uint256(endDateRangeHigh)),
-                Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}));
-        return executeRemoteCallSingleValueReturn(function, String.class);
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
     }
 
-    public RemoteCall<String> getAllCertificates() {
-        final Function function = new Function(FUNC_GETALLCERTIFICATES, 
+    public RemoteCall<List> getAllRecordIDs() {
+        final Function function = new Function(FUNC_GETALLRECORDIDS, 
                 Arrays.<Type>asList(), 
-                Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}));
-        return executeRemoteCallSingleValueReturn(function, String.class);
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
+    }
+
+    public RemoteCall<Tuple2<List<BigInteger>, BigInteger>> queryAllRecordIDsPage(BigInteger firstNameKey, BigInteger lastNameKey, BigInteger researcherID, BigInteger endDateRangeLow, BigInteger endDateRangeHigh, BigInteger offset, BigInteger limit) {
+        final Function function = new Function(FUNC_QUERYALLRECORDIDSPAGE, 
+                Arrays.<Type>asList(new Uint256(firstNameKey),
+                new Uint256(lastNameKey),
+                new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
+                new Uint256(endDateRangeLow),
+                new Uint256(endDateRangeHigh),
+                new Uint256(offset),
+                new Uint256(limit)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}, new TypeReference<Uint256>() {}));
+        return new RemoteCall<Tuple2<List<BigInteger>, BigInteger>>(
+                new Callable<Tuple2<List<BigInteger>, BigInteger>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Tuple2<List<BigInteger>, BigInteger> call() throws Exception {
+                        List<Type> results = executeCallMultipleValueReturn(function);
+                        return new Tuple2<List<BigInteger>, BigInteger>(
+                                convertToNative((List<Uint256>) results.get(0).getValue()), 
+                                (BigInteger) results.get(1).getValue());
+                    }
+                });
     }
 
-    public RemoteCall<TransactionReceipt> addCertificateBytes(BigInteger recordID, BigInteger index, byte[] data) {
+    public RemoteCall<List> queryEndDateRangeRecordIDs(BigInteger endDateRangeLow, BigInteger endDateRangeHigh) {
+        final Function function = new Function(FUNC_QUERYENDDATERANGERECORDIDS, 
+                Arrays.<Type>asList(new Uint256(endDateRangeLow), 
+                new Uint256(endDateRangeHigh)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
+    }
+
+    public RemoteCall<Tuple2<List<BigInteger>, BigInteger>> getRecordIDsPage(BigInteger offset, BigInteger limit) {
+        final Function function = new Function(FUNC_GETRECORDIDSPAGE, 
+                Arrays.<Type>asList(new Uint256(offset), 
+                new Uint256(limit)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}, new TypeReference<Uint256>() {}));
+        return new RemoteCall<Tuple2<List<BigInteger>, BigInteger>>(
+                new Callable<Tuple2<List<BigInteger>, BigInteger>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Tuple2<List<BigInteger>, BigInteger> call() throws Exception {
+                        List<Type> results = executeCallMultipleValueReturn(function);
+                        return new Tuple2<List<BigInteger>, BigInteger>(
+                                convertToNative((List<Uint256>) results.get(0).getValue()), 
+                                (BigInteger) results.get(1).getValue());
+                    }
+                });
+    }
+
+    public RemoteCall<Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger>> getCertificate(BigInteger recordID) {
+        final Function function = new Function(FUNC_GETCERTIFICATE, 
+                Arrays.<Type>asList(new Uint256(recordID)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}, new TypeReference<org.web3j.abi.datatypes.generated.Uint64>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Uint256>() {}, new TypeReference<Uint256>() {}, new TypeReference<org.web3j.abi.datatypes.generated.Uint8>() {}, new TypeReference<Utf8String>() {}, new TypeReference<Uint256>() {}));
+        return new RemoteCall<Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger>>(
+                new Callable<Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger>>() {
+                    @Override
+                    public Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger> call() throws Exception {
+                        List<Type> results = executeCallMultipleValueReturn(function);
+                        return new Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger>(
+                                (String) results.get(0).getValue(), 
+                                (BigInteger) results.get(1).getValue(), 
+                                (String) results.get(2).getValue(), 
+                                (String) results.get(3).getValue(), 
+                                (BigInteger) results.get(4).getValue(), 
+                                (BigInteger) results.get(5).getValue(), 
+                                (BigInteger) results.get(6).getValue(), 
+                                (String) results.get(7).getValue(), 
+                                (BigInteger) results.get(8).getValue());
+                    }
+                });
+    }
+
+    public RemoteCall<List> queryAnyRecordIDs(BigInteger firstNameKey, BigInteger lastNameKey, BigInteger researcherID, BigInteger endDateRangeLow, BigInteger endDateRangeHigh) {
+        final Function function = new Function(FUNC_QUERYANYRECORDIDS, 
+                Arrays.<Type>asList(new Uint256(firstNameKey),
+                new Uint256(lastNameKey),
+                new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
+                new Uint256(endDateRangeLow),
+                new Uint256(endDateRangeHigh)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
+    }
+
+    public RemoteCall<TransactionReceipt> addPDFBytes(byte[] pdfHash, BigInteger index, BigInteger numSlices, byte[] data) {
         final Function function = new Function(
-                FUNC_ADDCERTIFICATEBYTES, 
-                Arrays.<Type>asList(new Uint256(recordID),
+                FUNC_ADDPDFBYTES, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Bytes32(pdfHash), 
                 new Uint256(index),
+                new Uint256(numSlices),
                 new DynamicBytes(data)),
                 Collections.<TypeReference<?>>emptyList());
         return executeRemoteCallTransaction(function);
     }
 
+    public RemoteCall<Boolean> hasPDF(byte[] pdfHash) {
+        final Function function = new Function(FUNC_HASPDF, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Bytes32(pdfHash)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {}));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
+    public RemoteCall<Boolean> hasPDFSlice(byte[] pdfHash, BigInteger index) {
+        final Function function = new Function(FUNC_HASPDFSLICE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Bytes32(pdfHash), 
+                new Uint256(index)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {}));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
+    public RemoteCall<Tuple3<byte[], BigInteger, Boolean>> getPDFInfo(BigInteger recordID) {
+        final Function function = new Function(FUNC_GETPDFINFO, 
+                Arrays.<Type>asList(new Uint256(recordID)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<org.web3j.abi.datatypes.generated.Bytes32>() {}, new TypeReference<Uint256>() {}, new TypeReference<Bool>() {}));
+        return new RemoteCall<Tuple3<byte[], BigInteger, Boolean>>(
+                new Callable<Tuple3<byte[], BigInteger, Boolean>>() {
+                    @Override
+                    public Tuple3<byte[], BigInteger, Boolean> call() throws Exception {
+                        List<Type> results = executeCallMultipleValueReturn(function);
+                        return new Tuple3<byte[], BigInteger, Boolean>(
+                                (byte[]) results.get(0).getValue(), 
+                                (BigInteger) results.get(1).getValue(), 
+                                (Boolean) results.get(2).getValue());
+                    }
+                });
+    }
+
+    public RemoteCall<byte[]> getPDFHash(BigInteger recordID) {
+        final Function function = new Function(FUNC_GETPDFHASH, 
+                Arrays.<Type>asList(new Uint256(recordID)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<org.web3j.abi.datatypes.generated.Bytes32>() {}));
+        return executeRemoteCallSingleValueReturn(function, byte[].class);
+    }
+
+    public RemoteCall<BigInteger> getPDFLength(BigInteger recordID) {
+        final Function function = new Function(FUNC_GETPDFLENGTH, 
+                Arrays.<Type>asList(new Uint256(recordID)),
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
     public RemoteCall<Boolean> hasValidCertificate(BigInteger researcherID) {
         final Function function = new Function(FUNC_HASVALIDCERTIFICATE, 
-                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint16(researcherID)), 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint64(researcherID)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {}));
+        return executeRemoteCallSingleValueReturn(function, Boolean.class);
+    }
+
+    public RemoteCall<Boolean> hasValidCertificateOfType(BigInteger researcherID, BigInteger certificateType) {
+        final Function function = new Function(FUNC_HASVALIDCERTIFICATEOFTYPE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
+                new org.web3j.abi.datatypes.generated.Uint8(certificateType)), 
                 Arrays.<TypeReference<?>>asList(new TypeReference<Bool>() {}));
         return executeRemoteCallSingleValueReturn(function, Boolean.class);
     }
 
+    public RemoteCall<BigInteger> getLatestExpiry(BigInteger researcherID) {
+        final Function function = new Function(FUNC_GETLATESTEXPIRY, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint64(researcherID)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
+    public RemoteCall<BigInteger> getLatestExpiryOfType(BigInteger researcherID, BigInteger certificateType) {
+        final Function function = new Function(FUNC_GETLATESTEXPIRYOFTYPE, 
+                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
+                new org.web3j.abi.datatypes.generated.Uint8(certificateType)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
+    public RemoteCall<List> getLatestExpiries(List<BigInteger> researcherIDs) {
+        final Function function = new Function(FUNC_GETLATESTEXPIRIES, 
+                Arrays.<Type>asList(new DynamicArray<org.web3j.abi.datatypes.generated.Uint64>(
+                        org.web3j.abi.Utils.typeMap(researcherIDs, org.web3j.abi.datatypes.generated.Uint64.class))), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
+    }
+
+    public RemoteCall<List> getLatestExpiriesOfType(List<BigInteger> researcherIDs, BigInteger certificateType) {
+        final Function function = new Function(FUNC_GETLATESTEXPIRIESOFTYPE, 
+                Arrays.<Type>asList(new DynamicArray<org.web3j.abi.datatypes.generated.Uint64>(
+                        org.web3j.abi.Utils.typeMap(researcherIDs, org.web3j.abi.datatypes.generated.Uint64.class)), 
+                new org.web3j.abi.datatypes.generated.Uint8(certificateType)), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<DynamicArray<Uint256>>() {}));
+        return new RemoteCall<List>(
+                new Callable<List>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List call() throws Exception {
+                        List<Type> result = (List<Type>) executeCallSingleValueReturn(function, List.class);
+                        return convertToNative(result);
+                    }
+                });
+    }
+
     public RemoteCall<BigInteger> getCertificateCount() {
         final Function function = new Function(FUNC_GETCERTIFICATECOUNT, 
                 Arrays.<Type>asList(), 
@@ -96,11 +359,18 @@ public class CertificateDB extends Contract {
         return executeRemoteCallSingleValueReturn(function, BigInteger.class);
     }
 
-    public RemoteCall<TransactionReceipt> addNewCertificate(String email, BigInteger researcherID, String firstName, String lastName, BigInteger firstNameKey, BigInteger lastNameKey, BigInteger certificateType, BigInteger recordID, String courseName, BigInteger endDate) {
+    public RemoteCall<BigInteger> deploymentBlock() {
+        final Function function = new Function(FUNC_DEPLOYMENTBLOCK, 
+                Arrays.<Type>asList(), 
+                Arrays.<TypeReference<?>>asList(new TypeReference<Uint256>() {}));
+        return executeRemoteCallSingleValueReturn(function, BigInteger.class);
+    }
+
+    public RemoteCall<TransactionReceipt> addNewCertificate(String email, BigInteger researcherID, String firstName, String lastName, BigInteger firstNameKey, BigInteger lastNameKey, BigInteger certificateType, BigInteger recordID, String courseName, BigInteger endDate, byte[] pdfHash, BigInteger pdfLength) {
         final Function function = new Function(
                 FUNC_ADDNEWCERTIFICATE, 
                 Arrays.<Type>asList(new Utf8String(email),
-                new org.web3j.abi.datatypes.generated.Uint16(researcherID), 
+                new org.web3j.abi.datatypes.generated.Uint64(researcherID), 
                 new Utf8String(firstName),
                 new Utf8String(lastName),
                 new Uint256(firstNameKey),
@@ -108,18 +378,13 @@ public class CertificateDB extends Contract {
                 new org.web3j.abi.datatypes.generated.Uint8(certificateType), 
                 new Uint256(recordID),
                 new Utf8String(courseName),
-                new Uint256(endDate)),
+                new Uint256(endDate),
+                new org.web3j.abi.datatypes.generated.Bytes32(pdfHash), 
+                new Uint256(pdfLength)),
                 Collections.<TypeReference<?>>emptyList());
         return executeRemoteCallTransaction(function);
     }
 
-    public RemoteCall<String> testByID(BigInteger ID) {
-        final Function function = new Function(FUNC_TESTBYID, 
-                Arrays.<Type>asList(new org.web3j.abi.datatypes.generated.Uint16(ID)), 
-                Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}));
-        return executeRemoteCallSingleValueReturn(function, String.class);
-    }
-
     public RemoteCall<byte[]> getCertificateBytes(BigInteger recordID, BigInteger index) {
         final Function function = new Function(FUNC_GETCERTIFICATEBYTES, 
                 Arrays.<Type>asList(new Uint256(recordID),
@@ -135,15 +400,53 @@ public class CertificateDB extends Contract {
         return executeRemoteCallSingleValueReturn(function, BigInteger.class);
     }
 
-    public RemoteCall<String> queryAny(BigInteger firstNameKey, BigInteger lastNameKey, BigInteger researcherID, BigInteger endDateRangeLow, BigInteger endDateRangeHigh) {
-        final Function function = new Function(FUNC_QUERYANY, 
-                Arrays.<Type>asList(new Uint256(firstNameKey),
-                new Uint256(lastNameKey),
-                new org.web3j.abi.datatypes.generated.Uint16(researcherID), 
-                new Uint256(endDateRangeLow),
-                new Uint256(endDateRangeHigh)),
-                Arrays.<TypeReference<?>>asList(new TypeReference<Utf8String>() {}));
-        return executeRemoteCallSingleValueReturn(function, String.class);
+    public List<CertificateAddedEventResponse> getCertificateAddedEvents(TransactionReceipt transactionReceipt) {
+        List<Contract.EventValuesWithLog> valueList = extractEventParametersWithLog(CERTIFICATEADDED_EVENT, transactionReceipt);
+        ArrayList<CertificateAddedEventResponse> responses = new ArrayList<CertificateAddedEventResponse>(valueList.size());
+        for (Contract.EventValuesWithLog eventValues : valueList) {
+            CertificateAddedEventResponse typedResponse = new CertificateAddedEventResponse();
+            typedResponse.log = eventValues.getLog();
+            typedResponse.recordID = (BigInteger) eventValues.getIndexedValues().get(0).getValue();
+            typedResponse.researcherID = (BigInteger) eventValues.getIndexedValues().get(1).getValue();
+            typedResponse.email = (String) eventValues.getNonIndexedValues().get(0).getValue();
+            typedResponse.firstName = (String) eventValues.getNonIndexedValues().get(1).getValue();
+            typedResponse.lastName = (String) eventValues.getNonIndexedValues().get(2).getValue();
+            typedResponse.firstNameKey = (BigInteger) eventValues.getNonIndexedValues().get(3).getValue();
+            typedResponse.lastNameKey = (BigInteger) eventValues.getNonIndexedValues().get(4).getValue();
+            typedResponse.certificateType = (BigInteger) eventValues.getNonIndexedValues().get(5).getValue();
+            typedResponse.courseName = (String) eventValues.getNonIndexedValues().get(6).getValue();
+            typedResponse.endDate = (BigInteger) eventValues.getNonIndexedValues().get(7).getValue();
+            responses.add(typedResponse);
+        }
+        return responses;
+    }
+
+    public Observable<CertificateAddedEventResponse> certificateAddedEventObservable(EthFilter filter) {
+        return web3j.ethLogObservable(filter).map(new Func1<Log, CertificateAddedEventResponse>() {
+            @Override
+            public CertificateAddedEventResponse call(Log log) {
+                Contract.EventValuesWithLog eventValues = extractEventParametersWithLog(CERTIFICATEADDED_EVENT, log);
+                CertificateAddedEventResponse typedResponse = new CertificateAddedEventResponse();
+                typedResponse.log = log;
+                typedResponse.recordID = (BigInteger) eventValues.getIndexedValues().get(0).getValue();
+                typedResponse.researcherID = (BigInteger) eventValues.getIndexedValues().get(1).getValue();
+                typedResponse.email = (String) eventValues.getNonIndexedValues().get(0).getValue();
+                typedResponse.firstName = (String) eventValues.getNonIndexedValues().get(1).getValue();
+                typedResponse.lastName = (String) eventValues.getNonIndexedValues().get(2).getValue();
+                typedResponse.firstNameKey = (BigInteger) eventValues.getNonIndexedValues().get(3).getValue();
+                typedResponse.lastNameKey = (BigInteger) eventValues.getNonIndexedValues().get(4).getValue();
+                typedResponse.certificateType = (BigInteger) eventValues.getNonIndexedValues().get(5).getValue();
+                typedResponse.courseName = (String) eventValues.getNonIndexedValues().get(6).getValue();
+                typedResponse.endDate = (BigInteger) eventValues.getNonIndexedValues().get(7).getValue();
+                return typedResponse;
+            }
+        });
+    }
+
+    public Observable<CertificateAddedEventResponse> certificateAddedEventObservable(DefaultBlockParameter startBlock, DefaultBlockParameter endBlock) {
+        EthFilter filter = new EthFilter(startBlock, endBlock, getContractAddress());
+        filter.addSingleTopic(EventEncoder.encode(CERTIFICATEADDED_EVENT));
+        return certificateAddedEventObservable(filter);
     }
 
     public static RemoteCall<CertificateDB> deploy(Web3j web3j, Credentials credentials, BigInteger gasPrice, BigInteger gasLimit) {
@@ -161,4 +464,28 @@ public class CertificateDB extends Contract {
     public static CertificateDB load(String contractAddress, Web3j web3j, TransactionManager transactionManager, BigInteger gasPrice, BigInteger gasLimit) {
         return new CertificateDB(contractAddress, web3j, transactionManager, gasPrice, gasLimit);
     }
+
+    public static class CertificateAddedEventResponse {
+        public Log log;
+
+        public BigInteger recordID;
+
+        public BigInteger researcherID;
+
+        public String email;
+
+        public String firstName;
+
+        public String lastName;
+
+        public BigInteger firstNameKey;
+
+        public BigInteger lastNameKey;
+
+        public BigInteger certificateType;
+
+        public String courseName;
+
+        public BigInteger endDate;
+    }
 }
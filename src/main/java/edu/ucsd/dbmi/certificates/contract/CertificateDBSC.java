@@ -1,26 +1,69 @@
 package edu.ucsd.dbmi.certificates.contract;
 
-import com.fasterxml.jackson.core.JsonParser.Feature;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.beans.CertificatePage;
+import edu.ucsd.dbmi.certificates.storage.CertificateBlobStore;
 import edu.ucsd.dbmi.certificates.utils.CertificateUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.abi.EventEncoder;
+import org.web3j.abi.EventValues;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.abi.datatypes.generated.Uint64;
 import org.web3j.crypto.Credentials;
+import org.web3j.crypto.Hash;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.protocol.admin.Admin;
 import org.web3j.protocol.admin.methods.response.PersonalUnlockAccount;
+import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.RemoteCall;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthEstimateGas;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.protocol.http.HttpService;
+import org.web3j.tx.Contract;
 import org.web3j.tx.FastRawTransactionManager;
+import org.web3j.tx.response.NoOpProcessor;
 import org.web3j.tx.response.PollingTransactionReceiptProcessor;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+import org.web3j.tuples.generated.Tuple2;
+import org.web3j.tuples.generated.Tuple3;
+import org.web3j.tuples.generated.Tuple9;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CertificateDBSC {
 
@@ -52,12 +95,70 @@ public class CertificateDBSC {
     private final static int KILOBYTE_IN_BYTES = 1024;
     private final static int BYTE_SIZE_OF_PDF_SLICE = 30 * KILOBYTE_IN_BYTES;
 
+    //The maximum number of slice requests that getPDFBytes() will have outstanding at once
+    private final static int DEFAULT_SLICE_FETCH_WINDOW = 8;
+
+    //The maximum number of getCertificate() calls that getCertificates() will have outstanding at once
+    private final static int CERTIFICATE_FETCH_WINDOW = 8;
+
+    //The most record IDs that the contract's paginated queries return in one call (MAX_PAGE_SIZE in the contract)
+    private final static int MAX_PAGE_SIZE = 100;
+
+    //The most researcher IDs that getLatestExpiries() looks up in one call, which keeps each eth_call well under the node's gas cap
+    private final static int EXPIRY_BATCH_SIZE = 500;
+
+    //The number of slices that a PDFSliceIterator keeps in flight ahead of the slice currently being streamed
+    private final static int STREAMING_SLICE_PREFETCH = 2;
+
+    //The maximum number of transactions that may be submitted but not yet mined at once, unless changed with setTransactionWindow()
+    private final static int DEFAULT_TRANSACTION_WINDOW = 64;
+
+    //The hash recorded for certificates that were submitted without a PDF
+    private final static byte[] NO_PDF_HASH = new byte[32];
+
     private static Admin admin;
     private static Credentials credentials;
+    private static FastRawTransactionManager transactionManager;
+    private static TransactionReceiptProcessor receiptProcessor;
+    //Replaced by setTransactionWindow() while other threads may be submitting, so every read sees the current pipeline
+    private static volatile TransactionPipeline pipeline;
+    private static int transactionWindow = DEFAULT_TRANSACTION_WINDOW;
+
+    //Per-request and per-slice output is logged at DEBUG level through SLF4J, so it is skipped entirely unless debug logging is enabled
+    private static final Logger log = LoggerFactory.getLogger(CertificateDBSC.class);
+
+    //Shared by every pipeline, so gas totals survive setTransactionWindow() replacing the pipeline
+    private static final GasMeter gasMeter = new GasMeter();
+
+    //Metrics are registered with Micrometer's global registry, which Spring Boot adds its registries to, and are no-ops outside the app
+    private final static String CHAIN_CALLS = "certificates.chain.calls";
+
+    private static final Counter slicesUploaded = Metrics.counter("certificates.pdf.slices", "direction", "upload");
+    private static final Counter slicesDownloaded = Metrics.counter("certificates.pdf.slices", "direction", "download");
+
+    private static final DistributionSummary pdfsUploaded = DistributionSummary.builder("certificates.pdf.size").baseUnit("bytes").tag("direction", "upload").register(Metrics.globalRegistry);
+    private static final DistributionSummary pdfsEncoded = DistributionSummary.builder("certificates.pdf.encoded.size").baseUnit("bytes").register(Metrics.globalRegistry);
+    private static final DistributionSummary pdfsDownloaded = DistributionSummary.builder("certificates.pdf.size").baseUnit("bytes").tag("direction", "download").register(Metrics.globalRegistry);
+
+    static {
+        //The pipeline is replaced by setTransactionWindow(), so the gauge reads whichever one is current
+        Gauge.builder("certificates.transactions.pending", CertificateDBSC.class, ignored -> pipeline == null ? 0 : pipeline.getPendingCount())
+            .description("Transactions submitted to the node but not yet mined")
+            .register(Metrics.globalRegistry);
+    }
+
+    //Whether PDFs are compressed before they are sliced, unless changed with setPDFCompression()
+    private static boolean compressPDFs = true;
+
+    //Where PDFs are stored off-chain, or null to store them on the chain in slices
+    private static CertificateBlobStore blobStore;
+
+    //Hashes of the PDFs known to be stored on the chain, including uploads that are still waiting to be mined
+    private static final Set<String> storedPDFHashes = ConcurrentHashMap.newKeySet();
+    private static BigInteger deploymentBlockNumber = BigInteger.ZERO;
     private static String address;
 
     private static CertificateDB contract;
-    private static ObjectMapper objectMapper;
 
     //==============================================================================
     // PRIVATE METHODS
@@ -83,73 +184,398 @@ public class CertificateDBSC {
 
     //==============================================================================
 
+    /**
+     * Connects to the network and loads the credentials and transaction manager used to send transactions to the contract
+     * @throws Exception If the network cannot be reached or the credentials cannot be loaded, an Exception will be thrown
+     */
+
+    private static void connect() throws Exception {
+
+        //Update the path to the chain
+        CertificateUtils.startupStateOut("Updating chain path...");
+        System.out.println();
+        updatePath();
+
+        //Connect to the network
+        CertificateUtils.startupStateOut("Connecting to network...");
+        System.out.println();
+        admin = Admin.build(new HttpService());
+        CertificateUtils.startupVarOut("My Ethereum client version = ", admin.web3ClientVersion().send().getWeb3ClientVersion());
+        CertificateUtils.startupVarOut("My net listening = ", "" + admin.netListening().send().getResult());
+        CertificateUtils.startupVarOut("My net peer count = ", admin.netPeerCount().send().getResult());
+        credentials = WalletUtils.loadCredentials(pw, path);
+
+        System.out.println();
+
+        final int POLLING_INTERVAL = 1000; //Poll once per second
+        final int POLLING_ATTEMPTS = 120; //Will try 120 times to perform the transaction (try for ~2 minutes)
+        receiptProcessor = new PollingTransactionReceiptProcessor(admin, POLLING_INTERVAL, POLLING_ATTEMPTS);
+    }
+
+    //==============================================================================
+
+    /**
+     * Binds the contract at an address to the transaction manager used for every transaction after deployment
+     * That transaction manager hands out nonces locally and does not wait for receipts, so transactions can be pipelined:
+     * each call returns as soon as the node accepts the transaction, and the TransactionPipeline collects the receipts
+     * @param addr The address of the deployed contract
+     */
+
+    private static void bindContract(String addr) {
+        transactionManager = new FastRawTransactionManager(admin, credentials, new NoOpProcessor(admin));
+        contract = CertificateDB.load(addr, admin, transactionManager, gasPrice, gasLimit);
+        address = addr;
+        replacePipeline(new TransactionPipeline(transactionWindow, receiptProcessor, gasMeter));
+    }
+
+    //==============================================================================
+
+    /**
+     * Switches to a new transaction pipeline, then drains and shuts down the previous one so its receipt pollers do not leak
+     * @param replacement The pipeline that transactions are submitted to from now on
+     */
+
+    private static void replacePipeline(TransactionPipeline replacement) {
+        TransactionPipeline previous = pipeline;
+        pipeline = replacement;
+
+        if(previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Sends a transaction through the transaction pipeline, blocking first if too many transactions are already waiting to be mined
+     * @param operation The contract function being called, which the transaction's gas and send latency are recorded under
+     * @param transaction The contract call to send
+     * @return Returns the submitted transaction, whose receipt future completes once it has been mined
+     * @throws Exception Throws an Exception if the node rejects the transaction
+     */
+
+    private static TransactionPipeline.PendingTransaction submitTransaction(String operation, RemoteCall<TransactionReceipt> transaction) throws Exception {
+        while(true) {
+            TransactionPipeline current = pipeline;
+
+            try {
+                //The contract is bound to a NoOpProcessor, so send() returns as soon as the node has accepted the transaction instead of waiting for it to be mined
+                return current.submit(operation, () -> call(operation, transaction).getTransactionHash());
+            } catch(RejectedExecutionException e) {
+                //The pipeline was replaced before the transaction was sent, so send it through the replacement instead
+                if(pipeline == current) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Sends a call to the node and records how long it took in the certificates.chain.calls timer, tagged with the function called
+     * @param function The contract function being called
+     * @param call The contract call to send
+     * @return Returns the result of the call
+     * @throws Exception Throws an Exception if the call fails
+     */
+
+    private static <T> T call(String function, RemoteCall<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String outcome = "error";
+
+        try {
+            T result = call.send();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Metrics.timer(CHAIN_CALLS, "function", function, "outcome", outcome));
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Sends a JSON-RPC request to the node and records how long it took, tagged with the RPC method (such as eth_getLogs)
+     * @param request The request to send
+     * @return Returns the response, which may hold an error
+     * @throws Exception Throws an Exception if the node cannot be reached
+     */
+
+    private static <T extends Response<?>> T call(Request<?, T> request) throws Exception {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String outcome = "error";
+
+        try {
+            T response = request.send();
+            outcome = response.hasError() ? "error" : "success";
+            return response;
+        } finally {
+            sample.stop(Metrics.timer(CHAIN_CALLS, "function", request.getMethod(), "outcome", outcome));
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Sends a call to the node without waiting for it, and records how long it took once it completes
+     * @param function The contract function being called
+     * @param call The contract call to send
+     * @return Returns a future for the result of the call
+     */
+
+    private static <T> CompletableFuture<T> callAsync(String function, RemoteCall<T> call) {
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+
+        return call.sendAsync().whenComplete((result, e) -> sample.stop(Metrics.timer(CHAIN_CALLS, "function", function, "outcome", e == null ? "success" : "error")));
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves one slice of a PDF stored on the chain, counting it in certificates.pdf.slices
+     * @param recordID The record ID of the certificate whose PDF the slice belongs to
+     * @param index The index of the slice within the PDF
+     * @return Returns a future for the bytes of the slice
+     */
+
+    private static CompletableFuture<byte[]> fetchSlice(int recordID, int index) {
+        return callAsync(CertificateDB.FUNC_GETCERTIFICATEBYTES, contract.getCertificateBytes(BigInteger.valueOf(recordID), BigInteger.valueOf(index)))
+            .whenComplete((slice, e) -> {
+                if(e == null) {
+                    slicesDownloaded.increment();
+                }
+            });
+    }
+
+    //==============================================================================
+
+    /**
+     * Uploads a PDF to the chain unless a PDF with the same contents has already been stored
+     * PDFs are stored under the SHA-256 hash of their contents, so re-uploads and shared templates only cost the certificate's own transaction
+     * @param recordID The record ID of the certificate the PDF belongs to
+     * @param pdfHash The SHA-256 hash of the PDF
+     * @param pdf The actual byte data of the PDF
+     * @return Returns the slice transactions, in slice order, or an empty list if the PDF was already stored
+     * @throws Exception Throws an exception if there is an error uploading to the chain
+     */
+
+    private static List<TransactionPipeline.PendingTransaction> uploadPDFIfAbsent(int recordID, byte[] pdfHash, byte[] pdf) throws Exception {
+
+        String key = CertificateUtils.bytesToHex(pdfHash);
+
+        //Claim the hash before checking the chain so that two certificates sharing a PDF in the same batch do not both upload it
+        if(!storedPDFHashes.add(key) || call(CertificateDB.FUNC_HASPDF, contract.hasPDF(pdfHash))) {
+            log.debug("PDF for certificate {} is already stored, skipping upload", recordID);
+            return Collections.emptyList();
+        }
+
+        List<TransactionPipeline.PendingTransaction> transactions;
+
+        try {
+            transactions = uploadFullPDF(recordID, pdfHash, pdf);
+        } catch(Exception e) {
+            storedPDFHashes.remove(key);
+            throw e;
+        }
+
+        //If any slice fails to be mined the PDF is incomplete, so let the next certificate with the same PDF upload it again
+        for(TransactionPipeline.PendingTransaction transaction : transactions) {
+            transaction.getReceipt().whenComplete((receipt, e) -> {
+                if(e != null) {
+                    storedPDFHashes.remove(key);
+                }
+            });
+        }
+
+        return transactions;
+    }
+
+    //==============================================================================
+
     /**
      * Uploads a PDF to the chain
-     * @param recordID The record ID of the PDF to upload
+     * @param recordID The record ID of the certificate the PDF belongs to
+     * @param pdfHash The SHA-256 hash of the PDF, which the slices are stored under
      * @param pdf The actual byte data of the PDF
+     * @return Returns the transactions of the slices that were not already stored, in slice order
      * @throws Exception Throws an exception if there is an error uploading to the chain or the thread is interrupted while sleeping
      */
 
-    private static void uploadFullPDF(int recordID, byte[] pdf) throws Exception {
-
-        //Calculate the number of slices necessary to submit 32 KB at a time
-        int numSlices = (int) Math.ceil(pdf.length / (double) BYTE_SIZE_OF_PDF_SLICE);
+    private static List<TransactionPipeline.PendingTransaction> uploadFullPDF(int recordID, byte[] pdfHash, byte[] pdf) throws Exception {
 
-        //This is not necessary and is only here for debugging purposes
-        double kbSizeOfPDF = pdf.length / (double) KILOBYTE_IN_BYTES;
-        CertificateUtils.debugOut("Certificate " + recordID + " of size " + ANSI_GREEN + kbSizeOfPDF + " KB" + ANSI_CYAN + " will be processed in " + ANSI_GREEN + numSlices + " slices");
-        System.out.println();
+        //Compress the PDF (if enabled) before slicing it, so that it takes fewer slices and therefore fewer transactions to store
+        byte[] encoded = PDFCodec.encode(pdf, compressPDFs);
 
-        //Keeps track of the position that each slices starts from within the full PDF bytes that we are submitting
-        int currentRangeStart = 0;
+        //Calculate the number of slices necessary to submit 30 KB at a time
+        int numSlices = countSlices(encoded.length);
 
-        for(int i = 0; i < numSlices; i++) {
+        if(log.isDebugEnabled()) {
+            log.debug("Certificate {} of size {} KB ({} KB encoded) will be processed in {} slices",
+                recordID, pdf.length / (double) KILOBYTE_IN_BYTES, encoded.length / (double) KILOBYTE_IN_BYTES, numSlices);
+        }
 
-            CertificateUtils.debugOut("Adding slice " + ANSI_YELLOW + (i + 1) + ANSI_CYAN + " of " + ANSI_YELLOW + numSlices);
+        gasMeter.recordPDFBytes(pdf.length);
+        pdfsUploaded.record(pdf.length);
+        pdfsEncoded.record(encoded.length);
 
-            //If there are enough bytes left to populate a full slice, make a full slice. If not, make a slice with whatever we have left.
-            int size = (currentRangeStart + BYTE_SIZE_OF_PDF_SLICE < pdf.length) ? BYTE_SIZE_OF_PDF_SLICE : pdf.length - currentRangeStart - 1;
+        //The contract rejects a slice that is already stored, so an upload that was interrupted part way is resumed from the slices it is missing
+        List<CompletableFuture<Boolean>> stored = new ArrayList<>(numSlices);
 
-            CertificateUtils.debugVarOut("size", size);
+        for(int i = 0; i < numSlices; i++) {
+            stored.add(callAsync(CertificateDB.FUNC_HASPDFSLICE, contract.hasPDFSlice(pdfHash, BigInteger.valueOf(i))));
+        }
 
-            //Create the array for the slice with the proper size and copy the relevant data to the array
-            byte[] temp = new byte[size];
-            System.arraycopy(pdf, currentRangeStart, temp, 0, size);
+        List<TransactionPipeline.PendingTransaction> transactions = new ArrayList<>(numSlices);
 
-            //Send transaction with the data as a payload and record the transaction address
-            uploadPDFSliceAsync(recordID, i, temp);
+        for(int i = 0; i < numSlices; i++) {
 
-            //Useful for debugging, but commented for now
-//            String data = CertificateUtils.bytesToHex(temp);
-//            CertificateUtils.debugVarOut("data = ", data.substring(0, 15) + "..." + data.substring(data.length() - 16));
+            if(stored.get(i).get()) {
+                continue;
+            }
 
-            System.out.println();
+            byte[] temp = cutSlice(encoded, i);
 
-            currentRangeStart += BYTE_SIZE_OF_PDF_SLICE;
+            if(log.isDebugEnabled()) {
+                log.debug("Adding slice {} of {}, size = {}", i + 1, numSlices, temp.length);
+            }
 
+            //Send transaction with the data as a payload and record the transaction address
+            transactions.add(uploadPDFSliceAsync(pdfHash, i, numSlices, temp));
         }
+
+        return transactions;
     }
 
     //==============================================================================
 
     /**
      * Uploads a slice of a PDF to the chain and returns the transaction address
-     * @param recordID The ID of the certificate whose slice is being added
+     * @param pdfHash The SHA-256 hash of the PDF whose slice is being added
+     * @param index The index of the slice within the PDF
+     * @param numSlices The total number of slices the PDF is stored in
      * @param data The data payload
-     * @return Returns the address of the transaction that is submitted
+     * @return Returns the transaction that is submitted
      */
 
-    private static void uploadPDFSliceAsync(int recordID, int index, byte[] data) throws Exception {
+    private static TransactionPipeline.PendingTransaction uploadPDFSliceAsync(byte[] pdfHash, int index, int numSlices, byte[] data) throws Exception {
 
-        RemoteCall<TransactionReceipt> call = contract.addCertificateBytes(BigInteger.valueOf(recordID), BigInteger.valueOf(index), data);
+        RemoteCall<TransactionReceipt> call = contract.addPDFBytes(pdfHash, BigInteger.valueOf(index), BigInteger.valueOf(numSlices), data);
 
         while(call == null) {
-            CertificateUtils.debugOut("Attempting to re-create transaction call...");
-            call = contract.addCertificateBytes(BigInteger.valueOf(recordID), BigInteger.valueOf(index), data);
+            log.debug("Attempting to re-create transaction call...");
+            call = contract.addPDFBytes(pdfHash, BigInteger.valueOf(index), BigInteger.valueOf(numSlices), data);
             Thread.sleep(100);
         }
 
-        call.sendAsync();
+        TransactionPipeline.PendingTransaction transaction = submitTransaction(CertificateDB.FUNC_ADDPDFBYTES, call);
+        slicesUploaded.increment();
+
+        return transaction;
+    }
+
+    //==============================================================================
+
+    /**
+     * Copies a full-sized PDF slice into its position within the final PDF byte array
+     * @param recordID The ID of the certificate whose slice is being copied
+     * @param index The index of the slice within the PDF
+     * @param numSlices The total number of slices the PDF is stored in
+     * @param slice The slice data retrieved from the chain
+     * @param result The final PDF byte array to copy the slice into
+     */
+
+    private static void copySlice(int recordID, int index, int numSlices, byte[] slice, byte[] result) {
+
+        placeSlice(recordID, index, slice, result);
+
+        //Only the ends of the slice are hex-encoded, and only when they will actually be logged
+        if(log.isDebugEnabled()) {
+            log.debug("Retrieved slice {} of {}, size = {}, data = {}", index + 1, numSlices, slice.length, CertificateUtils.bytesToHexPreview(slice, 8));
+        }
+    }
+
+    //==============================================================================
+    // PACKAGE-PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * @param length The length of an encoded PDF in bytes
+     * @return Returns the number of slices the PDF is stored in
+     */
+
+    static int countSlices(int length) {
+        return (length + BYTE_SIZE_OF_PDF_SLICE - 1) / BYTE_SIZE_OF_PDF_SLICE;
+    }
+
+    //==============================================================================
+
+    /**
+     * Cuts one slice out of an encoded PDF. Every slice is BYTE_SIZE_OF_PDF_SLICE long except the last, which holds whatever is left.
+     * @param encoded The encoded PDF
+     * @param index The index of the slice to cut
+     * @return Returns a copy of the slice
+     */
+
+    static byte[] cutSlice(byte[] encoded, int index) {
+        int start = index * BYTE_SIZE_OF_PDF_SLICE;
+        return Arrays.copyOfRange(encoded, start, Math.min(start + BYTE_SIZE_OF_PDF_SLICE, encoded.length));
+    }
+
+    //==============================================================================
+
+    /**
+     * Copies a full-sized slice into its position within the final PDF byte array
+     * @param recordID The ID of the certificate whose slice is being copied
+     * @param index The index of the slice within the PDF
+     * @param slice The slice data retrieved from the chain
+     * @param result The final PDF byte array to copy the slice into
+     * @throws IllegalStateException Throws an IllegalStateException if the slice is not full-sized
+     */
+
+    static void placeSlice(int recordID, int index, byte[] slice, byte[] result) {
+
+        //Only the last slice may be shorter than a full slice, so anything else means the stored PDF is not laid out the way we expect
+        if(slice.length != BYTE_SIZE_OF_PDF_SLICE) {
+            throw new IllegalStateException("Slice " + index + " of certificate " + recordID + " has length " + slice.length + ", expected " + BYTE_SIZE_OF_PDF_SLICE);
+        }
+
+        System.arraycopy(slice, 0, result, index * BYTE_SIZE_OF_PDF_SLICE, slice.length);
+    }
+
+    //==============================================================================
+
+    /**
+     * Decodes a CertificateAdded event log into the certificate it announced
+     * @param eventLog The log to decode
+     * @return Returns the certificate, with no PDF, or null if the log is not a CertificateAdded event
+     */
+
+    static Certificate toCertificate(Log eventLog) {
+        EventValues eventValues = Contract.staticExtractEventParameters(CertificateDB.CERTIFICATEADDED_EVENT, eventLog);
+
+        if(eventValues == null) {
+            return null;
+        }
+
+        List<Type> indexed = eventValues.getIndexedValues();
+        List<Type> nonIndexed = eventValues.getNonIndexedValues();
+
+        Certificate certificate = new Certificate(
+            ((BigInteger) indexed.get(1).getValue()).longValue(),
+            (String) nonIndexed.get(1).getValue(),
+            (String) nonIndexed.get(2).getValue(),
+            ((BigInteger) nonIndexed.get(3).getValue()).longValue(),
+            ((BigInteger) nonIndexed.get(4).getValue()).longValue(),
+            ((BigInteger) nonIndexed.get(5).getValue()).intValue(),
+            ((BigInteger) indexed.get(0).getValue()).intValue(),
+            (String) nonIndexed.get(6).getValue(),
+            ((BigInteger) nonIndexed.get(7).getValue()).longValue(),
+            null
+        );
+        certificate.setEmail((String) nonIndexed.get(0).getValue());
+
+        return certificate;
     }
 
     //==============================================================================
@@ -164,38 +590,25 @@ public class CertificateDBSC {
 
     protected static String deploy() throws Exception {
 
-        //Update the path to the chain
-        CertificateUtils.startupStateOut("Updating chain path...");
-        System.out.println();
-        updatePath();
-
-        //Connect to the network
-        CertificateUtils.startupStateOut("Connecting to network...");
-        System.out.println();
-        admin = Admin.build(new HttpService());
-        CertificateUtils.startupVarOut("My Ethereum client version = ", admin.web3ClientVersion().send().getWeb3ClientVersion());
-        CertificateUtils.startupVarOut("My net listening = ", "" + admin.netListening().send().getResult());
-        CertificateUtils.startupVarOut("My net peer count = ", admin.netPeerCount().send().getResult());
-        credentials = WalletUtils.loadCredentials(pw, path);
-
-        System.out.println();
+        ContractBinary.requireCompiled("CertificateDB");
 
-        final int POLLING_INTERVAL = 1000; //Poll once per second
-        final int POLLING_ATTEMPTS = 120; //Will try 120 times to perform the transaction (try for ~2 minutes)
-        FastRawTransactionManager fastRawTxMgr = new FastRawTransactionManager(admin, credentials, new PollingTransactionReceiptProcessor(admin, POLLING_INTERVAL, POLLING_ATTEMPTS));
+        connect();
 
         // Deploy
         CertificateUtils.startupStateOut("Deploying contract...");
         System.out.println();
 //        contract = CertificateDB.deploy(admin, credentials, gasPrice, gasLimit).send(); //Commented for now because we want to use a faster transaction manager
-        contract = CertificateDB.deploy(admin, fastRawTxMgr, gasPrice, gasLimit).send();
+        //Deployment has to wait for its receipt to learn the contract address, so it uses its own polling transaction manager
+        FastRawTransactionManager deployTransactionManager = new FastRawTransactionManager(admin, credentials, receiptProcessor);
+        contract = CertificateDB.deploy(admin, deployTransactionManager, gasPrice, gasLimit).send();
         CertificateUtils.startupVarOut("Contract Deploy valid = ", "" + contract.isValid());
 
         if (!contract.isValid()) {
             throw new Exception("Invalid contract deploy");
         }
 
-        address = contract.getContractAddress();
+        deploymentBlockNumber = contract.getTransactionReceipt().map(TransactionReceipt::getBlockNumber).orElse(BigInteger.ZERO);
+        bindContract(contract.getContractAddress());
         CertificateUtils.startupVarOut("Contract Deploy address = ", address);
         System.out.println();
 
@@ -207,9 +620,6 @@ public class CertificateDBSC {
             CertificateUtils.startupVarOut("Account Unlocked = ", personalUnlockAccount.accountUnlocked().toString());
         }
 
-        objectMapper = new ObjectMapper();
-        objectMapper.configure(Feature.AUTO_CLOSE_SOURCE, true);
-
         return address;
     }
 
@@ -224,18 +634,24 @@ public class CertificateDBSC {
 
     protected static boolean load(String addr) throws Exception {
 
-        updatePath();
+        connect();
 
         // Load
-        contract = CertificateDB.load(addr, admin, credentials, gasPrice, gasLimit);
+        bindContract(addr);
         CertificateUtils.startupStateOut("Loading contract...");
         System.out.println();
         CertificateUtils.startupVarOut("Contract Load valid = ", "" + contract.isValid());
 
-        objectMapper = new ObjectMapper();
-        objectMapper.configure(Feature.AUTO_CLOSE_SOURCE, true);
+        if(!contract.isValid()) {
+            return false;
+        }
+
+        //Event logs only exist from the deployment block onward, so syncing the index starts there instead of at block 0
+        deploymentBlockNumber = call(CertificateDB.FUNC_DEPLOYMENTBLOCK, contract.deploymentBlock());
+        CertificateUtils.startupVarOut("Contract Deploy block = ", deploymentBlockNumber.toString());
+        System.out.println();
 
-        return contract.isValid();
+        return true;
     }
 
     //==============================================================================
@@ -253,15 +669,16 @@ public class CertificateDBSC {
      * @param courseName The course name on the certificate to add to the mappings
      * @param endDate The end or expiry date on the certificate to add to the mappings
      * @param pdf The PDF to store in the byte form
+     * @return Returns every transaction submitted for the certificate, starting with the certificate itself followed by each PDF slice that had to be uploaded
      */
 
-    protected static void addNewCertificate(
+    protected static List<TransactionPipeline.PendingTransaction> addNewCertificate(
         String email,
-        Integer researcherID,
+        Long researcherID,
         String firstName,
         String lastName,
-        Integer firstNameKey,
-        Integer lastNameKey,
+        Long firstNameKey,
+        Long lastNameKey,
         Integer certificateType,
         Integer recordID,
         String courseName,
@@ -269,7 +686,19 @@ public class CertificateDBSC {
         byte[] pdf
     ) throws Exception {
 
-        contract.addNewCertificate(
+        List<TransactionPipeline.PendingTransaction> transactions = new ArrayList<>();
+
+        byte[] pdfHash = pdf == null || pdf.length == 0 ? NO_PDF_HASH : Hash.sha256(pdf);
+        int pdfLength = pdfHash == NO_PDF_HASH ? 0 : pdf.length;
+
+        //Write the PDF to the blob store before the certificate reaches the chain, so every anchored hash can be served
+        //PDFs are stored by content, so a PDF shared by many certificates is only written the first time
+        if(pdfHash != NO_PDF_HASH && blobStore != null && !blobStore.contains(pdfHash)) {
+            blobStore.put(pdfHash, pdf);
+        }
+
+        //Transactions are pipelined through the transaction manager's local nonce sequence, so none of these wait to be mined
+        transactions.add(submitTransaction(CertificateDB.FUNC_ADDNEWCERTIFICATE, contract.addNewCertificate(
             email,
             BigInteger.valueOf(researcherID),
             firstName,
@@ -279,196 +708,752 @@ public class CertificateDBSC {
             BigInteger.valueOf(certificateType),
             BigInteger.valueOf(recordID),
             courseName,
-            BigInteger.valueOf(endDate)
-        ).sendAsync();
+            BigInteger.valueOf(endDate),
+            pdfHash,
+            BigInteger.valueOf(pdfLength)
+        )));
+
+        //Add the PDF to the chain, unless it is stored off-chain or the same PDF is already there
+        if(pdfHash != NO_PDF_HASH && blobStore == null) {
+            transactions.addAll(uploadPDFIfAbsent(recordID, pdfHash, pdf));
+        }
+        if(log.isDebugEnabled()) {
+            log.debug("Added new certificate");
+            CertificateUtils.debugCertificateOut(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate, pdf);
+        }
 
-        //Add the PDF to the chain
-        uploadFullPDF(recordID, pdf);
-        CertificateUtils.debugOut("Added new certificate");
-        CertificateUtils.debugCertificateOut(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate, pdf);
-        System.out.println();
+        return transactions;
     }
 
     //==============================================================================
 
     /**
-     * Queries the database for certificates matching ALL of the criteria passed
-     * If a field is not specified in the search, it will be passed as 0
-     *
-     * @param firstNameKey The first name key to check the certificate for
-     * @param lastNameKey The last name key to check the certificate for
-     * @param researcherID The ID to check the certificate for
-     * @param endDateRangeLow The earliest end date to search from
-     * @param endDateRangeHigh The latest end date to search from
-     * @return Returns a JSON string containing all of the certificates that match ALL of the given criteria (may include duplicates!)
+     * Copies every certificate, and every PDF stored on the chain, from a previously deployed contract into the current one
+     * Used to move a database onto a new version of the contract after its storage layout changes, since storage cannot be upgraded in place.
+     * The old contract has to have getRecordIDsPage() and getCertificate() (version 2.6.0 or later); older contracts have to be re-imported from their source data.
+     * Record IDs, keys and PDF hashes are copied as-is, so searches and PDF downloads behave the same against the new contract.
+     * @param oldAddress The address of the contract to copy from
+     * @return Returns every certificate that was copied, in the order they were added to the old contract
+     * @throws Exception Throws an Exception if the old contract cannot be read or any transaction to the new contract fails
      */
 
-    protected static ArrayList<Certificate> queryAll(
-        Integer firstNameKey,
-        Integer lastNameKey,
-        Integer researcherID,
-        long endDateRangeLow,
-        long endDateRangeHigh
-    ) throws Exception {
+    protected static ArrayList<Certificate> migrateFrom(String oldAddress) throws Exception {
 
-        CertificateUtils.debugOut("Searching chain...");
-        CertificateUtils.debugVarOut("query mode", "all");
-        CertificateUtils.debugVarOut("address", address);
-        CertificateUtils.debugOut("=================================================================");
-        CertificateUtils.debugVarOut("firstNameKey", firstNameKey);
-        CertificateUtils.debugVarOut("lastNameKey", lastNameKey);
-        CertificateUtils.debugVarOut("researcherID", researcherID);
-        CertificateUtils.debugVarOut("endDateRangeLow", String.valueOf(endDateRangeLow));
-        CertificateUtils.debugVarOut("endDateRangeHigh", String.valueOf(endDateRangeHigh));
-        CertificateUtils.debugOut("=================================================================");
+        CertificateDB oldContract = CertificateDB.load(oldAddress, admin, transactionManager, gasPrice, gasLimit);
+
+        CertificateUtils.startupStateOut("Migrating certificates...");
+        CertificateUtils.startupVarOut("From address = ", oldAddress);
+        CertificateUtils.startupVarOut("To address = ", address);
         System.out.println();
 
-        //Get a JSON string from the chain containing query results
-        String resultString = contract.queryAll(
-                BigInteger.valueOf(firstNameKey),
-                BigInteger.valueOf(lastNameKey),
-                BigInteger.valueOf(researcherID),
-                BigInteger.valueOf(endDateRangeLow),
-                BigInteger.valueOf(endDateRangeHigh)
-        ).send();
+        ArrayList<Certificate> migrated = new ArrayList<>();
+        List<TransactionPipeline.PendingTransaction> transactions = new ArrayList<>();
+        BigInteger offset = BigInteger.ZERO;
 
-        //Parse the JSON string into an ArrayList of Certificate objects and remove any duplicate results from the list
-        ArrayList<Certificate> certificates = CertificateUtils.removeDuplicates(objectMapper.readValue(resultString, new TypeReference<List<Certificate>>() {}));
+        //PDFs already being copied by this migration, so a PDF shared by many certificates is only copied once
+        Set<String> copiedPDFs = new HashSet<>();
 
-        for (Certificate certificate : certificates) {
-            //This is pretty silly looking but we have to convert from seconds to milliseconds for Java
-            certificate.setEndDate(new Date(certificate.getEndDate().getTime() * 1000));
-        }
+        do {
+            Tuple2<List<BigInteger>, BigInteger> page = call(CertificateDB.FUNC_GETRECORDIDSPAGE, oldContract.getRecordIDsPage(offset, BigInteger.valueOf(MAX_PAGE_SIZE)));
 
-        return certificates;
-    }
+            for(Certificate certificate : getCertificates(oldContract, page.getValue1())) {
+                BigInteger recordID = BigInteger.valueOf(certificate.getRecordID());
+                byte[] pdfHash = call(CertificateDB.FUNC_GETPDFHASH, oldContract.getPDFHash(recordID));
+                BigInteger pdfLength = call(CertificateDB.FUNC_GETPDFLENGTH, oldContract.getPDFLength(recordID));
 
-    //==============================================================================
+                transactions.add(submitTransaction(CertificateDB.FUNC_ADDNEWCERTIFICATE, contract.addNewCertificate(
+                    certificate.getEmail(),
+                    BigInteger.valueOf(certificate.getResearcherID()),
+                    certificate.getFirstName(),
+                    certificate.getLastName(),
+                    BigInteger.valueOf(certificate.getFirstNameKey()),
+                    BigInteger.valueOf(certificate.getLastNameKey()),
+                    BigInteger.valueOf(certificate.getCertificateType().ordinal()),
+                    recordID,
+                    certificate.getCourseName(),
+                    BigInteger.valueOf(certificate.getEndDate().getTime() / 1000),
+                    pdfHash,
+                    pdfLength
+                )));
 
-    /**
-     * Queries the database for certificates matching ANY of the criteria passed
-     * If a field is not specified in the search, it will be passed as 0
-     *
-     * @param firstNameKey The first name key to check the certificate for
-     * @param lastNameKey The last name key to check the certificate for
-     * @param researcherID The ID to check the certificate for
-     * @param endDateRangeLow The earliest end date to search from
-     * @param endDateRangeHigh The latest end date to search from
-     * @return Returns a JSON string containing all of the certificates that match ANY of the given criteria (may include duplicates!)
-     */
+                //Slices are copied exactly as they were stored, so they stay encoded and keep matching the hash they are stored under
+                //Only complete PDFs are copied, and the hash is only marked as stored once every copied slice has been mined
+                String key = CertificateUtils.bytesToHex(pdfHash);
 
-    protected static ArrayList<Certificate> queryAny(
-        int firstNameKey,
-        int lastNameKey,
-        int researcherID,
-        long endDateRangeLow,
-        long endDateRangeHigh
-    ) throws Exception {
+                if(!Arrays.equals(pdfHash, NO_PDF_HASH) && !storedPDFHashes.contains(key) && !copiedPDFs.contains(key) && call(CertificateDB.FUNC_HASPDF, oldContract.hasPDF(pdfHash))) {
+                    copiedPDFs.add(key);
 
-        CertificateUtils.debugOut("Searching chain...");
-        CertificateUtils.debugVarOut("query mode", "any");
-        CertificateUtils.debugVarOut("address", address);
-        CertificateUtils.debugOut("=================================================================");
-        CertificateUtils.debugVarOut("firstNameKey", firstNameKey);
-        CertificateUtils.debugVarOut("lastNameKey", lastNameKey);
-        CertificateUtils.debugVarOut("researcherID", researcherID);
-        CertificateUtils.debugVarOut("endDateRangeLow", String.valueOf(endDateRangeLow));
-        CertificateUtils.debugVarOut("endDateRangeHigh", String.valueOf(endDateRangeHigh));
-        CertificateUtils.debugOut("=================================================================");
-        System.out.println();
+                    int numSlices = call(CertificateDB.FUNC_GETCERTIFICATEBYTESLENGTH, oldContract.getCertificateBytesLength(recordID)).intValueExact();
+                    gasMeter.recordPDFBytes(pdfLength.longValue());
 
-        //Get a JSON string from the chain containing query results
-        String resultString = contract.queryAny(
-            BigInteger.valueOf(firstNameKey),
-            BigInteger.valueOf(lastNameKey),
-            BigInteger.valueOf(researcherID),
-            BigInteger.valueOf(endDateRangeLow),
-            BigInteger.valueOf(endDateRangeHigh)
-        ).send();
+                    List<CompletableFuture<TransactionReceipt>> slices = new ArrayList<>(numSlices);
 
-        //Parse the JSON string into an ArrayList of Certificate objects and remove any duplicate results from the list
-        ArrayList<Certificate> certificates = CertificateUtils.removeDuplicates(objectMapper.readValue(resultString, new TypeReference<List<Certificate>>() {}));
+                    for(int i = 0; i < numSlices; i++) {
+                        byte[] slice = call(CertificateDB.FUNC_GETCERTIFICATEBYTES, oldContract.getCertificateBytes(recordID, BigInteger.valueOf(i)));
+                        TransactionPipeline.PendingTransaction transaction = uploadPDFSliceAsync(pdfHash, i, numSlices, slice);
+                        transactions.add(transaction);
+                        slices.add(transaction.getReceipt());
+                    }
 
-        for (Certificate certificate : certificates) {
-            //This is pretty silly looking but we have to convert from seconds to milliseconds for Java
-            certificate.setEndDate(new Date(certificate.getEndDate().getTime() * 1000));
-        }
+                    CompletableFuture.allOf(slices.toArray(new CompletableFuture[0])).thenRun(() -> storedPDFHashes.add(key));
+                }
 
-        return certificates;
-    }
+                migrated.add(certificate);
+            }
 
-    //==============================================================================
+            offset = page.getValue2();
 
-    protected static ArrayList<Certificate> getAllCertificates() throws Exception {
-        String resultString = contract.getAllCertificates().send();
+            log.debug("certificates migrated = {}", migrated.size());
 
-        ArrayList<Certificate> certificates = CertificateUtils.removeDuplicates(objectMapper.readValue(resultString, new TypeReference<List<Certificate>>() {}));
+        } while(offset.signum() != 0);
 
-        for (Certificate certificate : certificates) {
-            //This is pretty silly looking but we have to convert from seconds to milliseconds for Java
-            certificate.setEndDate(new Date(certificate.getEndDate().getTime() * 1000));
-        }
+        TransactionPipeline.awaitAll(transactions);
 
-        return certificates;
+        CertificateUtils.startupVarOut("Certificates migrated = ", "" + migrated.size());
+        System.out.println();
+
+        return migrated;
     }
 
     //==============================================================================
 
     /**
-     * Retrieves the full PDF byte array from the chain in slices and combines it into one byte array
-     * @param recordID The PDF record ID for which the bytes should be retrieved
-     * @return Returns a byte array containing the full PDF data for the specified record ID
+     * @return Returns the pipeline that every transaction to the contract is submitted through
+     */
+
+    protected static TransactionPipeline getTransactionPipeline() {
+        return pipeline;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the meter that the gas used by every transaction to the contract is recorded in
+     */
+
+    protected static GasMeter getGasMeter() {
+        return gasMeter;
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets whether PDFs are compressed before they are stored. PDFs already stored are read back correctly either way.
+     * @param compress If true, PDFs are compressed with Deflate before they are sliced
+     */
+
+    protected static void setPDFCompression(boolean compress) {
+        compressPDFs = compress;
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets the maximum number of transactions that may be submitted but not yet mined at once
+     * Takes effect for transactions submitted after the call. Transactions already in flight finish in the pipeline they were submitted to,
+     * and this waits for them before returning.
+     * @param window The maximum number of pending transactions
+     */
+
+    protected static void setTransactionWindow(int window) {
+
+        if(window < 1) {
+            throw new IllegalArgumentException("Transaction window must be at least 1");
+        }
+
+        transactionWindow = window;
+
+        if(receiptProcessor != null) {
+            replacePipeline(new TransactionPipeline(window, receiptProcessor, gasMeter));
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Queries the database for certificates matching ALL of the criteria passed
+     * If a field is not specified in the search, it will be passed as 0
+     *
+     * @param firstNameKey The first name key to check the certificate for
+     * @param lastNameKey The last name key to check the certificate for
+     * @param researcherID The ID to check the certificate for
+     * @param endDateRangeLow The earliest end date to search from
+     * @param endDateRangeHigh The latest end date to search from
+     * @return Returns all of the certificates that match ALL of the given criteria, without duplicates
+     */
+
+    protected static ArrayList<Certificate> queryAll(
+        Long firstNameKey,
+        Long lastNameKey,
+        Long researcherID,
+        long endDateRangeLow,
+        long endDateRangeHigh
+    ) throws Exception {
+
+        if(log.isDebugEnabled()) {
+            log.debug("Searching chain {} in query mode all: firstNameKey = {}, lastNameKey = {}, researcherID = {}, endDateRange = {} to {}",
+                address, firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh);
+        }
+
+        //Get the record IDs of the matching certificates from the chain, then look each certificate up
+        List<BigInteger> recordIDs = call(CertificateDB.FUNC_QUERYALLRECORDIDS, contract.queryAllRecordIDs(
+                BigInteger.valueOf(firstNameKey),
+                BigInteger.valueOf(lastNameKey),
+                BigInteger.valueOf(researcherID),
+                BigInteger.valueOf(endDateRangeLow),
+                BigInteger.valueOf(endDateRangeHigh)
+        ));
+
+        return getCertificates(recordIDs);
+    }
+
+    //==============================================================================
+
+    /**
+     * Queries the database for certificates matching ANY of the criteria passed
+     * If a field is not specified in the search, it will be passed as 0
+     *
+     * @param firstNameKey The first name key to check the certificate for
+     * @param lastNameKey The last name key to check the certificate for
+     * @param researcherID The ID to check the certificate for
+     * @param endDateRangeLow The earliest end date to search from
+     * @param endDateRangeHigh The latest end date to search from
+     * @return Returns all of the certificates that match ANY of the given criteria, without duplicates
+     */
+
+    protected static ArrayList<Certificate> queryAny(
+        long firstNameKey,
+        long lastNameKey,
+        long researcherID,
+        long endDateRangeLow,
+        long endDateRangeHigh
+    ) throws Exception {
+
+        if(log.isDebugEnabled()) {
+            log.debug("Searching chain {} in query mode any: firstNameKey = {}, lastNameKey = {}, researcherID = {}, endDateRange = {} to {}",
+                address, firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh);
+        }
+
+        //Get the record IDs of the matching certificates from the chain, then look each certificate up
+        List<BigInteger> recordIDs = call(CertificateDB.FUNC_QUERYANYRECORDIDS, contract.queryAnyRecordIDs(
+            BigInteger.valueOf(firstNameKey),
+            BigInteger.valueOf(lastNameKey),
+            BigInteger.valueOf(researcherID),
+            BigInteger.valueOf(endDateRangeLow),
+            BigInteger.valueOf(endDateRangeHigh)
+        ));
+
+        return getCertificates(recordIDs);
+    }
+
+    //==============================================================================
+
+    /**
+     * Queries the database for one page of the certificates matching ALL of the criteria passed
+     * The contract checks a bounded number of candidates per call, so this keeps calling it until the page is full or the candidates run out
+     *
+     * @param firstNameKey The first name key to check the certificate for
+     * @param lastNameKey The last name key to check the certificate for
+     * @param researcherID The ID to check the certificate for
+     * @param endDateRangeLow The earliest end date to search from
+     * @param endDateRangeHigh The latest end date to search from
+     * @param offset The offset to resume from, which is 0 for the first page and the next offset of the previous page after that
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates. Its next offset is a position among the candidates rather than offset + limit, so it should be passed back as-is
+     */
+
+    protected static CertificatePage queryAllPage(
+        long firstNameKey,
+        long lastNameKey,
+        long researcherID,
+        long endDateRangeLow,
+        long endDateRangeHigh,
+        int offset,
+        int limit
+    ) throws Exception {
+
+        List<BigInteger> recordIDs = new ArrayList<>(limit);
+        BigInteger nextOffset = BigInteger.valueOf(offset);
+
+        do {
+            int remaining = Math.min(limit - recordIDs.size(), MAX_PAGE_SIZE);
+
+            Tuple2<List<BigInteger>, BigInteger> page = call(CertificateDB.FUNC_QUERYALLRECORDIDSPAGE, contract.queryAllRecordIDsPage(
+                BigInteger.valueOf(firstNameKey),
+                BigInteger.valueOf(lastNameKey),
+                BigInteger.valueOf(researcherID),
+                BigInteger.valueOf(endDateRangeLow),
+                BigInteger.valueOf(endDateRangeHigh),
+                nextOffset,
+                BigInteger.valueOf(remaining)
+            ));
+
+            recordIDs.addAll(page.getValue1());
+            nextOffset = page.getValue2();
+
+        } while(recordIDs.size() < limit && nextOffset.signum() != 0);
+
+        return new CertificatePage(getCertificates(recordIDs), offset, limit, nextOffset.signum() == 0 ? -1 : nextOffset.intValueExact());
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up every certificate with an end date in a range, using the contract's 30-day end date buckets
+     * @param endDateRangeLow The earliest end date to search from in seconds (inclusive), or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to in seconds (inclusive), or 0 to search until three years from now
+     * @return Returns the certificates with an end date in the range
+     * @throws Exception Throws an Exception if the certificates cannot be retrieved from the chain
+     */
+
+    protected static ArrayList<Certificate> getCertificatesByEndDateRange(long endDateRangeLow, long endDateRangeHigh) throws Exception {
+        List<BigInteger> recordIDs = call(CertificateDB.FUNC_QUERYENDDATERANGERECORDIDS, contract.queryEndDateRangeRecordIDs(BigInteger.valueOf(endDateRangeLow), BigInteger.valueOf(endDateRangeHigh)));
+
+        return getCertificates(recordIDs);
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns one page of the certificates with an end date in a range, for ranges too large to return in one call
+     * @param endDateRangeLow The earliest end date to search from in seconds (inclusive), or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to in seconds (inclusive), or 0 to search until three years from now
+     * @param offset The offset to resume from, which is 0 for the first page and the next offset of the previous page after that
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates
+     * @throws Exception Throws an Exception if the certificates cannot be retrieved from the chain
+     */
+
+    protected static CertificatePage getCertificatesByEndDateRange(long endDateRangeLow, long endDateRangeHigh, int offset, int limit) throws Exception {
+        //A query with no criteria at all matches nothing, so fill in the start of the range the same way the contract would
+        if(endDateRangeLow == 0 && endDateRangeHigh == 0) {
+            endDateRangeLow = (System.currentTimeMillis() / 1000 / 86400) * 86400;
+        }
+
+        return queryAllPage(0, 0, 0, endDateRangeLow, endDateRangeHigh, offset, limit);
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns one page of every certificate in the database, in the order they were added
+     * @param offset The position of the first certificate to return
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates
+     * @throws Exception Throws an Exception if the certificates cannot be retrieved from the chain
+     */
+
+    protected static CertificatePage getAllCertificatesPage(int offset, int limit) throws Exception {
+        List<BigInteger> recordIDs = new ArrayList<>(limit);
+        BigInteger nextOffset = BigInteger.valueOf(offset);
+
+        do {
+            int remaining = Math.min(limit - recordIDs.size(), MAX_PAGE_SIZE);
+
+            Tuple2<List<BigInteger>, BigInteger> page = call(CertificateDB.FUNC_GETRECORDIDSPAGE, contract.getRecordIDsPage(nextOffset, BigInteger.valueOf(remaining)));
+
+            recordIDs.addAll(page.getValue1());
+            nextOffset = page.getValue2();
+
+        } while(recordIDs.size() < limit && nextOffset.signum() != 0);
+
+        return new CertificatePage(getCertificates(recordIDs), offset, limit, nextOffset.signum() == 0 ? -1 : nextOffset.intValueExact());
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns every certificate in the database
+     * Reads the record IDs a page at a time, so the size of the database is never limited by what fits in a single call
+     * @return Returns every certificate in the database, in the order they were added
+     * @throws Exception Throws an Exception if the certificates cannot be retrieved from the chain
+     */
+
+    protected static ArrayList<Certificate> getAllCertificates() throws Exception {
+        ArrayList<Certificate> certificates = new ArrayList<>();
+        int offset = 0;
+
+        do {
+            CertificatePage page = getAllCertificatesPage(offset, MAX_PAGE_SIZE);
+            certificates.addAll(page.getCertificates());
+            offset = page.getNextOffset();
+        } while(offset >= 0);
+
+        return certificates;
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the certificates for a list of record IDs, with at most CERTIFICATE_FETCH_WINDOW lookups in flight at once
+     * @param recordIDs The record IDs to look up, as returned by one of the record ID queries (may include duplicates)
+     * @return Returns the certificates for the record IDs, in the same order, without duplicates
+     * @throws Exception Throws an Exception if any of the certificates cannot be retrieved from the chain
+     */
+
+    protected static ArrayList<Certificate> getCertificates(List<BigInteger> recordIDs) throws Exception {
+        return getCertificates(contract, recordIDs);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the certificates for a list of record IDs in a particular contract, with at most CERTIFICATE_FETCH_WINDOW lookups in flight at once
+     * @param source The contract to look the certificates up in
+     * @param recordIDs The record IDs to look up (may include duplicates)
+     * @return Returns the certificates for the record IDs, in the same order, without duplicates
+     * @throws Exception Throws an Exception if any of the certificates cannot be retrieved from the chain
+     */
+
+    private static ArrayList<Certificate> getCertificates(CertificateDB source, List<BigInteger> recordIDs) throws Exception {
+
+        //Queries can return the same record ID more than once, so each certificate is only looked up once
+        List<BigInteger> uniqueRecordIDs = new ArrayList<>(new LinkedHashSet<>(recordIDs));
+        Certificate[] certificates = new Certificate[uniqueRecordIDs.size()];
+
+        Semaphore inFlight = new Semaphore(CERTIFICATE_FETCH_WINDOW);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>(uniqueRecordIDs.size());
+
+        for(int i = 0; i < uniqueRecordIDs.size() && failure.get() == null; i++) {
+            final int index = i;
+            final BigInteger recordID = uniqueRecordIDs.get(i);
+
+            inFlight.acquire();
+
+            CompletableFuture<Void> future = callAsync(CertificateDB.FUNC_GETCERTIFICATE, source.getCertificate(recordID))
+                .thenAccept(fields -> certificates[index] = toCertificate(recordID, fields))
+                .whenComplete((ignored, e) -> {
+                    if(e != null) {
+                        failure.compareAndSet(null, e);
+                    }
+                    inFlight.release();
+                });
+
+            pending.add(future);
+        }
+
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+        } catch(ExecutionException e) {
+            throw new Exception("Could not retrieve certificates", e.getCause());
+        }
+
+        if(failure.get() != null) {
+            throw new Exception("Could not retrieve certificates", failure.get());
+        }
+
+        ArrayList<Certificate> result = new ArrayList<>(certificates.length);
+        Collections.addAll(result, certificates);
+
+        return result;
+    }
+
+    //==============================================================================
+
+    /**
+     * Converts the fields returned by getCertificate() in the contract into a Certificate
+     * @param recordID The record ID of the certificate
+     * @param fields The fields of the certificate, in the order the contract returns them
+     * @return Returns the certificate, with its end date in milliseconds
+     */
+
+    private static Certificate toCertificate(BigInteger recordID, Tuple9<String, BigInteger, String, String, BigInteger, BigInteger, BigInteger, String, BigInteger> fields) {
+        Certificate certificate = new Certificate(
+            fields.getValue2().longValue(),
+            fields.getValue3(),
+            fields.getValue4(),
+            fields.getValue5().longValue(),
+            fields.getValue6().longValue(),
+            fields.getValue7().intValue(),
+            recordID.intValue(),
+            fields.getValue8(),
+            fields.getValue9().longValue(),
+            null
+        );
+        certificate.setEmail(fields.getValue1());
+
+        return certificate;
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves the certificates that were added to the contract within a range of blocks by reading the CertificateAdded event logs
+     * This only touches the logs within the range, so it costs time proportional to the number of new certificates rather than the whole database
+     * @param fromBlock The first block to read logs from (inclusive)
+     * @param toBlock The last block to read logs from (inclusive)
+     * @return Returns the certificates added within the range of blocks, in the order they were added
+     * @throws Exception Throws an Exception if the logs cannot be retrieved from the chain
+     */
+
+    protected static ArrayList<Certificate> getCertificatesAddedBetween(BigInteger fromBlock, BigInteger toBlock) throws Exception {
+
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), address);
+        filter.addSingleTopic(EventEncoder.encode(CertificateDB.CERTIFICATEADDED_EVENT));
+
+        EthLog ethLog = call(admin.ethGetLogs(filter));
+
+        if(ethLog.hasError()) {
+            throw new Exception("Could not retrieve CertificateAdded logs: " + ethLog.getError().getMessage());
+        }
+
+        ArrayList<Certificate> certificates = new ArrayList<>();
+
+        for(EthLog.LogResult logResult : ethLog.getLogs()) {
+            Certificate certificate = toCertificate((Log) logResult.get());
+
+            //Logs that do not decode as CertificateAdded events are skipped
+            if(certificate != null) {
+                certificates.add(certificate);
+            }
+        }
+
+        return certificates;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of the most recent block on the chain
+     * @throws Exception Throws an Exception if the block number cannot be retrieved from the chain
+     */
+
+    protected static BigInteger getLatestBlockNumber() throws Exception {
+        return call(admin.ethBlockNumber()).getBlockNumber();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the block the contract was deployed in, read from the contract itself when it was loaded from an address
+     */
+
+    protected static BigInteger getDeploymentBlockNumber() {
+        return deploymentBlockNumber;
+    }
+    //==============================================================================
+
+    /**
+     * Retrieves the full PDF byte array from the chain in slices and combines it into one byte array
+     * Slices are retrieved concurrently, with at most DEFAULT_SLICE_FETCH_WINDOW requests in flight at once
+     * @param recordID The PDF record ID for which the bytes should be retrieved
+     * @return Returns a byte array containing the full PDF data for the specified record ID
      * @throws Exception Throws an Exception if there is a problem retrieving the certificate bytes from the chain
      */
 
     protected static byte[] getPDFBytes(int recordID) throws Exception {
+        return getPDFBytes(recordID, DEFAULT_SLICE_FETCH_WINDOW);
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves the full PDF byte array from the chain, requesting up to window slices in parallel and writing each slice
+     * directly into its position in the result array as soon as it arrives
+     * @param recordID The PDF record ID for which the bytes should be retrieved
+     * @param window The maximum number of slice requests that may be in flight at once (1 retrieves the slices one after another)
+     * @return Returns a byte array containing the full PDF data for the specified record ID
+     * @throws Exception Throws an Exception if there is a problem retrieving the certificate bytes from the chain
+     */
+
+    protected static byte[] getPDFBytes(int recordID, int window) throws Exception {
+
+        if(window < 1) {
+            throw new IllegalArgumentException("Slice fetch window must be at least 1");
+        }
+
+        ByteBuffer stored = getStoredPDF(recordID);
 
-        CertificateUtils.debugOut("Retrieving bytes for certificate " + ANSI_YELLOW + recordID);
+        if(stored != null) {
+            byte[] pdf = new byte[stored.remaining()];
+            stored.get(pdf);
+            pdfsDownloaded.record(pdf.length);
+            return pdf;
+        }
 
         //Retrieve the number of slices that the PDF is stored in so we can determine how many calls to make to retrieve the actual byte slices
-        int numSlices = contract.getCertificateBytesLength(BigInteger.valueOf(recordID)).send().intValue();
+        Tuple3<byte[], BigInteger, Boolean> info = getPDFInfo(recordID);
+        int numSlices = info.getValue2().intValue();
 
-        CertificateUtils.debugVarOut("numSlices", numSlices);
-        System.out.println();
+        if(log.isDebugEnabled()) {
+            log.debug("Retrieving bytes for certificate {}, numSlices = {}, window = {}", recordID, numSlices, window);
+        }
+
+        if(numSlices == 0) {
+            return new byte[0];
+        }
 
-        //Create an ArrayList to hold the byte arrays so we can determine how long the final length will be before combining them
-        ArrayList<byte[]> bytes = new ArrayList<>();
-        int totalLength = 0;
+        //Every slice except the last one is exactly BYTE_SIZE_OF_PDF_SLICE long, so retrieving the last slice first tells us the final length
+        //This lets us allocate the result array once and copy every other slice straight into its final position
+        int lastSliceStart = (numSlices - 1) * BYTE_SIZE_OF_PDF_SLICE;
+        byte[] lastSlice = call(CertificateDB.FUNC_GETCERTIFICATEBYTES, contract.getCertificateBytes(BigInteger.valueOf(recordID), BigInteger.valueOf(numSlices - 1)));
+        slicesDownloaded.increment();
 
-        //Retrieve the actual PDF slices from the chain
-        for(int i = 0; i < numSlices; i++) {
-            CertificateUtils.debugOut("Retrieving slice " + ANSI_YELLOW + (i + 1) + ANSI_CYAN + " of " + ANSI_YELLOW + numSlices);
+        final byte[] result = new byte[lastSliceStart + lastSlice.length];
+        System.arraycopy(lastSlice, 0, result, lastSliceStart, lastSlice.length);
 
-            byte[] temp = contract.getCertificateBytes(BigInteger.valueOf(recordID), BigInteger.valueOf(i)).send();
+        //Retrieve the rest of the slices, never allowing more than `window` requests to be outstanding at once
+        Semaphore inFlight = new Semaphore(window);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>(numSlices - 1);
 
-            totalLength += temp.length;
+        for(int i = 0; i < numSlices - 1 && failure.get() == null; i++) {
+            final int index = i;
 
-            CertificateUtils.debugVarOut("size", temp.length);
+            inFlight.acquire();
 
-            String data = CertificateUtils.bytesToHex(temp);
-            CertificateUtils.debugVarOut("data = ", data.substring(0, 15) + "..." + data.substring(data.length() - 16));
-            System.out.println();
+            CompletableFuture<Void> future = fetchSlice(recordID, index)
+                .thenAccept(slice -> copySlice(recordID, index, numSlices, slice, result))
+                .whenComplete((ignored, e) -> {
+                    if(e != null) {
+                        failure.compareAndSet(null, e);
+                    }
+                    inFlight.release();
+                });
 
-            bytes.add(temp);
+            pending.add(future);
         }
 
-        //Create the final file byte array with the length we found
-        byte[] result = new byte[totalLength];
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).get();
+        } catch(ExecutionException e) {
+            throw new Exception("Could not retrieve bytes for certificate " + recordID, e.getCause());
+        }
 
-        //Keep track of the current position within the final byte array to copy the bytes to from the slice arrays
-        int currentPosition = 0;
+        if(failure.get() != null) {
+            throw new Exception("Could not retrieve bytes for certificate " + recordID, failure.get());
+        }
+
+        //Reverse whatever encoding the PDF was stored with
+        byte[] pdf = PDFCodec.decode(result);
 
-        //Copy the slices to the final array
-        for (byte[] slice : bytes) {
-            System.arraycopy(slice, 0, result, currentPosition, slice.length);
-            currentPosition += slice.length;
+        if(!Arrays.equals(Hash.sha256(pdf), info.getValue1())) {
+            throw new Exception("PDF for certificate " + recordID + " does not match the hash recorded on the chain");
         }
 
-        CertificateUtils.debugOut("Finished retrieving bytes for certificate " + ANSI_YELLOW + recordID);
-        CertificateUtils.debugVarOut("result.length", result.length);
-        System.out.println();
+        pdfsDownloaded.record(pdf.length);
 
-        return result;
+        if(log.isDebugEnabled()) {
+            log.debug("Finished retrieving bytes for certificate {}, result.length = {}, pdf.length = {}", recordID, result.length, pdf.length);
+        }
+
+        return pdf;
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates an iterator that retrieves the slices of a PDF from the chain one at a time, in order, so the PDF can be
+     * streamed to a client without ever holding the whole file in memory
+     * @param recordID The PDF record ID for which the slices should be retrieved
+     * @return Returns an iterator over the slices of the PDF for the specified record ID
+     * @throws Exception Throws an Exception if the number of slices cannot be retrieved from the chain
+     */
+
+    protected static PDFSliceIterator getPDFSlices(int recordID) throws Exception {
+
+        ByteBuffer stored = getStoredPDF(recordID);
+
+        //PDFs in the blob store are already local, so their slices are simply cut from the mapped file
+        if(stored != null) {
+            int numSlices = countSlices(stored.remaining());
+
+            return new PDFSliceIterator(recordID, numSlices, STREAMING_SLICE_PREFETCH, false, null, index -> {
+                ByteBuffer slice = stored.duplicate();
+                slice.position(index * BYTE_SIZE_OF_PDF_SLICE);
+                slice.limit(Math.min(slice.position() + BYTE_SIZE_OF_PDF_SLICE, stored.limit()));
+
+                byte[] bytes = new byte[slice.remaining()];
+                slice.get(bytes);
+                return CompletableFuture.completedFuture(bytes);
+            });
+        }
+
+        Tuple3<byte[], BigInteger, Boolean> info = getPDFInfo(recordID);
+        int numSlices = info.getValue2().intValue();
+
+        if(log.isDebugEnabled()) {
+            log.debug("Streaming bytes for certificate {}, numSlices = {}", recordID, numSlices);
+        }
+
+        //The iterator checks the hash as the last slice arrives, so a PDF that does not match fails before it is fully sent
+        return new PDFSliceIterator(recordID, numSlices, STREAMING_SLICE_PREFETCH, true, numSlices == 0 ? null : info.getValue1(),
+            index -> fetchSlice(recordID, index));
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up how a certificate's PDF is stored on the chain, refusing PDFs whose upload never finished
+     * The slice count comes from the contract's record of how many slices the PDF was split into, not how many have been stored so far,
+     * so a PDF missing slices can never be returned as a shorter file.
+     * @param recordID The record ID of the certificate
+     * @return Returns the hash of the PDF, the number of slices it is stored in (0 if the certificate has no PDF), and whether it is complete
+     * @throws Exception Throws an Exception if the certificate has a PDF that is missing slices, or if the chain cannot be reached
+     */
+
+    private static Tuple3<byte[], BigInteger, Boolean> getPDFInfo(int recordID) throws Exception {
+        Tuple3<byte[], BigInteger, Boolean> info = call(CertificateDB.FUNC_GETPDFINFO, contract.getPDFInfo(BigInteger.valueOf(recordID)));
+
+        if(!Arrays.equals(info.getValue1(), NO_PDF_HASH) && !info.getValue3()) {
+            throw new Exception("PDF for certificate " + recordID + " has not been fully uploaded to the chain");
+        }
+
+        return info;
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves a PDF from the blob store and verifies it against the hash and length recorded on the chain
+     * @param recordID The PDF record ID for which the PDF should be retrieved
+     * @return Returns a read-only buffer mapped over the PDF, or null if there is no blob store or the PDF is not in it (for example, if it was stored on the chain)
+     * @throws Exception Throws an Exception if the PDF in the blob store does not match the chain, or if the chain cannot be reached
+     */
+
+    protected static ByteBuffer getStoredPDF(int recordID) throws Exception {
+
+        if(blobStore == null) {
+            return null;
+        }
+
+        CompletableFuture<BigInteger> pdfLength = callAsync(CertificateDB.FUNC_GETPDFLENGTH, contract.getPDFLength(BigInteger.valueOf(recordID)));
+        byte[] pdfHash = call(CertificateDB.FUNC_GETPDFHASH, contract.getPDFHash(BigInteger.valueOf(recordID)));
+
+        if(Arrays.equals(pdfHash, NO_PDF_HASH)) {
+            return null;
+        }
+
+        ByteBuffer pdf = blobStore.get(pdfHash);
+
+        if(pdf == null) {
+            return null;
+        }
+
+        if(pdf.remaining() != pdfLength.get().longValue()) {
+            throw new Exception("PDF for certificate " + recordID + " has length " + pdf.remaining() + ", but the chain records " + pdfLength.get());
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(pdf.duplicate());
+
+        if(!Arrays.equals(digest.digest(), pdfHash)) {
+            throw new Exception("PDF for certificate " + recordID + " does not match the hash recorded on the chain");
+        }
+
+        return pdf;
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets where PDFs are stored. PDFs already stored on the chain are still read from the chain.
+     * @param store The blob store to keep PDFs in, or null to store them on the chain in slices
+     */
+
+    protected static void setBlobStore(CertificateBlobStore store) {
+        blobStore = store;
     }
 
     //==============================================================================
@@ -480,14 +1465,141 @@ public class CertificateDBSC {
      * @return Returns true if the ID has a valid certificate, and false if it does not
      */
 
-    protected static boolean hasValidCertificate(Integer researcherID) throws Exception {
-        return contract.hasValidCertificate(BigInteger.valueOf(researcherID)).send();
+    protected static boolean hasValidCertificate(Long researcherID) throws Exception {
+        return call(CertificateDB.FUNC_HASVALIDCERTIFICATE, contract.hasValidCertificate(BigInteger.valueOf(researcherID)));
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks to see if a researcher has a valid certificate of a particular type stored on the chain
+     *
+     * @param researcherID The ID to look check for a valid certificate for
+     * @param certificateType The type of certificate to look for (CITI or HIPAA)
+     * @return Returns true if the ID has a valid certificate of the type, and false if it does not
+     */
+
+    protected static boolean hasValidCertificate(Long researcherID, Integer certificateType) throws Exception {
+        return call(CertificateDB.FUNC_HASVALIDCERTIFICATEOFTYPE, contract.hasValidCertificateOfType(BigInteger.valueOf(researcherID), BigInteger.valueOf(certificateType)));
     }
 
     //==============================================================================
 
+    /**
+     * @param researcherID The ID to look up
+     * @return Returns the latest end date of any of the researcher's certificates in seconds, or 0 if they have none
+     */
+
+    protected static long getLatestExpiry(Long researcherID) throws Exception {
+        return call(CertificateDB.FUNC_GETLATESTEXPIRY, contract.getLatestExpiry(BigInteger.valueOf(researcherID))).longValueExact();
+    }
+
+    //==============================================================================
+
+    /**
+     * @param researcherID The ID to look up
+     * @param certificateType The type of certificate to look up (CITI or HIPAA)
+     * @return Returns the latest end date of any of the researcher's certificates of the type in seconds, or 0 if they have none
+     */
+
+    protected static long getLatestExpiry(Long researcherID, Integer certificateType) throws Exception {
+        return call(CertificateDB.FUNC_GETLATESTEXPIRYOFTYPE, contract.getLatestExpiryOfType(BigInteger.valueOf(researcherID), BigInteger.valueOf(certificateType))).longValueExact();
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the latest end dates of many researchers at once, with one contract call per EXPIRY_BATCH_SIZE researchers instead of one per researcher
+     *
+     * @param researcherIDs The IDs to look up
+     * @param certificateType The type of certificate to look up (CITI or HIPAA), or null for certificates of any type
+     * @return Returns the latest end date of each researcher's certificates in seconds, or 0 if they have none, in the same order as the IDs
+     */
+
+    protected static long[] getLatestExpiries(List<Long> researcherIDs, Integer certificateType) throws Exception {
+        long[] expiries = new long[researcherIDs.size()];
+
+        for(int start = 0; start < researcherIDs.size(); start += EXPIRY_BATCH_SIZE) {
+            List<BigInteger> batch = new ArrayList<>();
+
+            for(Long researcherID : researcherIDs.subList(start, Math.min(start + EXPIRY_BATCH_SIZE, researcherIDs.size()))) {
+                batch.add(BigInteger.valueOf(researcherID));
+            }
+
+            List<?> result = certificateType == null
+                ? call(CertificateDB.FUNC_GETLATESTEXPIRIES, contract.getLatestExpiries(batch))
+                : call(CertificateDB.FUNC_GETLATESTEXPIRIESOFTYPE, contract.getLatestExpiriesOfType(batch, BigInteger.valueOf(certificateType)));
+
+            for(int i = 0; i < result.size(); i++) {
+                expiries[start + i] = ((BigInteger) result.get(i)).longValueExact();
+            }
+        }
+
+        return expiries;
+    }
+    //==============================================================================
+
     protected static int getCertificateCount() throws Exception {
-        return contract.getCertificateCount().send().intValue();
+        return call(CertificateDB.FUNC_GETCERTIFICATECOUNT, contract.getCertificateCount()).intValue();
+    }
+
+    //==============================================================================
+
+    /**
+     * Asks the node how much gas a view function would use if it were sent as a transaction
+     * Views cost nothing when called, but their gas is a measure of how much work they do, and nodes refuse calls over their gas cap
+     * @param function The view function and its arguments
+     * @return Returns the gas the node estimates the call would use
+     * @throws Exception Throws an Exception if the node cannot estimate the call
+     */
+
+    private static long estimateGas(Function function) throws Exception {
+        Transaction transaction = Transaction.createEthCallTransaction(credentials.getAddress(), address, FunctionEncoder.encode(function));
+        EthEstimateGas estimate = call(admin.ethEstimateGas(transaction));
+
+        if(estimate.hasError()) {
+            throw new Exception("Could not estimate gas of " + function.getName() + ": " + estimate.getError().getMessage());
+        }
+
+        return estimate.getAmountUsed().longValueExact();
+    }
+
+    //==============================================================================
+
+    /**
+     * Estimates the gas of the view functions that searches, compliance checks and PDF downloads are made of, for one researcher and one certificate
+     * Queries that the node cannot estimate are left out
+     *
+     * @param researcherID The researcher to query for
+     * @param recordID The certificate to query for
+     * @return Returns the estimated gas of each view function, keyed by function name
+     */
+
+    protected static Map<String, Long> estimateQueryGas(long researcherID, int recordID) {
+        BigInteger id = BigInteger.valueOf(researcherID);
+        BigInteger record = BigInteger.valueOf(recordID);
+
+        List<Function> queries = Arrays.asList(
+            new Function(CertificateDB.FUNC_QUERYALLRECORDIDS, Arrays.<Type>asList(new Uint256(0), new Uint256(0), new Uint64(id), new Uint256(0), new Uint256(0)), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_GETCERTIFICATE, Arrays.<Type>asList(new Uint256(record)), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_HASVALIDCERTIFICATE, Arrays.<Type>asList(new Uint64(id)), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_GETLATESTEXPIRY, Arrays.<Type>asList(new Uint64(id)), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_GETLATESTEXPIRIES, Arrays.<Type>asList(new DynamicArray<>(new Uint64(id))), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_GETCERTIFICATEBYTES, Arrays.<Type>asList(new Uint256(record), new Uint256(0)), Collections.emptyList()),
+            new Function(CertificateDB.FUNC_GETCERTIFICATECOUNT, Collections.<Type>emptyList(), Collections.emptyList())
+        );
+
+        Map<String, Long> estimates = new LinkedHashMap<>();
+
+        for(Function query : queries) {
+            try {
+                estimates.put(query.getName(), estimateGas(query));
+            } catch(Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        return estimates;
     }
 
     //==============================================================================
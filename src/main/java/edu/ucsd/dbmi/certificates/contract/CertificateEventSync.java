@@ -0,0 +1,161 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a CertificateIndex in sync with the chain by reading CertificateAdded event logs.
+ * A block cursor remembers the last block that has been synced, so each sync only reads the logs of blocks that are newer than it.
+ * Refreshing the index therefore costs time proportional to the number of new certificates, not the size of the whole database.
+ */
+
+public class CertificateEventSync {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The maximum number of blocks to request logs for in a single call, which keeps each eth_getLogs response a reasonable size
+    private final static BigInteger MAX_BLOCKS_PER_REQUEST = BigInteger.valueOf(5000);
+
+    private static final Logger log = LoggerFactory.getLogger(CertificateEventSync.class);
+
+    private final CertificateIndex index;
+
+    //The ledger that certificates are read from
+    private final CertificateLedger ledger;
+
+    //The last block whose logs have been applied to the index
+    private BigInteger lastSyncedBlock;
+
+    //Whether the last sync reached the head of the chain, so that the index can be trusted to answer on the chain's behalf
+    private volatile boolean current;
+
+    private ScheduledExecutorService poller;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new sync service for an index, starting from the block that the ledger was deployed in
+     * @param index The index to keep in sync with the chain
+     * @param ledger The ledger to read new certificates from
+     */
+
+    public CertificateEventSync(CertificateIndex index, CertificateLedger ledger) {
+        this.index = index;
+        this.ledger = ledger;
+        this.lastSyncedBlock = ledger.getDeploymentBlockNumber().subtract(BigInteger.ONE);
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Reads every CertificateAdded log since the last synced block and adds the certificates to the index
+     * @return Returns the number of certificates that were read from the new logs
+     * @throws Exception Throws an Exception if the logs cannot be retrieved from the chain. The cursor is only moved past blocks that were applied.
+     */
+
+    public synchronized int sync() throws Exception {
+
+        int added = 0;
+
+        try {
+            BigInteger latestBlock = ledger.getLatestBlockNumber();
+
+            while(lastSyncedBlock.compareTo(latestBlock) < 0) {
+                BigInteger fromBlock = lastSyncedBlock.add(BigInteger.ONE);
+                BigInteger toBlock = fromBlock.add(MAX_BLOCKS_PER_REQUEST).subtract(BigInteger.ONE).min(latestBlock);
+
+                ArrayList<Certificate> certificates = ledger.getCertificatesAddedBetween(fromBlock, toBlock);
+                index.addAll(certificates);
+
+                added += certificates.size();
+                lastSyncedBlock = toBlock;
+            }
+        } catch(Exception e) {
+            current = false;
+            throw e;
+        }
+
+        current = true;
+
+        if(added > 0) {
+            log.debug("Synced {} new certificates up to block {}", added, lastSyncedBlock);
+        }
+
+        return added;
+    }
+
+    //==============================================================================
+
+    /**
+     * Starts syncing the index in the background at a fixed interval
+     * @param intervalMillis The time to wait between syncs, in milliseconds
+     */
+
+    public synchronized void start(long intervalMillis) {
+
+        if(poller != null) {
+            return;
+        }
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "certificate-event-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch(Exception e) {
+                //The next sync picks up from the same block, so nothing is skipped
+                log.warn("Could not sync certificate events after block {}", getLastSyncedBlock(), e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //==============================================================================
+
+    /**
+     * Stops syncing the index in the background
+     */
+
+    public synchronized void stop() {
+        if(poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the last block whose logs have been applied to the index
+     */
+
+    public synchronized BigInteger getLastSyncedBlock() {
+        return lastSyncedBlock;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns true if the last sync reached the head of the chain, and false if it failed or the index has never been synced
+     */
+
+    public boolean isCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,195 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the latest certificate expiry of each researcher, so that repeated validity checks do not each have to call the contract.
+ * Validity is worked out from the cached expiry on every check, and an entry is never kept past the expiry it holds,
+ * so a cached "valid" can never outlive the certificate it came from. Entries are also reloaded after a TTL so that
+ * certificates added by anyone else are picked up; certificates added through this app can raise the cached expiry immediately.
+ */
+
+public class CertificateExpiryCache {
+
+    //==============================================================================
+    // DATA STRUCTURES
+    //==============================================================================
+
+    /**
+     * Loads the latest expiry of a researcher's certificates from the source of truth
+     */
+
+    public interface Loader {
+
+        /**
+         * @param researcherID The researcher to look up
+         * @param certificateType The type of certificate to look up, or ANY_TYPE for certificates of any type
+         * @return Returns the latest expiry in milliseconds, or 0 if the researcher has no such certificates
+         * @throws Exception Throws an Exception if the expiry cannot be loaded
+         */
+
+        long load(long researcherID, int certificateType) throws Exception;
+    }
+
+    //==============================================================================
+
+    private static class Entry {
+
+        private final long expiryMillis;
+
+        //The time after which the entry has to be reloaded
+        private final long freshUntilMillis;
+
+        Entry(long expiryMillis, long freshUntilMillis) {
+            this.expiryMillis = expiryMillis;
+            this.freshUntilMillis = freshUntilMillis;
+        }
+    }
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //Passed as the certificate type to look up certificates of any type
+    public final static int ANY_TYPE = -1;
+
+    private final long ttlMillis;
+    private final Loader loader;
+    private final LongSupplier clock;
+
+    //Keyed by researcher ID, then by certificate type (or ANY_TYPE)
+    private final ConcurrentMap<Long, ConcurrentMap<Integer, Entry>> entries;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new, empty expiry cache
+     * @param ttlMillis The longest time an entry is used before it is reloaded, in milliseconds
+     * @param loader Loads the expiry of a researcher's certificates when it is not cached
+     */
+
+    public CertificateExpiryCache(long ttlMillis, Loader loader) {
+        this(ttlMillis, loader, System::currentTimeMillis);
+    }
+
+    //==============================================================================
+
+    CertificateExpiryCache(long ttlMillis, Loader loader, LongSupplier clock) {
+
+        if(ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL must not be negative");
+        }
+
+        this.ttlMillis = ttlMillis;
+        this.loader = loader;
+        this.clock = clock;
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Creates an entry that is reloaded after the TTL, or as soon as the expiry it holds has passed if that comes first
+     * Once a certificate expires a renewal may already be on the chain, so the entry cannot be trusted past that point
+     */
+
+    private Entry newEntry(long expiryMillis, long now) {
+        long freshUntil = now + ttlMillis;
+
+        if(expiryMillis > now) {
+            freshUntil = Math.min(freshUntil, expiryMillis);
+        }
+
+        return new Entry(expiryMillis, freshUntil);
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Looks up the latest expiry of a researcher's certificates, loading it if it is not cached or has gone stale
+     * @param researcherID The researcher to look up
+     * @param certificateType The type of certificate to look up, or ANY_TYPE for certificates of any type
+     * @return Returns the latest expiry in milliseconds, or 0 if the researcher has no such certificates
+     * @throws Exception Throws an Exception if the expiry has to be loaded and cannot be
+     */
+
+    public long getExpiryMillis(long researcherID, int certificateType) throws Exception {
+        long now = clock.getAsLong();
+        ConcurrentMap<Integer, Entry> researcherEntries = entries.computeIfAbsent(researcherID, id -> new ConcurrentHashMap<>());
+
+        Entry entry = researcherEntries.get(certificateType);
+
+        if(entry == null || now >= entry.freshUntilMillis) {
+            long loaded = loader.load(researcherID, certificateType);
+
+            //A raise() can land while the load is reading a chain that does not have the new certificate yet. Latest expiries only ever go up,
+            //so the higher of the two is kept rather than letting the load overwrite the raise.
+            entry = researcherEntries.merge(certificateType, newEntry(loaded, now),
+                (current, fresh) -> current.expiryMillis > fresh.expiryMillis ? newEntry(current.expiryMillis, now) : fresh);
+        }
+
+        return entry.expiryMillis;
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks whether a researcher has a certificate that has not expired yet
+     * @param researcherID The researcher to check
+     * @param certificateType The type of certificate to check for, or ANY_TYPE for certificates of any type
+     * @return Returns true if the researcher has a valid certificate, and false if they do not
+     * @throws Exception Throws an Exception if the expiry has to be loaded and cannot be
+     */
+
+    public boolean isValid(long researcherID, int certificateType) throws Exception {
+        return getExpiryMillis(researcherID, certificateType) > clock.getAsLong();
+    }
+
+    //==============================================================================
+
+    /**
+     * Records a newly added certificate, so that it counts towards validity checks without waiting for the cache to reload
+     * Only raises entries that are already cached. Types of a cached researcher that have no entry yet, and may be loading right now,
+     * get one that is reloaded on the next check but never drops below the new expiry. Anything else is loaded from the chain the next time it is checked.
+     * @param researcherID The researcher the certificate belongs to
+     * @param certificateType The type of the certificate
+     * @param expiryMillis The expiry of the certificate in milliseconds
+     */
+
+    public void raise(long researcherID, int certificateType, long expiryMillis) {
+        long now = clock.getAsLong();
+        ConcurrentMap<Integer, Entry> researcherEntries = entries.get(researcherID);
+
+        if(researcherEntries == null) {
+            return;
+        }
+
+        for(int type : new int[] {certificateType, ANY_TYPE}) {
+            researcherEntries.compute(type, (t, entry) -> {
+                if(entry == null) {
+                    return new Entry(expiryMillis, now);
+                }
+
+                return entry.expiryMillis >= expiryMillis ? entry : newEntry(expiryMillis, now);
+            });
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Removes every entry from the cache
+     */
+
+    public void clear() {
+        entries.clear();
+    }
+}
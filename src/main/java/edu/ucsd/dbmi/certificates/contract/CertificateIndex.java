@@ -0,0 +1,428 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.beans.CertificatePage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * An in-memory, read-through index of the certificates stored on the chain.
+ * The chain remains the source of truth; this index only mirrors it so that searches can be answered without calling the contract.
+ * Certificates are indexed by researcher ID, first name key and last name key in hash indexes, and by end date in a sorted index.
+ * Reads never block, and certificates may be added from any thread.
+ */
+
+public class CertificateIndex {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //Three years in milliseconds, which is the latest possible expiry date of a certificate issued today
+    //Mirrors the window used by getCertificatesByEndDateRange() in the contract when no end of the range is given
+    private final static long THREE_YEARS_IN_MILLIS = 94672800L * 1000L;
+
+    private final static long DAY_IN_MILLIS = 86400L * 1000L;
+
+    private final Set<Certificate> certificates;
+
+    //Sorted by record ID so that every certificate can be paged through in a stable order
+    private final ConcurrentNavigableMap<Integer, Certificate> byRecordID;
+
+    private final ConcurrentMap<Long, Queue<Certificate>> byResearcherID;
+    private final ConcurrentMap<Long, Queue<Certificate>> byFirstNameKey;
+    private final ConcurrentMap<Long, Queue<Certificate>> byLastNameKey;
+
+    //Sorted by end date in milliseconds so that date ranges can be read off directly instead of scanned
+    private final ConcurrentNavigableMap<Long, Queue<Certificate>> byEndDate;
+
+    //The latest end date in milliseconds of each researcher's certificates, keyed by researcher ID and then certificate type (or ANY_TYPE)
+    //Mirrors the contract's mapLatestExpiry and mapLatestExpiryByType so that validity checks can be answered without calling the contract
+    private final ConcurrentMap<Long, ConcurrentMap<Integer, Long>> latestExpiry;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new, empty certificate index
+     */
+
+    public CertificateIndex() {
+        certificates = ConcurrentHashMap.newKeySet();
+        byRecordID = new ConcurrentSkipListMap<>();
+        byResearcherID = new ConcurrentHashMap<>();
+        byFirstNameKey = new ConcurrentHashMap<>();
+        byLastNameKey = new ConcurrentHashMap<>();
+        byEndDate = new ConcurrentSkipListMap<>();
+        latestExpiry = new ConcurrentHashMap<>();
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Adds a certificate to the bucket for a key in one of the hash indexes
+     * @param map The index to add the certificate to
+     * @param key The key of the bucket to add the certificate to
+     * @param certificate The certificate to add
+     */
+
+    private static <K> void addToBucket(ConcurrentMap<K, Queue<Certificate>> map, K key, Certificate certificate) {
+        map.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(certificate);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up a bucket in one of the hash indexes
+     * @param map The index to look the key up in
+     * @param key The key to look up
+     * @return Returns the certificates in the bucket for the key, or an empty collection if there are none
+     */
+
+    private static Collection<Certificate> getBucket(Map<Long, Queue<Certificate>> map, long key) {
+        Queue<Certificate> bucket = map.get(key);
+        return bucket == null ? Collections.emptyList() : bucket;
+    }
+
+    //==============================================================================
+
+    /**
+     * Rounds a time in milliseconds down to the most recent midnight, the same way roundToMidnight() does in the contract
+     * @param millis The time to round, in milliseconds
+     * @return Returns the time rounded down to the most recent midnight (UTC)
+     */
+
+    private static long roundToMidnight(long millis) {
+        return (millis / DAY_IN_MILLIS) * DAY_IN_MILLIS;
+    }
+
+    //==============================================================================
+
+    /**
+     * Collects one page of the candidates that pass a filter
+     * Candidates are only walked as far as the end of the page, so a page near the start of a large result costs the same as a small result
+     * @param candidates The candidates to page through, in a stable order
+     * @param filter The filter each candidate has to pass to be counted
+     * @param offset The number of matching candidates to skip
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates
+     */
+
+    private static CertificatePage page(Iterable<Certificate> candidates, Predicate<Certificate> filter, int offset, int limit) {
+        ArrayList<Certificate> result = new ArrayList<>(limit);
+        int matched = 0;
+
+        for(Certificate certificate : candidates) {
+            if(!filter.test(certificate)) {
+                continue;
+            }
+
+            //One match past the end of the page is enough to know that there is a next page
+            if(matched >= offset + limit) {
+                return new CertificatePage(result, offset, limit, offset + limit);
+            }
+
+            if(matched >= offset) {
+                result.add(certificate);
+            }
+
+            matched++;
+        }
+
+        return new CertificatePage(result, offset, limit, -1);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the certificates with an end date in a range without copying them
+     * @param endDateRangeLow The earliest end date to search from in milliseconds (inclusive), or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to in milliseconds (inclusive), or 0 to search until three years from now
+     * @return Returns a view of the certificates with an end date in the range, ordered by end date
+     */
+
+    private Iterable<Certificate> endDateRange(long endDateRangeLow, long endDateRangeHigh) {
+        long now = roundToMidnight(System.currentTimeMillis());
+        long low = endDateRangeLow == 0 ? now : endDateRangeLow;
+        long high = endDateRangeHigh == 0 ? now + THREE_YEARS_IN_MILLIS : endDateRangeHigh;
+
+        if(low > high) {
+            return Collections.emptyList();
+        }
+
+        return () -> byEndDate.subMap(low, true, high, true).values().stream().flatMap(Queue::stream).iterator();
+    }
+
+    //==============================================================================
+
+    /**
+     * Picks the candidates for a search matching ALL of the criteria passed, which is the smallest bucket of the keys that were specified
+     * Every result has to be in all of the buckets, so only that one needs to be checked against the rest of the criteria
+     * @return Returns the candidates, or null if no criteria were specified
+     */
+
+    private Iterable<Certificate> queryAllCandidates(long firstNameKey, long lastNameKey, long researcherID, long endDateRangeLow, long endDateRangeHigh) {
+        Collection<Certificate> candidates = null;
+
+        if(firstNameKey != 0) {
+            candidates = getBucket(byFirstNameKey, firstNameKey);
+        }
+        if(lastNameKey != 0) {
+            Collection<Certificate> bucket = getBucket(byLastNameKey, lastNameKey);
+            candidates = candidates == null || bucket.size() < candidates.size() ? bucket : candidates;
+        }
+        if(researcherID != 0) {
+            Collection<Certificate> bucket = getBucket(byResearcherID, researcherID);
+            candidates = candidates == null || bucket.size() < candidates.size() ? bucket : candidates;
+        }
+        if(candidates == null && (endDateRangeLow != 0 || endDateRangeHigh != 0)) {
+            return endDateRange(endDateRangeLow, endDateRangeHigh);
+        }
+
+        return candidates;
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks a certificate to see if it matches ALL search parameters, the same way matchesCriteria() does in the contract
+     * Unspecified parameters are passed as 0
+     * @return Returns true if the certificate matches all of the specified criteria, and false if it does not
+     */
+
+    private static boolean matchesCriteria(long firstNameKey, long lastNameKey, long researcherID, long endDateRangeLow, long endDateRangeHigh, Certificate certificate) {
+        long endDate = certificate.getEndDate().getTime();
+
+        if(firstNameKey != 0 && firstNameKey != certificate.getFirstNameKey()) {
+            return false;
+        }
+        else if(lastNameKey != 0 && lastNameKey != certificate.getLastNameKey()) {
+            return false;
+        }
+        else if(researcherID != 0 && researcherID != certificate.getResearcherID()) {
+            return false;
+        }
+        else if(endDateRangeLow != 0 && endDateRangeLow > endDate) {
+            return false;
+        }
+        else if(endDateRangeHigh != 0 && endDateRangeHigh < endDate) {
+            return false;
+        }
+
+        return true;
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Adds a certificate to the index. Adding a certificate that is already in the index has no effect.
+     * @param certificate The certificate to add, with its end date in milliseconds
+     */
+
+    public void add(Certificate certificate) {
+
+        //The contract can hand back the same certificate more than once, so make sure each one is only indexed once
+        if(!certificates.add(certificate)) {
+            return;
+        }
+
+        byRecordID.put(certificate.getRecordID(), certificate);
+        addToBucket(byResearcherID, certificate.getResearcherID(), certificate);
+        addToBucket(byFirstNameKey, certificate.getFirstNameKey(), certificate);
+        addToBucket(byLastNameKey, certificate.getLastNameKey(), certificate);
+        addToBucket(byEndDate, certificate.getEndDate().getTime(), certificate);
+
+        long endDate = certificate.getEndDate().getTime();
+        ConcurrentMap<Integer, Long> researcherExpiries = latestExpiry.computeIfAbsent(certificate.getResearcherID(), id -> new ConcurrentHashMap<>());
+        researcherExpiries.merge(certificate.getCertificateType().ordinal(), endDate, Math::max);
+        researcherExpiries.merge(CertificateExpiryCache.ANY_TYPE, endDate, Math::max);
+    }
+
+    //==============================================================================
+
+    /**
+     * Adds every certificate in a collection to the index
+     * @param certificates The certificates to add
+     */
+
+    public void addAll(Collection<Certificate> certificates) {
+        for(Certificate certificate : certificates) {
+            add(certificate);
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Removes every certificate from the index
+     */
+
+    public void clear() {
+        certificates.clear();
+        byRecordID.clear();
+        byResearcherID.clear();
+        byFirstNameKey.clear();
+        byLastNameKey.clear();
+        byEndDate.clear();
+        latestExpiry.clear();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of certificates in the index
+     */
+
+    public int size() {
+        return certificates.size();
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the latest end date of a researcher's certificates, the same way getLatestExpiry() does in the contract
+     * @param researcherID The researcher to look up
+     * @param certificateType The type of certificate to look up, or CertificateExpiryCache.ANY_TYPE for certificates of any type
+     * @return Returns the latest end date in milliseconds, or 0 if the researcher has no such certificates in the index
+     */
+
+    public long getLatestExpiry(long researcherID, int certificateType) {
+        Map<Integer, Long> researcherExpiries = latestExpiry.get(researcherID);
+        return researcherExpiries == null ? 0 : researcherExpiries.getOrDefault(certificateType, 0L);
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns every certificate in the index
+     */
+
+    public ArrayList<Certificate> getAll() {
+        return new ArrayList<>(certificates);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up every certificate with an end date in a range
+     * If no start of the range is given, searches from midnight today. If no end of the range is given, searches until three years from now.
+     * @param endDateRangeLow The earliest end date to search from in milliseconds (inclusive), or 0 if unspecified
+     * @param endDateRangeHigh The latest end date to search to in milliseconds (inclusive), or 0 if unspecified
+     * @return Returns the certificates with an end date in the range, ordered by end date
+     */
+
+    public ArrayList<Certificate> getByEndDateRange(long endDateRangeLow, long endDateRangeHigh) {
+        ArrayList<Certificate> result = new ArrayList<>();
+
+        for(Certificate certificate : endDateRange(endDateRangeLow, endDateRangeHigh)) {
+            result.add(certificate);
+        }
+
+        return result;
+    }
+
+    //==============================================================================
+
+    /**
+     * Searches the index for certificates matching ANY of the criteria passed, with the same semantics as queryAny() in the contract
+     * Unspecified keys are passed as 0
+     * @param firstNameKey The first name key to search for
+     * @param lastNameKey The last name key to search for
+     * @param researcherID The researcher ID to search for
+     * @param endDateRangeLow The earliest end date to search from in milliseconds, or 0 if unspecified
+     * @param endDateRangeHigh The latest end date to search to in milliseconds, or 0 if unspecified
+     * @return Returns the certificates that match ANY of the given criteria, without duplicates
+     */
+
+    public ArrayList<Certificate> queryAny(long firstNameKey, long lastNameKey, long researcherID, long endDateRangeLow, long endDateRangeHigh) {
+        Set<Certificate> result = new LinkedHashSet<>();
+
+        result.addAll(getBucket(byFirstNameKey, firstNameKey));
+        result.addAll(getBucket(byLastNameKey, lastNameKey));
+        result.addAll(getBucket(byResearcherID, researcherID));
+        result.addAll(getByEndDateRange(endDateRangeLow, endDateRangeHigh));
+
+        return new ArrayList<>(result);
+    }
+
+    //==============================================================================
+
+    /**
+     * Searches the index for certificates matching ALL of the criteria passed, with the same semantics as queryAll() in the contract
+     * Unspecified keys are passed as 0
+     * @param firstNameKey The first name key to search for
+     * @param lastNameKey The last name key to search for
+     * @param researcherID The researcher ID to search for
+     * @param endDateRangeLow The earliest end date to search from in milliseconds, or 0 if unspecified
+     * @param endDateRangeHigh The latest end date to search to in milliseconds, or 0 if unspecified
+     * @return Returns the certificates that match ALL of the given criteria, without duplicates
+     */
+
+    public ArrayList<Certificate> queryAll(long firstNameKey, long lastNameKey, long researcherID, long endDateRangeLow, long endDateRangeHigh) {
+        Iterable<Certificate> candidates = queryAllCandidates(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh);
+
+        ArrayList<Certificate> result = new ArrayList<>();
+
+        if(candidates == null) {
+            return result;
+        }
+
+        for(Certificate certificate : candidates) {
+            if(matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, certificate)) {
+                result.add(certificate);
+            }
+        }
+
+        return result;
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns one page of every certificate in the index, ordered by record ID
+     * @param offset The number of certificates to skip
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates
+     */
+
+    public CertificatePage getAllPage(int offset, int limit) {
+        return page(byRecordID.values(), certificate -> true, offset, limit);
+    }
+
+    //==============================================================================
+
+    /**
+     * Searches the index for one page of the certificates matching ALL of the criteria passed, with the same semantics as queryAll()
+     * Results come in a stable order (insertion order for the key indexes, end date order for date ranges), so consecutive pages never overlap
+     * @param firstNameKey The first name key to search for
+     * @param lastNameKey The last name key to search for
+     * @param researcherID The researcher ID to search for
+     * @param endDateRangeLow The earliest end date to search from in milliseconds, or 0 if unspecified
+     * @param endDateRangeHigh The latest end date to search to in milliseconds, or 0 if unspecified
+     * @param filter An extra check each result has to pass, applied before paging so that it cannot leave holes in a page
+     * @param offset The number of matching certificates to skip
+     * @param limit The most certificates to return
+     * @return Returns the page of certificates
+     */
+
+    public CertificatePage queryAllPage(long firstNameKey, long lastNameKey, long researcherID, long endDateRangeLow, long endDateRangeHigh, Predicate<Certificate> filter, int offset, int limit) {
+        Iterable<Certificate> candidates = queryAllCandidates(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh);
+
+        if(candidates == null) {
+            return new CertificatePage(new ArrayList<>(), offset, limit, -1);
+        }
+
+        return page(candidates, certificate -> matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, certificate) && filter.test(certificate), offset, limit);
+    }
+}
@@ -0,0 +1,176 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.storage.CertificateBlobStore;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The store of record that WebCertificateDB reads certificates from and writes them to.
+ * Web3jCertificateLedger is the CertificateDB contract on a live chain; InMemoryCertificateLedger mirrors the contract's semantics in memory,
+ * so that the web app, the local index and the caches can be run and load tested without a node.
+ * Certificates are added in "blocks", and every certificate added in a block can be read back with getCertificatesAddedBetween(),
+ * which is how CertificateEventSync keeps the local index current.
+ */
+
+public interface CertificateLedger {
+
+    /**
+     * Adds a new certificate, along with its PDF
+     * @param email The email of the researcher on the certificate
+     * @param researcherID The key of the researcher's email
+     * @param firstName The first name of the researcher on the certificate
+     * @param lastName The last name of the researcher on the certificate
+     * @param firstNameKey The key of the first name
+     * @param lastNameKey The key of the last name
+     * @param certificateType The type of certificate (CITI or HIPAA)
+     * @param recordID The unique record ID of the certificate
+     * @param courseName The name of the course that the certificate is for
+     * @param endDate The expiry date of the certificate in seconds
+     * @param pdf The PDF of the certificate, or null if there is none
+     * @return Returns every transaction submitted for the certificate, starting with the certificate itself
+     * @throws Exception Throws an Exception if any of the transactions are rejected
+     */
+
+    List<TransactionPipeline.PendingTransaction> addNewCertificate(
+        String email,
+        long researcherID,
+        String firstName,
+        String lastName,
+        long firstNameKey,
+        long lastNameKey,
+        int certificateType,
+        int recordID,
+        String courseName,
+        long endDate,
+        byte[] pdf
+    ) throws Exception;
+
+    /**
+     * @return Returns every certificate in the ledger, in the order they were added
+     * @throws Exception Throws an Exception if the certificates cannot be read
+     */
+
+    ArrayList<Certificate> getAllCertificates() throws Exception;
+
+    /**
+     * @param fromBlock The first block to read (inclusive)
+     * @param toBlock The last block to read (inclusive)
+     * @return Returns the certificates added within the range of blocks, in the order they were added
+     * @throws Exception Throws an Exception if the certificates cannot be read
+     */
+
+    ArrayList<Certificate> getCertificatesAddedBetween(BigInteger fromBlock, BigInteger toBlock) throws Exception;
+
+    /**
+     * @return Returns the number of the most recent block
+     * @throws Exception Throws an Exception if the block number cannot be read
+     */
+
+    BigInteger getLatestBlockNumber() throws Exception;
+
+    /**
+     * @return Returns the block the ledger started at, which is the first block that can hold certificates
+     */
+
+    BigInteger getDeploymentBlockNumber();
+
+    /**
+     * @param researcherID The key of the researcher to check
+     * @return Returns true if the researcher has a certificate that has not expired yet, and false if they do not
+     * @throws Exception Throws an Exception if the ledger cannot be read
+     */
+
+    boolean hasValidCertificate(long researcherID) throws Exception;
+
+    /**
+     * @param researcherID The key of the researcher to look up
+     * @param certificateType The type of certificate to look up, or null for certificates of any type
+     * @return Returns the latest end date of the researcher's certificates in seconds, or 0 if they have none
+     * @throws Exception Throws an Exception if the ledger cannot be read
+     */
+
+    long getLatestExpiry(long researcherID, Integer certificateType) throws Exception;
+
+    /**
+     * @param researcherIDs The keys of the researchers to look up
+     * @param certificateType The type of certificate to look up, or null for certificates of any type
+     * @return Returns the latest end date of each researcher's certificates in seconds, or 0 if they have none, in the same order as the keys
+     * @throws Exception Throws an Exception if the ledger cannot be read
+     */
+
+    long[] getLatestExpiries(List<Long> researcherIDs, Integer certificateType) throws Exception;
+
+    /**
+     * @param recordID The record ID of the certificate whose PDF should be retrieved
+     * @return Returns the full PDF
+     * @throws Exception Throws an Exception if the PDF cannot be read
+     */
+
+    byte[] getPDFBytes(int recordID) throws Exception;
+
+    /**
+     * @param recordID The record ID of the certificate whose PDF should be retrieved
+     * @return Returns an iterator over the slices of the PDF, in order
+     * @throws Exception Throws an Exception if the PDF cannot be looked up
+     */
+
+    PDFSliceIterator getPDFSlices(int recordID) throws Exception;
+
+    /**
+     * @param recordID The record ID of the certificate whose PDF should be retrieved
+     * @return Returns a read-only buffer over the PDF, or null if the PDF has to be read with getPDFSlices()
+     * @throws Exception Throws an Exception if the stored PDF is not the one recorded for the certificate
+     */
+
+    ByteBuffer getStoredPDF(int recordID) throws Exception;
+
+    /**
+     * @return Returns the number of certificates in the ledger
+     * @throws Exception Throws an Exception if the ledger cannot be read
+     */
+
+    int getCertificateCount() throws Exception;
+
+    /**
+     * @param compress If true, PDFs are compressed before they are stored, if the ledger stores them in a form where that helps
+     */
+
+    void setPDFCompression(boolean compress);
+
+    /**
+     * @param blobStore The blob store to keep PDFs in, or null to keep them in the ledger itself
+     */
+
+    void setBlobStore(CertificateBlobStore blobStore);
+
+    /**
+     * @param window The maximum number of transactions that may be submitted but not yet confirmed at once
+     */
+
+    void setTransactionWindow(int window);
+
+    /**
+     * @return Returns the pipeline that transactions are submitted through, or null if the ledger confirms transactions as soon as they are submitted
+     */
+
+    TransactionPipeline getTransactionPipeline();
+
+    /**
+     * @return Returns the meter that the gas of every confirmed transaction is recorded in, or null if the ledger does not charge gas
+     */
+
+    GasMeter getGasMeter();
+
+    /**
+     * @param researcherID The researcher to query for
+     * @param recordID The certificate to query for
+     * @return Returns the estimated gas of each view function used to answer queries, keyed by function name, or an empty map if the ledger does not charge gas
+     */
+
+    Map<String, Long> estimateQueryGas(long researcherID, int recordID);
+}
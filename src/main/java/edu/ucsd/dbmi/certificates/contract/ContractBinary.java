@@ -0,0 +1,89 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the bytecode of a contract compiled from src/main/sol.
+ *
+ * The contracts Maven profile runs solc on src/main/sol and writes the bytecode to src/main/resources/contracts/<name>.bin, which is committed
+ * alongside the .sol file, so building and testing the app does not need solc. Keeping the bytecode in the generated wrapper instead let the
+ * two drift apart whenever the .sol file changed without the wrapper being regenerated.
+ */
+
+public class ContractBinary {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    private final static String RESOURCE_DIRECTORY = "/contracts/";
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    private ContractBinary() {
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * @param name The name of the contract, which is also the name of its .bin file
+     * @return Returns true if the contract has been compiled and its bytecode is on the classpath
+     */
+
+    public static boolean isCompiled(String name) {
+        return ContractBinary.class.getResource(RESOURCE_DIRECTORY + name + ".bin") != null;
+    }
+
+    //==============================================================================
+
+    /**
+     * Throws if a contract has not been compiled, so that it is never deployed without bytecode
+     * @param name The name of the contract, which is also the name of its .bin file
+     * @throws IllegalStateException Throws an IllegalStateException if the contract has not been compiled
+     */
+
+    public static void requireCompiled(String name) {
+        if(!isCompiled(name)) {
+            throw new IllegalStateException("No bytecode for contract " + name + " on the classpath. Compile src/main/sol/" + name
+                + ".sol with solc 0.5.x installed by running mvn -P contracts generate-resources");
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Reads the bytecode of a compiled contract from the classpath
+     * Contracts that are already deployed are loaded without their bytecode, so a missing .bin file only matters when deploying; see requireCompiled()
+     * @param name The name of the contract, which is also the name of its .bin file
+     * @return Returns the bytecode as a hex string, without a 0x prefix, or an empty string if the contract has not been compiled
+     */
+
+    public static String load(String name) {
+
+        try(InputStream in = ContractBinary.class.getResourceAsStream(RESOURCE_DIRECTORY + name + ".bin")) {
+
+            if(in == null) {
+                return "";
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+
+            return new String(out.toByteArray(), StandardCharsets.US_ASCII).trim();
+        } catch(IOException e) {
+            throw new IllegalStateException("Could not read the bytecode for contract " + name, e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds up the gas used by every mined transaction, by the contract function it called, along with the number of PDF bytes uploaded.
+ * Gas is recorded from each transaction's receipt, so it is the gas actually charged rather than the gas limit the transaction was sent with.
+ * Reverted transactions are charged too, so they are counted as well.
+ */
+
+public class GasMeter {
+
+    //==============================================================================
+    // DATA STRUCTURES
+    //==============================================================================
+
+    /**
+     * The gas used by every transaction that called one contract function
+     */
+
+    private static class Totals {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder gas = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+    }
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    private final static int KILOBYTE_IN_BYTES = 1024;
+
+    private final Map<String, Totals> operations;
+    private final LongAdder pdfBytes;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    public GasMeter() {
+        this.operations = new ConcurrentHashMap<>();
+        this.pdfBytes = new LongAdder();
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    private Totals totals(String operation) {
+        return operations.computeIfAbsent(operation, name -> new Totals());
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Records the gas used by a mined transaction
+     * @param operation The contract function the transaction called, such as CertificateDB.FUNC_ADDNEWCERTIFICATE
+     * @param gasUsed The gas used, from the transaction's receipt
+     */
+
+    public void record(String operation, long gasUsed) {
+        Totals totals = totals(operation);
+        totals.count.increment();
+        totals.gas.add(gasUsed);
+        totals.max.accumulateAndGet(gasUsed, Math::max);
+    }
+
+    //==============================================================================
+
+    /**
+     * Records that a PDF has been uploaded to the chain, so the gas of its slices can be reported per KB
+     * @param bytes The size of the PDF before it was encoded for storage
+     */
+
+    public void recordPDFBytes(long bytes) {
+        pdfBytes.add(bytes);
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the contract functions that gas has been recorded for, in alphabetical order
+     */
+
+    public Set<String> getOperations() {
+        return new TreeSet<>(operations.keySet());
+    }
+
+    //==============================================================================
+
+    /**
+     * @param operation The contract function to look up
+     * @return Returns the number of mined transactions that called the function
+     */
+
+    public long getCount(String operation) {
+        Totals totals = operations.get(operation);
+        return totals == null ? 0 : totals.count.sum();
+    }
+
+    //==============================================================================
+
+    /**
+     * @param operation The contract function to look up
+     * @return Returns the total gas used by every mined transaction that called the function
+     */
+
+    public long getGas(String operation) {
+        Totals totals = operations.get(operation);
+        return totals == null ? 0 : totals.gas.sum();
+    }
+
+    //==============================================================================
+
+    /**
+     * @param operation The contract function to look up
+     * @return Returns the average gas used by a mined transaction that called the function, or 0 if there were none
+     */
+
+    public double getAverageGas(String operation) {
+        long count = getCount(operation);
+        return count == 0 ? 0 : getGas(operation) / (double) count;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param operation The contract function to look up
+     * @return Returns the most gas used by a single mined transaction that called the function
+     */
+
+    public long getMaxGas(String operation) {
+        Totals totals = operations.get(operation);
+        return totals == null ? 0 : totals.max.get();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the total gas used by every mined transaction
+     */
+
+    public long getTotalGas() {
+        long total = 0;
+
+        for(Totals totals : operations.values()) {
+            total += totals.gas.sum();
+        }
+
+        return total;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the total size of the PDFs uploaded to the chain, in bytes
+     */
+
+    public long getPDFBytes() {
+        return pdfBytes.sum();
+    }
+
+    //==============================================================================
+
+    /**
+     * The gas of adding a certificate, including the slices of its PDF. Certificates whose PDF was already on the chain upload no slices,
+     * so shared PDFs bring the average down.
+     * @return Returns the average gas used per certificate added, or 0 if none have been mined
+     */
+
+    public double getGasPerCertificate() {
+        long certificates = getCount(CertificateDB.FUNC_ADDNEWCERTIFICATE);
+        return certificates == 0 ? 0 : (getGas(CertificateDB.FUNC_ADDNEWCERTIFICATE) + getGas(CertificateDB.FUNC_ADDPDFBYTES)) / (double) certificates;
+    }
+
+    //==============================================================================
+
+    /**
+     * Only meaningful once every slice has been mined, since PDF bytes are recorded when they are submitted
+     * @return Returns the gas used by PDF slices per KB of PDF uploaded, or 0 if no PDFs have been uploaded
+     */
+
+    public double getGasPerPDFKilobyte() {
+        long bytes = pdfBytes.sum();
+        return bytes == 0 ? 0 : getGas(CertificateDB.FUNC_ADDPDFBYTES) / (bytes / (double) KILOBYTE_IN_BYTES);
+    }
+}
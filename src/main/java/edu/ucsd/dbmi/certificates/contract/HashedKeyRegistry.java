@@ -0,0 +1,71 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.web3j.crypto.Hash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Derives the key of every string from the Keccak-256 hash of the string, trimmed and lower-cased.
+ * Keys need no stored state at all, so any number of app instances can read and write the same contract and agree on every key,
+ * and nothing is lost when an instance restarts.
+ * Keys are the first 63 bits of the hash, so that they stay positive as Java longs. Two of n strings only share a key with a probability of
+ * about n^2 / 2^64, which is negligible for any realistic number of researchers.
+ */
+
+public class HashedKeyRegistry implements KeyRegistry {
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * @param stringID The string to derive the key of
+     * @return Returns the key of the string, which is never 0 since 0 means "unspecified" in searches
+     */
+
+    public static long deriveKey(String stringID) {
+        byte[] hash = Hash.sha3(stringID.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        long key = ByteBuffer.wrap(hash).getLong() & Long.MAX_VALUE;
+
+        return key == 0 ? 1 : key;
+    }
+
+    //==============================================================================
+
+    @Override
+    public Long getID(String stringID) {
+        return deriveKey(stringID);
+    }
+
+    //==============================================================================
+
+    /**
+     * Every string has a key, so this is always true. Whether anyone actually has a certificate under it has to be checked on the chain.
+     */
+
+    @Override
+    public boolean contains(String stringID) {
+        return true;
+    }
+
+    //==============================================================================
+
+    @Override
+    public long getOrAssign(String stringID) {
+        return deriveKey(stringID);
+    }
+
+    //==============================================================================
+
+    /**
+     * Keys are derived rather than recorded, so there is nothing to register
+     * @return Returns false
+     */
+
+    @Override
+    public boolean register(String stringID, long id) {
+        return false;
+    }
+}
@@ -0,0 +1,274 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.utils.CertificateUtils;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps the strings that the contract only knows by number (emails, first names and last names) to sequentially assigned IDs and back.
+ * Lookups read from concurrent hash maps without taking a lock. New IDs are assigned one at a time under a lock, so two submissions
+ * can never give the same string two IDs or the same ID to two strings.
+ * IDs are handed out in order from FIRST_ID, skipping any that were registered from the chain, so assigning one never has to retry
+ * no matter how many are already taken.
+ * If the registry is backed by a file, every assignment is appended to it before it becomes visible, and the maps are rebuilt from it
+ * on startup, so searches by name and email keep working across restarts.
+ */
+
+public class IDRegistry implements KeyRegistry, Closeable {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The first ID handed out. IDs below it are never assigned, which keeps 0 free to mean "unspecified" in searches
+    public final static int FIRST_ID = 10000;
+
+    //The last ID that can be handed out, which is the largest researcher ID a certificate can hold (the contract allows up to 2^64 - 1, but this registry keeps IDs as ints)
+    public final static int LAST_ID = Integer.MAX_VALUE;
+
+    private final ConcurrentMap<String, Integer> stringToID;
+    private final ConcurrentMap<Integer, String> idToString;
+
+    //The log that every assignment is appended to, or null if the registry is only kept in memory
+    private DataOutputStream log;
+
+    //The next ID to try to hand out. Only ever moves forward, so every ID is checked at most once over the life of the registry.
+    private int nextID = FIRST_ID;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new, empty registry that is only kept in memory
+     */
+
+    public IDRegistry() {
+        stringToID = new ConcurrentHashMap<>();
+        idToString = new ConcurrentHashMap<>();
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates a registry backed by an append-only log file, loading every assignment already in the file
+     * @param path The log file, which is created if it does not exist
+     * @throws IOException Throws an IOException if the file cannot be read or opened for appending
+     */
+
+    public IDRegistry(Path path) throws IOException {
+        this();
+
+        if(path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        long length = load(path);
+
+        //Drop a record that was only partly written when the app last stopped, so new records are not appended after it
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if(channel.size() > length) {
+                CertificateUtils.debugOut("Dropping " + (channel.size() - length) + " bytes of a partly written record from " + path);
+                channel.truncate(length);
+            }
+        }
+
+        log = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Reads every complete record in a log file into the maps
+     * @param path The log file to read
+     * @return Returns the length of the file up to the end of the last complete record
+     * @throws IOException Throws an IOException if the file cannot be read
+     */
+
+    private long load(Path path) throws IOException {
+
+        if(!Files.exists(path)) {
+            return 0;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(buffer);
+
+        long length = 0;
+
+        while(buffer.available() > 0) {
+            try {
+                int id = in.readInt();
+                String stringID = in.readUTF();
+
+                stringToID.put(stringID, id);
+                idToString.put(id, stringID);
+            } catch(EOFException e) {
+                break;
+            }
+
+            length = bytes.length - buffer.available();
+        }
+
+        CertificateUtils.startupVarOut("IDs loaded from " + path + " = ", "" + stringToID.size());
+
+        return length;
+    }
+
+    //==============================================================================
+
+    /**
+     * Records an assignment in the log and then in the maps. Must be called while holding the registry's lock.
+     */
+
+    private void record(String stringID, int id) throws IOException {
+        if(log != null) {
+
+            //Encode the whole record before writing any of it, so a string that cannot be encoded never leaves half a record in the log
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeInt(id);
+            out.writeUTF(stringID);
+
+            record.writeTo(log);
+            log.flush();
+        }
+
+        //Publish the reverse mapping first, so a reader that finds the ID for a string can always find the string for the ID
+        idToString.put(id, stringID);
+        stringToID.put(stringID, id);
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * @param stringID The string to look up
+     * @return Returns the ID assigned to the string, or null if it has not been assigned one
+     */
+
+    @Override
+    public Long getID(String stringID) {
+        Integer id = stringToID.get(stringID);
+        return id == null ? null : (long) id;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param id The ID to look up
+     * @return Returns the string that the ID was assigned to, or null if it has not been assigned
+     */
+
+    public String getString(int id) {
+        return idToString.get(id);
+    }
+
+    //==============================================================================
+
+    /**
+     * @param stringID The string to look up
+     * @return Returns true if the string has been assigned an ID, and false if it has not
+     */
+
+    @Override
+    public boolean contains(String stringID) {
+        return stringToID.containsKey(stringID);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the ID of a string, assigning it the next free ID if it does not have one yet
+     * @param stringID The string to look up
+     * @return Returns the ID of the string
+     * @throws IOException Throws an IOException if a new assignment cannot be written to the log
+     * @throws IllegalStateException Throws an IllegalStateException if every ID up to LAST_ID has been assigned
+     */
+
+    @Override
+    public long getOrAssign(String stringID) throws IOException {
+        Integer id = stringToID.get(stringID);
+
+        if(id != null) {
+            return id;
+        }
+
+        synchronized(this) {
+
+            //Another thread may have assigned the string an ID while this one was waiting for the lock
+            id = stringToID.get(stringID);
+
+            if(id != null) {
+                return id;
+            }
+
+            //Skip over IDs that were registered from the chain
+            while(idToString.containsKey(nextID)) {
+                if(nextID == LAST_ID) {
+                    throw new IllegalStateException("Every ID up to " + LAST_ID + " has been assigned");
+                }
+
+                nextID++;
+            }
+
+            record(stringID, nextID);
+
+            return nextID;
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Records an ID that was assigned elsewhere, such as a key read back from the chain, unless the string or the ID is already taken
+     * @param stringID The string the ID belongs to
+     * @param id The ID of the string
+     * @return Returns true if the assignment was recorded, and false if the string or the ID already had an assignment, or the ID is not a sequential ID
+     * @throws IOException Throws an IOException if the assignment cannot be written to the log
+     */
+
+    @Override
+    public synchronized boolean register(String stringID, long id) throws IOException {
+        if(id < 0 || id > LAST_ID || stringToID.containsKey(stringID) || idToString.containsKey((int) id)) {
+            return false;
+        }
+
+        record(stringID, (int) id);
+
+        return true;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of strings that have been assigned IDs
+     */
+
+    public int size() {
+        return stringToID.size();
+    }
+
+    //==============================================================================
+
+    /**
+     * Closes the log file. The registry can still be read afterwards, but no more IDs can be assigned.
+     */
+
+    @Override
+    public synchronized void close() throws IOException {
+        if(log != null) {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.storage.CertificateBlobStore;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A ledger that keeps certificates in memory but otherwise behaves like the CertificateDB contract, so that the web app, the local
+ * index and the caches can be load tested at full speed and compared against the chain under the same harness.
+ * Like the contract, it rejects a certificate whose record ID is already used, keeps the latest end date of each researcher overall
+ * and by type, and judges validity against the current time in seconds.
+ * Every certificate is added in a block of its own, starting from block 1, and every transaction is confirmed as soon as it is
+ * submitted. A rejected certificate is reported through its transaction's receipt, the same way a reverted transaction is on the chain.
+ */
+
+public class InMemoryCertificateLedger implements CertificateLedger {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The size of the slices that getPDFSlices() cuts PDFs into, which is the same as the slices stored on the chain
+    private final static int BYTE_SIZE_OF_PDF_SLICE = 30 * 1024;
+
+    //The number of slices that getPDFSlices() requests ahead of the one being read
+    private final static int SLICE_PREFETCH = 4;
+
+    //The block the ledger starts at. Certificates are added in the blocks after it.
+    private final static BigInteger DEPLOYMENT_BLOCK = BigInteger.ZERO;
+
+    //Every certificate in the order it was added. The certificate at position i was added in block i + 1.
+    private final List<Certificate> log = new ArrayList<>();
+
+    //The number of transactions submitted so far, rejected ones included, which each transaction's hash is derived from so that no two share one
+    private long transactionCount = 0;
+
+    private final ConcurrentMap<Integer, byte[]> pdfs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> latestExpiry = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ConcurrentMap<Integer, Long>> latestExpiryByType = new ConcurrentHashMap<>();
+
+    //The clock that validity is judged against, in seconds
+    private final LongSupplier nowSecs;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new, empty ledger that judges validity against the system clock
+     */
+
+    public InMemoryCertificateLedger() {
+        this(() -> System.currentTimeMillis() / 1000);
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates a new, empty ledger
+     * @param nowSecs The clock that validity is judged against, in seconds
+     */
+
+    InMemoryCertificateLedger(LongSupplier nowSecs) {
+        this.nowSecs = nowSecs;
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * @param transactionNumber The number of the transaction among every transaction submitted, which its hash is derived from
+     * @param block The block the transaction was confirmed in
+     * @param error The reason the transaction was rejected, or null if it succeeded
+     * @return Returns a transaction that has already been confirmed, or has already failed if there is an error
+     */
+
+    private static TransactionPipeline.PendingTransaction confirmed(long transactionNumber, long block, String error) {
+        String transactionHash = Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(transactionNumber), 64);
+
+        if(error != null) {
+            CompletableFuture<TransactionReceipt> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new Exception("Transaction " + transactionHash + " was reverted: " + error));
+            return new TransactionPipeline.PendingTransaction(transactionHash, failed);
+        }
+
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(transactionHash);
+        receipt.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(block)));
+        receipt.setGasUsed(Numeric.encodeQuantity(BigInteger.ZERO));
+        receipt.setStatus("0x1");
+
+        return new TransactionPipeline.PendingTransaction(transactionHash, CompletableFuture.completedFuture(receipt));
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    @Override
+    public synchronized List<TransactionPipeline.PendingTransaction> addNewCertificate(
+        String email,
+        long researcherID,
+        String firstName,
+        String lastName,
+        long firstNameKey,
+        long lastNameKey,
+        int certificateType,
+        int recordID,
+        String courseName,
+        long endDate,
+        byte[] pdf
+    ) {
+
+        transactionCount++;
+
+        //The same checks the contract makes before it stores anything
+        String error = null;
+
+        if(pdfs.containsKey(recordID)) {
+            error = "record ID " + recordID + " is already used";
+        } else if(researcherID < 0 || firstNameKey < 0 || lastNameKey < 0) {
+            error = "keys must not be negative";
+        } else if(certificateType != 0 && certificateType != 1) {
+            error = "unknown certificate type " + certificateType;
+        } else if(endDate < 0) {
+            error = "end date must not be negative";
+        }
+
+        if(error != null) {
+            return Collections.singletonList(confirmed(transactionCount, log.size(), error));
+        }
+
+        Certificate certificate = new Certificate(researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate, null);
+        certificate.setEmail(email);
+
+        pdfs.put(recordID, pdf == null ? new byte[0] : pdf.clone());
+        latestExpiry.merge(researcherID, endDate, Math::max);
+        latestExpiryByType.computeIfAbsent(researcherID, id -> new ConcurrentHashMap<>()).merge(certificateType, endDate, Math::max);
+        log.add(certificate);
+
+        return Collections.singletonList(confirmed(transactionCount, log.size(), null));
+    }
+
+    //==============================================================================
+
+    @Override
+    public synchronized ArrayList<Certificate> getAllCertificates() {
+        return new ArrayList<>(log);
+    }
+
+    //==============================================================================
+
+    @Override
+    public synchronized ArrayList<Certificate> getCertificatesAddedBetween(BigInteger fromBlock, BigInteger toBlock) {
+        int from = Math.max(fromBlock.intValue(), 1);
+        int to = Math.min(toBlock.intValue(), log.size());
+
+        return from > to ? new ArrayList<>() : new ArrayList<>(log.subList(from - 1, to));
+    }
+
+    //==============================================================================
+
+    @Override
+    public synchronized BigInteger getLatestBlockNumber() {
+        return BigInteger.valueOf(log.size());
+    }
+
+    //==============================================================================
+
+    @Override
+    public BigInteger getDeploymentBlockNumber() {
+        return DEPLOYMENT_BLOCK;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean hasValidCertificate(long researcherID) {
+        return getLatestExpiry(researcherID, null) > nowSecs.getAsLong();
+    }
+
+    //==============================================================================
+
+    @Override
+    public long getLatestExpiry(long researcherID, Integer certificateType) {
+        Long expiry;
+
+        if(certificateType == null) {
+            expiry = latestExpiry.get(researcherID);
+        } else {
+            ConcurrentMap<Integer, Long> byType = latestExpiryByType.get(researcherID);
+            expiry = byType == null ? null : byType.get(certificateType);
+        }
+
+        return expiry == null ? 0 : expiry;
+    }
+
+    //==============================================================================
+
+    @Override
+    public long[] getLatestExpiries(List<Long> researcherIDs, Integer certificateType) {
+        long[] expiries = new long[researcherIDs.size()];
+
+        for(int i = 0; i < expiries.length; i++) {
+            expiries[i] = getLatestExpiry(researcherIDs.get(i), certificateType);
+        }
+
+        return expiries;
+    }
+
+    //==============================================================================
+
+    @Override
+    public byte[] getPDFBytes(int recordID) {
+        byte[] pdf = pdfs.get(recordID);
+        return pdf == null ? new byte[0] : pdf.clone();
+    }
+
+    //==============================================================================
+
+    @Override
+    public PDFSliceIterator getPDFSlices(int recordID) {
+        byte[] pdf = pdfs.get(recordID);
+        ByteBuffer stored = ByteBuffer.wrap(pdf == null ? new byte[0] : pdf).asReadOnlyBuffer();
+        int numSlices = (int) Math.ceil(stored.remaining() / (double) BYTE_SIZE_OF_PDF_SLICE);
+
+        return new PDFSliceIterator(recordID, numSlices, SLICE_PREFETCH, false, null, index -> {
+            ByteBuffer slice = stored.duplicate();
+            slice.position(index * BYTE_SIZE_OF_PDF_SLICE);
+            slice.limit(Math.min(slice.position() + BYTE_SIZE_OF_PDF_SLICE, stored.limit()));
+
+            byte[] bytes = new byte[slice.remaining()];
+            slice.get(bytes);
+            return CompletableFuture.completedFuture(bytes);
+        });
+    }
+
+    //==============================================================================
+
+    /**
+     * There is no blob store, so PDFs are always read with getPDFSlices(), which is how a certificate without a PDF is reported as missing
+     */
+
+    @Override
+    public ByteBuffer getStoredPDF(int recordID) {
+        return null;
+    }
+
+    //==============================================================================
+
+    @Override
+    public synchronized int getCertificateCount() {
+        return log.size();
+    }
+
+    //==============================================================================
+
+    /**
+     * PDFs are kept in memory as they were submitted, so there is nothing to compress
+     */
+
+    @Override
+    public void setPDFCompression(boolean compress) {
+        //Do nothing
+    }
+
+    //==============================================================================
+
+    /**
+     * PDFs are always kept in memory, so the blob store is not used
+     */
+
+    @Override
+    public void setBlobStore(CertificateBlobStore blobStore) {
+        //Do nothing
+    }
+
+    //==============================================================================
+
+    /**
+     * Transactions are confirmed as soon as they are submitted, so there is no window to limit
+     */
+
+    @Override
+    public void setTransactionWindow(int window) {
+        //Do nothing
+    }
+
+    //==============================================================================
+
+    @Override
+    public TransactionPipeline getTransactionPipeline() {
+        return null;
+    }
+
+    //==============================================================================
+
+    @Override
+    public GasMeter getGasMeter() {
+        return null;
+    }
+
+    //==============================================================================
+
+    @Override
+    public Map<String, Long> estimateQueryGas(long researcherID, int recordID) {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,44 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.io.IOException;
+
+/**
+ * Gives the strings that the contract only knows by number (emails, first names and last names) their numeric keys.
+ * The same registry has to be used for everything written to a contract, since searches only find certificates by the keys they were written with.
+ */
+
+public interface KeyRegistry {
+
+    /**
+     * @param stringID The string to look up
+     * @return Returns the key of the string, or null if it does not have one
+     */
+
+    Long getID(String stringID);
+
+    /**
+     * @param stringID The string to look up
+     * @return Returns true if the string has a key, and false if it does not
+     */
+
+    boolean contains(String stringID);
+
+    /**
+     * Looks up the key of a string, giving it one if it does not have one yet
+     * @param stringID The string to look up
+     * @return Returns the key of the string
+     * @throws IOException Throws an IOException if a new key cannot be recorded
+     */
+
+    long getOrAssign(String stringID) throws IOException;
+
+    /**
+     * Records a key that was read back from the chain, so that searches and new submissions keep using it
+     * @param stringID The string the key belongs to
+     * @param id The key of the string
+     * @return Returns true if the key was recorded, and false if it was not needed or clashes with one already recorded
+     * @throws IOException Throws an IOException if the key cannot be recorded
+     */
+
+    boolean register(String stringID, long id) throws IOException;
+}
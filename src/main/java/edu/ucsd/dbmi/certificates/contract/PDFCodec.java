@@ -0,0 +1,178 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.io.ByteArrayOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes PDFs into the form they are stored on the chain in, and decodes them back.
+ * Every encoded PDF starts with a single format byte followed by the payload, so new codecs can be added without breaking old records.
+ * PDFs stored before the format byte was introduced start with "%PDF" instead, which never collides with a format byte, and are read back as-is.
+ */
+
+public class PDFCodec {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The payload is the PDF itself
+    public final static byte FORMAT_RAW = 0x00;
+
+    //The payload is the PDF compressed with Deflate (zlib wrapper, so corrupt payloads are caught by its checksum)
+    public final static byte FORMAT_DEFLATE = 0x01;
+
+    private final static int BUFFER_SIZE = 32 * 1024;
+
+    //==============================================================================
+    // DATA STRUCTURES
+    //==============================================================================
+
+    /**
+     * Decodes an encoded PDF incrementally, one slice at a time, so it can be streamed without assembling the whole encoded PDF first
+     */
+
+    static class StreamDecoder {
+
+        //The format of the PDF being decoded, or -1 until the first byte has been seen
+        private int format = -1;
+        private Inflater inflater;
+
+        /**
+         * Decodes the next slice of an encoded PDF
+         * @param slice The next slice of the encoded PDF, in order
+         * @return Returns the decoded bytes that the slice produced, which may be empty
+         * @throws DataFormatException Throws a DataFormatException if the compressed payload is corrupt
+         */
+
+        byte[] update(byte[] slice) throws DataFormatException {
+
+            int offset = 0;
+
+            if(format == -1 && slice.length > 0) {
+                format = slice[0];
+
+                if(format == FORMAT_RAW || format == FORMAT_DEFLATE) {
+                    offset = 1;
+                }
+
+                if(format == FORMAT_DEFLATE) {
+                    inflater = new Inflater();
+                }
+            }
+
+            if(inflater == null) {
+                return offset == 0 ? slice : copyOfRange(slice, offset);
+            }
+
+            inflater.setInput(slice, offset, slice.length - offset);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            while(!inflater.finished() && !inflater.needsInput()) {
+                int inflated = inflater.inflate(buffer);
+                out.write(buffer, 0, inflated);
+
+                if(inflated == 0 && inflater.needsDictionary()) {
+                    throw new DataFormatException("Compressed PDF requires a preset dictionary");
+                }
+            }
+
+            return out.toByteArray();
+        }
+
+        /**
+         * Checks that the whole encoded PDF has been decoded and releases the resources used to decode it
+         * @throws DataFormatException Throws a DataFormatException if the compressed payload ended early
+         */
+
+        void finish() throws DataFormatException {
+            if(inflater == null) {
+                return;
+            }
+
+            boolean finished = inflater.finished();
+            inflater.end();
+            inflater = null;
+
+            if(!finished) {
+                throw new DataFormatException("Compressed PDF is truncated");
+            }
+        }
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    private static byte[] copyOfRange(byte[] bytes, int offset) {
+        byte[] result = new byte[bytes.length - offset];
+        System.arraycopy(bytes, offset, result, 0, result.length);
+        return result;
+    }
+
+    //==============================================================================
+
+    private static byte[] withFormat(byte format, byte[] payload, int payloadLength) {
+        byte[] result = new byte[payloadLength + 1];
+        result[0] = format;
+        System.arraycopy(payload, 0, result, 1, payloadLength);
+        return result;
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Encodes a PDF for storage on the chain
+     * @param pdf The PDF to encode
+     * @param compress If true, compresses the PDF with Deflate, unless that would make it larger than storing it as-is
+     * @return Returns the encoded PDF, starting with its format byte
+     */
+
+    public static byte[] encode(byte[] pdf, boolean compress) {
+
+        if(compress) {
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            deflater.setInput(pdf);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(pdf.length / 2 + 64);
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            //Give up as soon as the output is no smaller than the PDF itself, since storing it raw is cheaper then
+            while(!deflater.finished() && out.size() < pdf.length) {
+                int deflated = deflater.deflate(buffer);
+                out.write(buffer, 0, deflated);
+            }
+
+            boolean smaller = deflater.finished() && out.size() < pdf.length;
+            deflater.end();
+
+            if(smaller) {
+                return withFormat(FORMAT_DEFLATE, out.toByteArray(), out.size());
+            }
+        }
+
+        return withFormat(FORMAT_RAW, pdf, pdf.length);
+    }
+
+    //==============================================================================
+
+    /**
+     * Decodes a PDF as it was stored on the chain
+     * @param encoded The encoded PDF, or a PDF stored before the format byte was introduced
+     * @return Returns the original PDF
+     * @throws DataFormatException Throws a DataFormatException if the compressed payload is corrupt or truncated
+     */
+
+    public static byte[] decode(byte[] encoded) throws DataFormatException {
+        StreamDecoder decoder = new StreamDecoder();
+        byte[] result = decoder.update(encoded);
+        decoder.finish();
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+
+/**
+ * Iterates over the slices of a PDF stored on the chain, in order, without ever assembling the full PDF in memory.
+ * While the caller is consuming one slice, the next few slices are already being requested in the background,
+ * so at most `prefetch` slices are held in memory at once regardless of the size of the PDF.
+ * Slices stored on the chain are decoded with PDFCodec as they arrive, so callers always see the original PDF bytes even if it was stored compressed.
+ * Callers that stop before the last slice, such as when a client disconnects mid-download, must close the iterator so no more slices are requested.
+ */
+
+public class PDFSliceIterator implements Iterator<byte[]>, AutoCloseable {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    private final int recordID;
+    private final int numSlices;
+    private final int prefetch;
+
+    private final IntFunction<CompletableFuture<byte[]>> sliceRequester;
+    private final ArrayDeque<CompletableFuture<byte[]>> inFlight;
+
+    //Decodes slices stored on the chain, or null if the slices are already the original PDF bytes
+    private final PDFCodec.StreamDecoder decoder;
+
+    //The SHA-256 hash the decoded PDF must have, and the digest of the slices returned so far, or null if the PDF is not checked
+    private final byte[] expectedHash;
+    private final MessageDigest digest;
+
+    //The index of the next slice to request from the chain
+    private int nextToRequest;
+
+    //The index of the next slice to hand back to the caller
+    private int nextToReturn;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new iterator over the slices of a PDF
+     * @param recordID The record ID of the PDF being iterated over
+     * @param numSlices The number of slices that the PDF is stored in
+     * @param prefetch The maximum number of slice requests to keep in flight ahead of the caller
+     * @param encoded True if the slices are encoded with PDFCodec, and false if they are the original PDF bytes
+     * @param expectedHash The SHA-256 hash of the original PDF, checked when the last slice is returned, or null to skip the check
+     * @param sliceRequester Starts an asynchronous request for the slice at the given index
+     */
+
+    PDFSliceIterator(int recordID, int numSlices, int prefetch, boolean encoded, byte[] expectedHash, IntFunction<CompletableFuture<byte[]>> sliceRequester) {
+
+        if(prefetch < 1) {
+            throw new IllegalArgumentException("Slice prefetch must be at least 1");
+        }
+
+        this.recordID = recordID;
+        this.numSlices = numSlices;
+        this.prefetch = prefetch;
+        this.sliceRequester = sliceRequester;
+        this.inFlight = new ArrayDeque<>(prefetch);
+        this.decoder = encoded ? new PDFCodec.StreamDecoder() : null;
+        this.expectedHash = expectedHash;
+
+        try {
+            this.digest = expectedHash == null ? null : MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        fill();
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Requests slices from the chain until either `prefetch` requests are in flight or every slice has been requested
+     */
+
+    private void fill() {
+        while(inFlight.size() < prefetch && nextToRequest < numSlices) {
+            inFlight.add(sliceRequester.apply(nextToRequest));
+            nextToRequest++;
+        }
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * @return Returns the number of slices that the PDF is stored in
+     */
+
+    public int getNumSlices() {
+        return numSlices;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean hasNext() {
+        return nextToReturn < numSlices;
+    }
+
+    //==============================================================================
+
+    /**
+     * Waits for the next slice of the PDF to arrive from the chain and returns it, decoded
+     * @return Returns the decoded bytes of the next slice of the PDF, which may be empty if the slice was compressed
+     * @throws IllegalStateException If the slice could not be retrieved from the chain or could not be decoded, or if this is the last slice and the PDF does not match its hash
+     */
+
+    @Override
+    public byte[] next() {
+
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        CompletableFuture<byte[]> head = inFlight.poll();
+        byte[] slice;
+
+        try {
+            slice = head.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrieving slice " + nextToReturn + " of certificate " + recordID, e);
+        } catch(ExecutionException e) {
+            throw new IllegalStateException("Could not retrieve slice " + nextToReturn + " of certificate " + recordID, e.getCause());
+        }
+
+        if(decoder != null) {
+            try {
+                slice = decoder.update(slice);
+
+                if(nextToReturn == numSlices - 1) {
+                    decoder.finish();
+                }
+            } catch(DataFormatException e) {
+                throw new IllegalStateException("Could not decode slice " + nextToReturn + " of certificate " + recordID, e);
+            }
+        }
+
+        if(digest != null) {
+            digest.update(slice);
+
+            if(nextToReturn == numSlices - 1 && !Arrays.equals(digest.digest(), expectedHash)) {
+                throw new IllegalStateException("PDF for certificate " + recordID + " does not match the hash recorded on the chain");
+            }
+        }
+
+        nextToReturn++;
+
+        //Keep the window full so the next slice is already on its way while the caller handles this one
+        fill();
+
+        return slice;
+    }
+
+    //==============================================================================
+
+    /**
+     * Cancels the slice requests still in flight and stops requesting more, so an abandoned download stops reading from the chain.
+     * hasNext() returns false afterwards.
+     */
+
+    @Override
+    public void close() {
+        nextToRequest = numSlices;
+        nextToReturn = numSlices;
+
+        for(CompletableFuture<byte[]> slice : inFlight) {
+            slice.cancel(true);
+        }
+
+        inFlight.clear();
+    }
+}
@@ -0,0 +1,404 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks every transaction sent to the contract from the moment it is submitted until its receipt arrives.
+ * At most `window` transactions may be pending at once; submitting beyond that blocks until an earlier transaction is mined,
+ * which keeps the node's transaction pool from being flooded. Confirmation latency and failures are recorded for every transaction,
+ * and the gas used by every transaction submitted with an operation name is recorded in the pipeline's GasMeter.
+ */
+
+public class TransactionPipeline {
+
+    //==============================================================================
+    // DATA STRUCTURES
+    //==============================================================================
+
+    /**
+     * How long a caller waits before a submission is acknowledged
+     * FAST acknowledges as soon as the node accepts the transaction, CONFIRMED waits until it has been mined
+     */
+
+    public enum AckMode { FAST, CONFIRMED }
+
+    //==============================================================================
+
+    /**
+     * A transaction that has been submitted to the node, along with a future for its receipt
+     */
+
+    public static class PendingTransaction {
+
+        private final String transactionHash;
+        private final CompletableFuture<TransactionReceipt> receipt;
+
+        PendingTransaction(String transactionHash, CompletableFuture<TransactionReceipt> receipt) {
+            this.transactionHash = transactionHash;
+            this.receipt = receipt;
+        }
+
+        public String getTransactionHash() {
+            return transactionHash;
+        }
+
+        public CompletableFuture<TransactionReceipt> getReceipt() {
+            return receipt;
+        }
+    }
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The number of most recent failures to keep around for reporting
+    private final static int MAX_RECENT_FAILURES = 20;
+
+    //Failed transactions are logged at WARN level, along with the exception they failed with
+    private static final Logger log = LoggerFactory.getLogger(TransactionPipeline.class);
+
+    private final int window;
+    private final Semaphore inFlight;
+    private final TransactionReceiptProcessor receiptProcessor;
+    private final ExecutorService receiptPollers;
+    private final GasMeter gasMeter;
+
+    private final ConcurrentMap<String, Long> pending;
+
+    private final AtomicLong submitted;
+    private final AtomicLong confirmed;
+    private final AtomicLong failed;
+    private final LongAdder totalConfirmationNanos;
+    private final AtomicLong maxConfirmationNanos;
+    private final ConcurrentLinkedDeque<String> recentFailures;
+
+    //Set by shutdown(), after which no more transactions are sent
+    private volatile boolean shutdown;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new transaction pipeline
+     * @param window The maximum number of transactions that may be pending (submitted but not yet mined) at once
+     * @param receiptProcessor Used to wait for the receipt of each submitted transaction
+     */
+
+    public TransactionPipeline(int window, TransactionReceiptProcessor receiptProcessor) {
+        this(window, receiptProcessor, new GasMeter());
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates a new transaction pipeline that records gas into an existing meter, so the totals carry over when the pipeline is replaced
+     * @param window The maximum number of transactions that may be pending (submitted but not yet mined) at once
+     * @param receiptProcessor Used to wait for the receipt of each submitted transaction
+     * @param gasMeter Records the gas used by each mined transaction
+     */
+
+    public TransactionPipeline(int window, TransactionReceiptProcessor receiptProcessor, GasMeter gasMeter) {
+
+        if(window < 1) {
+            throw new IllegalArgumentException("Transaction window must be at least 1");
+        }
+
+        this.window = window;
+        this.inFlight = new Semaphore(window, true);
+        this.receiptProcessor = receiptProcessor;
+        this.gasMeter = gasMeter;
+
+        //Every pending transaction has a thread waiting on its receipt, so the pool never needs to be larger than the window
+        this.receiptPollers = Executors.newFixedThreadPool(window, runnable -> {
+            Thread thread = new Thread(runnable, "transaction-receipt-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.pending = new ConcurrentHashMap<>();
+        this.submitted = new AtomicLong();
+        this.confirmed = new AtomicLong();
+        this.failed = new AtomicLong();
+        this.totalConfirmationNanos = new LongAdder();
+        this.maxConfirmationNanos = new AtomicLong();
+        this.recentFailures = new ConcurrentLinkedDeque<>();
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Waits for the receipt of a transaction and records the outcome
+     * @param operation The contract function the transaction calls, or null if its gas should not be recorded
+     * @param transactionHash The hash of the transaction to wait for
+     * @param submittedAt The time the transaction was submitted, from System.nanoTime()
+     * @return Returns the receipt of the mined transaction
+     */
+
+    private TransactionReceipt awaitReceipt(String operation, String transactionHash, long submittedAt) {
+        try {
+            TransactionReceipt receipt = receiptProcessor.waitForTransactionReceipt(transactionHash);
+
+            long latency = System.nanoTime() - submittedAt;
+
+            String function = operation == null ? "unknown" : operation;
+            Metrics.timer("certificates.transactions.confirmation", "function", function).record(latency, TimeUnit.NANOSECONDS);
+
+            //Recorded before the receipt future completes, so the totals include every transaction that awaitAll() has waited for
+            //Reverted transactions are recorded too, since their gas is charged all the same
+            if(operation != null && receipt.getGasUsedRaw() != null) {
+                gasMeter.record(operation, receipt.getGasUsed().longValue());
+                Metrics.summary("certificates.transactions.gas", "function", function).record(receipt.getGasUsed().doubleValue());
+            }
+
+            if(!receipt.isStatusOK()) {
+                recordFailure(transactionHash, "reverted with status " + receipt.getStatus(), null);
+                throw new CompletionException(new Exception("Transaction " + transactionHash + " was reverted"));
+            }
+
+            //Only mined transactions count towards the confirmation latency, since the average is taken over confirmed transactions
+            totalConfirmationNanos.add(latency);
+            maxConfirmationNanos.accumulateAndGet(latency, Math::max);
+            confirmed.incrementAndGet();
+            return receipt;
+
+        } catch(CompletionException e) {
+            throw e;
+        } catch(Exception e) {
+            recordFailure(transactionHash, e.getMessage(), e);
+            throw new CompletionException(e);
+        } finally {
+            pending.remove(transactionHash);
+            inFlight.release();
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Records a failed transaction so that it shows up in the pipeline statistics
+     * @param transactionHash The hash of the transaction that failed, or null if it was never accepted by the node
+     * @param reason The reason the transaction failed
+     * @param cause The exception the transaction failed with, or null if it was mined and reverted
+     */
+
+    private void recordFailure(String transactionHash, String reason, Exception cause) {
+        failed.incrementAndGet();
+
+        String failure = (transactionHash == null ? "unsubmitted transaction" : transactionHash) + ": " + reason;
+        recentFailures.addFirst(failure);
+
+        while(recentFailures.size() > MAX_RECENT_FAILURES) {
+            recentFailures.pollLast();
+        }
+
+        log.warn("Transaction failed: {}", failure, cause);
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Submits a transaction, blocking first if the window of pending transactions is full
+     * @param sender Sends the transaction to the node and returns its hash
+     * @return Returns the pending transaction, whose receipt future completes once it has been mined
+     * @throws Exception Throws an Exception if the node rejects the transaction or the thread is interrupted while waiting for room in the window
+     */
+
+    public PendingTransaction submit(Callable<String> sender) throws Exception {
+        return submit(null, sender);
+    }
+
+    //==============================================================================
+
+    /**
+     * Submits a transaction, blocking first if the window of pending transactions is full, and records its gas once it has been mined
+     * @param operation The contract function the transaction calls, such as CertificateDB.FUNC_ADDNEWCERTIFICATE, or null if its gas should not be recorded
+     * @param sender Sends the transaction to the node and returns its hash
+     * @return Returns the pending transaction, whose receipt future completes once it has been mined
+     * @throws RejectedExecutionException Throws a RejectedExecutionException without sending the transaction if the pipeline has been shut down
+     * @throws Exception Throws an Exception if the node rejects the transaction or the thread is interrupted while waiting for room in the window
+     */
+
+    public PendingTransaction submit(String operation, Callable<String> sender) throws Exception {
+
+        inFlight.acquire();
+
+        if(shutdown) {
+            inFlight.release();
+            throw new RejectedExecutionException("Transaction pipeline has been shut down");
+        }
+
+        long submittedAt = System.nanoTime();
+        String transactionHash;
+
+        try {
+            transactionHash = sender.call();
+        } catch(Exception e) {
+            inFlight.release();
+            recordFailure(null, e.getMessage(), e);
+            throw e;
+        }
+
+        submitted.incrementAndGet();
+        pending.put(transactionHash, submittedAt);
+
+        CompletableFuture<TransactionReceipt> receipt;
+
+        try {
+            receipt = CompletableFuture.supplyAsync(() -> awaitReceipt(operation, transactionHash, submittedAt), receiptPollers);
+        } catch(RejectedExecutionException e) {
+            //The pipeline was shut down after the transaction was sent, but it has been broadcast all the same, so its receipt is still waited for,
+            //just outside of the pollers. awaitReceipt() releases the transaction's place in the window once it is done.
+            receipt = CompletableFuture.supplyAsync(() -> awaitReceipt(operation, transactionHash, submittedAt));
+        }
+
+        return new PendingTransaction(transactionHash, receipt);
+    }
+
+    //==============================================================================
+
+    /**
+     * Waits for every transaction in a collection to be mined
+     * @param transactions The transactions to wait for
+     * @throws Exception Throws the first failure among the transactions, if any of them failed
+     */
+
+    public static void awaitAll(Collection<PendingTransaction> transactions) throws Exception {
+        List<CompletableFuture<TransactionReceipt>> receipts = new ArrayList<>(transactions.size());
+
+        for(PendingTransaction transaction : transactions) {
+            receipts.add(transaction.getReceipt());
+        }
+
+        try {
+            CompletableFuture.allOf(receipts.toArray(new CompletableFuture[0])).get();
+        } catch(ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Stops accepting transactions and waits for the receipts of the ones already pending, then lets the receipt pollers exit.
+     * Every pending receipt future still completes, so callers waiting on them are not left hanging.
+     */
+
+    public void shutdown() {
+        shutdown = true;
+        receiptPollers.shutdown();
+
+        try {
+            //Each poller gives up on its own once the receipt processor runs out of attempts, so this does not wait forever
+            receiptPollers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the maximum number of transactions that may be pending at once
+     */
+
+    public int getWindow() {
+        return window;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the meter that the gas used by every mined transaction is recorded in
+     */
+
+    public GasMeter getGasMeter() {
+        return gasMeter;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of transactions that have been submitted but not yet mined
+     */
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of transactions that have been accepted by the node
+     */
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of transactions that have been mined successfully
+     */
+
+    public long getConfirmedCount() {
+        return confirmed.get();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the number of transactions that were rejected, reverted, or never mined
+     */
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the average time between submitting a transaction and receiving its receipt, in milliseconds, among mined transactions
+     */
+
+    public double getAverageConfirmationMillis() {
+        long mined = confirmed.get();
+        return mined == 0 ? 0 : totalConfirmationNanos.sum() / (double) mined / 1000000.0;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the longest time between submitting a transaction and receiving its receipt, in milliseconds, among mined transactions
+     */
+
+    public double getMaxConfirmationMillis() {
+        return maxConfirmationNanos.get() / 1000000.0;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns descriptions of the most recent failed transactions, newest first
+     */
+
+    public List<String> getRecentFailures() {
+        return new ArrayList<>(recentFailures);
+    }
+}
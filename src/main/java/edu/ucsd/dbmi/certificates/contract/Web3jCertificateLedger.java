@@ -0,0 +1,208 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.storage.CertificateBlobStore;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CertificateDB contract on a live chain, reached through web3j by CertificateDBSC.
+ * CertificateDBSC holds a single connection and contract, so there is only ever one of these per JVM; deploying or loading another
+ * contract moves every Web3jCertificateLedger over to it.
+ */
+
+public class Web3jCertificateLedger implements CertificateLedger {
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    private Web3jCertificateLedger() {
+        //Only created by deploy() and load(), once CertificateDBSC is connected to a contract
+    }
+
+    //==============================================================================
+
+    /**
+     * Deploys a new contract to the chain
+     * @return Returns the ledger for the new contract
+     * @throws Exception Throws an Exception if the contract cannot be deployed
+     */
+
+    public static Web3jCertificateLedger deploy() throws Exception {
+        CertificateDBSC.deploy();
+        return new Web3jCertificateLedger();
+    }
+
+    //==============================================================================
+
+    /**
+     * Loads a contract that is already deployed
+     * @param address The address of the contract
+     * @return Returns the ledger for the contract
+     * @throws Exception Throws an Exception if the contract cannot be loaded
+     */
+
+    public static Web3jCertificateLedger load(String address) throws Exception {
+        CertificateDBSC.load(address);
+        return new Web3jCertificateLedger();
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    @Override
+    public List<TransactionPipeline.PendingTransaction> addNewCertificate(
+        String email,
+        long researcherID,
+        String firstName,
+        String lastName,
+        long firstNameKey,
+        long lastNameKey,
+        int certificateType,
+        int recordID,
+        String courseName,
+        long endDate,
+        byte[] pdf
+    ) throws Exception {
+        return CertificateDBSC.addNewCertificate(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate, pdf);
+    }
+
+    //==============================================================================
+
+    /**
+     * Copies every certificate from a previously deployed contract into this ledger
+     * Only a ledger on the chain has an older contract to migrate from, so this is not part of CertificateLedger
+     * @param oldAddress The address of the contract to copy from
+     * @return Returns every certificate that was copied
+     * @throws Exception Throws an Exception if the old contract cannot be read or the certificates cannot be added
+     */
+
+    public ArrayList<Certificate> migrateFrom(String oldAddress) throws Exception {
+        return CertificateDBSC.migrateFrom(oldAddress);
+    }
+
+    //==============================================================================
+
+    @Override
+    public ArrayList<Certificate> getAllCertificates() throws Exception {
+        return CertificateDBSC.getAllCertificates();
+    }
+
+    //==============================================================================
+
+    @Override
+    public ArrayList<Certificate> getCertificatesAddedBetween(BigInteger fromBlock, BigInteger toBlock) throws Exception {
+        return CertificateDBSC.getCertificatesAddedBetween(fromBlock, toBlock);
+    }
+
+    //==============================================================================
+
+    @Override
+    public BigInteger getLatestBlockNumber() throws Exception {
+        return CertificateDBSC.getLatestBlockNumber();
+    }
+
+    //==============================================================================
+
+    @Override
+    public BigInteger getDeploymentBlockNumber() {
+        return CertificateDBSC.getDeploymentBlockNumber();
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean hasValidCertificate(long researcherID) throws Exception {
+        return CertificateDBSC.hasValidCertificate(researcherID);
+    }
+
+    //==============================================================================
+
+    @Override
+    public long getLatestExpiry(long researcherID, Integer certificateType) throws Exception {
+        return certificateType == null ? CertificateDBSC.getLatestExpiry(researcherID) : CertificateDBSC.getLatestExpiry(researcherID, certificateType);
+    }
+
+    //==============================================================================
+
+    @Override
+    public long[] getLatestExpiries(List<Long> researcherIDs, Integer certificateType) throws Exception {
+        return CertificateDBSC.getLatestExpiries(researcherIDs, certificateType);
+    }
+
+    //==============================================================================
+
+    @Override
+    public byte[] getPDFBytes(int recordID) throws Exception {
+        return CertificateDBSC.getPDFBytes(recordID);
+    }
+
+    //==============================================================================
+
+    @Override
+    public PDFSliceIterator getPDFSlices(int recordID) throws Exception {
+        return CertificateDBSC.getPDFSlices(recordID);
+    }
+
+    //==============================================================================
+
+    @Override
+    public ByteBuffer getStoredPDF(int recordID) throws Exception {
+        return CertificateDBSC.getStoredPDF(recordID);
+    }
+
+    //==============================================================================
+
+    @Override
+    public int getCertificateCount() throws Exception {
+        return CertificateDBSC.getCertificateCount();
+    }
+
+    //==============================================================================
+
+    @Override
+    public void setPDFCompression(boolean compress) {
+        CertificateDBSC.setPDFCompression(compress);
+    }
+
+    //==============================================================================
+
+    @Override
+    public void setBlobStore(CertificateBlobStore blobStore) {
+        CertificateDBSC.setBlobStore(blobStore);
+    }
+
+    //==============================================================================
+
+    @Override
+    public void setTransactionWindow(int window) {
+        CertificateDBSC.setTransactionWindow(window);
+    }
+
+    //==============================================================================
+
+    @Override
+    public TransactionPipeline getTransactionPipeline() {
+        return CertificateDBSC.getTransactionPipeline();
+    }
+
+    //==============================================================================
+
+    @Override
+    public GasMeter getGasMeter() {
+        return CertificateDBSC.getGasMeter();
+    }
+
+    //==============================================================================
+
+    @Override
+    public Map<String, Long> estimateQueryGas(long researcherID, int recordID) {
+        return CertificateDBSC.estimateQueryGas(researcherID, recordID);
+    }
+}
@@ -1,8 +1,21 @@
 package edu.ucsd.dbmi.certificates.contract;
 
 import edu.ucsd.dbmi.certificates.beans.Certificate;
-
+import edu.ucsd.dbmi.certificates.beans.CertificatePage;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.beans.ComplianceReport;
+import edu.ucsd.dbmi.certificates.beans.ComplianceResult;
+import edu.ucsd.dbmi.certificates.storage.CertificateBlobStore;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 public class WebCertificateDB implements WebCertificateDBInterface {
 
@@ -10,26 +23,55 @@ public class WebCertificateDB implements WebCertificateDBInterface {
     // INSTANCE VARIABLES
     //==============================================================================
 
-    private final static int MAX_RESEARCHER_ID = 65535;
-    private final static int MIN_RESEARCHER_ID = 10000;
+    //How often the local index picks up certificates added to the chain by anyone else
+    private final static long INDEX_SYNC_INTERVAL_MILLIS = 5000;
+
+    //How long a cached certificate expiry is used before it is checked against the chain again, unless changed with setValidityCacheTTL()
+    private final static long DEFAULT_VALIDITY_CACHE_TTL_MILLIS = 60000;
+
+    private final static String SEARCHES = "certificates.searches";
+    private final static String SEARCH_RESULTS = "certificates.search.results";
+
+    //The numeric keys of the emails, first names and last names that the contract stores by number
+    private final KeyRegistry ids;
+
+    //The ledger that certificates are written to and read back from, which is the contract on the chain unless another ledger is given
+    private CertificateLedger ledger;
+
+    private CertificateIndex index;
+    private CertificateEventSync eventSync;
+    private CertificateExpiryCache expiryCache = newExpiryCache(DEFAULT_VALIDITY_CACHE_TTL_MILLIS);
 
-    private HashMap<String, Integer> mapStringToInt;
-    private HashMap<Integer, String> mapIntToString;
+    //Whether addNewCertificateFromWeb() returns once the node accepts the certificate or once it has been mined
+    private TransactionPipeline.AckMode ackMode = TransactionPipeline.AckMode.FAST;
 
     //==============================================================================
     // CONSTRUCTORS
     //==============================================================================
 
     /**
-     * Creates a new contract and deploys it to the chain to create a certificate database
+     * Creates a new contract and deploys it to the chain to create a certificate database, keeping its IDs in memory only
      */
 
     public WebCertificateDB() {
-        mapStringToInt = new HashMap<>();
-        mapIntToString = new HashMap<>();
+        this(new IDRegistry());
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates a new contract and deploys it to the chain to create a certificate database
+     * @param ids The registry to look up and assign the numeric keys of emails and names in, which decides how keys are assigned
+     */
+
+    public WebCertificateDB(KeyRegistry ids) {
+        this.ids = ids;
+        index = new CertificateIndex();
+        registerGauges();
 
         try {
-            CertificateDBSC.deploy();
+            ledger = Web3jCertificateLedger.deploy();
+            startIndexSync();
         } catch(Exception e) {
             e.printStackTrace();
         }
@@ -38,63 +80,216 @@ public class WebCertificateDB implements WebCertificateDBInterface {
     //==============================================================================
 
     /**
-     * Loads in an existing contract to create a certificate database
+     * Loads in an existing contract to create a certificate database, keeping its IDs in memory only
      * @param address The address of the currently deployed contract
      */
 
     public WebCertificateDB(String address) {
-        mapStringToInt = new HashMap<>();
-        mapIntToString = new HashMap<>();
+        this(address, new IDRegistry());
+    }
+
+    //==============================================================================
+
+    /**
+     * Loads in an existing contract to create a certificate database
+     * @param address The address of the currently deployed contract
+     * @param ids The registry to look up and assign the numeric keys of emails and names in. Has to assign keys the same way as the
+     *            registry the contract was written with, such as a HashedKeyRegistry for a contract written by any instance using one.
+     */
+
+    public WebCertificateDB(String address, KeyRegistry ids) {
+        this.ids = ids;
+        index = new CertificateIndex();
+        registerGauges();
 
         try {
-            CertificateDBSC.load(address);
+            ledger = Web3jCertificateLedger.load(address);
+            startIndexSync();
         } catch(Exception e) {
             e.printStackTrace();
         }
     }
 
-    //==============================================================================
-    // PRIVATE METHODS
     //==============================================================================
 
     /**
-     * Generates a random ID within the bounds of the ID range specified by MIN_RESEARCHER_ID and MAX_RESEARCHER_ID
-     * @return A random ID between MIN_RESEARCHER_ID and MAX_RESEARCHER_ID
+     * Creates a certificate database on top of any ledger, such as an InMemoryCertificateLedger for load testing without a chain
+     * @param ledger The ledger to write certificates to and read them back from
+     * @param ids The registry to look up and assign the numeric keys of emails and names in
      */
 
-    private int getRandomID() {
-        Random r = new Random();
+    public WebCertificateDB(CertificateLedger ledger, KeyRegistry ids) {
+        this.ids = ids;
+        this.ledger = ledger;
+        index = new CertificateIndex();
+        registerGauges();
 
-        //Generate a random ID between MIN_RESEARCHER_ID (inclusive) and MAX_RESEARCHER_ID (inclusive)
-        return r.nextInt(MAX_RESEARCHER_ID - MIN_RESEARCHER_ID + 1) + MIN_RESEARCHER_ID;
+        try {
+            startIndexSync();
+        } catch(Exception e) {
+            e.printStackTrace();
+        }
     }
 
+    //==============================================================================
+    // PRIVATE METHODS
     //==============================================================================
 
     /**
      * Initializes a numeric ID for a string value. If the value already has an ID, simply returns the existing value instead.
      * @param stringID The string to generate an ID for
      * @return Returns a new unique ID for a string key. If the string key already had a numeric ID, returns the existing ID instead.
+     * @throws IOException Throws an IOException if a new ID cannot be recorded in the registry
      */
 
-    private int initID(String stringID) {
+    private long initID(String stringID) throws IOException {
+        return ids.getOrAssign(stringID);
+    }
+
+    //==============================================================================
 
-        int numID;
+    /**
+     * Records the IDs that certificates on the chain already use for their emails and names, so that searches and new submissions keep using them
+     * @param certificates The certificates whose IDs should be recorded
+     */
 
-        if(mapStringToInt.get(stringID) != null) {
-            return mapStringToInt.get(stringID);
+    private void registerIDs(Collection<Certificate> certificates) throws IOException {
+        for(Certificate certificate : certificates) {
+            ids.register(certificate.getEmail(), certificate.getResearcherID());
+            ids.register(certificate.getFirstName(), certificate.getFirstNameKey());
+            ids.register(certificate.getLastName(), certificate.getLastNameKey());
         }
+    }
+
+    //==============================================================================
+
+    /**
+     * Assigns IDs to a certificate and submits its transactions to the chain without waiting for them to be mined
+     * The certificate is added to the local index once its transaction has been mined, so a failed transaction never shows up in searches
+     * @return Returns every transaction submitted for the certificate, starting with the certificate itself followed by each PDF slice
+     * @throws Exception Throws an Exception if any of the transactions are rejected by the node
+     */
 
-        //Generate random number IDs until we find one that has not been used before
-        do{
-            numID = getRandomID();
-        } while(mapIntToString.get(numID) != null);
+    private List<TransactionPipeline.PendingTransaction> submitCertificate(
+            String firstName,
+            String lastName,
+            String email,
+            Integer certificateType,
+            Integer recordID,
+            String courseName,
+            Date endDate,
+            byte[] pdf
+    ) throws Exception {
+
+        //Create numeric IDs for the strings that need unique identifiers (email, first and last name)
+        long researcherID = initID(email);
+        long firstNameKey = initID(firstName);
+        long lastNameKey = initID(lastName);
+
+        //Call the smart contract to add the new Certificate to the blockchain
+        List<TransactionPipeline.PendingTransaction> transactions = ledger.addNewCertificate(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, dateToUnixTime(endDate), pdf);
+
+        //Keep the local index current so the new certificate shows up in searches without waiting for the next event sync
+        Certificate certificate = new Certificate(researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, dateToUnixTime(endDate), null);
+        certificate.setEmail(email);
+        transactions.get(0).getReceipt().thenRun(() -> {
+            index.add(certificate);
+            expiryCache.raise(researcherID, certificateType, endDate.getTime());
+        });
+
+        return transactions;
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the ID of a search parameter without assigning one, so that searching for an unknown string never uses up an ID
+     * @param stringID The search parameter to look up, or an empty string if it was not specified
+     * @return Returns the ID of the string, or 0 if it was not specified or has no ID, which the searches treat as unspecified
+     */
+
+    private long lookUpID(String stringID) {
+        Long id = stringID.equals("") ? null : ids.getID(stringID);
+        return id == null ? 0 : id;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param transactions The transactions to get the hashes of
+     * @return Returns the hashes of the transactions, in the same order
+     */
+
+    private static List<String> getTransactionHashes(List<TransactionPipeline.PendingTransaction> transactions) {
+        List<String> transactionHashes = new ArrayList<>(transactions.size());
+
+        for(TransactionPipeline.PendingTransaction transaction : transactions) {
+            transactionHashes.add(transaction.getTransactionHash());
+        }
+
+        return transactionHashes;
+    }
+
+    //==============================================================================
+
+    /**
+     * Reports the size of the local index, and of the ID registry if it keeps one, to Micrometer's global registry
+     */
+
+    private void registerGauges() {
+        Gauge.builder("certificates.index.size", index, CertificateIndex::size)
+            .description("Certificates in the local index")
+            .register(Metrics.globalRegistry);
+
+        //A HashedKeyRegistry derives every key, so it has nothing to count
+        if(ids instanceof IDRegistry) {
+            Gauge.builder("certificates.ids.size", (IDRegistry) ids, IDRegistry::size)
+                .description("Emails and names that have been assigned numeric IDs")
+                .register(Metrics.globalRegistry);
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Records how long a search took and how many results it found, tagged with the type of search
+     * @param type The type of search, such as all or any
+     * @param sample The timer sample started when the search began
+     * @param results The number of results the search found
+     */
+
+    private static void recordSearch(String type, Timer.Sample sample, int results) {
+        sample.stop(Metrics.timer(SEARCHES, "type", type));
+        Metrics.summary(SEARCH_RESULTS, "type", type).record(results);
+    }
+
+    //==============================================================================
+
+    /**
+     * Populates the local index from the CertificateAdded logs already on the chain, then keeps it current in the background
+     * @throws Exception Throws an Exception if the logs cannot be retrieved from the chain
+     */
 
-        //Add the pair to the mappings
-        mapStringToInt.put(stringID, numID);
-        mapIntToString.put(numID, stringID);
+    private void startIndexSync() throws Exception {
+        eventSync = new CertificateEventSync(index, ledger);
+        eventSync.sync();
+        eventSync.start(INDEX_SYNC_INTERVAL_MILLIS);
 
-        return numID;
+        //Fill in any IDs the registry does not know about yet, such as certificates added by another instance of the app
+        registerIDs(index.getAll());
+    }
+
+    //==============================================================================
+
+    /**
+     * Creates a cache of certificate expiries that loads from the ledger
+     * @param ttlMillis The longest time an expiry is cached before it is checked against the chain again
+     * @return Returns the new cache
+     */
+
+    private CertificateExpiryCache newExpiryCache(long ttlMillis) {
+        return new CertificateExpiryCache(ttlMillis, (researcherID, certificateType) ->
+            1000 * ledger.getLatestExpiry(researcherID, certificateType == CertificateExpiryCache.ANY_TYPE ? null : certificateType));
     }
 
     //==============================================================================
@@ -115,6 +310,7 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     /**
      * Adds a new certificate to the database from the web app
+     * In FAST ack mode this returns once the node has accepted every transaction; in CONFIRMED ack mode it returns once they have all been mined
      * @param firstName The first name of the researcher on the certificate
      * @param lastName The last name of the researcher on the certificate
      * @param email The email of the researcher on the certificate
@@ -138,14 +334,11 @@ public class WebCertificateDB implements WebCertificateDBInterface {
     ) {
 
         try {
-            //Create numeric IDs for the strings that need unique identifiers (email, first and last name)
-            int researcherID = initID(email);
-            int firstNameKey = initID(firstName);
-            int lastNameKey = initID(lastName);
-
-            //Call the smart contract to add the new Certificate to the blockchain
-            CertificateDBSC.addNewCertificate(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, dateToUnixTime(endDate), pdf);
+            List<TransactionPipeline.PendingTransaction> transactions = submitCertificate(firstName, lastName, email, certificateType, recordID, courseName, endDate, pdf);
 
+            if(ackMode == TransactionPipeline.AckMode.CONFIRMED) {
+                TransactionPipeline.awaitAll(transactions);
+            }
         } catch(Exception e) {
             int len = pdf == null ? 0 : pdf.length;
             System.out.println("pdf.length = " + len);
@@ -158,6 +351,170 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     //==============================================================================
 
+    /**
+     * Adds a whole batch of certificates to the database from the web app
+     * Every certificate's transactions are submitted back to back through the transaction manager's nonce sequence without waiting for any of them
+     * to be mined, so the batch costs roughly one block time rather than one block time per certificate.
+     * Submission only blocks when the transaction pipeline's window of pending transactions is full.
+     * @param submissions The certificates to add, with their PDFs already read into getPdfBytes()
+     * @param ackMode CONFIRMED waits for every submitted transaction to be mined before returning and reports CONFIRMED or FAILED per certificate.
+     *                FAST returns as soon as everything has been submitted and reports SUBMITTED per certificate.
+     * @return Returns one result per submission, in the same order, with the transaction hashes and status of each certificate
+     */
+
+    @Override
+    public ArrayList<CertificateSubmissionResult> addNewCertificatesFromWeb(List<CertificateSubmission> submissions, TransactionPipeline.AckMode ackMode) {
+
+        ArrayList<CertificateSubmissionResult> results = new ArrayList<>(submissions.size());
+        List<List<TransactionPipeline.PendingTransaction>> transactions = new ArrayList<>(submissions.size());
+
+        //Submit everything first...
+        for(CertificateSubmission submission : submissions) {
+            CertificateSubmissionResult result = new CertificateSubmissionResult(submission.getRecordID(), submission.getEmail());
+
+            List<TransactionPipeline.PendingTransaction> submitted = Collections.emptyList();
+
+            try {
+                submitted = submitCertificate(
+                    submission.getFirstName(),
+                    submission.getLastName(),
+                    submission.getEmail(),
+                    submission.getCertificateTypeInt(),
+                    submission.getRecordID(),
+                    submission.getCourseName(),
+                    submission.getEndDate(),
+                    submission.getPdfBytes()
+                );
+                result.setTransactionHashes(getTransactionHashes(submitted));
+                result.setStatus(CertificateSubmissionResult.Status.SUBMITTED);
+            } catch(Exception e) {
+                e.printStackTrace();
+                result.setStatus(CertificateSubmissionResult.Status.FAILED);
+                result.setError(e.getMessage());
+            }
+
+            results.add(result);
+            transactions.add(submitted);
+        }
+
+        if(ackMode != TransactionPipeline.AckMode.CONFIRMED) {
+            return results;
+        }
+
+        //...then collect the receipts, which by now are being mined in parallel
+        for(int i = 0; i < results.size(); i++) {
+            CertificateSubmissionResult result = results.get(i);
+
+            if(result.getStatus() != CertificateSubmissionResult.Status.SUBMITTED) {
+                continue;
+            }
+
+            try {
+                TransactionPipeline.awaitAll(transactions.get(i));
+                result.setStatus(CertificateSubmissionResult.Status.CONFIRMED);
+            } catch(Exception e) {
+                e.printStackTrace();
+                result.setStatus(CertificateSubmissionResult.Status.FAILED);
+                result.setError(e.getMessage());
+            }
+        }
+
+        return results;
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns whether addNewCertificateFromWeb() returns once the node accepts the certificate (FAST) or once it has been mined (CONFIRMED)
+     */
+
+    public TransactionPipeline.AckMode getAckMode() {
+        return ackMode;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param ackMode Whether addNewCertificateFromWeb() should return once the node accepts the certificate (FAST) or once it has been mined (CONFIRMED)
+     */
+
+    public void setAckMode(TransactionPipeline.AckMode ackMode) {
+        this.ackMode = ackMode;
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets whether PDFs are compressed before they are stored on the chain, which means fewer slice transactions per upload and fewer calls per download
+     * @param compress If true, PDFs are compressed with Deflate before they are sliced
+     */
+
+    public void setPDFCompression(boolean compress) {
+        ledger.setPDFCompression(compress);
+    }
+
+    //==============================================================================
+
+    /**
+     * Stores PDFs in a blob store instead of on the chain. The chain then only records each PDF's SHA-256 hash and length,
+     * so adding a certificate takes a single transaction and downloading its PDF is a local read verified against the chain.
+     * @param blobStore The blob store to keep PDFs in, or null to store them on the chain in slices
+     */
+
+    public void setBlobStore(CertificateBlobStore blobStore) {
+        ledger.setBlobStore(blobStore);
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets the maximum number of transactions that may be submitted but not yet mined at once. Submitting beyond that blocks until earlier transactions are mined.
+     * @param window The maximum number of pending transactions
+     */
+
+    public void setTransactionWindow(int window) {
+        ledger.setTransactionWindow(window);
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the pipeline that every transaction is submitted through, which reports pending transactions, confirmation latency and failures,
+     *         or null if the ledger confirms transactions as soon as they are submitted
+     */
+
+    public TransactionPipeline getTransactionPipeline() {
+        return ledger.getTransactionPipeline();
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the meter that the gas of every mined transaction is recorded in, by contract function,
+     *         or null if the ledger does not charge gas
+     */
+
+    public GasMeter getGasMeter() {
+        return ledger.getGasMeter();
+    }
+
+    //==============================================================================
+
+    /**
+     * Estimates the gas of the view functions behind searches, compliance checks and PDF downloads
+     * @param email The email of the researcher to query for
+     * @param recordID The certificate to query for
+     * @return Returns the estimated gas of each view function, keyed by function name,
+     *         or an empty map if the researcher has no certificates or the ledger does not charge gas
+     */
+
+    public Map<String, Long> estimateQueryGas(String email, int recordID) {
+        Long researcherID = ids.getID(email);
+        return researcherID == null ? Collections.emptyMap() : ledger.estimateQueryGas(researcherID, recordID);
+    }
+
+    //==============================================================================
+
     /**
      * Allows the user to search the database for certificates associated with a certain first name, last name, email, and/or range of expiry dates.
      * Searches the database for certificate matching any of the parameters. That is, if the certificate matches one of more of the parameters, it will be returned in the search results.
@@ -178,19 +535,19 @@ public class WebCertificateDB implements WebCertificateDBInterface {
             Date endDateRangeHigh
     ) {
 
-        int firstNameVerified = !firstName.equals("") && mapStringToInt.containsKey(firstName) ? mapStringToInt.get(firstName) : 0;
-        int lastNameVerified = !lastName.equals("") && mapStringToInt.containsKey(lastName) ? mapStringToInt.get(lastName) : 0;
-        int emailVerified = !email.equals("") && mapStringToInt.containsKey(email) ? mapStringToInt.get(email) : 0;
-        long low = endDateRangeLow == null ? 0 : dateToUnixTime(endDateRangeLow);
-        long high = endDateRangeHigh == null ? 0 : dateToUnixTime(endDateRangeHigh);
+        long firstNameVerified = lookUpID(firstName);
+        long lastNameVerified = lookUpID(lastName);
+        long emailVerified = lookUpID(email);
+        long low = endDateRangeLow == null ? 0 : endDateRangeLow.getTime();
+        long high = endDateRangeHigh == null ? 0 : endDateRangeHigh.getTime();
 
-        try {
-            //Call the query on the smart contract in order to get a JSON string containing our query results
-            return CertificateDBSC.queryAny(firstNameVerified, lastNameVerified, emailVerified, low, high);
-        } catch(Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+
+        //Searches are served from the local index, which mirrors the contract's queryAny()
+        ArrayList<Certificate> result = index.queryAny(firstNameVerified, lastNameVerified, emailVerified, low, high);
+
+        recordSearch("any", sample, result.size());
+        return result;
     }
 
     //==============================================================================
@@ -215,38 +572,21 @@ public class WebCertificateDB implements WebCertificateDBInterface {
             Date endDateRangeHigh
     ) {
 
-        int firstNameVerified = !firstName.equals("") && mapStringToInt.containsKey(firstName) ? mapStringToInt.get(firstName) : 0;
-        int lastNameVerified = !lastName.equals("") && mapStringToInt.containsKey(lastName) ? mapStringToInt.get(lastName) : 0;
-        int emailVerified = !email.equals("") && mapStringToInt.containsKey(email) ? mapStringToInt.get(email) : 0;
-        long low = endDateRangeLow == null ? 0 : dateToUnixTime(endDateRangeLow);
-        long high = endDateRangeHigh == null ? 0 : dateToUnixTime(endDateRangeHigh);
+        long firstNameVerified = lookUpID(firstName);
+        long lastNameVerified = lookUpID(lastName);
+        long emailVerified = lookUpID(email);
+        long low = endDateRangeLow == null ? 0 : endDateRangeLow.getTime();
+        long high = endDateRangeHigh == null ? 0 : endDateRangeHigh.getTime();
+
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
 
         try {
-            //Call the query on the smart contract in order to get a JSON string containing our query results
-            ArrayList<Certificate> result = CertificateDBSC.queryAll(firstNameVerified, lastNameVerified, emailVerified, low, high);
+            //Searches are served from the local index, which mirrors the contract's queryAll()
+            ArrayList<Certificate> result = index.queryAll(firstNameVerified, lastNameVerified, emailVerified, low, high);
 
-            Iterator<Certificate> iter = result.iterator();
-
-            while(iter.hasNext()) {
-                Certificate temp = iter.next();
-                
-                if(!firstName.equals("") && !firstName.equals(temp.getFirstName())) {
-                    iter.remove();
-                }
-                else if(!lastName.equals("") && !lastName.equals(temp.getLastName())) {
-                    iter.remove();
-                }
-                else if(!email.equals("") && !email.equals(temp.getEmail())) {
-                    iter.remove();
-                }
-                else if(endDateRangeLow != null && !endDateRangeLow.before(temp.getEndDate())) {
-                    iter.remove();
-                }
-                else if(endDateRangeHigh != null && endDateRangeHigh.before(temp.getEndDate())) {
-                    iter.remove();
-                }
-            }
+            result.removeIf(matchesExactly(firstName, lastName, email, endDateRangeLow, endDateRangeHigh).negate());
 
+            recordSearch("all", sample, result.size());
             return result;
 
         } catch(Exception e) {
@@ -257,9 +597,42 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     //==============================================================================
 
-    public ArrayList<Certificate> getAllCertificates() {
+    /**
+     * Searches the database for one page of the certificates matching all of the parameters, the same way queryAllFromWeb() does
+     * @param firstName The first name to search the certificate database for
+     * @param lastName The last name to search the certificate database for
+     * @param email The email to search the certificate database for
+     * @param endDateRangeLow The starting date of the range to search expiry dates for
+     * @param endDateRangeHigh The ending date of the range to search expiry dates for
+     * @param offset The number of matching certificates to skip
+     * @param limit The most certificates to return
+     * @return The page of certificates, or null if the search failed
+     */
+
+    @Override
+    public CertificatePage queryAllFromWeb(
+            String firstName,
+            String lastName,
+            String email,
+            Date endDateRangeLow,
+            Date endDateRangeHigh,
+            int offset,
+            int limit
+    ) {
+
+        long firstNameVerified = lookUpID(firstName);
+        long lastNameVerified = lookUpID(lastName);
+        long emailVerified = lookUpID(email);
+        long low = endDateRangeLow == null ? 0 : endDateRangeLow.getTime();
+        long high = endDateRangeHigh == null ? 0 : endDateRangeHigh.getTime();
+
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+
         try {
-            return CertificateDBSC.getAllCertificates();
+            CertificatePage page = index.queryAllPage(firstNameVerified, lastNameVerified, emailVerified, low, high, matchesExactly(firstName, lastName, email, endDateRangeLow, endDateRangeHigh), offset, limit);
+
+            recordSearch("all_page", sample, page.getCertificates().size());
+            return page;
         } catch(Exception e) {
             e.printStackTrace();
             return null;
@@ -268,6 +641,140 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     //==============================================================================
 
+    /**
+     * Builds the check that drops certificates whose keys collided with the search parameters but whose fields do not actually match them
+     * An empty string or null date means the parameter was not specified, and both end dates are inclusive
+     * @return Returns a filter that passes only certificates matching every specified parameter exactly
+     */
+
+    static Predicate<Certificate> matchesExactly(String firstName, String lastName, String email, Date endDateRangeLow, Date endDateRangeHigh) {
+        return certificate -> {
+            if(!firstName.equals("") && !firstName.equals(certificate.getFirstName())) {
+                return false;
+            }
+            else if(!lastName.equals("") && !lastName.equals(certificate.getLastName())) {
+                return false;
+            }
+            else if(!email.equals("") && !email.equals(certificate.getEmail())) {
+                return false;
+            }
+            else if(endDateRangeLow != null && endDateRangeLow.after(certificate.getEndDate())) {
+                return false;
+            }
+            else if(endDateRangeHigh != null && endDateRangeHigh.before(certificate.getEndDate())) {
+                return false;
+            }
+
+            return true;
+        };
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns every certificate in the database, served from the local index
+     * @return An ArrayList containing every certificate in the database
+     */
+
+    public ArrayList<Certificate> getAllCertificates() {
+        return index.getAll();
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns one page of every certificate in the database, ordered by record ID and served from the local index
+     * @param offset The number of certificates to skip
+     * @param limit The most certificates to return
+     * @return The page of certificates
+     */
+
+    @Override
+    public CertificatePage getAllCertificatesFromWeb(int offset, int limit) {
+        return index.getAllPage(offset, limit);
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns every certificate with an expiry date in a range, served from the local index
+     * @param endDateRangeLow The starting date of the range to search expiry dates for, or null to search from today
+     * @param endDateRangeHigh The ending date of the range to search expiry dates for, or null to search until three years from today
+     * @return An ArrayList containing every certificate with an expiry date in the range, ordered by expiry date
+     */
+
+    public ArrayList<Certificate> getCertificatesByEndDateRange(Date endDateRangeLow, Date endDateRangeHigh) {
+        long low = endDateRangeLow == null ? 0 : endDateRangeLow.getTime();
+        long high = endDateRangeHigh == null ? 0 : endDateRangeHigh.getTime();
+
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        ArrayList<Certificate> result = index.getByEndDateRange(low, high);
+
+        recordSearch("end_date_range", sample, result.size());
+        return result;
+    }
+
+    //==============================================================================
+
+    /**
+     * Brings the local certificate index up to date with the chain by reading only the CertificateAdded logs since the last sync
+     * @return Returns the number of certificates read from new logs
+     * @throws Exception Throws an Exception if the logs cannot be retrieved from the chain
+     */
+
+    public int syncIndex() throws Exception {
+        return eventSync.sync();
+    }
+
+    //==============================================================================
+
+    /**
+     * Rebuilds the local certificate index from the chain, which is the source of truth for the index
+     * Unlike syncIndex(), this reads the entire database from the contract, so it should only be needed to recover from a bad index
+     * @throws Exception Throws an Exception if the certificates cannot be retrieved from the chain
+     */
+
+    public void refreshIndex() throws Exception {
+        ArrayList<Certificate> certificates = ledger.getAllCertificates();
+
+        index.clear();
+        index.addAll(certificates);
+    }
+
+    //==============================================================================
+
+    /**
+     * Copies every certificate from a previously deployed contract into the contract this database was created with
+     * Meant to be called on a freshly deployed database, to move onto a new version of the contract without losing any certificates
+     * @param oldAddress The address of the contract to copy from
+     * @return Returns the number of certificates copied, or -1 if the migration failed or this database is not on the chain
+     */
+
+    public int migrateFrom(String oldAddress) {
+
+        //Only a ledger on the chain has an older contract to copy from
+        if(!(ledger instanceof Web3jCertificateLedger)) {
+            return -1;
+        }
+
+        try {
+            ArrayList<Certificate> certificates = ((Web3jCertificateLedger) ledger).migrateFrom(oldAddress);
+
+            //The keys were copied as-is, so map the strings back to them so that searches and new submissions keep using the same IDs
+            registerIDs(certificates);
+
+            index.addAll(certificates);
+
+            return certificates.size();
+
+        } catch(Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    //==============================================================================
+
     /**
      * Retrieves the full PDF byte array from the chain in slices and combines it into one byte array
      * @param recordID The PDF record ID for which the bytes should be retrieved
@@ -277,7 +784,35 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     @Override
     public byte[] getPDFBytes(int recordID) throws Exception {
-        return CertificateDBSC.getPDFBytes(recordID);
+        return ledger.getPDFBytes(recordID);
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves the PDF for a record ID one slice at a time, so that it can be streamed without being assembled in memory
+     * @param recordID The PDF record ID for which the slices should be retrieved
+     * @return Returns an iterator over the slices of the PDF, in order
+     * @throws Exception Throws an Exception if there is a problem looking up the PDF on the chain
+     */
+
+    @Override
+    public PDFSliceIterator getPDFSlices(int recordID) throws Exception {
+        return ledger.getPDFSlices(recordID);
+    }
+
+    //==============================================================================
+
+    /**
+     * Retrieves a PDF from the blob store without copying it, after verifying it against the hash and length recorded on the chain
+     * @param recordID The PDF record ID for which the PDF should be retrieved
+     * @return Returns a read-only buffer over the PDF, or null if the PDF is not in a blob store and has to be read from the chain with getPDFSlices()
+     * @throws Exception Throws an Exception if the stored PDF does not match the chain
+     */
+
+    @Override
+    public ByteBuffer getStoredPDF(int recordID) throws Exception {
+        return ledger.getStoredPDF(recordID);
     }
 
     //==============================================================================
@@ -290,9 +825,14 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     @Override
     public boolean hasValidCertificateFromWeb(String researcherID) {
+        Long numID = ids.getID(researcherID);
+
+        if(numID == null) {
+            return false;
+        }
 
         try {
-            return CertificateDBSC.hasValidCertificate(mapStringToInt.get(researcherID));
+            return ledger.hasValidCertificate(numID);
         } catch(Exception e) {
             e.printStackTrace();
             return false;
@@ -301,9 +841,158 @@ public class WebCertificateDB implements WebCertificateDBInterface {
 
     //==============================================================================
 
+    /**
+     * Checks whether the researcher with the passed ID has a valid certificate, using a cached copy of their latest expiry when there is one
+     * Meant for access checks that run on every request. A cached result is never used past the expiry it was worked out from,
+     * and certificates added by anyone else are picked up within the validity cache TTL.
+     * @param researcherID The ID to check for valid certificates for
+     * @param certificateType The type of certificate to check for, or null for certificates of any type
+     * @return Returns true if the specified researcher has a valid certificate, and false if they do not
+     */
+
+    @Override
+    public boolean hasValidCertificateCachedFromWeb(String researcherID, Integer certificateType) {
+        Long numID = ids.getID(researcherID);
+
+        if(numID == null) {
+            return false;
+        }
+
+        try {
+            return expiryCache.isValid(numID, certificateType == null ? CertificateExpiryCache.ANY_TYPE : certificateType);
+        } catch(Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks a whole roster of researchers for valid certificates at once
+     * When the local index is current with the chain every researcher is answered from it without calling the contract. Otherwise the expiries
+     * are read from the contract in batches, with one call per few hundred researchers for each required type rather than one call per researcher.
+     * @param emails The emails of the researchers to check
+     * @param requiredTypes The types of certificate every researcher needs a valid certificate of (CITI and/or HIPAA), or null or empty for any type
+     * @return Returns one result per email in the same order, along with the time the check took, or null if the expiries could not be read from the chain
+     */
+
+    @Override
+    public ComplianceReport checkComplianceFromWeb(List<String> emails, List<Integer> requiredTypes) {
+        long start = System.nanoTime();
+
+        List<Integer> types = requiredTypes == null || requiredTypes.isEmpty() ? Collections.singletonList(CertificateExpiryCache.ANY_TYPE) : requiredTypes;
+        ComplianceReport.Source source = eventSync != null && eventSync.isCurrent() ? ComplianceReport.Source.INDEX : ComplianceReport.Source.CHAIN;
+
+        //Each email is resolved exactly once, so the lookups and the results below line up even if emails are registered in the meantime
+        //Researchers whose emails have never been used on a certificate cannot have one, so only the rest need to be looked up
+        Long[] emailIDs = new Long[emails.size()];
+        List<Long> researcherIDs = new ArrayList<>();
+
+        for(int i = 0; i < emailIDs.length; i++) {
+            emailIDs[i] = ids.getID(emails.get(i));
+
+            if(emailIDs[i] != null) {
+                researcherIDs.add(emailIDs[i]);
+            }
+        }
+
+        //Hashed keys exist for every email, so whether a researcher is known has to be judged by whether they have any certificate at all
+        boolean keysAreDerived = !(ids instanceof IDRegistry);
+        List<Integer> lookups = new ArrayList<>(types);
+
+        if(keysAreDerived && !lookups.contains(CertificateExpiryCache.ANY_TYPE)) {
+            lookups.add(CertificateExpiryCache.ANY_TYPE);
+        }
+
+        //The earliest of each researcher's latest expiries across the required types, and their latest expiry of any type, in the same order as researcherIDs
+        long[] earliestExpiries = new long[researcherIDs.size()];
+        long[] anyTypeExpiries = new long[researcherIDs.size()];
+        Arrays.fill(earliestExpiries, Long.MAX_VALUE);
+
+        try {
+            for(int type : lookups) {
+                long[] expiries;
+
+                if(source == ComplianceReport.Source.INDEX) {
+                    expiries = new long[researcherIDs.size()];
+
+                    for(int i = 0; i < expiries.length; i++) {
+                        expiries[i] = index.getLatestExpiry(researcherIDs.get(i), type);
+                    }
+                }
+                else {
+                    expiries = ledger.getLatestExpiries(researcherIDs, type == CertificateExpiryCache.ANY_TYPE ? null : type);
+
+                    for(int i = 0; i < expiries.length; i++) {
+                        expiries[i] *= 1000;
+                    }
+                }
+
+                for(int i = 0; i < expiries.length; i++) {
+                    if(types.contains(type)) {
+                        earliestExpiries[i] = Math.min(earliestExpiries[i], expiries[i]);
+                    }
+
+                    if(type == CertificateExpiryCache.ANY_TYPE) {
+                        anyTypeExpiries[i] = expiries[i];
+                    }
+                }
+            }
+        } catch(Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        List<ComplianceResult> results = new ArrayList<>(emails.size());
+        int next = 0;
+
+        for(int i = 0; i < emailIDs.length; i++) {
+            String email = emails.get(i);
+
+            if(emailIDs[i] == null) {
+                results.add(new ComplianceResult(email, false, false, null));
+                continue;
+            }
+
+            long anyTypeExpiry = anyTypeExpiries[next];
+            long earliestExpiry = earliestExpiries[next++];
+
+            if(keysAreDerived && anyTypeExpiry == 0) {
+                results.add(new ComplianceResult(email, false, false, null));
+                continue;
+            }
+
+            //An expiry of 0 means the researcher has no certificate of one of the required types at all
+            results.add(new ComplianceResult(email, true, earliestExpiry > now, earliestExpiry == 0 ? null : new Date(earliestExpiry)));
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        Metrics.timer(SEARCHES, "type", "compliance").record(elapsed, TimeUnit.NANOSECONDS);
+        Metrics.summary(SEARCH_RESULTS, "type", "compliance").record(results.size());
+
+        return new ComplianceReport(results, source, elapsed);
+    }
+
+    //==============================================================================
+
+    /**
+     * Sets how long a cached certificate expiry is used by hasValidCertificateCachedFromWeb() before it is checked against the chain again
+     * Clears anything already cached
+     * @param ttlMillis The longest time an expiry is cached, in milliseconds
+     */
+
+    public void setValidityCacheTTL(long ttlMillis) {
+        expiryCache = newExpiryCache(ttlMillis);
+    }
+
+    //==============================================================================
+
     public int getCertificateCount() {
         try {
-            return CertificateDBSC.getCertificateCount();
+            return ledger.getCertificateCount();
         } catch(Exception e) {
             e.printStackTrace();
             return -1;
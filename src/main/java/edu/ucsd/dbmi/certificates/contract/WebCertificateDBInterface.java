@@ -9,9 +9,15 @@
 package edu.ucsd.dbmi.certificates.contract;
 
 import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.beans.CertificatePage;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.beans.ComplianceReport;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 //https://www.baeldung.com/web3j
 
@@ -28,6 +34,8 @@ public interface WebCertificateDBInterface {
             byte[] pdf
     );
 
+    ArrayList<CertificateSubmissionResult> addNewCertificatesFromWeb(List<CertificateSubmission> submissions, TransactionPipeline.AckMode ackMode);
+
     ArrayList<Certificate> queryAnyFromWeb(
             String firstName,
             String lastName,
@@ -44,7 +52,27 @@ public interface WebCertificateDBInterface {
             Date endDateRangeHigh
     );
 
+    CertificatePage queryAllFromWeb(
+            String firstName,
+            String lastName,
+            String email,
+            Date endDateRangeLow,
+            Date endDateRangeHigh,
+            int offset,
+            int limit
+    );
+
+    CertificatePage getAllCertificatesFromWeb(int offset, int limit);
+
     boolean hasValidCertificateFromWeb(String researcherID);
 
+    boolean hasValidCertificateCachedFromWeb(String researcherID, Integer certificateType);
+
+    ComplianceReport checkComplianceFromWeb(List<String> emails, List<Integer> requiredTypes);
+
     byte[] getPDFBytes(int recordID) throws Exception;
+
+    PDFSliceIterator getPDFSlices(int recordID) throws Exception;
+
+    ByteBuffer getStoredPDF(int recordID) throws Exception;
 }
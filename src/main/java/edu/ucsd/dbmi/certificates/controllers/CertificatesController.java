@@ -1,10 +1,21 @@
 package edu.ucsd.dbmi.certificates.controllers;
 
-import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.beans.CertificatePage;
 import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.beans.ComplianceReport;
 import edu.ucsd.dbmi.certificates.beans.QueryParameters;
+import edu.ucsd.dbmi.certificates.contract.HashedKeyRegistry;
+import edu.ucsd.dbmi.certificates.contract.IDRegistry;
+import edu.ucsd.dbmi.certificates.contract.InMemoryCertificateLedger;
+import edu.ucsd.dbmi.certificates.contract.KeyRegistry;
+import edu.ucsd.dbmi.certificates.contract.PDFSliceIterator;
+import edu.ucsd.dbmi.certificates.contract.TransactionPipeline;
 import edu.ucsd.dbmi.certificates.contract.WebCertificateDB;
-import edu.ucsd.dbmi.certificates.utils.CertificateUtils;
+import edu.ucsd.dbmi.certificates.storage.FileSystemBlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -12,21 +23,54 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Iterator;
+import java.util.*;
 
 @Controller
 @SessionAttributes({"certificateSubmission", "queryParameters"})
 public class CertificatesController {
 
+    //The number of search results shown per page, and the most that can be asked for with the limit parameter
+    private final static int DEFAULT_PAGE_SIZE = 25;
+    private final static int MAX_PAGE_SIZE = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(CertificatesController.class);
+
     WebCertificateDB webDB;
 
+    //Directory to keep certificate PDFs in off-chain, or empty to store them on the chain
+    @Value("${certificates.blob-store.path:}")
+    String blobStorePath;
+
+    //How the numeric keys of emails and names are assigned: "sequential" keeps them in an ID registry, "hashed" derives them from the strings
+    @Value("${certificates.keys:sequential}")
+    String keyMode;
+
+    //File to keep sequentially assigned keys in across restarts, or empty to keep them in memory only
+    @Value("${certificates.id-registry.path:}")
+    String idRegistryPath;
+
+    @Value("${certificates.ledger:chain}")
+    String ledgerMode;
+
+    //Address of an already deployed CertificateDB contract to keep using, or empty to deploy a new one on startup
+    @Value("${certificates.contract.address:}")
+    String contractAddress;
+
     //==============================================================================
 
     @ModelAttribute("certificateTypeAllValues")
@@ -45,9 +89,38 @@ public class CertificatesController {
 
     //==============================================================================
 
+    //Only used if /search-results is paged through before a search has been made in this session, in which case every certificate is listed
+    @ModelAttribute("queryParameters")
+    public QueryParameters queryParameters() {
+        return new QueryParameters("", "", "", "", "");
+    }
+
+    //==============================================================================
+
     @PostConstruct
-    public void init() {
-        webDB = new WebCertificateDB();
+    public void init() throws IOException {
+        KeyRegistry keys;
+
+        if(keyMode.equals("hashed")) {
+            keys = new HashedKeyRegistry();
+        }
+        else {
+            keys = idRegistryPath.isEmpty() ? new IDRegistry() : new IDRegistry(Paths.get(idRegistryPath));
+        }
+
+        if(ledgerMode.equals("memory")) {
+            webDB = new WebCertificateDB(new InMemoryCertificateLedger(), keys);
+        }
+        else if(!contractAddress.isEmpty()) {
+            webDB = new WebCertificateDB(contractAddress, keys);
+        }
+        else {
+            webDB = new WebCertificateDB(keys);
+        }
+
+        if(!blobStorePath.isEmpty()) {
+            webDB.setBlobStore(new FileSystemBlobStore(Paths.get(blobStorePath)));
+        }
     }
 
     //==============================================================================
@@ -135,6 +208,77 @@ public class CertificatesController {
 
     //==============================================================================
 
+    /**
+     * Adds a whole cohort of certificates at once
+     * The manifest is a CSV file with one certificate per line in the form
+     * email,firstName,lastName,certificateType,recordID,courseName,endDate(yyyy-MM-dd),pdfFilename
+     * where pdfFilename names one of the uploaded PDFs. A header line starting with "email" is skipped.
+     */
+
+    @PostMapping("/submit-batch")
+    @ResponseBody
+    public ResponseEntity<List<CertificateSubmissionResult>> submit_batch(
+            @RequestParam("manifest") MultipartFile manifest,
+            @RequestParam("pdfs") MultipartFile[] pdfs,
+            @RequestParam(value = "confirm", defaultValue = "false") boolean confirm
+    ) {
+
+        List<CertificateSubmission> submissions;
+
+        try {
+            submissions = parseBatchManifest(manifest, pdfs);
+        } catch(Exception e) {
+            e.printStackTrace();
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return new ResponseEntity<>(webDB.addNewCertificatesFromWeb(submissions, confirm ? TransactionPipeline.AckMode.CONFIRMED : TransactionPipeline.AckMode.FAST), HttpStatus.OK);
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks a roster of researchers for valid certificates, given as a JSON list of emails
+     * The types parameter lists the certificate types every researcher needs (CITI and/or HIPAA); if it is left out, a certificate of any type will do.
+     */
+
+    @PostMapping(value = "/compliance", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<ComplianceReport> compliance(
+            @RequestBody List<String> emails,
+            @RequestParam(value = "types", required = false) List<String> types
+    ) {
+        return checkCompliance(emails, types);
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks a roster of researchers for valid certificates, given as an uploaded CSV file with an email at the start of each line
+     * A header line starting with "email" is skipped, and any other columns are ignored.
+     */
+
+    @PostMapping(value = "/compliance", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @ResponseBody
+    public ResponseEntity<ComplianceReport> compliance_roster(
+            @RequestParam("roster") MultipartFile roster,
+            @RequestParam(value = "types", required = false) List<String> types
+    ) {
+
+        List<String> emails;
+
+        try {
+            emails = parseRoster(roster);
+        } catch(IOException e) {
+            e.printStackTrace();
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return checkCompliance(emails, types);
+    }
+
+    //==============================================================================
+
     @GetMapping("/search")
     public String search_form(Model model) {
         model.addAttribute("queryParameters", new QueryParameters());
@@ -148,8 +292,25 @@ public class CertificatesController {
             Model model,
             @ModelAttribute("queryParameters") QueryParameters queryParameters
     ) {
-        ArrayList<Certificate> result = queryFromQueryParameters(queryParameters);
-        model.addAttribute("result", result);
+        return search_results_page(model, queryParameters, 0, DEFAULT_PAGE_SIZE);
+    }
+
+    //==============================================================================
+
+    //Pages through the results of the last search in this session, which is kept in the session by @SessionAttributes
+    @GetMapping("/search-results")
+    public String search_results_page(
+            Model model,
+            @ModelAttribute("queryParameters") QueryParameters queryParameters,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit
+    ) {
+        offset = Math.max(0, offset);
+        limit = Math.min(Math.max(1, limit), MAX_PAGE_SIZE);
+
+        CertificatePage page = queryFromQueryParameters(queryParameters, offset, limit);
+        model.addAttribute("page", page);
+        model.addAttribute("result", page == null ? null : page.getCertificates());
         return "search-results";
     }
 
@@ -157,14 +318,24 @@ public class CertificatesController {
 
     @RequestMapping(value = "/search-results/{recordID}", method = RequestMethod.GET)
     @ResponseBody
-    public ResponseEntity<byte[]> getFile(@PathVariable("recordID") String recordID) {
+    public ResponseEntity<StreamingResponseBody> getFile(@PathVariable("recordID") String recordID) {
 
-        byte[] temp = null;
+        ByteBuffer stored;
+        PDFSliceIterator slices = null;
 
         try {
-            temp = webDB.getPDFBytes(Integer.parseInt(recordID));
+            stored = webDB.getStoredPDF(Integer.parseInt(recordID));
+
+            if(stored == null) {
+                slices = webDB.getPDFSlices(Integer.parseInt(recordID));
+            }
         } catch(Exception e) {
             e.printStackTrace();
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        if(stored == null && !slices.hasNext()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
         HttpHeaders headers = new HttpHeaders();
@@ -172,15 +343,152 @@ public class CertificatesController {
         String filename = "certificate_" + recordID + ".pdf";
         headers.setContentDispositionFormData(filename, filename);
         headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-        ResponseEntity<byte[]> response = new ResponseEntity<>(temp, headers, HttpStatus.OK);
-        return response;
+
+        //PDFs in the blob store are written straight from the mapped file
+        if(stored != null) {
+            headers.setContentLength(stored.remaining());
+
+            StreamingResponseBody body = outputStream -> {
+                WritableByteChannel channel = Channels.newChannel(outputStream);
+
+                while(stored.hasRemaining()) {
+                    channel.write(stored);
+                }
+            };
+
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+
+        PDFSliceIterator chainSlices = slices;
+
+        //Write each slice to the client as soon as it arrives from the chain instead of assembling the whole PDF first
+        //Closing the iterator cancels the prefetched slices if the client disconnects or a slice fails, so nothing more is read from the chain
+        StreamingResponseBody body = outputStream -> {
+            try(PDFSliceIterator iterator = chainSlices) {
+                while(iterator.hasNext()) {
+                    outputStream.write(iterator.next());
+                    outputStream.flush();
+                }
+            }
+        };
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     //==============================================================================
     // PRIVATE METHODS
     //==============================================================================
 
-    private ArrayList<Certificate> queryFromQueryParameters(QueryParameters queryParameters) {
+    private List<CertificateSubmission> parseBatchManifest(MultipartFile manifest, MultipartFile[] pdfs) throws IOException, ParseException {
+
+        //Index the uploaded PDFs by filename so each manifest line can find its own
+        Map<String, MultipartFile> pdfsByFilename = new HashMap<>();
+        for(MultipartFile pdf : pdfs) {
+            pdfsByFilename.put(pdf.getOriginalFilename(), pdf);
+        }
+
+        DateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+        List<CertificateSubmission> submissions = new ArrayList<>();
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(manifest.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+
+            while((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if(line.trim().isEmpty() || line.startsWith("email")) {
+                    continue;
+                }
+
+                String[] fields = line.split(",", -1);
+
+                if(fields.length != 8) {
+                    throw new ParseException("Expected 8 fields but found " + fields.length + " on line " + lineNumber, lineNumber);
+                }
+
+                MultipartFile pdf = pdfsByFilename.get(fields[7].trim());
+
+                if(pdf == null) {
+                    throw new ParseException("No PDF named " + fields[7].trim() + " was uploaded for line " + lineNumber, lineNumber);
+                }
+
+                //Normalize the same way a single submission is normalized in submit_attempt()
+                CertificateSubmission submission = new CertificateSubmission(
+                    fields[0].trim().toLowerCase(),
+                    fields[1].trim().toUpperCase(),
+                    fields[2].trim().toUpperCase(),
+                    CertificateSubmission.CertificateType.valueOf(fields[3].trim().toUpperCase()),
+                    Integer.parseInt(fields[4].trim()),
+                    fields[5].trim(),
+                    df.parse(fields[6].trim()),
+                    pdf
+                );
+                submission.setPdfBytes(pdf.getBytes());
+
+                submissions.add(submission);
+            }
+        }
+
+        return submissions;
+    }
+
+    //==============================================================================
+
+    private List<String> parseRoster(MultipartFile roster) throws IOException {
+        List<String> emails = new ArrayList<>();
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(roster.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+
+            while((line = reader.readLine()) != null) {
+                if(line.trim().isEmpty() || line.startsWith("email")) {
+                    continue;
+                }
+
+                emails.add(line.split(",", -1)[0]);
+            }
+        }
+
+        return emails;
+    }
+
+    //==============================================================================
+
+    private ResponseEntity<ComplianceReport> checkCompliance(List<String> emails, List<String> types) {
+        List<String> normalizedEmails = new ArrayList<>(emails.size());
+        List<Integer> requiredTypes = new ArrayList<>();
+
+        //Normalize the same way a submission is normalized in submit_attempt(), so that emails match the ones on the chain
+        for(String email : emails) {
+            normalizedEmails.add(email.trim().toLowerCase());
+        }
+
+        if(types != null) {
+            for(String type : types) {
+                try {
+                    requiredTypes.add(CertificateSubmission.CertificateType.valueOf(type.trim().toUpperCase()).ordinal());
+                } catch(IllegalArgumentException e) {
+                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+                }
+            }
+        }
+
+        ComplianceReport report = webDB.checkComplianceFromWeb(normalizedEmails, requiredTypes);
+
+        if(report == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        log.debug("Checked {} researchers from the {} in {} ms ({} researchers/second)",
+            report.getResearcherCount(), report.getSource(), report.getElapsedMillis(), (long) report.getResearchersPerSecond());
+
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    //==============================================================================
+
+    private CertificatePage queryFromQueryParameters(QueryParameters queryParameters, int offset, int limit) {
 
         boolean emailIsEmpty = queryParameters.getEmail().equals("");
         boolean firstNameIsEmpty = queryParameters.getFirstName().equals("");
@@ -190,10 +498,8 @@ public class CertificatesController {
 
         // If all of the fields are empty, return everything in the database
         if(emailIsEmpty && firstNameIsEmpty && lastNameIsEmpty && lowDateIsEmpty && highDateIsEmpty) {
-            CertificateUtils.debugOut("Getting all certificates...");
-            CertificateUtils.debugVarOut("getCertificateCount()", webDB.getCertificateCount());
-            System.out.println();
-            return webDB.getAllCertificates();
+            log.debug("Getting all certificates...");
+            return webDB.getAllCertificatesFromWeb(offset, limit);
         }
 
         // Otherwise, search according to the parameters
@@ -221,42 +527,20 @@ public class CertificatesController {
             }
         }
 
-        //TODO: For some reason, dates earlier than 11/02/2020 have a good chance breaking the search function.
-        // Because of this, I have made the last-minute decision to do some extra date handling in Java.
-        // There is probably a nicer way of doing this, because now it is awkwardly split between the Solidity contract and this piece of code.
-
-        //If all of the fields are empty except the date fields, just handle the dates manually in Java...
-        if(firstNameIsEmpty && lastNameIsEmpty && emailIsEmpty && !lowDateIsEmpty && !highDateIsEmpty) {
-
-            ArrayList<Certificate> certificates = webDB.getAllCertificates();
-            Iterator<Certificate> iter = certificates.iterator();
-
-            while(iter.hasNext()) {
-                Certificate temp = iter.next();
-
-                if(!rangeLow.before(temp.getEndDate())) {
-                    iter.remove();
-                }
-                else if(rangeHigh.before(temp.getEndDate())) {
-                    iter.remove();
-                }
-            }
-
-            return certificates;
-        }
-
         //TODO: These might actually never evaluate to true, but I don't have time to check at the moment
         // If you are a future student or intern and these look like gibberish to you, search for "Java ternary operator"
         String firstName = queryParameters.getFirstName() == (null) ? "" : queryParameters.getFirstName();
         String lastName = queryParameters.getLastName() == (null) ? "" : queryParameters.getLastName();
         String email = queryParameters.getEmail() == (null) ? "" : queryParameters.getEmail();
 
-        ArrayList<Certificate> result = webDB.queryAllFromWeb(
+        CertificatePage result = webDB.queryAllFromWeb(
                 firstName.toUpperCase(),
                 lastName.toUpperCase(),
                 email.toLowerCase(),
                 rangeLow,
-                rangeHigh
+                rangeHigh,
+                offset,
+                limit
         );
 
         return result;
@@ -0,0 +1,273 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.contract.TransactionPipeline;
+import edu.ucsd.dbmi.certificates.contract.WebCertificateDB;
+import edu.ucsd.dbmi.certificates.contract.WebCertificateDBInterface;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates synthetic certificates for experiments, deterministically from a seed.
+ *
+ * Certificate i is generated from the seed and i alone, so the same settings always produce the same dataset, in any order and in any
+ * number of pieces. Certificates belong to a fixed population of researchers, and each researcher's names are also generated from the
+ * seed, so a researcher keeps the same names and email across all of their certificates. Names are drawn from a NameSampler with a
+ * Zipfian distribution, so common names are shared by many researchers the way they are in real data.
+ *
+ * The dataset can be written to a batch manifest (the CSV format that /submit-batch accepts) or added straight into any WebCertificateDB.
+ * Everything is configured in a properties file (see scripts/dataset.properties) passed as the only argument.
+ */
+
+public class DatasetGenerator {
+
+    public static final String ANSI_RESET = "\u001B[0m";
+    public static final String ANSI_GREEN = "\u001B[32m";
+    public static final String ANSI_YELLOW = "\u001B[33m";
+    public static final String ANSI_CYAN = "\u001B[36m";
+
+    private final static String TAG_DATASET = ANSI_GREEN + "[DATASET] " + ANSI_RESET;
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    private final static String[] COURSE_NAMES = {
+        "Intro Course 1", "Basic Course 2", "Beginner Course 3", "Novice Course 4", "Intermediate Course 5",
+        "Advanced Course 6", "Expert Course 7", "World Class Course 8", "Galactic Leader Course 9", "Universal Master Course 10"
+    };
+
+    //The file name that every certificate in a manifest refers to, so the manifest is uploaded along with one PDF of this name
+    private final static String MANIFEST_PDF_NAME = "certificate.pdf";
+
+    //Mixed into the seed so that researcher streams and certificate streams never start from the same state
+    private final static long RESEARCHER_STREAM = 0x5DEECE66DL;
+
+    private final NameSampler names;
+    private final long seed;
+    private final int researchers;
+    private final int firstRecordID;
+    private final long firstEndDateMillis;
+    private final int endDateDays;
+    private final byte[] pdf;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a dataset generator
+     * @param names The names to draw researchers' first and last names from
+     * @param seed The seed that the whole dataset is generated from
+     * @param researchers The number of researchers that certificates are spread across
+     * @param firstRecordID The record ID of certificate 0. Certificate i gets firstRecordID + i.
+     * @param firstEndDate The earliest end date a certificate can have
+     * @param endDateDays The number of days after firstEndDate that end dates are spread across
+     * @param pdf The PDF attached to every certificate, or null for none
+     */
+
+    public DatasetGenerator(NameSampler names, long seed, int researchers, int firstRecordID, Date firstEndDate, int endDateDays, byte[] pdf) {
+
+        if(researchers < 1 || endDateDays < 1) {
+            throw new IllegalArgumentException("There must be at least one researcher and one day of end dates");
+        }
+
+        this.names = names;
+        this.seed = seed;
+        this.researchers = researchers;
+        this.firstRecordID = firstRecordID;
+        this.firstEndDateMillis = firstEndDate.getTime();
+        this.endDateDays = endDateDays;
+        this.pdf = pdf;
+    }
+
+    //==============================================================================
+    // MAIN METHOD
+    //==============================================================================
+
+    public static void main(String[] args) throws Exception {
+        Properties config = new Properties();
+
+        if(args.length > 0) {
+            try(InputStream in = new FileInputStream(args[0])) {
+                config.load(in);
+            }
+        }
+
+        String pdfPath = config.getProperty("pdf.path", "");
+
+        DatasetGenerator generator = new DatasetGenerator(
+            NameSampler.load(Paths.get(config.getProperty("names.path", "../src/main/resources/static/names.csv")), Double.parseDouble(config.getProperty("names.zipf.exponent", "1.0"))),
+            Long.parseLong(config.getProperty("seed", "42")),
+            Integer.parseInt(config.getProperty("researchers", "100000")),
+            Integer.parseInt(config.getProperty("first.record.id", "2000000")),
+            new SimpleDateFormat("yyyy-MM-dd").parse(config.getProperty("end.date.from", "2020-01-01")),
+            Integer.parseInt(config.getProperty("end.date.days", "1095")),
+            pdfPath.isEmpty() ? null : Files.readAllBytes(Paths.get(pdfPath))
+        );
+
+        long count = Long.parseLong(config.getProperty("count", "1000000"));
+        String output = config.getProperty("output", "manifest");
+        long start = System.nanoTime();
+
+        switch(output) {
+            case "manifest":
+                Path path = Paths.get(config.getProperty("manifest.path", "dataset.csv"));
+                generator.writeManifest(path, count);
+                System.out.println(TAG_DATASET + ANSI_CYAN + "Wrote " + ANSI_YELLOW + count + ANSI_CYAN + " certificates to " + ANSI_YELLOW + path + ANSI_RESET);
+                break;
+            case "chain":
+                String address = config.getProperty("chain.address", "");
+                WebCertificateDB webDB = address.isEmpty() ? new WebCertificateDB() : new WebCertificateDB(address);
+                long added = generator.load(webDB, count, Integer.parseInt(config.getProperty("batch.size", "100")), TransactionPipeline.AckMode.CONFIRMED);
+                System.out.println(TAG_DATASET + ANSI_CYAN + "Added " + ANSI_YELLOW + added + ANSI_CYAN + " of " + ANSI_YELLOW + count + ANSI_CYAN + " certificates to the chain" + ANSI_RESET);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown output " + output + ", expected manifest or chain");
+        }
+
+        System.out.println(TAG_DATASET + ANSI_CYAN + "Took " + ANSI_YELLOW + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms" + ANSI_RESET);
+
+        //The chain's background threads would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Scrambles a value with the SplitMix64 finalizer, so that neighbouring indices give unrelated seeds
+     */
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns the random number generator that certificate or researcher i is generated from
+     */
+
+    private Random stream(long stream, long i) {
+        return new Random(mix(seed ^ mix(stream + i)));
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Generates one certificate of the dataset. Names and emails are normalized the way the web forms normalize them.
+     * @param index The position of the certificate in the dataset
+     * @return Returns the certificate, which is the same every time it is generated with the same settings
+     */
+
+    public CertificateSubmission generate(long index) {
+
+        if(index < 0 || firstRecordID + index > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Certificate " + index + " has no record ID starting from " + firstRecordID);
+        }
+
+        Random random = stream(0, index);
+        int researcher = random.nextInt(researchers);
+
+        Random researcherRandom = stream(RESEARCHER_STREAM, researcher);
+        String firstName = names.zipfian(researcherRandom).toUpperCase(Locale.ROOT);
+        String lastName = names.zipfian(researcherRandom).toUpperCase(Locale.ROOT);
+
+        //The researcher number keeps emails unique even when two researchers share both names
+        String email = (firstName + "." + lastName + researcher + "@ucsd.edu").toLowerCase(Locale.ROOT);
+
+        CertificateSubmission submission = new CertificateSubmission(
+            email,
+            firstName,
+            lastName,
+            CertificateSubmission.CertificateType.values()[random.nextInt(CertificateSubmission.CertificateType.values().length)],
+            (int) (firstRecordID + index),
+            COURSE_NAMES[random.nextInt(COURSE_NAMES.length)],
+            new Date(firstEndDateMillis + TimeUnit.DAYS.toMillis(random.nextInt(endDateDays))),
+            null
+        );
+        submission.setPdfBytes(pdf == null ? new byte[0] : pdf);
+
+        return submission;
+    }
+
+    //==============================================================================
+
+    /**
+     * Writes certificates 0 to count - 1 to a batch manifest, which /submit-batch accepts along with a PDF named certificate.pdf
+     * @param path The file to write
+     * @param count The number of certificates to write
+     * @throws IOException Throws an IOException if the file cannot be written
+     */
+
+    public void writeManifest(Path path, long count) throws IOException {
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+
+        try(BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("email,firstName,lastName,certificateType,recordID,courseName,endDate,pdf\n");
+
+            for(long i = 0; i < count; i++) {
+                CertificateSubmission certificate = generate(i);
+
+                out.write(certificate.getEmail() + "," + certificate.getFirstName() + "," + certificate.getLastName() + ","
+                          + certificate.getCertificateType() + "," + certificate.getRecordID() + "," + certificate.getCourseName() + ","
+                          + df.format(certificate.getEndDate()) + "," + MANIFEST_PDF_NAME + "\n");
+            }
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Adds certificates 0 to count - 1 to a database, in batches
+     * @param webDB The database to add the certificates to, on whichever ledger it uses
+     * @param count The number of certificates to add
+     * @param batchSize The number of certificates submitted with each call to addNewCertificatesFromWeb()
+     * @param ackMode Whether each batch waits for its certificates to be confirmed before the next is submitted
+     * @return Returns the number of certificates that were accepted
+     */
+
+    public long load(WebCertificateDBInterface webDB, long count, int batchSize, TransactionPipeline.AckMode ackMode) {
+        long accepted = 0;
+
+        for(long start = 0; start < count; start += batchSize) {
+            List<CertificateSubmission> batch = new ArrayList<>(batchSize);
+
+            for(long i = start; i < Math.min(start + batchSize, count); i++) {
+                batch.add(generate(i));
+            }
+
+            for(CertificateSubmissionResult result : webDB.addNewCertificatesFromWeb(batch, ackMode)) {
+                if(result.getStatus() != CertificateSubmissionResult.Status.FAILED) {
+                    accepted++;
+                }
+            }
+
+            System.out.println(TAG_DATASET + ANSI_CYAN + "Added " + ANSI_YELLOW + accepted + ANSI_CYAN + " of " + ANSI_YELLOW + count + ANSI_CYAN + " certificates" + ANSI_RESET);
+        }
+
+        return accepted;
+    }
+}
@@ -0,0 +1,267 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs load against the web app over HTTP, through the same endpoints that the browser and batch clients use.
+ * Logs in once with the form login and shares that session (and its CSRF token) between every thread, the way one busy client would.
+ * Redirects are not followed, so a request that gets sent back to the login page counts as an error instead of as a fast success.
+ */
+
+public class HttpLoadTarget implements LoadTarget {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The hidden input that Spring Security adds to every form rendered by Thymeleaf
+    private final static Pattern CSRF_INPUT = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    private final static int TIMEOUT_MILLIS = 60000;
+
+    //Certificates submitted by the load generator expire a year after they are submitted, so they count as valid for the whole run
+    private final static long CERTIFICATE_LIFETIME_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+    private final String baseURL;
+
+    private volatile String sessionCookie;
+    private volatile String csrfToken;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Logs in to the web app
+     * @param baseURL The URL the web app is served at, such as http://localhost:8080
+     * @param username The user to log in as
+     * @param password The password of the user
+     * @throws IOException Throws an IOException if the web app cannot be reached or the login is rejected
+     */
+
+    public HttpLoadTarget(String baseURL, String username, String password) throws IOException {
+        this.baseURL = baseURL.endsWith("/") ? baseURL.substring(0, baseURL.length() - 1) : baseURL;
+
+        refreshCSRFToken("/login");
+
+        HttpURLConnection login = open("POST", "/login");
+        login.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        writeBody(login, ("username=" + encode(username) + "&password=" + encode(password) + "&_csrf=" + encode(csrfToken)).getBytes(StandardCharsets.UTF_8));
+
+        String location = login.getHeaderField("Location");
+        keepSession(login);
+        login.disconnect();
+
+        if(location == null || location.contains("/login")) {
+            throw new IOException("Login to " + this.baseURL + " as " + username + " was rejected");
+        }
+
+        //Spring Security issues a new CSRF token when the session logs in
+        refreshCSRFToken("/search");
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, "UTF-8");
+    }
+
+    //==============================================================================
+
+    /**
+     * Opens a connection to a path on the web app, carrying the session cookie if there is one
+     */
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseURL + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setInstanceFollowRedirects(false);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+
+        if(sessionCookie != null) {
+            connection.setRequestProperty("Cookie", sessionCookie);
+        }
+
+        if(csrfToken != null) {
+            connection.setRequestProperty("X-CSRF-TOKEN", csrfToken);
+        }
+
+        return connection;
+    }
+
+    //==============================================================================
+
+    private static void writeBody(HttpURLConnection connection, byte[] body) throws IOException {
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+
+        try(OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Reads the whole response, so the connection can be reused and the download is part of the measured time
+     * @return Returns the response body, or an empty array if the request failed
+     */
+
+    private static byte[] readBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        if(in == null) {
+            return body.toByteArray();
+        }
+
+        try(InputStream stream = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while((read = stream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+
+        return connection.getResponseCode() >= 400 ? new byte[0] : body.toByteArray();
+    }
+
+    //==============================================================================
+
+    /**
+     * Remembers the session cookie that a response set, if it set one
+     */
+
+    private void keepSession(HttpURLConnection connection) {
+        List<String> cookies = connection.getHeaderFields().get("Set-Cookie");
+
+        if(cookies == null) {
+            return;
+        }
+
+        for(String cookie : cookies) {
+            if(cookie.startsWith("JSESSIONID=")) {
+                sessionCookie = cookie.split(";", 2)[0];
+            }
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Loads a page with a form on it and takes the CSRF token from the form
+     */
+
+    private void refreshCSRFToken(String path) throws IOException {
+        HttpURLConnection connection = open("GET", path);
+        String page = new String(readBody(connection), StandardCharsets.UTF_8);
+        keepSession(connection);
+
+        Matcher matcher = CSRF_INPUT.matcher(page);
+
+        if(!matcher.find()) {
+            throw new IOException("No CSRF token found on " + baseURL + path);
+        }
+
+        csrfToken = matcher.group(1);
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns true if the request succeeded without being redirected
+     */
+
+    private static boolean succeeded(HttpURLConnection connection) throws IOException {
+        return connection.getResponseCode() / 100 == 2;
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Submits the certificate as a batch of one through /submit-batch, which only waits for the transaction to be mined if asked to
+     */
+
+    @Override
+    public boolean submit(String email, String firstName, String lastName, int recordID, byte[] pdf, boolean confirmed) throws IOException {
+        String boundary = UUID.randomUUID().toString();
+        String endDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date(System.currentTimeMillis() + CERTIFICATE_LIFETIME_MILLIS));
+        String manifest = email + "," + firstName + "," + lastName + ",CITI," + recordID + ",Load Test," + endDate + ",certificate.pdf\n";
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"manifest\"; filename=\"manifest.csv\"\r\n"
+            + "Content-Type: text/csv\r\n\r\n"
+            + manifest + "\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"pdfs\"; filename=\"certificate.pdf\"\r\n"
+            + "Content-Type: application/pdf\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(pdf);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpURLConnection connection = open("POST", "/submit-batch?confirm=" + confirmed);
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        writeBody(connection, body.toByteArray());
+
+        String response = new String(readBody(connection), StandardCharsets.UTF_8);
+
+        return succeeded(connection) && !response.contains("\"FAILED\"");
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean search(String email) throws IOException {
+        HttpURLConnection connection = open("POST", "/search-results");
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        writeBody(connection, ("firstName=&lastName=&email=" + encode(email) + "&endDateRangeLow=&endDateRangeHigh=&_csrf=" + encode(csrfToken)).getBytes(StandardCharsets.UTF_8));
+        readBody(connection);
+
+        return succeeded(connection);
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean downloadPDF(int recordID) throws IOException {
+        HttpURLConnection connection = open("GET", "/search-results/" + recordID);
+        byte[] pdf = readBody(connection);
+
+        return succeeded(connection) && pdf.length > 0;
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks the researcher through /compliance, as a roster of one
+     */
+
+    @Override
+    public boolean checkValidity(String email) throws IOException {
+        HttpURLConnection connection = open("POST", "/compliance");
+        connection.setRequestProperty("Content-Type", "application/json");
+        writeBody(connection, ("[\"" + email.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]").getBytes(StandardCharsets.UTF_8));
+        readBody(connection);
+
+        return succeeded(connection);
+    }
+}
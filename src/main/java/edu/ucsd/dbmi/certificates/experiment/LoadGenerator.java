@@ -0,0 +1,459 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import edu.ucsd.dbmi.certificates.contract.IDRegistry;
+import edu.ucsd.dbmi.certificates.contract.InMemoryCertificateLedger;
+import edu.ucsd.dbmi.certificates.contract.WebCertificateDB;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a mix of concurrent submitters, searchers, PDF downloaders and validity checkers against the web app or a WebCertificateDB,
+ * and records latency percentiles, throughput and error rates for each type of operation.
+ *
+ * Load is open-loop: operations arrive at a fixed average rate (as a Poisson process) whether or not earlier ones have finished, the way
+ * real users do. Latency is measured from when each operation was due to start, so time spent waiting behind slow operations counts
+ * against the system instead of quietly lowering the offered load.
+ *
+ * Before the run, a population of researchers is each given one confirmed certificate. Searches, downloads and validity checks pick
+ * from that population, so they always have something to find, and submissions add renewals for it with new record IDs.
+ *
+ * Everything is configured in a properties file (see scripts/loadgen.properties) passed as the only argument. The results of each run
+ * are written to their own directory: summary.csv with one line per type of operation, and a .hgrm percentile distribution for each.
+ */
+
+public class LoadGenerator {
+
+    public static final String ANSI_RESET = "\u001B[0m";
+    public static final String ANSI_RED = "\u001B[31m";
+    public static final String ANSI_GREEN = "\u001B[32m";
+    public static final String ANSI_YELLOW = "\u001B[33m";
+    public static final String ANSI_CYAN = "\u001B[36m";
+
+    private final static String TAG_LOAD = ANSI_GREEN + "[LOAD] " + ANSI_RESET;
+
+    //==============================================================================
+    // DATA STRUCTURES
+    //==============================================================================
+
+    /**
+     * The types of operation that the load is made of
+     */
+
+    public enum Operation { SUBMIT, SEARCH, DOWNLOAD, VALIDITY }
+
+    //==============================================================================
+
+    /**
+     * The measurements for one type of operation
+     */
+
+    private static class OperationStats {
+
+        //Latencies in microseconds
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+        private final LongAdder issued = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+    }
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //The longest latency that can be recorded, which is one hour in microseconds. Anything longer is recorded as one hour.
+    private final static long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    //Record IDs handed out by the load generator start here, well clear of any assigned by hand
+    private final static int FIRST_RECORD_ID = 1000000;
+
+    //How long to wait for operations still in flight after the last one has been issued
+    private final static long DRAIN_TIMEOUT_SECONDS = 120;
+
+    private final LoadTarget target;
+
+    private final double rate;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final int threads;
+    private final int researchers;
+    private final byte[] pdf;
+    private final long seed;
+
+    //The chance of each operation being picked, as cumulative probabilities in Operation order
+    private final double[] cumulativeMix = new double[Operation.values().length];
+
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+
+    //The record ID of the next certificate submitted during the run. The seed certificates come before it, one per researcher.
+    private final AtomicInteger nextRecordID;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a load generator for a target
+     * @param target The target to run load against
+     * @param config The load settings, as described in scripts/loadgen.properties
+     */
+
+    public LoadGenerator(LoadTarget target, Properties config) {
+        this.target = target;
+
+        rate = Double.parseDouble(config.getProperty("rate", "50"));
+        durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(config.getProperty("duration.seconds", "60")));
+        warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(config.getProperty("warmup.seconds", "10")));
+        threads = Integer.parseInt(config.getProperty("threads", "64"));
+        researchers = Integer.parseInt(config.getProperty("researchers", "1000"));
+        seed = Long.parseLong(config.getProperty("seed", "42"));
+        nextRecordID = new AtomicInteger(FIRST_RECORD_ID + researchers);
+
+        pdf = new byte[Integer.parseInt(config.getProperty("pdf.kb", "100")) * 1024];
+        new Random(seed).nextBytes(pdf);
+
+        double total = 0;
+        for(Operation operation : Operation.values()) {
+            total += Double.parseDouble(config.getProperty("mix." + operation.name().toLowerCase(Locale.ROOT), "1"));
+            cumulativeMix[operation.ordinal()] = total;
+            stats.put(operation, new OperationStats());
+        }
+
+        if(total <= 0) {
+            throw new IllegalArgumentException("At least one operation must have a positive mix weight");
+        }
+
+        for(int i = 0; i < cumulativeMix.length; i++) {
+            cumulativeMix[i] /= total;
+        }
+    }
+
+    //==============================================================================
+    // MAIN METHOD
+    //==============================================================================
+
+    public static void main(String[] args) throws Exception {
+        Properties config = new Properties();
+
+        if(args.length > 0) {
+            try(InputStream in = new FileInputStream(args[0])) {
+                config.load(in);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(createTarget(config), config);
+
+        generator.seedResearchers();
+        generator.run();
+
+        Path resultsDir = Paths.get(config.getProperty("results.dir", "load-results"), new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+        generator.writeResults(resultsDir, config);
+        generator.printResults();
+
+        System.out.println(TAG_LOAD + ANSI_CYAN + "Results written to " + ANSI_YELLOW + resultsDir + ANSI_RESET);
+
+        //The chain's background threads would otherwise keep the JVM alive
+        System.exit(0);
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Creates the target named by the "target" setting: memory (a WebCertificateDB on an in-memory ledger), chain (a WebCertificateDB
+     * on the chain, deploying a new contract unless chain.address is set) or http (the web app at http.url)
+     */
+
+    private static LoadTarget createTarget(Properties config) throws IOException {
+        String target = config.getProperty("target", "memory");
+
+        switch(target) {
+            case "memory":
+                return new WebCertificateDBLoadTarget(new WebCertificateDB(new InMemoryCertificateLedger(), new IDRegistry()));
+            case "chain":
+                String address = config.getProperty("chain.address", "");
+                return new WebCertificateDBLoadTarget(address.isEmpty() ? new WebCertificateDB() : new WebCertificateDB(address));
+            case "http":
+                return new HttpLoadTarget(
+                    config.getProperty("http.url", "http://localhost:8080"),
+                    config.getProperty("http.username", "user"),
+                    config.getProperty("http.password", "password")
+                );
+            default:
+                throw new IllegalArgumentException("Unknown target " + target + ", expected memory, chain or http");
+        }
+    }
+
+    //==============================================================================
+
+    private static String email(int researcher) {
+        return "loadtest" + researcher + "@ucsd.edu";
+    }
+
+    //==============================================================================
+
+    /**
+     * @param random The random number generator to pick with
+     * @return Returns an operation, picked according to the mix
+     */
+
+    private Operation pick(Random random) {
+        double roll = random.nextDouble();
+
+        for(Operation operation : Operation.values()) {
+            if(roll < cumulativeMix[operation.ordinal()]) {
+                return operation;
+            }
+        }
+
+        return Operation.values()[cumulativeMix.length - 1];
+    }
+
+    //==============================================================================
+
+    /**
+     * Performs one operation against a random researcher, and records it if it is past the warmup
+     * @param operation The operation to perform
+     * @param scheduledNanos The time the operation was due to start, which its latency is measured from
+     * @param measured Whether the operation counts towards the results
+     */
+
+    private void perform(Operation operation, long scheduledNanos, boolean measured) {
+        int researcher = ThreadLocalRandom.current().nextInt(researchers);
+        boolean success;
+
+        try {
+            switch(operation) {
+                case SUBMIT:
+                    success = target.submit(email(researcher), "Load" + researcher, "Test" + researcher, nextRecordID.getAndIncrement(), pdf, false);
+                    break;
+                case SEARCH:
+                    success = target.search(email(researcher));
+                    break;
+                case DOWNLOAD:
+                    success = target.downloadPDF(FIRST_RECORD_ID + researcher);
+                    break;
+                default:
+                    success = target.checkValidity(email(researcher));
+                    break;
+            }
+        } catch(Exception e) {
+            success = false;
+        }
+
+        if(!measured) {
+            return;
+        }
+
+        OperationStats operationStats = stats.get(operation);
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduledNanos);
+
+        operationStats.latency.recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+
+        if(success) {
+            operationStats.succeeded.increment();
+        }
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * Gives every researcher in the population one certificate, waiting for each to be confirmed, so that the run has something to read
+     * @throws InterruptedException Throws an InterruptedException if interrupted while waiting for the certificates
+     */
+
+    public void seedResearchers() throws InterruptedException {
+        System.out.println(TAG_LOAD + ANSI_CYAN + "Seeding " + ANSI_YELLOW + researchers + ANSI_CYAN + " researchers..." + ANSI_RESET);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        LongAdder failures = new LongAdder();
+
+        for(int i = 0; i < researchers; i++) {
+            final int researcher = i;
+
+            workers.execute(() -> {
+                try {
+                    if(!target.submit(email(researcher), "Load" + researcher, "Test" + researcher, FIRST_RECORD_ID + researcher, pdf, true)) {
+                        failures.increment();
+                    }
+                } catch(Exception e) {
+                    failures.increment();
+                }
+            });
+        }
+
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        if(failures.sum() > 0) {
+            System.out.println(TAG_LOAD + ANSI_RED + failures.sum() + " seed certificates failed. Downloads of them will count as errors." + ANSI_RESET);
+        }
+
+        System.out.println();
+    }
+
+    //==============================================================================
+
+    /**
+     * Issues operations at the configured rate for the configured duration, then waits for the ones still in flight
+     * @throws InterruptedException Throws an InterruptedException if interrupted while issuing or waiting for operations
+     */
+
+    public void run() throws InterruptedException {
+        System.out.println(TAG_LOAD + ANSI_CYAN + "Running " + ANSI_YELLOW + rate + ANSI_CYAN + " operations per second for "
+                           + ANSI_YELLOW + TimeUnit.NANOSECONDS.toSeconds(durationNanos) + ANSI_CYAN + " seconds (after "
+                           + ANSI_YELLOW + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + ANSI_CYAN + " seconds of warmup)..." + ANSI_RESET);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        Random random = new Random(seed);
+
+        long start = System.nanoTime();
+        long end = start + warmupNanos + durationNanos;
+        long scheduled = start;
+
+        while(true) {
+
+            //Exponentially distributed gaps between arrivals make the arrivals a Poisson process
+            scheduled += (long) (-Math.log(1 - random.nextDouble()) / rate * TimeUnit.SECONDS.toNanos(1));
+
+            if(scheduled - end >= 0) {
+                break;
+            }
+
+            long wait = scheduled - System.nanoTime();
+            if(wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            final Operation operation = pick(random);
+            final long scheduledNanos = scheduled;
+            final boolean measured = scheduled - start >= warmupNanos;
+
+            if(measured) {
+                stats.get(operation).issued.increment();
+            }
+
+            workers.execute(() -> perform(operation, scheduledNanos, measured));
+        }
+
+        workers.shutdown();
+
+        if(!workers.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.out.println(TAG_LOAD + ANSI_RED + "Operations were still in flight " + DRAIN_TIMEOUT_SECONDS + " seconds after the run. They count as errors." + ANSI_RESET);
+            workers.shutdownNow();
+        }
+
+        System.out.println();
+    }
+
+    //==============================================================================
+
+    /**
+     * @param operation The type of operation
+     * @return Returns the number of operations that failed or never finished
+     */
+
+    public long getErrorCount(Operation operation) {
+        OperationStats operationStats = stats.get(operation);
+        return operationStats.issued.sum() - operationStats.succeeded.sum();
+    }
+
+    //==============================================================================
+
+    /**
+     * Writes the results of the run: summary.csv with one line per type of operation, a percentile distribution (in milliseconds) for each
+     * type of operation, and the settings the run was made with
+     * @param dir The directory to write the results to, which is created if it does not exist
+     * @param config The settings of the run
+     * @throws IOException Throws an IOException if the results cannot be written
+     */
+
+    public void writeResults(Path dir, Properties config) throws IOException {
+        Files.createDirectories(dir);
+
+        double seconds = durationNanos / (double) TimeUnit.SECONDS.toNanos(1);
+
+        try(Writer summary = Files.newBufferedWriter(dir.resolve("summary.csv"))) {
+            summary.write("operation,issued,succeeded,errors,error_rate,throughput_per_sec,mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,max_ms\n");
+
+            for(Operation operation : Operation.values()) {
+                OperationStats operationStats = stats.get(operation);
+                Histogram latency = operationStats.latency;
+                long issued = operationStats.issued.sum();
+
+                summary.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.4f,%.2f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                    operation.name().toLowerCase(Locale.ROOT),
+                    issued,
+                    operationStats.succeeded.sum(),
+                    getErrorCount(operation),
+                    issued == 0 ? 0 : getErrorCount(operation) / (double) issued,
+                    operationStats.succeeded.sum() / seconds,
+                    latency.getMean() / 1000,
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMaxValue() / 1000.0
+                ));
+            }
+        }
+
+        for(Operation operation : Operation.values()) {
+            try(PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(operation.name().toLowerCase(Locale.ROOT) + ".hgrm")))) {
+                stats.get(operation).latency.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+
+        try(Writer out = Files.newBufferedWriter(dir.resolve("config.properties"))) {
+            config.store(out, "Load generator settings");
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Prints the throughput, error rate and latency percentiles of each type of operation
+     */
+
+    public void printResults() {
+        double seconds = durationNanos / (double) TimeUnit.SECONDS.toNanos(1);
+
+        for(Operation operation : Operation.values()) {
+            OperationStats operationStats = stats.get(operation);
+            Histogram latency = operationStats.latency;
+
+            System.out.println(TAG_LOAD + ANSI_CYAN + String.format(Locale.ROOT, "%-8s", operation) + ANSI_YELLOW
+                               + String.format(Locale.ROOT, "%8.1f/s", operationStats.succeeded.sum() / seconds) + ANSI_CYAN + "  errors " + ANSI_YELLOW + getErrorCount(operation)
+                               + ANSI_CYAN + "  p50 " + ANSI_YELLOW + String.format(Locale.ROOT, "%.1f ms", latency.getValueAtPercentile(50) / 1000.0)
+                               + ANSI_CYAN + "  p99 " + ANSI_YELLOW + String.format(Locale.ROOT, "%.1f ms", latency.getValueAtPercentile(99) / 1000.0)
+                               + ANSI_CYAN + "  max " + ANSI_YELLOW + String.format(Locale.ROOT, "%.1f ms", latency.getMaxValue() / 1000.0) + ANSI_RESET);
+        }
+
+        System.out.println();
+    }
+}
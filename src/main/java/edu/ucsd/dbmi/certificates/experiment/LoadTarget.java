@@ -0,0 +1,51 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+/**
+ * Something the LoadGenerator can run operations against, either a WebCertificateDB in the same JVM or the web app over HTTP.
+ * Each method performs one operation and returns once it has completed. An operation that fails either throws or returns false,
+ * and the LoadGenerator counts both as errors.
+ */
+
+public interface LoadTarget {
+
+    /**
+     * Adds a certificate for a researcher
+     * @param email The email of the researcher
+     * @param firstName The first name of the researcher
+     * @param lastName The last name of the researcher
+     * @param recordID The unique record ID of the certificate
+     * @param pdf The PDF of the certificate
+     * @param confirmed If true, returns only once the certificate has been mined. If false, returns as soon as it has been submitted.
+     * @return Returns true if the certificate was accepted, and false if it was not
+     * @throws Exception Throws an Exception if the certificate could not be submitted
+     */
+
+    boolean submit(String email, String firstName, String lastName, int recordID, byte[] pdf, boolean confirmed) throws Exception;
+
+    /**
+     * Searches for the certificates of a researcher by email
+     * @param email The email to search for
+     * @return Returns true if the search completed
+     * @throws Exception Throws an Exception if the search could not be made
+     */
+
+    boolean search(String email) throws Exception;
+
+    /**
+     * Downloads the PDF of a certificate
+     * @param recordID The record ID of the certificate
+     * @return Returns true if the PDF was downloaded
+     * @throws Exception Throws an Exception if the PDF could not be downloaded
+     */
+
+    boolean downloadPDF(int recordID) throws Exception;
+
+    /**
+     * Checks whether a researcher has a valid certificate
+     * @param email The email of the researcher
+     * @return Returns true if the check completed, whatever its answer
+     * @throws Exception Throws an Exception if the check could not be made
+     */
+
+    boolean checkValidity(String email) throws Exception;
+}
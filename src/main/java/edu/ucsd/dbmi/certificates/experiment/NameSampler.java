@@ -0,0 +1,222 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Samples names from a names file in constant time, after reading the file once.
+ *
+ * The names file (src/main/resources/static/names.csv) lists the most popular names of each year one after another, so a name shows up
+ * once for every year it was popular. Names are ranked by how many times they show up, and sampled either uniformly or from a Zipfian
+ * distribution over that rank, which gives a realistic mix of very common and rare names. The distinct names are kept in a single byte
+ * array with an offset per name, and Zipfian samples are drawn from an alias table, so a sample costs two random numbers and one lookup.
+ */
+
+public class NameSampler {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    //Every distinct name in UTF-8, most common first, with name i stored between offsets[i] and offsets[i + 1]
+    private final byte[] names;
+    private final int[] offsets;
+
+    //Alias table for the Zipfian distribution: pick a rank uniformly, then keep it with probability[rank] or take alias[rank] instead
+    private final double[] probability;
+    private final int[] alias;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a sampler from the lines of a names file
+     * @param lines One name per line. Blank lines are skipped, and a name that appears on more lines is ranked as more common.
+     * @param exponent The exponent of the Zipfian distribution, where 0 is uniform and 1 is classic Zipf
+     */
+
+    public NameSampler(List<String> lines, double exponent) {
+
+        if(exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent cannot be negative");
+        }
+
+        //Count how many times each name appears, remembering the order they first appeared in to break ties
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> distinct = new ArrayList<>();
+
+        for(String line : lines) {
+            String name = line.trim();
+
+            if(!name.isEmpty() && counts.merge(name, 1, Integer::sum) == 1) {
+                distinct.add(name);
+            }
+        }
+
+        if(distinct.isEmpty()) {
+            throw new IllegalArgumentException("No names to sample from");
+        }
+
+        //Stable, so names that appear equally often keep the order they first appeared in
+        distinct.sort((a, b) -> Integer.compare(counts.get(b), counts.get(a)));
+
+        byte[][] encoded = new byte[distinct.size()][];
+        int length = 0;
+
+        for(int i = 0; i < encoded.length; i++) {
+            encoded[i] = distinct.get(i).getBytes(StandardCharsets.UTF_8);
+            length += encoded[i].length;
+        }
+
+        names = new byte[length];
+        offsets = new int[encoded.length + 1];
+
+        for(int i = 0; i < encoded.length; i++) {
+            System.arraycopy(encoded[i], 0, names, offsets[i], encoded[i].length);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+        }
+
+        probability = new double[encoded.length];
+        alias = new int[encoded.length];
+        buildAliasTable(exponent);
+    }
+
+    //==============================================================================
+
+    /**
+     * Reads a names file and creates a sampler from it
+     * @param path The names file, with one name per line
+     * @param exponent The exponent of the Zipfian distribution, where 0 is uniform and 1 is classic Zipf
+     * @return Returns the sampler
+     * @throws IOException Throws an IOException if the file cannot be read
+     */
+
+    public static NameSampler load(Path path, double exponent) throws IOException {
+        return new NameSampler(Files.readAllLines(path, StandardCharsets.UTF_8), exponent);
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * Builds the alias table for a Zipfian distribution over rank with Vose's method, where rank r has weight 1 / (r + 1)^exponent
+     */
+
+    private void buildAliasTable(double exponent) {
+        int size = probability.length;
+        double[] scaled = new double[size];
+        double total = 0;
+
+        for(int i = 0; i < size; i++) {
+            scaled[i] = 1 / Math.pow(i + 1, exponent);
+            total += scaled[i];
+        }
+
+        //Scale the weights so they average 1, then pair each rank below 1 with one above 1 that tops it up
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for(int i = 0; i < size; i++) {
+            scaled[i] = scaled[i] * size / total;
+
+            if(scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while(smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = scaled[less];
+            alias[less] = more;
+
+            scaled[more] = scaled[more] + scaled[less] - 1;
+
+            if(scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        //Whatever is left is 1 apart from rounding error
+        while(largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+
+        while(smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    /**
+     * @return Returns the number of distinct names
+     */
+
+    public int size() {
+        return probability.length;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param rank The rank of the name, where 0 is the most common
+     * @return Returns the name at the rank
+     */
+
+    public String get(int rank) {
+        return new String(names, offsets[rank], offsets[rank + 1] - offsets[rank], StandardCharsets.UTF_8);
+    }
+
+    //==============================================================================
+
+    /**
+     * @param random The random number generator to sample with
+     * @return Returns the rank of a name drawn from the Zipfian distribution
+     */
+
+    public int zipfianRank(Random random) {
+        int rank = random.nextInt(probability.length);
+        return random.nextDouble() < probability[rank] ? rank : alias[rank];
+    }
+
+    //==============================================================================
+
+    /**
+     * @param random The random number generator to sample with
+     * @return Returns a name drawn from the Zipfian distribution, so common names come up far more often than rare ones
+     */
+
+    public String zipfian(Random random) {
+        return get(zipfianRank(random));
+    }
+
+    //==============================================================================
+
+    /**
+     * @param random The random number generator to sample with
+     * @return Returns a name drawn uniformly from the distinct names
+     */
+
+    public String uniform(Random random) {
+        return get(random.nextInt(probability.length));
+    }
+}
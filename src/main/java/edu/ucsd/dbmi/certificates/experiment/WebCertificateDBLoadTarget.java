@@ -0,0 +1,68 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.contract.TransactionPipeline;
+import edu.ucsd.dbmi.certificates.contract.WebCertificateDBInterface;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Runs load against a WebCertificateDB in the same JVM, which leaves out the web layer and measures the database, its index and its caches
+ */
+
+public class WebCertificateDBLoadTarget implements LoadTarget {
+
+    //Certificates submitted by the load generator expire a year after they are submitted, so they count as valid for the whole run
+    private final static long CERTIFICATE_LIFETIME_MILLIS = 365L * 24 * 60 * 60 * 1000;
+
+    private final WebCertificateDBInterface webDB;
+
+    //==============================================================================
+
+    /**
+     * @param webDB The database to run load against
+     */
+
+    public WebCertificateDBLoadTarget(WebCertificateDBInterface webDB) {
+        this.webDB = webDB;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean submit(String email, String firstName, String lastName, int recordID, byte[] pdf, boolean confirmed) {
+        Date endDate = new Date(System.currentTimeMillis() + CERTIFICATE_LIFETIME_MILLIS);
+
+        CertificateSubmission submission = new CertificateSubmission(email, firstName, lastName, CertificateSubmission.CertificateType.CITI, recordID, "Load Test", endDate, null);
+        submission.setPdfBytes(pdf);
+
+        List<CertificateSubmissionResult> results = webDB.addNewCertificatesFromWeb(Collections.singletonList(submission), confirmed ? TransactionPipeline.AckMode.CONFIRMED : TransactionPipeline.AckMode.FAST);
+
+        return results.get(0).getStatus() != CertificateSubmissionResult.Status.FAILED;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean search(String email) {
+        return webDB.queryAllFromWeb("", "", email, null, null, 0, 100) != null;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean downloadPDF(int recordID) throws Exception {
+        return webDB.getPDFBytes(recordID).length > 0;
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean checkValidity(String email) {
+        webDB.hasValidCertificateCachedFromWeb(email, null);
+        return true;
+    }
+}
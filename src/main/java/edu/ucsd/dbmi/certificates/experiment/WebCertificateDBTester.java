@@ -1,18 +1,28 @@
 package edu.ucsd.dbmi.certificates.experiment;
 
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmission;
+import edu.ucsd.dbmi.certificates.beans.CertificateSubmissionResult;
+import edu.ucsd.dbmi.certificates.contract.CertificateDB;
+import edu.ucsd.dbmi.certificates.contract.GasMeter;
+import edu.ucsd.dbmi.certificates.contract.IDRegistry;
+import edu.ucsd.dbmi.certificates.contract.InMemoryCertificateLedger;
+import edu.ucsd.dbmi.certificates.contract.PDFCodec;
+import edu.ucsd.dbmi.certificates.contract.TransactionPipeline;
 import edu.ucsd.dbmi.certificates.contract.WebCertificateDB;
+import edu.ucsd.dbmi.certificates.storage.FileSystemBlobStore;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.TimeZone;
 
 public class WebCertificateDBTester {
@@ -37,10 +47,39 @@ public class WebCertificateDBTester {
 	private final static int NUM_TO_ADD = 100;
 	private final static int ADD_INCREMENT = 1;
 	private final static boolean PDF_ENABLED = true;
+	private final static String PDF_PATH = "/home/jtellew/dbmi-19/src/main/resources/static/Jeff_Tellew_CITI_Certificate_Basic.pdf";
+	private final static String NAMES_PATH = "/home/jtellew/dbmi-19/src/main/resources/static/names.csv";
+
+	//How strongly names are skewed towards the most common ones, where 0 picks every name equally often
+	private final static double NAMES_ZIPF_EXPONENT = 1.0;
+
+	//If true, PDFs are compressed before they are sliced and stored on the chain
+	private final static boolean COMPRESSION_ENABLED = true;
+
+	//If set, PDFs are stored off-chain in this directory and only their hash and length go on the chain
+	private final static String BLOB_STORE_PATH = null;
+
+	//If true, each increment is added with a single call to addNewCertificatesFromWeb() instead of one call per certificate
+	private final static boolean BATCH_ENABLED = false;
+
+	//CONFIRMED only counts a certificate as added once its transactions have been mined, FAST counts it as soon as the node accepts them
+	private final static TransactionPipeline.AckMode ACK_MODE = TransactionPipeline.AckMode.CONFIRMED;
+
+	//The maximum number of transactions that may be waiting to be mined at once
+	private final static int TRANSACTION_WINDOW = 64;
+
+	//If true, certificates are added to an in-memory ledger instead of the chain, which measures the app itself without waiting on a node
+	private final static boolean IN_MEMORY_LEDGER = false;
 
 	private static String resultFilePath;
 	private static WebCertificateDB webDB;
 
+	private static final Random random = new Random();
+	private static NameSampler names;
+
+	//The most recently added certificate, which the gas of view queries is estimated against
+	private static CertificateSubmission lastSubmission;
+
 	//==============================================================================
     // MAIN METHOD
     //==============================================================================
@@ -50,6 +89,10 @@ public class WebCertificateDBTester {
 		//Initialize the WebCertificateDBTester and generate test file for output
 		init();
 
+		if(PDF_ENABLED) {
+			printCompressionRatio();
+		}
+
 		try {
 			Path path = Paths.get(resultFilePath);
 
@@ -57,10 +100,14 @@ public class WebCertificateDBTester {
 			long endTime;
 
 			for(int certificatesAdded = 0; certificatesAdded < NUM_TO_ADD; certificatesAdded += ADD_INCREMENT) {
-				testAddCertificates(ADD_INCREMENT);
+				if(BATCH_ENABLED) {
+					testAddCertificatesBatch(ADD_INCREMENT);
+				} else {
+					testAddCertificates(ADD_INCREMENT);
+				}
 				endTime = System.nanoTime();
 
-				String result = (certificatesAdded + ADD_INCREMENT) + "," + msTimeFormat((endTime - startTime) / 1000000) + ",NA,NA\n";
+				String result = (certificatesAdded + ADD_INCREMENT) + "," + msTimeFormat((endTime - startTime) / 1000000) + ",NA," + getTotalGas() + "\n";
 
 				Files.write(path, result.getBytes(), StandardOpenOption.APPEND);
 			}
@@ -68,6 +115,8 @@ public class WebCertificateDBTester {
 		catch(IOException e) {
 			System.out.println(TAG_EXCEPTION + "Result file not found. Result not written.");
 		}
+
+		writeGasReport();
 	}
 
 	//==============================================================================
@@ -100,6 +149,61 @@ public class WebCertificateDBTester {
 		long memory = getMemoryUsageMB();
 
 		printTestResult("testAddCertificates(" + num + ")", start, end, memory);
+		printThroughput("testAddCertificates(" + num + ")", num, start, end);
+		printPipelineStats();
+		printGasStats();
+		System.out.println();
+	}
+
+	//==============================================================================
+
+	/**
+	 * Adds certificates to the chain in one batch and records some statistics about the process, including time, memory usage and throughput
+	 * @param num The number of certificates to add to the chain
+	 * @throws IllegalArgumentException The number of certificates cannot be negative
+	 */
+
+	private static void testAddCertificatesBatch(int num) throws IllegalArgumentException {
+		if(num < 0) {
+			throw new IllegalArgumentException("Cannot add negative number of certificates!");
+		}
+
+		printTestStart("testAddCertificatesBatch(" + num + ")");
+		System.out.println();
+
+		List<CertificateSubmission> submissions = new ArrayList<>(num);
+
+		for(int i = 0; i < num; i++) {
+			CertificateSubmission submission = generateRandomSubmission();
+
+			if(submission != null) {
+				submissions.add(submission);
+			}
+		}
+
+		long start = System.nanoTime();
+
+		List<CertificateSubmissionResult> results = webDB.addNewCertificatesFromWeb(submissions, ACK_MODE);
+
+		if(!submissions.isEmpty()) {
+			lastSubmission = submissions.get(submissions.size() - 1);
+		}
+
+		long end = System.nanoTime();
+
+		int succeeded = 0;
+		for(CertificateSubmissionResult result : results) {
+			if(result.getStatus() != CertificateSubmissionResult.Status.FAILED) {
+				succeeded++;
+			}
+		}
+
+		long memory = getMemoryUsageMB();
+
+		printTestResult("testAddCertificatesBatch(" + num + ")", start, end, memory);
+		printThroughput("testAddCertificatesBatch(" + num + ")", succeeded, start, end);
+		printPipelineStats();
+		printGasStats();
 		System.out.println();
 	}
 
@@ -112,7 +216,18 @@ public class WebCertificateDBTester {
 	 */
 
 	private static void init() {
-		webDB = new WebCertificateDB();
+		webDB = IN_MEMORY_LEDGER ? new WebCertificateDB(new InMemoryCertificateLedger(), new IDRegistry()) : new WebCertificateDB();
+		webDB.setAckMode(ACK_MODE);
+		webDB.setTransactionWindow(TRANSACTION_WINDOW);
+		webDB.setPDFCompression(COMPRESSION_ENABLED);
+
+		if(BLOB_STORE_PATH != null) {
+			try {
+				webDB.setBlobStore(new FileSystemBlobStore(Paths.get(BLOB_STORE_PATH)));
+			} catch(IOException e) {
+				System.out.println(TAG_EXCEPTION + "Blob store directory could not be created. PDFs will be stored on the chain.");
+			}
+		}
 		resultFilePath = generateResultFile();
 	}
 
@@ -125,7 +240,7 @@ public class WebCertificateDBTester {
 
 	private static String generateResultFile() {
 		try {
-			String header = "certificates_added,time,memory,gas\n0,00:00:00.000,NA,NA";
+			String header = "certificates_added,time,memory,gas\n0,00:00:00.000,NA," + getTotalGas() + "\n";
 
 			SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
 			df.setTimeZone(TimeZone.getTimeZone("PST"));
@@ -146,10 +261,90 @@ public class WebCertificateDBTester {
 
 	//==============================================================================
 
+	/**
+	 * @return Returns the total gas used by every transaction mined so far, or NA if the ledger does not charge gas
+	 */
+
+	private static String getTotalGas() {
+		GasMeter gasMeter = webDB.getGasMeter();
+		return gasMeter == null ? "NA" : "" + gasMeter.getTotalGas();
+	}
+
+	//==============================================================================
+
+	/**
+	 * Writes the gas used by the trial next to its result file: the gas of each contract function, the gas per certificate and per KB of PDF,
+	 * and the estimated gas of each view query. The totals only cover transactions that have been mined, so in FAST mode a few may be missing.
+	 */
+
+	private static void writeGasReport() {
+		GasMeter gasMeter = webDB.getGasMeter();
+
+		if(gasMeter == null || resultFilePath.isEmpty()) {
+			return;
+		}
+
+		StringBuilder report = new StringBuilder("metric,name,count,total_gas,average_gas,max_gas\n");
+
+		for(String operation : gasMeter.getOperations()) {
+			report.append("transaction,").append(operation)
+					.append(",").append(gasMeter.getCount(operation))
+					.append(",").append(gasMeter.getGas(operation))
+					.append(",").append(String.format("%.0f", gasMeter.getAverageGas(operation)))
+					.append(",").append(gasMeter.getMaxGas(operation)).append("\n");
+		}
+
+		report.append("per_certificate,").append(CertificateDB.FUNC_ADDNEWCERTIFICATE)
+				.append(",").append(gasMeter.getCount(CertificateDB.FUNC_ADDNEWCERTIFICATE))
+				.append(",").append(gasMeter.getGas(CertificateDB.FUNC_ADDNEWCERTIFICATE) + gasMeter.getGas(CertificateDB.FUNC_ADDPDFBYTES))
+				.append(",").append(String.format("%.0f", gasMeter.getGasPerCertificate())).append(",NA\n");
+
+		report.append("per_pdf_kb,").append(CertificateDB.FUNC_ADDPDFBYTES)
+				.append(",").append(String.format("%.1f", gasMeter.getPDFBytes() / 1024.0))
+				.append(",").append(gasMeter.getGas(CertificateDB.FUNC_ADDPDFBYTES))
+				.append(",").append(String.format("%.0f", gasMeter.getGasPerPDFKilobyte())).append(",NA\n");
+
+		if(lastSubmission != null) {
+			for(Map.Entry<String, Long> estimate : webDB.estimateQueryGas(lastSubmission.getEmail(), lastSubmission.getRecordID()).entrySet()) {
+				report.append("query_estimate,").append(estimate.getKey())
+						.append(",1,").append(estimate.getValue())
+						.append(",").append(estimate.getValue())
+						.append(",").append(estimate.getValue()).append("\n");
+			}
+		}
+
+		try {
+			Path path = Paths.get(resultFilePath.replace(".csv", "_gas.csv"));
+			Files.write(path, report.toString().getBytes());
+
+			System.out.println(TAG_TEST + ANSI_CYAN + "Gas report written to " + ANSI_YELLOW + path + ANSI_RESET);
+		} catch(IOException e) {
+			System.out.println(TAG_EXCEPTION + "Gas report could not be written.");
+		}
+	}
+
+	//==============================================================================
+
 	/**
 	 * Private helper method to generate a random certificate and add it to the chain
 	 */
 	private static void addRandomCertificate() {
+		CertificateSubmission submission = generateRandomSubmission();
+
+		if(submission != null) {
+			webDB.addNewCertificateFromWeb(submission.getFirstName(), submission.getLastName(), submission.getEmail(), submission.getCertificateTypeInt(),
+											submission.getRecordID(), submission.getCourseName(), submission.getEndDate(), submission.getPdfBytes());
+			lastSubmission = submission;
+		}
+	}
+
+	//==============================================================================
+
+	/**
+	 * Private helper method to generate a random certificate submission
+	 * @return Returns a random certificate submission, or null if one could not be generated
+	 */
+	private static CertificateSubmission generateRandomSubmission() {
 		String firstName;
 		String lastName;
 		String email;
@@ -189,7 +384,7 @@ public class WebCertificateDBTester {
 
 			if(PDF_ENABLED) {
 				try {
-					File pdf = new File("/home/jtellew/dbmi-19/src/main/resources/static/Jeff_Tellew_CITI_Certificate_Basic.pdf");
+					File pdf = new File(PDF_PATH);
 					pdfBytes = Files.readAllBytes(pdf.toPath());
 				} catch(IOException e) {
 					e.printStackTrace();
@@ -198,13 +393,19 @@ public class WebCertificateDBTester {
 				pdfBytes = new byte[0];
 			}
 
-			webDB.addNewCertificateFromWeb(firstName, lastName, email, certificateType, recordID, courseName, endDate, pdfBytes);
+			CertificateSubmission submission = new CertificateSubmission(email, firstName, lastName, CertificateSubmission.CertificateType.values()[certificateType],
+																			recordID, courseName, endDate, null);
+			submission.setPdfBytes(pdfBytes);
+
+			return submission;
 
 		} catch(IllegalArgumentException e) {
 			System.out.println("Error generating random number");
-		} catch(FileNotFoundException e) {
+		} catch(IOException e) {
 			System.out.println("Error generating random name");
 		}
+
+		return null;
 	}
 
 	//==============================================================================
@@ -221,32 +422,23 @@ public class WebCertificateDBTester {
 			throw new IllegalArgumentException("Max must be greater than min");
 		}
 
-		Random r = new Random();
-		return r.nextInt((max - min) + 1) + min;
+		return random.nextInt((max - min) + 1) + min;
 	}
 
 	//==============================================================================
 
 
 	/**
-	 * From https://stackoverflow.com/questions/2218005/how-to-get-a-random-line-of-a-text-file-in-java
-	 * Picks a random name from the file of names
+	 * Picks a random name from the file of names, which is read once on the first call
 	 * Currently hardcoded to access a file of about 300,000 of the most popular names in the history of California
 	 * Names were provided by the US Social Security Administration (https://www.ssa.gov/oact/babynames/limits.html)
 	 */
-	private static String getRandomName() throws FileNotFoundException {
-		File f = new File("/home/jtellew/dbmi-19/src/main/resources/static/names.csv");
-    	String result = null;
-    	Random rand = new Random();
-    	int n = 0;
-
-    	for(Scanner sc = new Scanner(f); sc.hasNext();) {
-        	String line = sc.nextLine();
-        	if(rand.nextInt(++n) == 0)
-        		result = line;
-    	}
-
-    	return result;
+	private static String getRandomName() throws IOException {
+		if(names == null) {
+			names = NameSampler.load(Paths.get(NAMES_PATH), NAMES_ZIPF_EXPONENT);
+		}
+
+		return names.zipfian(random);
 	}
 
 	//==============================================================================
@@ -339,5 +531,105 @@ public class WebCertificateDBTester {
 									+ ANSI_CYAN + " and used " + ANSI_YELLOW + memoryUsage + " mb" + ANSI_RESET);
 	}
 
+	//==============================================================================
+
+	/**
+	 * Prints out the throughput of a test in certificates per minute
+	 * @param testName The name of the test
+	 * @param certificates The number of certificates that were added during the test
+	 * @param startTime The start time of the test
+	 * @param endTime The end time of the test
+	 */
+
+	private static void printThroughput(String testName, int certificates, long startTime, long endTime) {
+		double minutes = (endTime - startTime) / 60000000000.0;
+		double perMinute = minutes > 0 ? certificates / minutes : 0;
+
+		System.out.println(TAG_TEST + ANSI_CYAN + "Test " + ANSI_YELLOW + testName
+									+ ANSI_CYAN + " added " + ANSI_YELLOW + certificates + " certificates"
+									+ ANSI_CYAN + " at " + ANSI_YELLOW + String.format("%.1f", perMinute) + " certificates/minute" + ANSI_RESET);
+	}
+
+	//==============================================================================
+
+	/**
+	 * Prints out how much the test PDF shrinks when it is encoded for storage, with and without compression
+	 */
+
+	private static void printCompressionRatio() {
+		try {
+			byte[] pdf = Files.readAllBytes(Paths.get(PDF_PATH));
+
+			long start = System.nanoTime();
+			byte[] compressed = PDFCodec.encode(pdf, true);
+			long end = System.nanoTime();
+
+			double ratio = compressed.length / (double) pdf.length;
+
+			System.out.println(TAG_TEST + ANSI_CYAN + "Test PDF is " + ANSI_YELLOW + pdf.length + " bytes"
+										+ ANSI_CYAN + ", compressed to " + ANSI_YELLOW + compressed.length + " bytes"
+										+ ANSI_CYAN + " (ratio " + ANSI_YELLOW + String.format("%.3f", ratio)
+										+ ANSI_CYAN + ", " + ANSI_YELLOW + String.format("%.1f", (1 - ratio) * 100) + "% saved"
+										+ ANSI_CYAN + ") in " + ANSI_YELLOW + ((end - start) / 1000000) + " ms"
+										+ ANSI_CYAN + (COMPRESSION_ENABLED ? "" : ", compression is disabled for this trial") + ANSI_RESET);
+			System.out.println();
+		} catch(IOException e) {
+			System.out.println(TAG_EXCEPTION + "Test PDF not found. Compression ratio not measured.");
+		}
+	}
+
+	//==============================================================================
+
+	/**
+	 * Prints out the state of the transaction pipeline, including how many transactions are still waiting to be mined and how long confirmation takes
+	 */
+
+	private static void printPipelineStats() {
+		TransactionPipeline pipeline = webDB.getTransactionPipeline();
+
+		//The in-memory ledger confirms every transaction as it is submitted, so there is no pipeline to report on
+		if(pipeline == null) {
+			return;
+		}
+
+		System.out.println(TAG_TEST + ANSI_CYAN + "Transactions " + ANSI_YELLOW + pipeline.getSubmittedCount() + " submitted"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + pipeline.getConfirmedCount() + " confirmed"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + pipeline.getFailedCount() + " failed"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + pipeline.getPendingCount() + " pending"
+									+ ANSI_CYAN + " (window " + ANSI_YELLOW + pipeline.getWindow() + ANSI_CYAN + ")" + ANSI_RESET);
+
+		System.out.println(TAG_TEST + ANSI_CYAN + "Confirmation latency " + ANSI_YELLOW + String.format("%.0f", pipeline.getAverageConfirmationMillis()) + " ms average"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + String.format("%.0f", pipeline.getMaxConfirmationMillis()) + " ms max" + ANSI_RESET);
+
+		for(String failure : pipeline.getRecentFailures()) {
+			System.out.println(TAG_EXCEPTION + failure);
+		}
+	}
+
+	//==============================================================================
+
+	/**
+	 * Prints out the gas used so far, per certificate and per KB of PDF, along with the average gas of each contract function
+	 */
+
+	private static void printGasStats() {
+		GasMeter gasMeter = webDB.getGasMeter();
+
+		if(gasMeter == null) {
+			return;
+		}
+
+		System.out.println(TAG_TEST + ANSI_CYAN + "Gas " + ANSI_YELLOW + gasMeter.getTotalGas() + " total"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + String.format("%.0f", gasMeter.getGasPerCertificate()) + " per certificate"
+									+ ANSI_CYAN + ", " + ANSI_YELLOW + String.format("%.0f", gasMeter.getGasPerPDFKilobyte()) + " per KB of PDF" + ANSI_RESET);
+
+		for(String operation : gasMeter.getOperations()) {
+			System.out.println(TAG_TEST + ANSI_CYAN + "Gas of " + ANSI_YELLOW + operation
+										+ ANSI_CYAN + " " + ANSI_YELLOW + String.format("%.0f", gasMeter.getAverageGas(operation)) + " average"
+										+ ANSI_CYAN + ", " + ANSI_YELLOW + gasMeter.getMaxGas(operation) + " max"
+										+ ANSI_CYAN + " over " + ANSI_YELLOW + gasMeter.getCount(operation) + " transactions" + ANSI_RESET);
+		}
+	}
+
 
 }
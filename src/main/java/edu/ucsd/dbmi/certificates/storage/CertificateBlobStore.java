@@ -0,0 +1,37 @@
+package edu.ucsd.dbmi.certificates.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Stores certificate PDFs off-chain, addressed by the SHA-256 hash of their contents.
+ * The chain only records each PDF's hash and length, so anything read back from a blob store can be verified against the chain.
+ */
+
+public interface CertificateBlobStore {
+
+    /**
+     * Stores a PDF under its hash. Storing a PDF that is already stored has no effect.
+     * @param hash The SHA-256 hash of the PDF
+     * @param pdf The PDF to store
+     * @throws IOException Throws an IOException if the PDF cannot be written
+     */
+
+    void put(byte[] hash, byte[] pdf) throws IOException;
+
+    /**
+     * @param hash The SHA-256 hash of a PDF
+     * @return Returns true if a PDF is stored under the hash, and false if it is not
+     */
+
+    boolean contains(byte[] hash);
+
+    /**
+     * Retrieves a PDF without copying it onto the heap where the implementation allows it
+     * @param hash The SHA-256 hash of the PDF
+     * @return Returns a read-only buffer over the PDF, or null if no PDF is stored under the hash
+     * @throws IOException Throws an IOException if the PDF cannot be read
+     */
+
+    ByteBuffer get(byte[] hash) throws IOException;
+}
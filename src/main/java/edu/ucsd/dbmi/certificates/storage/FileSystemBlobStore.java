@@ -0,0 +1,99 @@
+package edu.ucsd.dbmi.certificates.storage;
+
+import edu.ucsd.dbmi.certificates.utils.CertificateUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+/**
+ * A CertificateBlobStore that keeps each PDF in its own file on the local filesystem.
+ * Files are named by the hex SHA-256 hash of the PDF and spread over subdirectories by the first two hex digits, so no directory grows too large.
+ * Reads are memory-mapped, so serving a PDF never copies it onto the heap.
+ */
+
+public class FileSystemBlobStore implements CertificateBlobStore {
+
+    //==============================================================================
+    // INSTANCE VARIABLES
+    //==============================================================================
+
+    private final Path root;
+
+    //==============================================================================
+    // CONSTRUCTORS
+    //==============================================================================
+
+    /**
+     * Creates a new blob store rooted at a directory, creating the directory if it does not exist
+     * @param root The directory to store PDFs in
+     * @throws IOException Throws an IOException if the directory cannot be created
+     */
+
+    public FileSystemBlobStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root);
+    }
+
+    //==============================================================================
+    // PRIVATE METHODS
+    //==============================================================================
+
+    /**
+     * @param hash The SHA-256 hash of a PDF
+     * @return Returns the path of the file the PDF is stored in
+     */
+
+    private Path pathFor(byte[] hash) {
+        String name = CertificateUtils.bytesToHex(hash);
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    //==============================================================================
+    // PUBLIC METHODS
+    //==============================================================================
+
+    @Override
+    public void put(byte[] hash, byte[] pdf) throws IOException {
+        if(contains(hash)) {
+            return;
+        }
+
+        Path path = pathFor(hash);
+
+        Files.createDirectories(path.getParent());
+
+        //Write to a temporary file first and move it into place, so a reader never sees a partially written PDF
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+        try {
+            Files.write(temp, pdf);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch(FileAlreadyExistsException e) {
+            //Another thread stored the same PDF first, which is just as good
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    //==============================================================================
+
+    @Override
+    public boolean contains(byte[] hash) {
+        return Files.exists(pathFor(hash));
+    }
+
+    //==============================================================================
+
+    @Override
+    public ByteBuffer get(byte[] hash) throws IOException {
+        Path path = pathFor(hash);
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            //The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch(NoSuchFileException e) {
+            return null;
+        }
+    }
+}
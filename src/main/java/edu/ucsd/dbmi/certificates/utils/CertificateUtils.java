@@ -2,6 +2,8 @@ package edu.ucsd.dbmi.certificates.utils;
 
 import edu.ucsd.dbmi.certificates.beans.Certificate;
 import edu.ucsd.dbmi.certificates.contract.CertificateDBSC;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
@@ -25,42 +27,71 @@ public class CertificateUtils {
 
     private static final char[] HEX_ARRAY = "0123456789ABCDEF".toCharArray();
 
+    //Debug output goes through SLF4J at DEBUG level, so it costs nothing unless logging.level.edu.ucsd.dbmi.certificates=DEBUG is set
+    private static final Logger log = LoggerFactory.getLogger(CertificateUtils.class);
+
     //==============================================================================
     // PUBLIC METHODS
     //==============================================================================
 
     /**
-     * Prints a line to console with the [DEBUG] tag attached at the start and colors applied (if console supports)
+     * Logs a line at DEBUG level. Callers on hot paths should check isDebugEnabled() before building the message.
      *
-     * @param msg The message to print to the console
+     * @param msg The message to log
      */
 
     public static void debugOut(String msg) {
-        System.out.println(ANSI_RED + "[DEBUG] " + ANSI_CYAN + msg + ANSI_RESET);
+        log.debug(msg);
     }
 
     //==============================================================================
 
     /**
-     * Prints out a variable and its value with the [DEBUG] tag
-     * @param varName The name of the variable to print
-     * @param varValue The value of the variable to print
+     * Logs a variable and its value at DEBUG level
+     * @param varName The name of the variable to log
+     * @param varValue The value of the variable to log
      */
 
     public static void debugVarOut(String varName, String varValue) {
-        System.out.println(ANSI_RED + "[DEBUG] " + ANSI_YELLOW + varName + ANSI_RESET + " = " + ANSI_PURPLE + varValue + ANSI_RESET);
+        log.debug("{} = {}", varName, varValue);
     }
 
     //==============================================================================
 
     /**
-     * Prints out a variable and its value with the [DEBUG] tag
-     * @param varName The name of the variable to print
-     * @param varValue The value of the variable to print
+     * Logs a variable and its value at DEBUG level
+     * @param varName The name of the variable to log
+     * @param varValue The value of the variable to log
      */
 
     public static void debugVarOut(String varName, int varValue) {
-        System.out.println(ANSI_RED + "[DEBUG] " + ANSI_YELLOW + varName + ANSI_RESET + " = " + ANSI_PURPLE + varValue + ANSI_RESET);
+        if(log.isDebugEnabled()) {
+            log.debug("{} = {}", varName, varValue);
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * Logs a variable and its value at DEBUG level
+     * @param varName The name of the variable to log
+     * @param varValue The value of the variable to log
+     */
+
+    public static void debugVarOut(String varName, long varValue) {
+        if(log.isDebugEnabled()) {
+            log.debug("{} = {}", varName, varValue);
+        }
+    }
+
+    //==============================================================================
+
+    /**
+     * @return Returns whether debug output is enabled, so callers can skip building messages that would be thrown away
+     */
+
+    public static boolean isDebugEnabled() {
+        return log.isDebugEnabled();
     }
 
     //==============================================================================
@@ -78,7 +109,7 @@ public class CertificateUtils {
     //==============================================================================
 
     /**
-     * Prints out certificate information with the [DEBUG] tag
+     * Logs certificate information at DEBUG level
      *
      * @param email           The email to print
      * @param researcherID    The researcher ID to print
@@ -94,17 +125,21 @@ public class CertificateUtils {
      */
     public static void debugCertificateOut(
             String email,
-            Integer researcherID,
+            Long researcherID,
             String firstName,
             String lastName,
-            Integer firstNameKey,
-            Integer lastNameKey,
+            Long firstNameKey,
+            Long lastNameKey,
             Integer certificateType,
             Integer recordID,
             String courseName,
             long endDate,
             byte[] pdf
     ) {
+        if(!log.isDebugEnabled()) {
+            return;
+        }
+
         debugVarOut("Contract Address", CertificateDBSC.getContractAddress());
         debugOut("=================================================================");
         debugVarOut("email", email);
@@ -176,6 +211,41 @@ public class CertificateUtils {
 
     //==============================================================================
 
+    /**
+     * Hex-encodes only the start and end of an array, for logging large arrays without encoding all of them
+     * @param bytes The bytes to encode
+     * @param edge The number of bytes to encode from each end
+     * @return Returns the hex of the first and last edge bytes joined by "...", or the hex of every byte if the array is no longer than 2 * edge
+     */
+
+    public static String bytesToHexPreview(byte[] bytes, int edge) {
+        if(bytes.length <= 2 * edge) {
+            return bytesToHex(bytes);
+        }
+
+        char[] hexChars = new char[edge * 4 + 3];
+        int k = 0;
+
+        for (int j = 0; j < edge; j++) {
+            int v = bytes[j] & 0xFF;
+            hexChars[k++] = HEX_ARRAY[v >>> 4];
+            hexChars[k++] = HEX_ARRAY[v & 0x0F];
+        }
+
+        hexChars[k++] = '.';
+        hexChars[k++] = '.';
+        hexChars[k++] = '.';
+
+        for (int j = bytes.length - edge; j < bytes.length; j++) {
+            int v = bytes[j] & 0xFF;
+            hexChars[k++] = HEX_ARRAY[v >>> 4];
+            hexChars[k++] = HEX_ARRAY[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+
+    //==============================================================================
+
     public static String generateCertificateFilename(Certificate certificate) {
         return certificate.getFirstName() + "_" + certificate.getLastName() + "_" + certificate.getCertificateType() + "_" + certificate.getRecordID() + ".pdf";
     }
@@ -2,7 +2,7 @@
  * This contract acts as a database to keep track of certificates such as CITI training certificates
  *
  * @author Jeffrey Tellew
- * @version 2.1.0
+ * @version 3.5.0
  * @since 6/25/2019
  */
 
@@ -44,11 +44,11 @@ contract CertificateDB {
      * A struct to represent a certificate of some type
      */
     struct Certificate {
-        //Currently supports 16-bit (65535) IDs, and could probably get away with less.
-        //This is because internally, solidity will create a table big enough to hold ***every single possible key value*** and initialize each bucket to the default value type (Certificate in this case)
+        //Supports 64-bit IDs, which is wide enough for IDs derived from a hash of the email as well as sequentially assigned ones.
+        //Mappings only store the keys that are actually written, so a wider ID costs no storage
 
         string email;
-        uint16 researcherID;
+        uint64 researcherID;
 
         string firstName;
         string lastName;
@@ -64,24 +64,66 @@ contract CertificateDB {
 
     //==============================================================================
 
+    /**
+     * The bytes of a PDF, stored once per distinct PDF under the SHA-256 hash of its contents
+     * numSlices is the number of slices the uploader said the PDF would be stored in, so that a partially uploaded PDF can be told apart from a complete one
+     */
     struct CertificateBytes {
         mapping(uint=>bytes) rawBytes;
         uint certificateBytesLength;
-        uint recordID;
+        uint numSlices;
     }
 
     //==============================================================================
 
     /**
-     * A struct to represent an array of certificates
-     * Necessary to keep track of the length of each certificate array at each bucket in the mapping
-     * EDIT: Not necessary for keeping track of length since the array has a `.length` member... which means it is not necessary at all. Remove? Keep in case we want to add more fields?
+     * The search criteria of a paginated query, grouped together so that they can be passed to helper functions without running out of stack slots
+     * Unspecified criteria are 0, except for the end date range, which has already had its defaults filled in by resolveEndDateRange()
      */
-    struct CertificateArray {
-        Certificate[] certificates;
-        uint certificatesLength;
+    struct Query {
+        uint firstNameKey;
+        uint lastNameKey;
+        uint64 researcherID;
+        uint endDateRangeLow;
+        uint endDateRangeHigh;
     }
 
+    //==============================================================================
+
+    /**
+     * A page of query results that is filled in one candidate at a time
+     * position counts candidates across every bucket being paged through, so it can be handed back to the caller as the offset of the next page
+     */
+    struct Page {
+        uint[] recordIDs;
+        uint found;
+        uint position;
+        uint scanEnd;
+        bool hasMore;
+    }
+
+    //==============================================================================
+    // EVENTS
+    //==============================================================================
+
+    /**
+     * Emitted every time a new certificate is added
+     * Carries every field of the certificate so that off-chain copies of the database can be kept up to date by reading
+     * only the logs that are newer than the last block they have seen, instead of calling getAllCertificates()
+     */
+    event CertificateAdded(
+        uint indexed recordID,
+        uint64 indexed researcherID,
+        string email,
+        string firstName,
+        string lastName,
+        uint firstNameKey,
+        uint lastNameKey,
+        CertificateType certificateType,
+        string courseName,
+        uint endDate
+    );
+
     //==============================================================================
     // INSTANCE VARIABLES
     //==============================================================================
@@ -91,8 +133,8 @@ contract CertificateDB {
     //Currently not used because the startDate field is not being used
     //uint internal constant YEAR_IN_SECONDS = 31536000;
 
-    //The maximum possible researcher ID if the ID is an unsigned 16-bit integer
-    uint16 internal constant MAX_ID = 65535;
+    //The maximum possible researcher ID if the ID is an unsigned 64-bit integer
+    uint64 internal constant MAX_ID = 18446744073709551615;
 
     //TODO: See if this is producing a truncation
     //The maximum possible epoch time if the time is the standard unsigned 256-bit integer
@@ -101,34 +143,84 @@ contract CertificateDB {
 
     uint8 internal constant NUMBER_OF_MAPS = 4;
 
-    //Maps the certificates based on the researcher ID given
+    //The width of each end date bucket, which is 30 days in seconds
+    //A three-year range spans about 37 buckets, where a bucket per day would mean about 1,095 reads before the first certificate is seen
+    uint internal constant END_DATE_BUCKET_SECONDS = 2592000;
+
+    //The most record IDs that a paginated query will return in one call
+    uint internal constant MAX_PAGE_SIZE = 100;
+
+    //The most candidates that queryAllRecordIDsPage() will check in one call
+    //Caps the cost of a call even when few candidates match, in which case the caller just asks for the next page sooner
+    uint internal constant MAX_PAGE_SCAN = 1000;
+
+    //Every certificate is stored exactly once, in mapByRecordID
+    //The other maps are indexes that only hold record IDs, so adding a certificate writes its strings to storage once instead of once per index
+
+    //Maps the record IDs of the certificates based on the researcher ID given
     //This is meant to enable easy searches by researcher ID
-    mapping(uint => CertificateArray) mapByResearcherID;
+    mapping(uint => uint[]) mapByResearcherID;
 
-    //Maps the certificates based on the end date given
-    //This is meant to enable easy searches by end date
-    mapping(uint => CertificateArray) mapByEndDate;
+    //Maps the record IDs of the certificates based on the 30-day bucket that their end date falls in (endDate / END_DATE_BUCKET_SECONDS)
+    //This is meant to enable easy searches by range of end dates, at the cost of checking the exact end dates in the first and last bucket of a range
+    mapping(uint => uint[]) mapByEndDateBucket;
 
-    //Maps the certificates based on the first name given
+    //Maps the record IDs of the certificates based on the first name given
     //This is meant to enable easy searches by first name
-    mapping(uint => CertificateArray) mapByFirstNameKey;
+    mapping(uint => uint[]) mapByFirstNameKey;
 
-    //Maps the certificates based on the last name given
+    //Maps the record IDs of the certificates based on the last name given
     //This is meant to enable easy searches by last name
-    mapping(uint => CertificateArray) mapByLastNameKey;
+    mapping(uint => uint[]) mapByLastNameKey;
+
+    //Maps each certificate by its record ID
+    mapping(uint => Certificate) mapByRecordID;
+
+    //Whether a certificate has been stored under each record ID, since record IDs have to be unique now that certificates are stored by them
+    mapping(uint => bool) recordIDUsed;
+
+    //Maps each researcher ID to the latest end date of any of their certificates
+    //Kept up to date on every insert, so that checking whether a researcher has a valid certificate is a single read
+    mapping(uint => uint) mapLatestExpiry;
+
+    //Maps each researcher ID and certificate type to the latest end date of any of their certificates of that type
+    mapping(uint => mapping(uint => uint)) mapLatestExpiryByType;
 
-    //Maps the addresses of the transactions that store the actual certificate bytes
-    mapping(uint => CertificateBytes) mapCertificateBytes;
+    //The record ID of every certificate, in the order they were added
+    uint[] allRecordIDs;
 
-    uint16[] usedResearcherIDs;
+    //Maps the SHA-256 hash of each distinct PDF to its bytes, so that a PDF uploaded more than once is only stored once
+    mapping(bytes32 => CertificateBytes) mapCertificateBytes;
+
+    //Maps each record ID to the SHA-256 hash of its PDF
+    //The PDF itself is stored either in mapCertificateBytes or off-chain in a blob store, and in both cases can be verified against this hash
+    mapping(uint => bytes32) mapRecordPDFHash;
+
+    //Maps each record ID to the length of its PDF in bytes
+    mapping(uint => uint) mapRecordPDFLength;
 
     uint certificateCount = 0;
 
+    //The account that deployed the contract, which is the only one allowed to upload PDF slices
+    address owner = msg.sender;
+
+    //The block the contract was deployed in, so a client that loads the contract by address knows where its CertificateAdded logs start
+    uint public deploymentBlock = block.number;
+
     //FOR TESTING
     //    string stringData;
     //    uint uintData;
     //    uint stackCount = 0;
 
+    //==============================================================================
+    // MODIFIERS
+    //==============================================================================
+
+    modifier onlyOwner() {
+        require(msg.sender == owner);
+        _;
+    }
+
     //==============================================================================
     // PRIVATE HELPER FUNCTIONS
     //==============================================================================
@@ -139,7 +231,7 @@ contract CertificateDB {
      * @return Returns true if the researcher ID is valid (between 0 and the maximum researcher ID value), and false if it is not
      */
 
-    function isValidID(uint16 ID) internal pure returns(bool) {
+    function isValidID(uint64 ID) internal pure returns(bool) {
         return ID <= MAX_ID;
     }
 
@@ -157,93 +249,71 @@ contract CertificateDB {
 
     //==============================================================================
 
-    //TODO: Add a check to make sure that the certificate is a valid object before attempting to access the endDate field
-    //      There is not really a great way to do this in the current version of solidity unfortunately
-
-    /**
-     * Checks to see if a certificate is valid or if it has expired
-     * @param certificate The certificate to check the validity of
-     * @return Returns true if the certificate is valid, and false if it is not
-     */
-    function isValidCertificate(Certificate memory certificate) internal view returns(bool) {
-        require(isValidEpochDate(certificate.endDate));    //Require that endDate is a valid epoch date
-
-        return certificate.endDate > now;
-    }
-
-    //==============================================================================
-
     /**
-     * Private helper function to add a certificate to a mapping
-     * @param map The map to add the certificate to
-     * @param certificate The certificate to add to the specified map
+     * Private helper function to add a certificate's record ID to one of the index mappings
+     * @param map The map to add the record ID to
+     * @param certificate The certificate whose record ID should be added to the specified map
      */
 
     function addCertificateToMap(uint map, Certificate memory certificate) internal {
         if(map == uint(Map.RESEARCHER_ID)) {
             require(isValidID(certificate.researcherID)); //Require that the researcher ID is a valid ID
 
-            if(mapByResearcherID[certificate.researcherID].certificatesLength == 0) {
-                usedResearcherIDs.push(certificate.researcherID);
-            }
-
-            mapByResearcherID[certificate.researcherID].certificates.push(certificate);
-            mapByResearcherID[certificate.researcherID].certificatesLength++;
+            mapByResearcherID[certificate.researcherID].push(certificate.recordID);
         }
         else if(map == uint(Map.END_DATE)) {
             require(isValidEpochDate(certificate.endDate));    //Require that endDate is a valid epoch date
 
-            mapByEndDate[certificate.endDate].certificates.push(certificate);
-            mapByEndDate[certificate.endDate].certificatesLength++;
+            mapByEndDateBucket[certificate.endDate / END_DATE_BUCKET_SECONDS].push(certificate.recordID);
         }
         else if(map == uint(Map.FIRST_NAME)) {
-            mapByFirstNameKey[certificate.firstNameKey].certificates.push(certificate);
-            mapByFirstNameKey[certificate.firstNameKey].certificatesLength++;
+            mapByFirstNameKey[certificate.firstNameKey].push(certificate.recordID);
         }
         else if(map == uint(Map.LAST_NAME)) {
-            mapByLastNameKey[certificate.lastNameKey].certificates.push(certificate);
-            mapByLastNameKey[certificate.lastNameKey].certificatesLength++;
+            mapByLastNameKey[certificate.lastNameKey].push(certificate.recordID);
         }
     }
 
     //==============================================================================
 
     /**
-     * Private helper function to concatenate two strings
-     * @param a The first string to concatenate. Will be the first part of the final string.
-     * @param b The second string to concatenate. Will be appended to the first string to produce the final result.
-     * @return Returns the concatenation of the two strings passed as parameters, with the second string (b) appended to the first string (a).
+     * Private helper function to raise the latest end dates of a certificate's researcher, overall and for the certificate's type, to its end date
+     * Kept separate from addNewCertificate() so that it does not make the stack too deep
+     * @param certificate The certificate that was added
      */
 
-    function concat(string memory a, string memory b) internal pure returns (string memory) {
-        return string(abi.encodePacked(bytes(a), bytes(b)));
+    function updateLatestExpiry(Certificate memory certificate) internal {
+        if(certificate.endDate > mapLatestExpiry[certificate.researcherID]) {
+            mapLatestExpiry[certificate.researcherID] = certificate.endDate;
+        }
+
+        if(certificate.endDate > mapLatestExpiryByType[certificate.researcherID][uint(certificate.certificateType)]) {
+            mapLatestExpiryByType[certificate.researcherID][uint(certificate.certificateType)] = certificate.endDate;
+        }
     }
 
     //==============================================================================
 
     /**
-     * Private helper function to convert a uint to a string
-     * @param v The uint to convert to a string
-     * @return Returns a string corresponding to the passed uint
+     * Private helper function to emit a CertificateAdded event for a certificate
+     * Kept separate from addNewCertificate() so that emitting every field does not make the stack too deep
+     * @param certificate The certificate that was added
      */
 
-    function uintToString(uint v) internal pure returns (string memory) {
-        bytes memory reversed = new bytes(100);
-        uint i = 0;
-        while (v != 0) {
-            uint remainder = v % 10;
-            v = v / 10;
-
-            reversed[i++] = byte(48 + uint8(remainder % 10));
-        }
-        bytes memory s = new bytes(i); // i + 1 is inefficient
-        for (uint j = 0; j < i; j++) {
-            s[j] = reversed[i - j - 1]; // to avoid the off-by-one error
-        }
-        string memory str = string(s);  // memory isn't implicitly convertible to storage
-        return str;
+    function emitCertificateAdded(Certificate memory certificate) internal {
+        emit CertificateAdded(
+            certificate.recordID,
+            certificate.researcherID,
+            certificate.email,
+            certificate.firstName,
+            certificate.lastName,
+            certificate.firstNameKey,
+            certificate.lastNameKey,
+            certificate.certificateType,
+            certificate.courseName,
+            certificate.endDate
+        );
     }
-
     //==============================================================================
 
     /**
@@ -265,177 +335,71 @@ contract CertificateDB {
     //==============================================================================
 
     /**
-     * Private helper function to produce a string in the form of a JSON field
-     * @param fieldName The name of the field to write to the JSON string
-     * @param fieldValue The value of the corresponding field to write to the JSON string
-     * @return Returns a string in JSON form with the name passed as fieldName and the value passed as fieldValue
+     * Private helper function to shorten a memory array in place
+     * Memory arrays cannot be resized, but their length word can be lowered to drop unused entries at the end without copying
+     * @param array The array to shorten
+     * @param length The new length of the array, which must not be greater than its current length
+     * @return Returns the same array with its length set to the given length
      */
 
-    function toJSONField(string memory fieldName, string memory fieldValue) internal pure returns(string memory) {
-        string memory temp = "\"";
-        temp = concat(temp, fieldName);
-        temp = concat(temp, "\" : \"");
-        temp = concat(temp, fieldValue);
-        temp = concat(temp, "\"");
-
-        return temp;
-    }
-
-    //==============================================================================
-
-    /**
-     * Private helper function to convert a Certificate to a JSON string
-     * @param researcherID The ID on the certificate
-     * @param firstName The first name on the certificate
-     * @param lastName The last name on the certificate
-     * @param certificateType The type of certificate (CITI or HIPAA)
-     * @param recordID The unique record ID assigned to each certificate upon issuance
-     * @param courseName The course name on the certificate
-     * @param endDate The end or expiry date on the certificate
-     * @return Returns a string of the Certificate in JSON
-     */
-
-    function certificateToJSON(
-        string memory email,
-        uint16 researcherID,
-        string memory firstName,
-        string memory lastName,
-        uint firstNameKey,
-        uint lastNameKey,
-        CertificateType certificateType,
-        uint recordID,
-        string memory courseName,
-        uint endDate
-    )
-    internal pure returns(string memory)
-    {
-        //string memory newField = ",\n\t"; //Uncommenting this will result in an error that says "Stack to deep"
-        string memory temp = "{\n\t";
-
-        temp = concat(temp, toJSONField("email", email));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("researcherID", uintToString(researcherID)));
+    function truncate(uint[] memory array, uint length) internal pure returns(uint[] memory) {
+        require(length <= array.length);
 
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("firstName", firstName));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("lastName", lastName));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("firstNameKey", uintToString(firstNameKey)));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("lastNameKey", uintToString(lastNameKey)));
-
-        temp = concat(temp, ",\n\t");
-
-        if(certificateType == CertificateType.CITI) {
-            temp = concat(temp, toJSONField("certificateType", "0"));
-        } else {
-            temp = concat(temp, toJSONField("certificateType", "1"));
+        assembly {
+            mstore(array, length)
         }
 
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("recordID", uintToString(recordID)));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("courseName", courseName));
-
-        temp = concat(temp, ",\n\t");
-        temp = concat(temp, toJSONField("endDate", uintToString(endDate)));
-
-        temp = concat(temp, "\n}");
-
-        return temp;
+        return array;
     }
 
     //==============================================================================
 
     /**
-     * Private helper function to convert a CertificateArray struct into a JSON string
-     * @param certificateArray The CertificateArray to convert to JSON form
-     * @return Returns a string of the parameter certificateArray in JSON form
+     * Private helper function to collect the record IDs in an index bucket whose certificates match ALL search parameters
+     * @param recordIDs The record IDs to check
+     * @param query The search parameters to check the certificates against
+     * @return Returns the record IDs of the matching certificates, in the same order
      */
 
-    function certificateArrayToJSON(CertificateArray memory certificateArray) internal pure returns(string memory) {
-
-        string memory temp = "[";
-
-        if(certificateArray.certificatesLength > 0) {
-
-            //Add first certificate outside loop to avoid fencepost problem
-
-            Certificate memory currentCertificate = certificateArray.certificates[0];
-
-            temp = concat(temp, certificateToJSON(
-                    currentCertificate.email,
-                    currentCertificate.researcherID,
-                    currentCertificate.firstName,
-                    currentCertificate.lastName,
-                    currentCertificate.firstNameKey,
-                    currentCertificate.lastNameKey,
-                    currentCertificate.certificateType,
-                    currentCertificate.recordID,
-                    currentCertificate.courseName,
-                    currentCertificate.endDate
-                ));
-
-            //Add the rest of the certificates (if there are any)
-
-            for(uint i = 1; i < certificateArray.certificatesLength; i++) {
-                temp = concat(temp, ", ");
-
-                currentCertificate = certificateArray.certificates[i];
+    function matchingRecordIDs(uint[] memory recordIDs, Query memory query) internal view returns(uint[] memory) {
+        uint[] memory matches = new uint[](recordIDs.length);
+        uint currentIndex = 0;
 
-                temp = concat(temp, certificateToJSON(
-                        currentCertificate.email,
-                        currentCertificate.researcherID,
-                        currentCertificate.firstName,
-                        currentCertificate.lastName,
-                        currentCertificate.firstNameKey,
-                        currentCertificate.lastNameKey,
-                        currentCertificate.certificateType,
-                        currentCertificate.recordID,
-                        currentCertificate.courseName,
-                        currentCertificate.endDate
-                    ));
+        for(uint i = 0; i < recordIDs.length; i++) {
+            if(storedMatchesCriteria(query, mapByRecordID[recordIDs[i]])) {
+                matches[currentIndex] = recordIDs[i];
+                currentIndex++;
             }
         }
 
-        temp = concat(temp, "]");
-
-        return temp;
+        return truncate(matches, currentIndex);
     }
 
     //==============================================================================
 
     /**
-     * Checks a certificate to see if it matches ALL search parameters
+     * Checks a certificate in storage to see if it matches ALL search parameters
      * Unspecified parameters will be passed as 0
-     * @param firstNameKey The first name key to check the certificate for
-     * @param lastNameKey The last name key to check the certificate for
-     * @param researcherID The ID to check the certificate for
-     * @param endDateRangeLow The earliest end date to search from
-     * @param endDateRangeHigh The latest end date to search from
+     * Reads only the fields being compared, instead of copying the whole certificate (strings included) into memory
+     * @param query The search parameters to check the certificate against
+     * @param certificate The certificate to check
      * @return Returns true if a certificate matches all of the specified criteria, and false if it does not
      */
 
-    function matchesCriteria(uint firstNameKey, uint lastNameKey, uint16 researcherID, uint endDateRangeLow, uint endDateRangeHigh, Certificate memory certificate) internal pure returns(bool) {
-        if(firstNameKey != 0 && firstNameKey != certificate.firstNameKey) {
+    function storedMatchesCriteria(Query memory query, Certificate storage certificate) internal view returns(bool) {
+        if(query.firstNameKey != 0 && query.firstNameKey != certificate.firstNameKey) {
             return false;
         }
-        else if(lastNameKey != 0 && lastNameKey != certificate.lastNameKey) {
+        else if(query.lastNameKey != 0 && query.lastNameKey != certificate.lastNameKey) {
             return false;
         }
-        else if(researcherID != 0 && researcherID != certificate.researcherID) {
+        else if(query.researcherID != 0 && query.researcherID != certificate.researcherID) {
             return false;
         }
-        else if(endDateRangeLow != 0 && endDateRangeLow > certificate.endDate) {
+        else if(query.endDateRangeLow != 0 && query.endDateRangeLow > certificate.endDate) {
             return false;
         }
-        else if(endDateRangeHigh != 0 && endDateRangeHigh < certificate.endDate) {
+        else if(query.endDateRangeHigh != 0 && query.endDateRangeHigh < certificate.endDate) {
             return false;
         }
 
@@ -445,111 +409,101 @@ contract CertificateDB {
     //==============================================================================
 
     /**
-     * Looks up an array of  certificates by ID in the mapByResearcherID mapping
-     * @param researcherID The ID to check the certificate for
-     * @return Returns the certificates at the bucket for the ID passed
+     * Private helper function to fill in the bounds of an end date range that were not specified
+     * If no start of the range is specified, the range starts at midnight today (the current block timestamp rounded down).
+     * If no end of the range is specified, the range ends three years from now, which is the latest possible expiry date at time of search.
+     * @param endDateRangeLow The earliest end date to search from, or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to, or 0 to search until three years from now
+     * @return Returns the start and end of the range
      */
 
-    function getCertificatesByResearcherID(uint16 researcherID) internal view returns(CertificateArray memory) {
-        require(isValidID(researcherID)); //Require that the ID is a valid ID
+    function resolveEndDateRange(uint endDateRangeLow, uint endDateRangeHigh) internal view returns(uint, uint) {
+        require(isValidEpochDate(endDateRangeLow) && isValidEpochDate(endDateRangeHigh));   //Require dates to be valid epoch dates
+        require(endDateRangeLow <= endDateRangeHigh || endDateRangeHigh == 0);   //Require start date to be no later than end date, since both are inclusive, or end date can be unspecified
 
-        return mapByResearcherID[researcherID];
+        uint low = endDateRangeLow == 0 ? roundToMidnight(now) : endDateRangeLow;
+        uint high = endDateRangeHigh == 0 ? roundToMidnight(now) + 94672800 : endDateRangeHigh;
+
+        return (low, high);
     }
 
     //==============================================================================
 
     /**
-     * Looks up an array of certificates by end date in the mapByEndDate mapping
-     * @param endDate The end date to check the certificate for
-     * @return Returns an array of certificates at the bucket for the end date passed
+     * Private helper function to add the matching candidates from one bucket to a page, starting from the page's current position
+     * Stops as soon as the page is full or has checked MAX_PAGE_SCAN candidates, and marks the page as having more results if any candidates were left unchecked
+     * @param bucket The record IDs of the candidates to check
+     * @param bucketStart The position of the bucket's first candidate among all of the candidates being paged through
+     * @param query The search parameters to check the candidates against
+     * @param page The page to add the record IDs of matching candidates to
      */
 
-    function getCertificatesByEndDate(uint endDate) internal view returns(CertificateArray memory) {
-        require(isValidEpochDate(endDate));    //Require that endDate is a valid epoch date
+    function scanBucket(uint[] storage bucket, uint bucketStart, Query memory query, Page memory page) internal view {
+        uint bucketEnd = bucketStart + bucket.length;
+
+        while(page.position < bucketEnd) {
+            if(page.found == page.recordIDs.length || page.position == page.scanEnd) {
+                page.hasMore = true;
+                return;
+            }
 
-        return mapByEndDate[endDate];
+            uint recordID = bucket[page.position - bucketStart];
+
+            if(storedMatchesCriteria(query, mapByRecordID[recordID])) {
+                page.recordIDs[page.found] = recordID;
+                page.found++;
+            }
+
+            page.position++;
+        }
     }
 
     //==============================================================================
 
-    //TODO: Account for leap-years when searching the next three years. Probably not really that important honestly, only causes an error of one day, but would be nice
-
     /**
-     * Looks up an array of certificates by a range of dates in the mapByEndDate mapping
-     * @param endDateRangeLow The earliest end date to search from
-     * @param endDateRangeHigh The latest end date to search from
-     * @return Returns an array of certificates from the buckets for the range of ene dates passed.
-     *          If no start date for the range is specified, returns certificates that expire between now (current block timestamp) and endDateRangeHigh.
-     *          If no end date for the range is specified, returns certificates that expire between endDateRangeLow and three years from now, which is the latest possible expiry date at time of search.
-     *          If both parameters are 0, returns certificates that expire between now and three years from now.
+     * Looks up the record IDs of the certificates with an end date in a range (inclusive) in the mapByEndDateBucket mapping
+     * Only the first and last bucket of the range can hold certificates outside of it, so only their end dates are checked
+     * @param endDateRangeLow The earliest end date to search from, or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to, or 0 to search until three years from now
+     * @return Returns the record IDs of the certificates with an end date in the range, ordered by bucket
      */
 
-    function getCertificatesByEndDateRange(uint endDateRangeLow, uint endDateRangeHigh) internal view returns(CertificateArray memory) {
-        require(isValidEpochDate(endDateRangeLow) && isValidEpochDate(endDateRangeHigh));   //Require dates to be valid epoch dates
-        require(endDateRangeLow < endDateRangeHigh || endDateRangeHigh == 0);   //Require start date to be earlier than end date, or end date can be unspecified
+    function getRecordIDsByEndDateRange(uint endDateRangeLow, uint endDateRangeHigh) internal view returns(uint[] memory) {
+        (uint low, uint high) = resolveEndDateRange(endDateRangeLow, endDateRangeHigh);
 
-        uint numSecondsInDay = 86400;
+        uint lowBucket = low / END_DATE_BUCKET_SECONDS;
+        uint highBucket = high / END_DATE_BUCKET_SECONDS;
 
-        //If the start of the range is not specified, search for all certificates that expire between now and the given end of the range
-        if(endDateRangeLow == 0) {
-            return getCertificatesByEndDateRange(roundToMidnight(now), endDateRangeHigh);
-        }
+        //Determine the most results we could return, since memory arrays cannot grow
+        //This only reads the length of each bucket in the range
+        uint recordIDsLength = 0;
 
-        //If the end of the range is not specified, search for all certificates that expire between the given start of the range and three years from now
-        //This is done because a certificate expires at most three years after issuance, so to avoid checking all the way to the maximum epoch
-        //  date, we just search until the latest current possible expiry time.
-        if(endDateRangeHigh == 0) {
-            return getCertificatesByEndDateRange(endDateRangeLow, roundToMidnight(now) + 94672800);
+        for(uint bucket = lowBucket; bucket <= highBucket; bucket++) {
+            recordIDsLength += mapByEndDateBucket[bucket].length;
         }
 
-        //Determine the number of results we are going to return
-        //We have to do this because unfortunately, you cannot have a dynamic array in memory, and this array is required to be in memory
-        //Yes, this is effectively like performing the search twice -- painful, but in this case, I have not figured out a way to get around it
-        uint certificatesLengthTemp = 0;
+        uint[] memory recordIDs = new uint[](recordIDsLength);
+        uint currentIndex = 0;
 
-        for(uint currentDate = endDateRangeLow; currentDate < endDateRangeHigh; currentDate += numSecondsInDay) {
-            certificatesLengthTemp += getCertificatesByEndDate(currentDate).certificatesLength;
-        }
+        for(uint bucket = lowBucket; bucket <= highBucket; bucket++) {
+            uint[] storage bucketIDs = mapByEndDateBucket[bucket];
+            bool isEdgeBucket = bucket == lowBucket || bucket == highBucket;
 
-        //Create the temporary array with the length that we found
-        Certificate[] memory certificatesTemp = new Certificate[](certificatesLengthTemp);
+            for(uint i = 0; i < bucketIDs.length; i++) {
+                if(isEdgeBucket) {
+                    uint endDate = mapByRecordID[bucketIDs[i]].endDate;
 
-        //Add the actual certificates to the array
-        uint currentIndex = 0;
+                    if(endDate < low || endDate > high) {
+                        continue;
+                    }
+                }
 
-        for(uint currentDate = endDateRangeLow; currentDate < endDateRangeHigh; currentDate += numSecondsInDay) {
-            CertificateArray memory tempArr = getCertificatesByEndDate(currentDate);
-            for(uint i = 0; i < tempArr.certificatesLength; i++) {
-                certificatesTemp[currentIndex] = tempArr.certificates[i];
+                recordIDs[currentIndex] = bucketIDs[i];
                 currentIndex++;
             }
         }
 
-        return CertificateArray(certificatesTemp, certificatesLengthTemp);
-    }
-
-    //==============================================================================
-
-    /**
-     * Looks up an array of certificates by first name key in the mapByFirstNameKey mapping
-     * @param firstNameKey The first name key to check the certificate for
-     * @return Returns an array of certificates at the bucket for the first name key passed
-     */
-
-    function getCertificatesByFirstNameKey(uint firstNameKey) internal view returns(CertificateArray memory) {
-        return mapByFirstNameKey[firstNameKey];
-    }
-
-    //==============================================================================
-
-    /**
-     * Looks up an array of certificates by last name key in the mapByFirstNameKey mapping
-     * @param lastNameKey The last name key to check the certificate for
-     * @return Returns an array of certificates at the bucket for the last name key passed
-     */
-
-    function getCertificatesByLastNameKey(uint lastNameKey) internal view returns(CertificateArray memory) {
-        return mapByLastNameKey[lastNameKey];
+        return truncate(recordIDs, currentIndex);
     }
 
     //==============================================================================
@@ -578,11 +532,13 @@ contract CertificateDB {
     * @param recordID The unique record ID assigned to each certificate upon issuance
     * @param courseName The course name on the certificate to add to the mappings
     * @param endDate The end or expiry date on the certificate to add to the mappings
+    * @param pdfHash The SHA-256 hash of the certificate's PDF, whose bytes are stored separately with addPDFBytes() or off-chain
+    * @param pdfLength The length of the certificate's PDF in bytes
     */
 
     function addNewCertificate(
         string memory email,
-        uint16 researcherID,
+        uint64 researcherID,
         string memory firstName,
         string memory lastName,
         uint firstNameKey,
@@ -590,19 +546,33 @@ contract CertificateDB {
         CertificateType certificateType,
         uint recordID,
         string memory courseName,
-        uint endDate
+        uint endDate,
+        bytes32 pdfHash,
+        uint pdfLength
     )
     public {
-        //Iterate over each Map enum value and add the certificate to the map
+        require(!recordIDUsed[recordID]);   //Require that the record ID has not been used, since the certificate is stored under it
+
+        Certificate memory certificate = Certificate(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate);
+
+        //Store the certificate once, then add its record ID to each index
+        mapByRecordID[recordID] = certificate;
+        recordIDUsed[recordID] = true;
+        allRecordIDs.push(recordID);
+
+        //Iterate over each Map enum value and add the record ID to the map
         for(uint8 i = 0; i < NUMBER_OF_MAPS; i++) {
-            addCertificateToMap(i, Certificate(email, researcherID, firstName, lastName, firstNameKey, lastNameKey, certificateType, recordID, courseName, endDate));
+            addCertificateToMap(i, certificate);
         }
 
-        CertificateBytes memory temp;
-        mapCertificateBytes[recordID] = temp;
-        mapCertificateBytes[recordID].recordID = recordID;
+        updateLatestExpiry(certificate);
+
+        mapRecordPDFHash[recordID] = pdfHash;
+        mapRecordPDFLength[recordID] = pdfLength;
 
         certificateCount++;
+
+        emitCertificateAdded(certificate);
     }
 
     //==============================================================================
@@ -617,56 +587,54 @@ contract CertificateDB {
      * @param researcherID The ID to check the certificate for
      * @param endDateRangeLow The earliest end date to search from
      * @param endDateRangeHigh The latest end date to search from
-     * @return Returns a JSON string containing all of the certificates that match ANY of the given criteria (may include duplicates!)
+     * @return Returns the record IDs of all of the certificates that match ANY of the given criteria (may include duplicates!)
      */
 
-    function queryAny(
+    function queryAnyRecordIDs(
         uint firstNameKey,
         uint lastNameKey,
-        uint16 researcherID,
+        uint64 researcherID,
         uint endDateRangeLow,
         uint endDateRangeHigh
-    ) public view returns(string memory) {
+    ) public view returns(uint[] memory) {
 
-        //Get all of the search results for each individual field
-        CertificateArray memory firstNameKeyArray = getCertificatesByFirstNameKey(firstNameKey);
-        CertificateArray memory lastNameKeyArray = getCertificatesByLastNameKey(lastNameKey);
-        CertificateArray memory researcherIDArray = getCertificatesByResearcherID(researcherID);
-        CertificateArray memory endDateArray = getCertificatesByEndDateRange(endDateRangeLow, endDateRangeHigh);
+        require(isValidID(researcherID)); //Require that the ID is a valid ID
 
-        uint tempLength = firstNameKeyArray.certificatesLength + lastNameKeyArray.certificatesLength + researcherIDArray.certificatesLength + endDateArray.certificatesLength;
+        //Get all of the search results for each individual field
+        uint[] storage firstNameKeyIDs = mapByFirstNameKey[firstNameKey];
+        uint[] storage lastNameKeyIDs = mapByLastNameKey[lastNameKey];
+        uint[] storage researcherIDs = mapByResearcherID[researcherID];
+        uint[] memory endDateIDs = getRecordIDsByEndDateRange(endDateRangeLow, endDateRangeHigh);
 
-        Certificate[] memory tempArray = new Certificate[](tempLength);
+        uint[] memory recordIDs = new uint[](firstNameKeyIDs.length + lastNameKeyIDs.length + researcherIDs.length + endDateIDs.length);
 
         uint currentIndex = 0;
 
-        for(uint i = 0; i < firstNameKeyArray.certificatesLength; i++) {
-            tempArray[currentIndex] = firstNameKeyArray.certificates[i];
+        for(uint i = 0; i < firstNameKeyIDs.length; i++) {
+            recordIDs[currentIndex] = firstNameKeyIDs[i];
             currentIndex++;
         }
 
-        for(uint i = 0; i < lastNameKeyArray.certificatesLength; i++) {
-            tempArray[currentIndex] = lastNameKeyArray.certificates[i];
+        for(uint i = 0; i < lastNameKeyIDs.length; i++) {
+            recordIDs[currentIndex] = lastNameKeyIDs[i];
             currentIndex++;
         }
 
-        for(uint i = 0; i < researcherIDArray.certificatesLength; i++) {
-            tempArray[currentIndex] = researcherIDArray.certificates[i];
+        for(uint i = 0; i < researcherIDs.length; i++) {
+            recordIDs[currentIndex] = researcherIDs[i];
             currentIndex++;
         }
 
-        for(uint i = 0; i < endDateArray.certificatesLength; i++) {
-            tempArray[currentIndex] = endDateArray.certificates[i];
+        for(uint i = 0; i < endDateIDs.length; i++) {
+            recordIDs[currentIndex] = endDateIDs[i];
             currentIndex++;
         }
 
-        return certificateArrayToJSON(CertificateArray(tempArray, tempLength));
+        return recordIDs;
     }
 
     //==============================================================================
 
-    //TODO: Clean this up! This is gross right now!
-
     /**
      * Queries the database for certificates matching ALL of the criteria passed
      * If a field is not specified in the search, it will be passed as 0
@@ -675,112 +643,181 @@ contract CertificateDB {
      * @param researcherID The ID to check the certificate for
      * @param endDateRangeLow The earliest end date to search from
      * @param endDateRangeHigh The latest end date to search from
-     * @return Returns a JSON string containing all of the certificates that match ALL of the given criteria (may include duplicates!)
+     * @return Returns the record IDs of all of the certificates that match ALL of the given criteria
      */
 
-    function queryAll(
+    function queryAllRecordIDs(
         uint firstNameKey,
         uint lastNameKey,
-        uint16 researcherID,
+        uint64 researcherID,
         uint endDateRangeLow,
         uint endDateRangeHigh
-    ) public view returns(string memory) {
-
-        uint tempLength;
-        uint currentIndex = 0;
+    ) public view returns(uint[] memory) {
 
-        CertificateArray memory firstNameKeyArray;
-        CertificateArray memory lastNameKeyArray;
-        CertificateArray memory researcherIDArray;
-        CertificateArray memory endDateArray;
+        uint[] memory candidates;
 
-        //Get all of the search results for each individual field
+        //Every result has to be in the bucket of the first specified field, so only that bucket needs to be checked against the rest
         if(firstNameKey != 0) {
-            firstNameKeyArray = getCertificatesByFirstNameKey(firstNameKey);
-            tempLength = firstNameKeyArray.certificatesLength;
+            candidates = mapByFirstNameKey[firstNameKey];
+        }
+        else if(lastNameKey != 0) {
+            candidates = mapByLastNameKey[lastNameKey];
+        }
+        else if(researcherID != 0) {
+            require(isValidID(researcherID)); //Require that the ID is a valid ID
+            candidates = mapByResearcherID[researcherID];
+        }
+        else if(endDateRangeLow != 0 || endDateRangeHigh != 0) {
+            candidates = getRecordIDsByEndDateRange(endDateRangeLow, endDateRangeHigh);
+        }
+        else {
+            return new uint[](0);
+        }
 
-            Certificate[] memory tempArray = new Certificate[](tempLength);
+        return matchingRecordIDs(candidates, Query(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh));
+    }
 
-            for(uint i = 0; i < firstNameKeyArray.certificatesLength; i++) {
-                if(matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, firstNameKeyArray.certificates[i])) {
-                    tempArray[currentIndex] = firstNameKeyArray.certificates[i];
-                    currentIndex++;
-                }
-            }
+    //==============================================================================
 
-            return certificateArrayToJSON(CertificateArray(tempArray, tempLength));
-        }
-        else if(lastNameKey != 0) {
-            lastNameKeyArray = getCertificatesByLastNameKey(lastNameKey);
-            tempLength = lastNameKeyArray.certificatesLength;
+    /**
+     * Queries the database for certificates with an end date in a range
+     * Costs one read per 30-day bucket in the range plus one per certificate in it, rather than one per day
+     * @param endDateRangeLow The earliest end date to search from (inclusive), or 0 to search from midnight today
+     * @param endDateRangeHigh The latest end date to search to (inclusive), or 0 to search until three years from now
+     * @return Returns the record IDs of the certificates with an end date in the range
+     */
 
-            Certificate[] memory tempArray = new Certificate[](tempLength);
+    function queryEndDateRangeRecordIDs(uint endDateRangeLow, uint endDateRangeHigh) public view returns(uint[] memory) {
+        return getRecordIDsByEndDateRange(endDateRangeLow, endDateRangeHigh);
+    }
 
-            for(uint i = 0; i < lastNameKeyArray.certificatesLength; i++) {
-                if(matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, lastNameKeyArray.certificates[i])) {
-                    tempArray[currentIndex] = lastNameKeyArray.certificates[i];
-                    currentIndex++;
-                }
-            }
+    //==============================================================================
 
-            return certificateArrayToJSON(CertificateArray(tempArray, tempLength));
-        }
-        else if(researcherID != 0) {
-            researcherIDArray = getCertificatesByResearcherID(researcherID);
-            tempLength = researcherIDArray.certificatesLength;
+    /**
+     * Queries the database for one page of the certificates matching ALL of the criteria passed
+     * Unlike queryAllRecordIDs(), reads candidates straight from storage and stops after a bounded number of them, so the cost of a call does not grow with the database
+     * A page may hold fewer than `limit` results even when more pages follow, so callers should keep going until nextOffset is 0
+     * @param firstNameKey The first name key to check the certificate for
+     * @param lastNameKey The last name key to check the certificate for
+     * @param researcherID The ID to check the certificate for
+     * @param endDateRangeLow The earliest end date to search from
+     * @param endDateRangeHigh The latest end date to search from
+     * @param offset The position to resume from, which is 0 for the first page and the nextOffset of the previous page after that
+     * @param limit The most record IDs to return, up to MAX_PAGE_SIZE
+     * @return Returns the record IDs of the matching certificates in this page, and the offset of the next page, or 0 if this is the last page
+     */
 
-            Certificate[] memory tempArray = new Certificate[](tempLength);
+    function queryAllRecordIDsPage(
+        uint firstNameKey,
+        uint lastNameKey,
+        uint64 researcherID,
+        uint endDateRangeLow,
+        uint endDateRangeHigh,
+        uint offset,
+        uint limit
+    ) public view returns(uint[] memory recordIDs, uint nextOffset) {
+        require(limit > 0 && limit <= MAX_PAGE_SIZE);
 
-            for(uint i = 0; i < researcherIDArray.certificatesLength; i++) {
-                if(matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, researcherIDArray.certificates[i])) {
-                    tempArray[currentIndex] = researcherIDArray.certificates[i];
-                    currentIndex++;
-                }
-            }
+        Query memory query = Query(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh);
+        Page memory page = Page(new uint[](limit), 0, offset, offset + MAX_PAGE_SCAN, false);
 
-            return certificateArrayToJSON(CertificateArray(tempArray, tempLength));
+        //Every result has to be in the bucket of the first specified field, so only that bucket needs to be paged through
+        if(firstNameKey != 0) {
+            scanBucket(mapByFirstNameKey[firstNameKey], 0, query, page);
+        }
+        else if(lastNameKey != 0) {
+            scanBucket(mapByLastNameKey[lastNameKey], 0, query, page);
+        }
+        else if(researcherID != 0) {
+            require(isValidID(researcherID)); //Require that the ID is a valid ID
+            scanBucket(mapByResearcherID[researcherID], 0, query, page);
         }
         else if(endDateRangeLow != 0 || endDateRangeHigh != 0) {
-            endDateArray = getCertificatesByEndDateRange(endDateRangeLow, endDateRangeHigh);
-            tempLength = endDateArray.certificatesLength;
+            (query.endDateRangeLow, query.endDateRangeHigh) = resolveEndDateRange(endDateRangeLow, endDateRangeHigh);
 
-            Certificate[] memory tempArray = new Certificate[](tempLength);
+            //The candidates are the end date buckets in the range, one after another, so a bucket's start is the number of candidates in the buckets before it
+            uint bucketStart = 0;
+            uint highBucket = query.endDateRangeHigh / END_DATE_BUCKET_SECONDS;
 
-            for(uint i = 0; i < endDateArray.certificatesLength; i++) {
-                if(matchesCriteria(firstNameKey, lastNameKey, researcherID, endDateRangeLow, endDateRangeHigh, endDateArray.certificates[i])) {
-                    tempArray[currentIndex] = endDateArray.certificates[i];
-                    currentIndex++;
-                }
+            for(uint bucket = query.endDateRangeLow / END_DATE_BUCKET_SECONDS; bucket <= highBucket && !page.hasMore; bucket++) {
+                uint[] storage bucketIDs = mapByEndDateBucket[bucket];
+                scanBucket(bucketIDs, bucketStart, query, page);
+                bucketStart += bucketIDs.length;
             }
-
-            return certificateArrayToJSON(CertificateArray(tempArray, tempLength));
         }
 
-        return certificateArrayToJSON(CertificateArray(new Certificate[](0), 0));
+        return (truncate(page.recordIDs, page.found), page.hasMore ? page.position : 0);
     }
 
     //==============================================================================
 
-    function getAllCertificates() public view returns(string memory) {
+    /**
+     * @return Returns the record IDs of every certificate in the database, in the order they were added
+     */
 
-        if(getCertificateCount() == 0) {
-            return "[]";
+    function getAllRecordIDs() public view returns(uint[] memory) {
+        return allRecordIDs;
+    }
+
+    //==============================================================================
+
+    /**
+     * Returns one page of the record IDs of every certificate in the database, in the order they were added
+     * @param offset The position of the first record ID to return
+     * @param limit The most record IDs to return, up to MAX_PAGE_SIZE
+     * @return Returns the record IDs in this page, and the offset of the next page, or 0 if this is the last page
+     */
+
+    function getRecordIDsPage(uint offset, uint limit) public view returns(uint[] memory recordIDs, uint nextOffset) {
+        require(limit > 0 && limit <= MAX_PAGE_SIZE);
+
+        if(offset >= allRecordIDs.length) {
+            return (new uint[](0), 0);
         }
 
-        Certificate[] memory tempArray = new Certificate[](getCertificateCount());
-        uint currentIndex = 0;
+        uint end = offset + limit < allRecordIDs.length ? offset + limit : allRecordIDs.length;
+        recordIDs = new uint[](end - offset);
 
-        //TODO: Make this faster! This is pretty inefficient and there must be a better way to do it but I don't have time to figure out one right now.
-        // For every possible researcher ID, get the certificates
-        for(uint16 i = 0; i < usedResearcherIDs.length; i++) {
-            CertificateArray memory temp = getCertificatesByResearcherID(usedResearcherIDs[i]);
-            for(uint j = 0; j < temp.certificates.length; j++) {
-                tempArray[currentIndex] =  temp.certificates[j];
-                currentIndex++;
-            }
+        for(uint i = offset; i < end; i++) {
+            recordIDs[i - offset] = allRecordIDs[i];
         }
 
-        return certificateArrayToJSON(CertificateArray(tempArray, currentIndex));
+        return (recordIDs, end < allRecordIDs.length ? end : 0);
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up a single certificate by its record ID
+     * Used together with the record ID queries to read the fields of the certificates that matched
+     * @param recordID The record ID of the certificate to look up
+     * @return Returns every field of the certificate, or empty values if there is no certificate with the record ID
+     */
+
+    function getCertificate(uint recordID) public view returns(
+        string memory email,
+        uint64 researcherID,
+        string memory firstName,
+        string memory lastName,
+        uint firstNameKey,
+        uint lastNameKey,
+        CertificateType certificateType,
+        string memory courseName,
+        uint endDate
+    ) {
+        Certificate storage certificate = mapByRecordID[recordID];
+
+        return (
+            certificate.email,
+            certificate.researcherID,
+            certificate.firstName,
+            certificate.lastName,
+            certificate.firstNameKey,
+            certificate.lastNameKey,
+            certificate.certificateType,
+            certificate.courseName,
+            certificate.endDate
+        );
     }
 
     //==============================================================================
@@ -791,44 +828,175 @@ contract CertificateDB {
      * @return Returns true if the ID has a valid certificate, and false if it does not
      */
 
-    function hasValidCertificate(uint16 researcherID) public view returns(bool) {
+    function hasValidCertificate(uint64 researcherID) public view returns(bool) {
         require(isValidID(researcherID)); //Require that the ID is a valid ID
 
-        bool valid = false;
-        Certificate[] storage certificates = mapByResearcherID[researcherID].certificates;
+        //A researcher has a valid certificate exactly when their latest certificate has not expired yet
+        return mapLatestExpiry[researcherID] > now;
+    }
 
-        for(uint i = 0; i < mapByResearcherID[researcherID].certificatesLength; i++) {
-            if(isValidCertificate(certificates[i])) {
-                valid = true;
-            }
+    //==============================================================================
+
+    /**
+     * Checks to see if a researcher has a valid certificate of a particular type stored on the chain
+     * @param researcherID The ID to look check for a valid certificate for
+     * @param certificateType The type of certificate to look for
+     * @return Returns true if the ID has a valid certificate of the type, and false if it does not
+     */
+
+    function hasValidCertificateOfType(uint64 researcherID, CertificateType certificateType) public view returns(bool) {
+        require(isValidID(researcherID)); //Require that the ID is a valid ID
+
+        return mapLatestExpiryByType[researcherID][uint(certificateType)] > now;
+    }
+
+    //==============================================================================
+
+    /**
+     * @param researcherID The ID to look up
+     * @return Returns the latest end date of any of the researcher's certificates, or 0 if they have none
+     */
+
+    function getLatestExpiry(uint64 researcherID) public view returns(uint) {
+        return mapLatestExpiry[researcherID];
+    }
+
+    //==============================================================================
+
+    /**
+     * @param researcherID The ID to look up
+     * @param certificateType The type of certificate to look up
+     * @return Returns the latest end date of any of the researcher's certificates of the type, or 0 if they have none
+     */
+
+    function getLatestExpiryOfType(uint64 researcherID, CertificateType certificateType) public view returns(uint) {
+        return mapLatestExpiryByType[researcherID][uint(certificateType)];
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the latest end dates of many researchers in a single call, so that a whole roster can be checked without one call per researcher
+     * @param researcherIDs The IDs to look up
+     * @return Returns the latest end date of any of each researcher's certificates, or 0 if they have none, in the same order as the IDs
+     */
+
+    function getLatestExpiries(uint64[] memory researcherIDs) public view returns(uint[] memory) {
+        uint[] memory expiries = new uint[](researcherIDs.length);
+
+        for(uint i = 0; i < researcherIDs.length; i++) {
+            expiries[i] = mapLatestExpiry[researcherIDs[i]];
+        }
+
+        return expiries;
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up the latest end dates of many researchers' certificates of one type in a single call
+     * @param researcherIDs The IDs to look up
+     * @param certificateType The type of certificate to look up
+     * @return Returns the latest end date of each researcher's certificates of the type, or 0 if they have none, in the same order as the IDs
+     */
+
+    function getLatestExpiriesOfType(uint64[] memory researcherIDs, CertificateType certificateType) public view returns(uint[] memory) {
+        uint[] memory expiries = new uint[](researcherIDs.length);
+
+        for(uint i = 0; i < researcherIDs.length; i++) {
+            expiries[i] = mapLatestExpiryByType[researcherIDs[i]][uint(certificateType)];
         }
 
-        return valid;
+        return expiries;
     }
 
     //==============================================================================
 
     /**
-     * Adds a 30-kb block to the bytes mapping under the given record ID
-     * @param recordID The record ID of the certificate from which the bytes come
+     * Adds a 30-kb block to the bytes mapping under the hash of the PDF it belongs to
+     * Every certificate that shares the hash reads the same bytes, so a slice can only be written once, only while the PDF is incomplete,
+     * and only with the number of slices the first slice was stored with. Only the owner can upload, so nobody else can claim a hash first.
+     * @param pdfHash The SHA-256 hash of the full PDF from which the bytes come
+     * @param index The index of the slice within the PDF
+     * @param numSlices The total number of slices the PDF is stored in
      * @param data The actual byte data of the certificate PDF
      */
 
-    function addCertificateBytes(uint recordID, uint index, bytes memory data) public {
-        mapCertificateBytes[recordID].rawBytes[index] = data;
-        mapCertificateBytes[recordID].certificateBytesLength++;
+    function addPDFBytes(bytes32 pdfHash, uint index, uint numSlices, bytes memory data) public onlyOwner {
+        CertificateBytes storage certificateBytes = mapCertificateBytes[pdfHash];
+
+        require(!hasPDF(pdfHash));                                                          //Require that the PDF is not already complete
+        require(index < numSlices && data.length > 0);                                      //Require a non-empty slice within the PDF
+        require(certificateBytes.rawBytes[index].length == 0);                              //Require that the slice has not been stored yet
+        require(certificateBytes.numSlices == 0 || certificateBytes.numSlices == numSlices);  //Require the same slice count as earlier slices
+
+        certificateBytes.rawBytes[index] = data;
+        certificateBytes.certificateBytesLength++;
+        certificateBytes.numSlices = numSlices;
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks whether one slice of a PDF has been stored, so an interrupted upload can be resumed without rewriting the slices it already stored
+     * @param pdfHash The SHA-256 hash of the PDF
+     * @param index The index of the slice within the PDF
+     * @return Returns true if the slice has been stored
+     */
+
+    function hasPDFSlice(bytes32 pdfHash, uint index) public view returns(bool) {
+        return mapCertificateBytes[pdfHash].rawBytes[index].length > 0;
+    }
+
+    //==============================================================================
+
+    /**
+     * Looks up everything needed to download a certificate's PDF from the chain in one call
+     * @param recordID The record ID of the certificate
+     * @return Returns the hash of the PDF, the number of slices it is stored in, and whether every one of those slices has been stored
+     */
+
+    function getPDFInfo(uint recordID) public view returns(bytes32 pdfHash, uint numSlices, bool complete) {
+        pdfHash = mapRecordPDFHash[recordID];
+        numSlices = mapCertificateBytes[pdfHash].numSlices;
+        complete = hasPDF(pdfHash);
+    }
+
+    //==============================================================================
+
+    /**
+     * Checks to see if every slice of a PDF has already been stored
+     * @param pdfHash The SHA-256 hash of the PDF
+     * @return Returns true if the PDF is fully stored, and false if it is not stored or only partially stored
+     */
+
+    function hasPDF(bytes32 pdfHash) public view returns(bool) {
+        CertificateBytes storage certificateBytes = mapCertificateBytes[pdfHash];
+        return certificateBytes.numSlices > 0 && certificateBytes.certificateBytesLength == certificateBytes.numSlices;
+    }
+
+    //==============================================================================
+
+    function getPDFHash(uint recordID) public view returns(bytes32) {
+        return mapRecordPDFHash[recordID];
+    }
+
+    //==============================================================================
+
+    function getPDFLength(uint recordID) public view returns(uint) {
+        return mapRecordPDFLength[recordID];
     }
 
     //==============================================================================
 
     function getCertificateBytes(uint recordID, uint index) public view returns(bytes memory) {
-        return mapCertificateBytes[recordID].rawBytes[index];
+        return mapCertificateBytes[mapRecordPDFHash[recordID]].rawBytes[index];
     }
 
     //==============================================================================
 
     function getCertificateBytesLength(uint recordID) public view returns(uint) {
-        return mapCertificateBytes[recordID].certificateBytesLength;
+        return mapCertificateBytes[mapRecordPDFHash[recordID]].certificateBytesLength;
     }
 
     //==============================================================================
@@ -841,28 +1009,6 @@ contract CertificateDB {
     // TEST FUNCTIONS
     //==============================================================================
 
-    function testByID(uint16 ID) public view returns(string memory) {
-        CertificateArray memory arr = getCertificatesByResearcherID(ID);
-        if(arr.certificates.length > 0) {
-            Certificate memory currentCertificate = arr.certificates[0];
-            return certificateToJSON(
-                currentCertificate.email,
-                currentCertificate.researcherID,
-                currentCertificate.firstName,
-                currentCertificate.lastName,
-                currentCertificate.firstNameKey,
-                currentCertificate.lastNameKey,
-                currentCertificate.certificateType,
-                currentCertificate.recordID,
-                currentCertificate.courseName,
-                currentCertificate.endDate
-            );
-        }
-        else {
-            return "Did not find any certificates";
-        }
-    }
-
     //    function setStringData(string memory str) public {
     //        stringData = str;
     //    }
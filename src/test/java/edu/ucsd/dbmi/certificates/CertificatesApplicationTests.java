@@ -6,7 +6,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = "certificates.id-registry.path=${java.io.tmpdir}/certificates-test-ids.log")
 public class CertificatesApplicationTests {
 
 	@Test
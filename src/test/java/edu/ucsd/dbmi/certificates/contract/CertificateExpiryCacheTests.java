@@ -0,0 +1,96 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CertificateExpiryCacheTests {
+
+	@Test
+	public void cachedValidityEndsAtExpiry() throws Exception {
+		AtomicLong now = new AtomicLong(1000);
+		AtomicInteger loads = new AtomicInteger();
+		CertificateExpiryCache cache = new CertificateExpiryCache(60000, (id, type) -> {
+			loads.incrementAndGet();
+			return 5000;
+		}, now::get);
+
+		assertTrue(cache.isValid(1, CertificateExpiryCache.ANY_TYPE));
+		assertTrue(cache.isValid(1, CertificateExpiryCache.ANY_TYPE));
+		assertEquals(1, loads.get());
+
+		now.set(5000);
+		assertFalse(cache.isValid(1, CertificateExpiryCache.ANY_TYPE));
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void missingCertificatesAreReloadedAfterTTL() throws Exception {
+		AtomicLong now = new AtomicLong(1000);
+		AtomicLong expiry = new AtomicLong(0);
+		CertificateExpiryCache cache = new CertificateExpiryCache(100, (id, type) -> expiry.get(), now::get);
+
+		assertFalse(cache.isValid(1, 0));
+
+		expiry.set(9000);
+		now.set(1050);
+		assertFalse(cache.isValid(1, 0));
+
+		now.set(1100);
+		assertTrue(cache.isValid(1, 0));
+	}
+
+	@Test
+	public void raiseUpdatesCachedEntriesOnly() throws Exception {
+		AtomicLong now = new AtomicLong(1000);
+		CertificateExpiryCache cache = new CertificateExpiryCache(60000, (id, type) -> 0, now::get);
+
+		assertFalse(cache.isValid(1, CertificateExpiryCache.ANY_TYPE));
+
+		cache.raise(1, 0, 9000);
+
+		assertTrue(cache.isValid(1, CertificateExpiryCache.ANY_TYPE));
+		assertFalse(cache.isValid(1, 1));
+	}
+
+	@Test
+	public void raiseDuringLoadIsNotOverwritten() throws Exception {
+		AtomicLong now = new AtomicLong(1000);
+		AtomicReference<CertificateExpiryCache> cache = new AtomicReference<>();
+
+		//The certificate is confirmed and raised while the chain is still being read from before it was mined
+		cache.set(new CertificateExpiryCache(60000, (id, type) -> {
+			cache.get().raise(1, 0, 9000);
+			return 0;
+		}, now::get));
+
+		assertTrue(cache.get().isValid(1, 0));
+		assertEquals(9000, cache.get().getExpiryMillis(1, 0));
+	}
+
+	@Test
+	public void raiseDuringReloadIsNotOverwritten() throws Exception {
+		AtomicLong now = new AtomicLong(1000);
+		AtomicLong expiry = new AtomicLong(2000);
+		AtomicReference<CertificateExpiryCache> cache = new AtomicReference<>();
+
+		cache.set(new CertificateExpiryCache(100, (id, type) -> {
+			if(now.get() > 1000) {
+				cache.get().raise(1, 0, 9000);
+			}
+			return expiry.get();
+		}, now::get));
+
+		assertTrue(cache.get().isValid(1, 0));
+
+		now.set(1200);
+		assertTrue(cache.get().isValid(1, 0));
+		assertEquals(9000, cache.get().getExpiryMillis(1, 0));
+	}
+}
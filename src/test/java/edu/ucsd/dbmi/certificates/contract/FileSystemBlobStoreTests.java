@@ -0,0 +1,43 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.storage.FileSystemBlobStore;
+import org.junit.Test;
+import org.web3j.crypto.Hash;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileSystemBlobStoreTests {
+
+	@Test
+	public void storedPDFRoundTrips() throws Exception {
+		FileSystemBlobStore store = new FileSystemBlobStore(Files.createTempDirectory("blobs"));
+		byte[] pdf = "%PDF-1.4 certificate".getBytes(StandardCharsets.US_ASCII);
+		byte[] hash = Hash.sha256(pdf);
+
+		store.put(hash, pdf);
+		store.put(hash, pdf);
+
+		assertTrue(store.contains(hash));
+
+		ByteBuffer stored = store.get(hash);
+		byte[] read = new byte[stored.remaining()];
+		stored.get(read);
+		assertArrayEquals(pdf, read);
+	}
+
+	@Test
+	public void missingPDFIsNull() throws Exception {
+		FileSystemBlobStore store = new FileSystemBlobStore(Files.createTempDirectory("blobs"));
+		byte[] hash = Hash.sha256(new byte[] {1});
+
+		assertFalse(store.contains(hash));
+		assertNull(store.get(hash));
+	}
+}
@@ -0,0 +1,44 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GasMeterTests {
+
+	@Test
+	public void totalsPerOperation() {
+		GasMeter gasMeter = new GasMeter();
+		gasMeter.record(CertificateDB.FUNC_ADDPDFBYTES, 300);
+		gasMeter.record(CertificateDB.FUNC_ADDPDFBYTES, 500);
+		gasMeter.record(CertificateDB.FUNC_ADDNEWCERTIFICATE, 200);
+
+		assertEquals(2, gasMeter.getCount(CertificateDB.FUNC_ADDPDFBYTES));
+		assertEquals(800, gasMeter.getGas(CertificateDB.FUNC_ADDPDFBYTES));
+		assertEquals(400, gasMeter.getAverageGas(CertificateDB.FUNC_ADDPDFBYTES), 0);
+		assertEquals(500, gasMeter.getMaxGas(CertificateDB.FUNC_ADDPDFBYTES));
+		assertEquals(1000, gasMeter.getTotalGas());
+		assertEquals(0, gasMeter.getCount(CertificateDB.FUNC_HASPDF));
+	}
+
+	@Test
+	public void gasPerCertificateIncludesSlices() {
+		GasMeter gasMeter = new GasMeter();
+		gasMeter.record(CertificateDB.FUNC_ADDNEWCERTIFICATE, 200);
+		gasMeter.record(CertificateDB.FUNC_ADDNEWCERTIFICATE, 200);
+		gasMeter.record(CertificateDB.FUNC_ADDPDFBYTES, 1000);
+		gasMeter.recordPDFBytes(2048);
+
+		assertEquals(700, gasMeter.getGasPerCertificate(), 0);
+		assertEquals(500, gasMeter.getGasPerPDFKilobyte(), 0);
+	}
+
+	@Test
+	public void emptyMeterReportsZero() {
+		GasMeter gasMeter = new GasMeter();
+
+		assertEquals(0, gasMeter.getGasPerCertificate(), 0);
+		assertEquals(0, gasMeter.getGasPerPDFKilobyte(), 0);
+		assertEquals(0, gasMeter.getAverageGas(CertificateDB.FUNC_ADDNEWCERTIFICATE), 0);
+	}
+}
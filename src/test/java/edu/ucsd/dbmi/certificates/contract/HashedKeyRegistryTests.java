@@ -0,0 +1,26 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedKeyRegistryTests {
+
+	@Test
+	public void keysIgnoreCaseAndSurroundingSpace() throws Exception {
+		HashedKeyRegistry keys = new HashedKeyRegistry();
+
+		assertEquals(keys.getOrAssign("SMITH"), keys.getOrAssign(" smith "));
+		assertEquals(Long.valueOf(keys.getOrAssign("a@ucsd.edu")), new HashedKeyRegistry().getID("A@UCSD.EDU"));
+		assertFalse(keys.getOrAssign("SMITH") == keys.getOrAssign("SMYTH"));
+	}
+
+	@Test
+	public void keysArePositive() throws Exception {
+		for(int i = 0; i < 1000; i++) {
+			assertTrue(HashedKeyRegistry.deriveKey("researcher" + i + "@ucsd.edu") > 0);
+		}
+	}
+}
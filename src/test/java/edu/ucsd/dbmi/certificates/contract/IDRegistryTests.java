@@ -0,0 +1,68 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IDRegistryTests {
+
+	@Test
+	public void assignedIDsSurviveRestart() throws Exception {
+		Path path = Files.createTempDirectory("ids").resolve("ids.log");
+
+		try(IDRegistry ids = new IDRegistry(path)) {
+			assertEquals(10000, ids.getOrAssign("a@ucsd.edu"));
+			assertEquals(10001, ids.getOrAssign("SMITH"));
+			assertEquals(10000, ids.getOrAssign("a@ucsd.edu"));
+		}
+
+		try(IDRegistry ids = new IDRegistry(path)) {
+			assertEquals(2, ids.size());
+			assertEquals(Long.valueOf(10001), ids.getID("SMITH"));
+			assertEquals("a@ucsd.edu", ids.getString(10000));
+			assertEquals(10002, ids.getOrAssign("JONES"));
+		}
+	}
+
+	@Test
+	public void registeredIDsAreSkipped() throws Exception {
+		IDRegistry ids = new IDRegistry();
+
+		assertTrue(ids.register("JONES", 10000));
+		assertTrue(ids.register("DOE", 10001));
+		assertFalse(ids.register("JONES", 10002));
+		assertFalse(ids.register("SMITH", 10000));
+
+		assertEquals(10002, ids.getOrAssign("SMITH"));
+		assertEquals(10003, ids.getOrAssign("LEE"));
+	}
+
+	@Test
+	public void partlyWrittenRecordIsDropped() throws Exception {
+		Path path = Files.createTempDirectory("ids").resolve("ids.log");
+
+		try(IDRegistry ids = new IDRegistry(path)) {
+			ids.register("SMITH", 10000);
+		}
+
+		long length = Files.size(path);
+		Files.write(path, new byte[] {0, 0, 39}, StandardOpenOption.APPEND);
+
+		try(IDRegistry ids = new IDRegistry(path)) {
+			assertEquals(length, Files.size(path));
+			ids.register("JONES", 10001);
+		}
+
+		try(IDRegistry ids = new IDRegistry(path)) {
+			assertEquals(Long.valueOf(10001), ids.getID("JONES"));
+			assertNull(ids.getID("DOE"));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InMemoryCertificateLedgerTests {
+
+	@Test
+	public void usedRecordIDIsRejected() throws Exception {
+		InMemoryCertificateLedger ledger = new InMemoryCertificateLedger(() -> 1000);
+
+		List<TransactionPipeline.PendingTransaction> added = ledger.addNewCertificate("a@ucsd.edu", 1, "A", "B", 2, 3, 0, 7, "Course", 5000, null);
+		List<TransactionPipeline.PendingTransaction> rejected = ledger.addNewCertificate("c@ucsd.edu", 4, "C", "D", 5, 6, 0, 7, "Course", 9000, null);
+
+		assertTrue(rejected.get(0).getReceipt().isCompletedExceptionally());
+		assertNotEquals(added.get(0).getTransactionHash(), rejected.get(0).getTransactionHash());
+		assertEquals(1, ledger.getCertificateCount());
+		assertEquals(0, ledger.getLatestExpiry(4, null));
+	}
+
+	@Test
+	public void latestExpiryIsKeptOverallAndByType() throws Exception {
+		InMemoryCertificateLedger ledger = new InMemoryCertificateLedger(() -> 6000);
+
+		ledger.addNewCertificate("a@ucsd.edu", 1, "A", "B", 2, 3, 0, 1, "Course", 9000, null);
+		ledger.addNewCertificate("a@ucsd.edu", 1, "A", "B", 2, 3, 1, 2, "Course", 5000, null);
+
+		assertEquals(9000, ledger.getLatestExpiry(1, null));
+		assertEquals(5000, ledger.getLatestExpiry(1, 1));
+		assertTrue(ledger.hasValidCertificate(1));
+		assertArrayEquals(new long[] {5000, 0}, ledger.getLatestExpiries(Arrays.asList(1L, 8L), 1));
+	}
+
+	@Test
+	public void eachCertificateIsAddedInItsOwnBlock() throws Exception {
+		InMemoryCertificateLedger ledger = new InMemoryCertificateLedger(() -> 1000);
+
+		ledger.addNewCertificate("a@ucsd.edu", 1, "A", "B", 2, 3, 0, 1, "Course", 5000, null);
+		ledger.addNewCertificate("c@ucsd.edu", 4, "C", "D", 5, 6, 0, 2, "Course", 5000, null);
+
+		assertEquals(BigInteger.valueOf(2), ledger.getLatestBlockNumber());
+		assertEquals(2, ledger.getCertificatesAddedBetween(ledger.getDeploymentBlockNumber(), BigInteger.valueOf(2)).size());
+		assertEquals(Integer.valueOf(2), ledger.getCertificatesAddedBetween(BigInteger.valueOf(2), BigInteger.valueOf(2)).get(0).getRecordID());
+		assertFalse(ledger.hasValidCertificate(9));
+	}
+
+	@Test
+	public void pdfsAreOnlyReadInSlices() throws Exception {
+		InMemoryCertificateLedger ledger = new InMemoryCertificateLedger(() -> 1000);
+
+		ledger.addNewCertificate("a@ucsd.edu", 1, "A", "B", 2, 3, 0, 1, "Course", 5000, new byte[] {1, 2, 3});
+		ledger.addNewCertificate("c@ucsd.edu", 4, "C", "D", 5, 6, 0, 2, "Course", 5000, null);
+
+		assertNull(ledger.getStoredPDF(1));
+		assertArrayEquals(new byte[] {1, 2, 3}, ledger.getPDFSlices(1).next());
+		assertFalse(ledger.getPDFSlices(2).hasNext());
+	}
+}
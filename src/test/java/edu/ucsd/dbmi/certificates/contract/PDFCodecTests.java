@@ -0,0 +1,68 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PDFCodecTests {
+
+	private static byte[] compressiblePDF() {
+		StringBuilder pdf = new StringBuilder("%PDF-1.4\n");
+		for(int i = 0; i < 5000; i++) {
+			pdf.append("BT /F1 12 Tf 72 712 Td (Certificate line ").append(i % 10).append(") Tj ET\n");
+		}
+		return pdf.toString().getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void compressedRoundTrip() throws Exception {
+		byte[] pdf = compressiblePDF();
+		byte[] encoded = PDFCodec.encode(pdf, true);
+
+		assertEquals(PDFCodec.FORMAT_DEFLATE, encoded[0]);
+		assertTrue(encoded.length < pdf.length);
+		assertArrayEquals(pdf, PDFCodec.decode(encoded));
+	}
+
+	@Test
+	public void incompressibleFallsBackToRaw() throws Exception {
+		byte[] pdf = new byte[40000];
+		new Random(42).nextBytes(pdf);
+		byte[] encoded = PDFCodec.encode(pdf, true);
+
+		assertEquals(PDFCodec.FORMAT_RAW, encoded[0]);
+		assertEquals(pdf.length + 1, encoded.length);
+		assertArrayEquals(pdf, PDFCodec.decode(encoded));
+	}
+
+	@Test
+	public void legacyRecordsDecodeAsIs() throws Exception {
+		byte[] pdf = compressiblePDF();
+
+		assertArrayEquals(pdf, PDFCodec.decode(pdf));
+	}
+
+	@Test
+	public void slicesDecodeIncrementally() throws Exception {
+		byte[] pdf = compressiblePDF();
+		byte[] encoded = PDFCodec.encode(pdf, true);
+
+		PDFCodec.StreamDecoder decoder = new PDFCodec.StreamDecoder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		for(int start = 0; start < encoded.length; start += 100) {
+			byte[] slice = new byte[Math.min(100, encoded.length - start)];
+			System.arraycopy(encoded, start, slice, 0, slice.length);
+			out.write(decoder.update(slice));
+		}
+		decoder.finish();
+
+		assertArrayEquals(pdf, out.toByteArray());
+	}
+}
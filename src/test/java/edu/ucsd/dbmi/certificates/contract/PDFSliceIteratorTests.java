@@ -0,0 +1,60 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+import org.web3j.crypto.Hash;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PDFSliceIteratorTests {
+
+	@Test
+	public void closeCancelsPrefetchedSlices() {
+		List<CompletableFuture<byte[]>> requested = new ArrayList<>();
+
+		PDFSliceIterator slices = new PDFSliceIterator(1, 10, 3, false, null, index -> {
+			CompletableFuture<byte[]> slice = new CompletableFuture<>();
+			requested.add(slice);
+			return slice;
+		});
+
+		requested.get(0).complete(new byte[] {1});
+		slices.next();
+		assertEquals(4, requested.size());
+
+		slices.close();
+
+		assertFalse(slices.hasNext());
+		assertEquals(4, requested.size());
+		for(int i = 1; i < requested.size(); i++) {
+			assertTrue(requested.get(i).isCancelled());
+		}
+	}
+
+	@Test
+	public void lastSliceIsCheckedAgainstTheHash() {
+		byte[][] stored = {{1, 2}, {3}};
+		byte[] hash = Hash.sha256(new byte[] {1, 2, 3});
+
+		PDFSliceIterator matching = new PDFSliceIterator(1, 2, 2, false, hash, index -> CompletableFuture.completedFuture(stored[index]));
+		matching.next();
+		matching.next();
+
+		stored[1] = new byte[] {4};
+		PDFSliceIterator tampered = new PDFSliceIterator(1, 2, 2, false, hash, index -> CompletableFuture.completedFuture(stored[index]));
+		tampered.next();
+
+		try {
+			tampered.next();
+			fail();
+		} catch(IllegalStateException e) {
+			//Expected, the PDF does not match its hash
+		}
+	}
+}
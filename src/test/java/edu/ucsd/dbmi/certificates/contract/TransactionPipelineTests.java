@@ -0,0 +1,105 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import org.junit.Test;
+import org.web3j.protocol.core.methods.response.TransactionReceipt;
+import org.web3j.tx.response.TransactionReceiptProcessor;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TransactionPipelineTests {
+
+	//Returns a reverted receipt for any hash starting with "revert", after a delay so reverted transactions take longer than mined ones
+	private static TransactionReceiptProcessor receipts() {
+		return new TransactionReceiptProcessor(null) {
+			@Override
+			public TransactionReceipt waitForTransactionReceipt(String transactionHash) {
+				TransactionReceipt receipt = new TransactionReceipt();
+				receipt.setTransactionHash(transactionHash);
+
+				if(transactionHash.startsWith("revert")) {
+					try {
+						Thread.sleep(200);
+					} catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					receipt.setStatus("0x0");
+				} else {
+					receipt.setStatus("0x1");
+				}
+				return receipt;
+			}
+		};
+	}
+
+	@Test
+	public void revertedTransactionsDoNotCountTowardsLatency() throws Exception {
+		TransactionPipeline pipeline = new TransactionPipeline(4, receipts());
+
+		pipeline.submit(() -> "mined").getReceipt().get();
+
+		try {
+			pipeline.submit(() -> "reverted").getReceipt().join();
+			fail();
+		} catch(CompletionException e) {
+			//Expected, the transaction was reverted
+		}
+
+		assertEquals(1, pipeline.getConfirmedCount());
+		assertEquals(1, pipeline.getFailedCount());
+		assertTrue(pipeline.getMaxConfirmationMillis() < 200);
+		assertTrue(pipeline.getAverageConfirmationMillis() < 200);
+	}
+
+	@Test
+	public void shutdownWaitsForPendingReceipts() throws Exception {
+		TransactionPipeline pipeline = new TransactionPipeline(4, receipts());
+		TransactionPipeline.PendingTransaction transaction = pipeline.submit(() -> "revert-slowly");
+
+		pipeline.shutdown();
+
+		assertTrue(transaction.getReceipt().isDone());
+		assertEquals(0, pipeline.getPendingCount());
+	}
+
+	@Test
+	public void nothingIsSentAfterShutdown() throws Exception {
+		TransactionPipeline pipeline = new TransactionPipeline(1, receipts());
+		AtomicBoolean sent = new AtomicBoolean();
+
+		pipeline.shutdown();
+
+		try {
+			pipeline.submit(() -> {
+				sent.set(true);
+				return "mined";
+			});
+			fail();
+		} catch(RejectedExecutionException e) {
+			//Expected, the pipeline has been shut down
+		}
+
+		assertFalse(sent.get());
+	}
+
+	@Test
+	public void transactionSentDuringShutdownIsStillConfirmed() throws Exception {
+		TransactionPipeline pipeline = new TransactionPipeline(1, receipts());
+
+		//Shuts the pollers down after the shutdown check but before the receipt is waited for
+		TransactionPipeline.PendingTransaction transaction = pipeline.submit(() -> {
+			pipeline.shutdown();
+			return "mined";
+		});
+
+		assertEquals("mined", transaction.getReceipt().get().getTransactionHash());
+		assertEquals(1, pipeline.getConfirmedCount());
+		assertEquals(0, pipeline.getPendingCount());
+	}
+}
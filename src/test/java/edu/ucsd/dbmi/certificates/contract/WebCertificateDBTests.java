@@ -0,0 +1,48 @@
+package edu.ucsd.dbmi.certificates.contract;
+
+import edu.ucsd.dbmi.certificates.beans.Certificate;
+import edu.ucsd.dbmi.certificates.beans.ComplianceResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WebCertificateDBTests {
+
+	private static Certificate certificateEnding(long endDate) {
+		return new Certificate(1L, "JANE", "DOE", 0L, 0L, 0, 1, "Course", endDate, null);
+	}
+
+	@Test
+	public void endDateBoundsAreInclusive() throws Exception {
+		Date low = new Date(1000 * 1000L);
+		Date high = new Date(2000 * 1000L);
+		Predicate<Certificate> matches = WebCertificateDB.matchesExactly("", "", "", low, high);
+
+		assertTrue(matches.test(certificateEnding(1000)));
+		assertTrue(matches.test(certificateEnding(2000)));
+		assertFalse(matches.test(certificateEnding(999)));
+		assertFalse(matches.test(certificateEnding(2001)));
+	}
+
+	@Test
+	public void unknownEmailsAreNotRegisteredWithHashedKeys() throws Exception {
+		long endDate = System.currentTimeMillis() / 1000 + 3600;
+		InMemoryCertificateLedger ledger = new InMemoryCertificateLedger();
+		WebCertificateDB db = new WebCertificateDB(ledger, new HashedKeyRegistry());
+
+		db.addNewCertificateFromWeb("JANE", "DOE", "a@ucsd.edu", 0, 1, "Course", new Date(endDate * 1000L), null);
+
+		List<ComplianceResult> results = db.checkComplianceFromWeb(Arrays.asList("a@ucsd.edu", "b@ucsd.edu"), null).getResults();
+
+		assertTrue(results.get(0).isRegistered());
+		assertTrue(results.get(0).isValid());
+		assertFalse(results.get(1).isRegistered());
+		assertFalse(results.get(1).isValid());
+	}
+}
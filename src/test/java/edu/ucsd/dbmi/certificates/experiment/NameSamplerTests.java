@@ -0,0 +1,52 @@
+package edu.ucsd.dbmi.certificates.experiment;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NameSamplerTests {
+
+	@Test
+	public void ranksNamesByHowOftenTheyAppear() {
+		NameSampler names = new NameSampler(Arrays.asList("Mary", "Helen", "", "José", "Helen", "José", "Helen"), 1.0);
+
+		assertEquals(3, names.size());
+		assertEquals("Helen", names.get(0));
+		assertEquals("José", names.get(1));
+		assertEquals("Mary", names.get(2));
+	}
+
+	@Test
+	public void zipfianFavoursCommonNames() {
+		NameSampler names = new NameSampler(Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H", "I", "J"), 1.0);
+		Random random = new Random(42);
+		int[] counts = new int[names.size()];
+
+		for(int i = 0; i < 100000; i++) {
+			counts[names.zipfianRank(random)]++;
+		}
+
+		//Rank r has weight 1 / (r + 1), so rank 0 comes up twice as often as rank 1 and ten times as often as rank 9
+		assertEquals(2.0, counts[0] / (double) counts[1], 0.1);
+		assertEquals(10.0, counts[0] / (double) counts[9], 1.0);
+	}
+
+	@Test
+	public void zeroExponentIsUniform() {
+		NameSampler names = new NameSampler(Arrays.asList("A", "A", "A", "B"), 0);
+		Random random = new Random(42);
+		int first = 0;
+
+		for(int i = 0; i < 10000; i++) {
+			if(names.zipfianRank(random) == 0) {
+				first++;
+			}
+		}
+
+		assertTrue(Math.abs(first - 5000) < 300);
+	}
+}